@@ -7,21 +7,27 @@
  */
 package io.xnatworks.router;
 
+import io.xnatworks.router.anon.AnonymizationAuditService;
 import io.xnatworks.router.anon.AnonymizationService;
+import io.xnatworks.router.anon.BatchAnonymizer;
 import io.xnatworks.router.anon.ScriptLibrary;
+import io.xnatworks.router.anon.ScriptProfiler;
 import io.xnatworks.router.anon.StreamingAnonymizer;
 import io.xnatworks.router.archive.ArchiveManager;
 import io.xnatworks.router.broker.HonestBrokerService;
 import io.xnatworks.router.config.AppConfig;
 import io.xnatworks.router.dicom.DicomClient;
 import io.xnatworks.router.dicom.DicomReceiver;
+import io.xnatworks.router.dicom.ZipPackagingPolicy;
 import io.xnatworks.router.metrics.MetricsCollector;
 import io.xnatworks.router.retry.RetryManager;
 import io.xnatworks.router.review.ReviewManager;
 import io.xnatworks.router.routing.DestinationManager;
+import io.xnatworks.router.routing.WorkerPools;
 import io.xnatworks.router.store.RouterStore;
 import io.xnatworks.router.tracking.TransferTracker;
 import io.xnatworks.router.tracking.StorageCleanupService;
+import io.xnatworks.router.xnat.UploadPartitioner;
 import io.xnatworks.router.xnat.XnatClient;
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Tag;
@@ -38,6 +44,8 @@ import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * XNAT DICOM Router - Main Application
@@ -61,7 +69,8 @@ import java.util.concurrent.Callable;
                 DicomRouter.ScriptsCommand.class,
                 DicomRouter.QueryCommand.class,
                 DicomRouter.HistoryCommand.class,
-                DicomRouter.ImportCommand.class
+                DicomRouter.ImportCommand.class,
+                DicomRouter.BatchCommand.class
         })
 public class DicomRouter implements Callable<Integer> {
     private static final Logger log = LoggerFactory.getLogger(DicomRouter.class);
@@ -149,6 +158,7 @@ public class DicomRouter implements Callable<Integer> {
 
             // Initialize honest broker service
             HonestBrokerService honestBrokerService = new HonestBrokerService(config);
+            honestBrokerService.warmUpCaches();
 
             // Initialize router store for persistent settings and metrics
             RouterStore routerStore = new RouterStore(baseDir.toString());
@@ -184,6 +194,12 @@ public class DicomRouter implements Callable<Integer> {
                 return 1;
             }
 
+            // Anonymization shares one CPU pool across routes; sends get a transfer pool per destination
+            WorkerPools workerPools = new WorkerPools();
+            for (AppConfig.RouteConfig route : routesToStart) {
+                workerPools.registerRoute(route.getAeTitle(), route.getCpuWeight());
+            }
+
             // Start receivers
             List<DicomReceiver> receivers = new ArrayList<>();
             final io.xnatworks.router.index.DicomIndexer indexerForCallback = dicomIndexer;
@@ -193,9 +209,12 @@ public class DicomRouter implements Callable<Integer> {
                 DicomReceiver receiver = new DicomReceiver(
                         route,
                         config.getReceiver().getBaseDir(),
-                        study -> processStudy(study, route, config, scriptLibrary,
-                                destinationManager, transferTracker, honestBrokerService, indexerForCallback,
-                                archiveManagerForCallback, reviewManagerForCallback)
+                        study -> workerPools.submitCpu(route.getAeTitle(), () -> {
+                            processStudy(study, route, config, scriptLibrary,
+                                    destinationManager, transferTracker, honestBrokerService, indexerForCallback,
+                                    archiveManagerForCallback, reviewManagerForCallback, workerPools);
+                            return null;
+                        })
                 );
                 receiver.start();
                 receivers.add(receiver);
@@ -232,7 +251,9 @@ public class DicomRouter implements Callable<Integer> {
                         dicomIndexer,      // DICOM indexer for search
                         headless,          // headless mode = API only, no UI
                         archiveManager,    // archive manager for DICOM comparison
-                        ocrService         // OCR service for pixel PHI detection
+                        ocrService,        // OCR service for pixel PHI detection
+                        workerPools,       // CPU and transfer pool utilization for metrics
+                        honestBrokerService // shared broker caches for the cache stats API
                 );
                 adminServer.start();
             }
@@ -276,11 +297,13 @@ public class DicomRouter implements Callable<Integer> {
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 log.info("Shutting down...");
                 receivers.forEach(DicomReceiver::stop);
+                workerPools.close();
                 destinationManager.close();
                 finalCleanupService.close();
                 finalMetricsCollector.stop();
                 finalDicomIndexer.shutdown();
                 finalRetryManagerForShutdown.close();
+                honestBrokerService.close();
                 if (finalAdminServer != null) {
                     try {
                         finalAdminServer.stop();
@@ -304,7 +327,8 @@ public class DicomRouter implements Callable<Integer> {
                                   HonestBrokerService honestBrokerService,
                                   io.xnatworks.router.index.DicomIndexer dicomIndexer,
                                   ArchiveManager archiveManager,
-                                  ReviewManager reviewManager) {
+                                  ReviewManager reviewManager,
+                                  WorkerPools workerPools) {
             log.info("[{}] Processing study: {} ({} files)",
                     route.getAeTitle(), study.getStudyUid(), study.getFileCount());
 
@@ -421,9 +445,9 @@ public class DicomRouter implements Callable<Integer> {
                 }
             }
 
-            // Process each destination
-            boolean allSuccess = true;
-            boolean anySuccess = false;
+            // Package for each destination on this (CPU) thread and hand the send to the
+            // destination's transfer pool, so uploads do not hold up the next study's anonymization
+            List<CompletableFuture<Boolean>> sends = new ArrayList<>();
 
             for (AppConfig.RouteDestination routeDest : route.getDestinations()) {
                 if (!routeDest.isEnabled()) {
@@ -437,7 +461,7 @@ public class DicomRouter implements Callable<Integer> {
                     log.error("[{}] Destination not found: {}", route.getAeTitle(), destName);
                     transferTracker.updateDestinationResult(transferId, destName,
                             TransferTracker.DestinationStatus.FAILED, "Destination not configured", 0, 0);
-                    allSuccess = false;
+                    sends.add(CompletableFuture.completedFuture(false));
                     continue;
                 }
 
@@ -448,16 +472,12 @@ public class DicomRouter implements Callable<Integer> {
 
                 log.info("[{}] Forwarding to destination: {} (type: {})", route.getAeTitle(), destName, dest.getType());
 
+                File zipFile = null;
+                List<List<File>> uploadParts = null;
                 try {
                     long startTime = System.currentTimeMillis();
-                    int filesTransferred = 0;
-                    String message = null;
-                    boolean success = false;
-
                     if (dest instanceof AppConfig.XnatDestination) {
-                        // Forward to XNAT
-                        XnatClient client = destinationManager.getXnatClient(destName);
-                        if (client == null) {
+                        if (destinationManager.getXnatClient(destName) == null) {
                             throw new RuntimeException("No XNAT client available for destination: " + destName);
                         }
 
@@ -468,175 +488,314 @@ public class DicomRouter implements Callable<Integer> {
 
                         // Create ZIP file from DICOM files (with archiving if enabled)
                         // Pass broker info for date shifting and UID hashing features
+                        // With stream_upload or upload_split the ZIP is written straight into the upload instead
                         String brokerName = routeDest.isUseHonestBroker() ? routeDest.getHonestBrokerName() : null;
-                        ZipCreationResult zipResult = createZipFromStudy(study, routeDest.isAnonymize(),
-                                scriptLibrary, routeDest.getEffectiveAnonScript(), route, archiveManager,
-                                honestBrokerService, brokerName);
-                        File zipFile = zipResult.zipFile;
+                        uploadParts = UploadPartitioner.partition(study.getFiles(),
+                                routeDest.getUploadSplit(), routeDest.getUploadPartSizeMb() * 1048576L);
+                        if (!routeDest.isStreamUpload() && uploadParts.size() == 1) {
+                            ZipCreationResult zipResult = createZipFromStudy(study, routeDest.isAnonymize(),
+                                    scriptLibrary, routeDest.getEffectiveAnonScript(), route, archiveManager,
+                                    honestBrokerService, brokerName);
+                            zipFile = zipResult.zipFile;
+                        }
+                    }
 
-                        try {
-                            // Get project, subject, session info
-                            String projectId = routeDest.getProjectId();
-                            if (projectId == null || projectId.isEmpty()) {
-                                projectId = extractProjectId(study);
-                            }
+                    final File preparedZip = zipFile;
+                    final List<List<File>> preparedParts = uploadParts;
+                    sends.add(workerPools.submitTransfer(destName, dest.getTransferThreads(),
+                            () -> sendToDestination(study, route, routeDest, dest, preparedZip, preparedParts,
+                                    startTime, transferId,
+                                    scriptLibrary, destinationManager, transferTracker, honestBrokerService,
+                                    archiveManager, workerPools))
+                            .exceptionally(error -> {
+                                // Only reached if the send never ran, e.g. during shutdown
+                                if (preparedZip != null && preparedZip.exists()) {
+                                    preparedZip.delete();
+                                }
+                                recordDestinationFailure(study, route, destName, transferId, error,
+                                        transferTracker, archiveManager);
+                                return false;
+                            }));
+                } catch (Exception e) {
+                    if (zipFile != null && zipFile.exists()) {
+                        zipFile.delete();
+                    }
+                    recordDestinationFailure(study, route, destName, transferId, e, transferTracker, archiveManager);
+                    sends.add(CompletableFuture.completedFuture(false));
+                }
+            }
 
-                            // Generate subject ID and session label - use honest broker if configured
-                            String subjectId;
-                            String sessionLabel;
-                            if (routeDest.isUseHonestBroker() && brokerName != null && honestBrokerService != null) {
-                                AppConfig.HonestBrokerConfig brokerConfig = honestBrokerService.getBrokerConfig(brokerName);
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).thenRun(() -> {
+                boolean allSuccess = sends.stream().allMatch(CompletableFuture::join);
+                boolean anySuccess = sends.stream().anyMatch(CompletableFuture::join);
+                finishStudy(study, route, transferId, allSuccess, anySuccess, dicomIndexer);
+            });
+        }
 
-                                String originalPatientId = extractPatientId(study);
-                                String deidentifiedPatientId = honestBrokerService.lookup(brokerName, originalPatientId);
-                                if (deidentifiedPatientId != null) {
-                                    subjectId = deidentifiedPatientId;
-                                    log.debug("[{}] Honest broker '{}' mapped patient ID '{}' -> '{}'",
-                                            route.getAeTitle(), brokerName, originalPatientId, subjectId);
+        /**
+         * Send a study to one destination and record the outcome. Runs on the destination's transfer pool.
+         *
+         * @param zipFile     ZIP prepared for an XNAT destination, or null to write it during the upload
+         * @param uploadParts files of each upload for an XNAT destination
+         * @return whether the send succeeded
+         */
+        private boolean sendToDestination(DicomReceiver.ReceivedStudy study,
+                                          AppConfig.RouteConfig route,
+                                          AppConfig.RouteDestination routeDest,
+                                          AppConfig.Destination dest,
+                                          File zipFile,
+                                          List<List<File>> uploadParts,
+                                          long startTime,
+                                          String transferId,
+                                          ScriptLibrary scriptLibrary,
+                                          DestinationManager destinationManager,
+                                          TransferTracker transferTracker,
+                                          HonestBrokerService honestBrokerService,
+                                          ArchiveManager archiveManager,
+                                          WorkerPools workerPools) {
+            String destName = routeDest.getDestination();
+            try {
+                int filesTransferred = 0;
+                String message = null;
+                boolean success = false;
 
-                                    // Generate session label based on broker configuration
-                                    sessionLabel = generateHonestBrokerSessionLabel(
-                                            study, route, brokerName, brokerConfig,
-                                            honestBrokerService, deidentifiedPatientId);
-                                } else {
-                                    // Fail if patient ID lookup fails - don't send without proper de-identification
-                                    log.error("[{}] Honest broker '{}' failed to lookup patient ID '{}' - cannot send without de-identification",
-                                            route.getAeTitle(), brokerName, originalPatientId);
-                                    throw new RuntimeException("Honest broker patient ID lookup failed for: " + originalPatientId);
-                                }
+                if (dest instanceof AppConfig.XnatDestination) {
+                    // Forward to XNAT
+                    XnatClient client = destinationManager.getXnatClient(destName);
+                    String brokerName = routeDest.isUseHonestBroker() ? routeDest.getHonestBrokerName() : null;
+
+                    try {
+                        // Get project, subject, session info
+                        String projectId = routeDest.getProjectId();
+                        if (projectId == null || projectId.isEmpty()) {
+                            projectId = extractProjectId(study);
+                        }
+
+                        // Generate subject ID and session label - use honest broker if configured
+                        String subjectId;
+                        String sessionLabel;
+                        if (routeDest.isUseHonestBroker() && brokerName != null && honestBrokerService != null) {
+                            AppConfig.HonestBrokerConfig brokerConfig = honestBrokerService.getBrokerConfig(brokerName);
+
+                            String originalPatientId = extractPatientId(study);
+                            String deidentifiedPatientId = honestBrokerService.lookup(brokerName, originalPatientId);
+                            if (deidentifiedPatientId != null) {
+                                subjectId = deidentifiedPatientId;
+                                log.debug("[{}] Honest broker '{}' mapped patient ID '{}' -> '{}'",
+                                        route.getAeTitle(), brokerName, originalPatientId, subjectId);
+
+                                // Generate session label based on broker configuration
+                                sessionLabel = generateHonestBrokerSessionLabel(
+                                        study, route, brokerName, brokerConfig,
+                                        honestBrokerService, deidentifiedPatientId);
                             } else {
-                                subjectId = generateSubjectId(study, routeDest.getSubjectPrefix());
-                                sessionLabel = generateSessionLabel(study, routeDest.getSessionPrefix());
+                                // Fail if patient ID lookup fails - don't send without proper de-identification
+                                log.error("[{}] Honest broker '{}' failed to lookup patient ID '{}' - cannot send without de-identification",
+                                        route.getAeTitle(), brokerName, originalPatientId);
+                                throw new RuntimeException("Honest broker patient ID lookup failed for: " + originalPatientId);
                             }
+                        } else {
+                            subjectId = generateSubjectId(study, routeDest.getSubjectPrefix());
+                            sessionLabel = generateSessionLabel(study, routeDest.getSessionPrefix());
+                        }
 
-                            log.info("[{}] Uploading to XNAT {} - Project: {}, Subject: {}, Session: {}, AutoArchive: {}",
-                                    route.getAeTitle(), destName, projectId, subjectId, sessionLabel, routeDest.isAutoArchive());
-
-                            // Upload to XNAT with retry settings from config
-                            XnatClient.UploadResult result = client.uploadWithRetry(
+                        log.info("[{}] Uploading to XNAT {} - Project: {}, Subject: {}, Session: {}, AutoArchive: {}",
+                                route.getAeTitle(), destName, projectId, subjectId, sessionLabel, routeDest.isAutoArchive());
+
+                        // A streamed upload anonymizes while it sends; resolve the script and date
+                        // shift once for the study rather than for every part and attempt
+                        StudyAnonymization anon = zipFile == null
+                                ? prepareStreamingAnonymization(study, routeDest.isAnonymize(), scriptLibrary,
+                                        routeDest.getEffectiveAnonScript(), route, archiveManager,
+                                        honestBrokerService, brokerName)
+                                : null;
+
+                        // Upload to XNAT with retry settings from config
+                        XnatClient.UploadResult result;
+                        if (uploadParts.size() > 1) {
+                            List<XnatClient.UploadPart> parts = new ArrayList<>();
+                            for (int i = 0; i < uploadParts.size(); i++) {
+                                List<File> partFiles = uploadParts.get(i);
+                                parts.add(new XnatClient.UploadPart(
+                                        "part " + (i + 1) + "/" + uploadParts.size(),
+                                        partFiles.stream().mapToLong(File::length).sum(),
+                                        out -> writeStudyZip(study, partFiles, anon, routeDest.getEffectiveAnonScript(),
+                                                route, archiveManager, honestBrokerService, brokerName,
+                                                workerPools, out)));
+                            }
+                            log.info("[{}] Uploading study in {} parts (split by {}), {} at a time",
+                                    route.getAeTitle(), parts.size(), routeDest.getUploadSplit(),
+                                    routeDest.getMaxConcurrentParts());
+                            result = client.uploadParts(parts, projectId, subjectId, sessionLabel,
+                                    routeDest.isAutoArchive(),
+                                    routeDest.getRetryCount(),
+                                    routeDest.getRetryDelaySeconds() * 1000L,
+                                    routeDest.getMaxConcurrentParts(),
+                                    (sent, total) -> transferTracker.updateUploadProgress(transferId, sent, total)
+                            );
+                        } else if (zipFile == null) {
+                            result = client.uploadStreaming(
+                                    out -> writeStudyZip(study, study.getFiles(), anon, routeDest.getEffectiveAnonScript(),
+                                            route, archiveManager, honestBrokerService, brokerName,
+                                            workerPools, out),
+                                    study.getTotalSize(), projectId, subjectId, sessionLabel,
+                                    routeDest.isAutoArchive(),
+                                    routeDest.getRetryCount(),
+                                    routeDest.getRetryDelaySeconds() * 1000L,
+                                    (sent, total) -> transferTracker.updateUploadProgress(transferId, sent, total)
+                            );
+                        } else {
+                            result = client.uploadWithRetry(
                                     zipFile, projectId, subjectId, sessionLabel,
                                     routeDest.isAutoArchive(),
                                     routeDest.getRetryCount(),
-                                    routeDest.getRetryDelaySeconds() * 1000L
+                                    routeDest.getRetryDelaySeconds() * 1000L,
+                                    (sent, total) -> transferTracker.updateUploadProgress(transferId, sent, total)
                             );
-
-                            success = result.isSuccess();
-                            filesTransferred = study.getFileCount();
-                            message = success ? "Uploaded successfully" : result.getErrorMessage();
-
-                            if (success) {
-                                log.info("[{}] Successfully uploaded {} files to XNAT {} ({}ms, {:.1f} MB/s)",
-                                        route.getAeTitle(), filesTransferred, destName,
-                                        result.getDurationMs(), result.getSpeedMBps());
-                            } else {
-                                log.error("[{}] Failed to upload to XNAT {}: {}", route.getAeTitle(), destName, message);
-                            }
-                        } finally {
-                            // Clean up ZIP file
-                            if (zipFile.exists()) {
-                                zipFile.delete();
-                            }
                         }
 
-                    } else if (dest instanceof AppConfig.DicomAeDestination) {
-                        // Forward to DICOM AE
-                        DicomClient client = destinationManager.getDicomClient(destName);
-                        if (client == null) {
-                            throw new RuntimeException("No DICOM client available for destination: " + destName);
+                        // Every part has been written by now, whether or not XNAT accepted it
+                        if (anon != null && anon.audit != null) {
+                            saveAuditReport(study, route, archiveManager,
+                                    anon.audit.finish(study.getFileCount(), anon.anonymizedFiles.get()));
                         }
 
-                        // Check availability
-                        if (!destinationManager.isAvailable(destName)) {
-                            throw new RuntimeException("DICOM destination unavailable: " + destName);
-                        }
+                        success = result.isSuccess();
+                        filesTransferred = study.getFileCount();
+                        message = success ? "Uploaded successfully" : result.getErrorMessage();
 
-                        // Send files via C-STORE
-                        List<File> files = study.getFiles();
-                        DicomClient.StoreResult storeResult = client.store(files);
+                        if (success) {
+                            log.info("[{}] Successfully uploaded {} files to XNAT {} ({}ms, {:.1f} MB/s)",
+                                    route.getAeTitle(), filesTransferred, destName,
+                                    result.getDurationMs(), result.getSpeedMBps());
+                        } else {
+                            log.error("[{}] Failed to upload to XNAT {}: {}", route.getAeTitle(), destName, message);
+                        }
+                    } finally {
+                        // Clean up ZIP file
+                        if (zipFile != null && zipFile.exists()) {
+                            zipFile.delete();
+                        }
+                    }
 
-                        success = storeResult.isSuccess();
-                        filesTransferred = storeResult.getSuccessCount();
-                        message = success ? "Sent all files" : "Sent " + storeResult.getSuccessCount() + "/" + files.size() + " files";
+                } else if (dest instanceof AppConfig.DicomAeDestination) {
+                    // Forward to DICOM AE
+                    DicomClient client = destinationManager.getDicomClient(destName);
+                    if (client == null) {
+                        throw new RuntimeException("No DICOM client available for destination: " + destName);
+                    }
 
-                        log.info("[{}] Sent {}/{} files to DICOM AE {}",
-                                route.getAeTitle(), storeResult.getSuccessCount(), files.size(), destName);
+                    // Check availability
+                    if (!destinationManager.isAvailable(destName)) {
+                        throw new RuntimeException("DICOM destination unavailable: " + destName);
+                    }
 
-                    } else if (dest instanceof AppConfig.FileDestination) {
-                        // Forward to file system
-                        AppConfig.FileDestination fileDest = (AppConfig.FileDestination) dest;
-                        String subDir = generateFileSubDir(study, fileDest);
+                    // Send files via C-STORE
+                    List<File> files = study.getFiles();
+                    DicomClient.StoreResult storeResult = client.store(files);
 
-                        DestinationManager.ForwardResult result = destinationManager.forwardToFile(
-                                destName, study.getFiles(), subDir);
+                    success = storeResult.isSuccess();
+                    filesTransferred = storeResult.getSuccessCount();
+                    message = success ? "Sent all files" : "Sent " + storeResult.getSuccessCount() + "/" + files.size() + " files";
 
-                        success = result.isSuccess();
-                        filesTransferred = result.getSuccessCount();
-                        message = success ? "Copied all files" : result.getErrorMessage();
+                    log.info("[{}] Sent {}/{} files to DICOM AE {}",
+                            route.getAeTitle(), storeResult.getSuccessCount(), files.size(), destName);
 
-                        log.info("[{}] Copied {}/{} files to file destination {}",
-                                route.getAeTitle(), filesTransferred, study.getFileCount(), destName);
-                    }
+                } else if (dest instanceof AppConfig.FileDestination) {
+                    // Forward to file system
+                    AppConfig.FileDestination fileDest = (AppConfig.FileDestination) dest;
+                    String subDir = generateFileSubDir(study, fileDest);
 
-                    long duration = System.currentTimeMillis() - startTime;
-                    TransferTracker.DestinationStatus destStatus = success ?
-                            TransferTracker.DestinationStatus.SUCCESS :
-                            TransferTracker.DestinationStatus.FAILED;
-                    transferTracker.updateDestinationResult(transferId, destName, destStatus, message, duration, filesTransferred);
+                    DestinationManager.ForwardResult result = destinationManager.forwardToFile(
+                            destName, study.getFiles(), subDir);
 
-                    // Save destination status to archive for retry/audit purposes
-                    if (route.isEnableArchive() && archiveManager != null) {
-                        try {
-                            ArchiveManager.DestinationStatus archiveDestStatus = new ArchiveManager.DestinationStatus();
-                            archiveDestStatus.setDestination(destName);
-                            archiveDestStatus.setStatus(success ?
-                                    ArchiveManager.DestinationStatusEnum.SUCCESS :
-                                    ArchiveManager.DestinationStatusEnum.FAILED);
-                            archiveDestStatus.setMessage(message);
-                            archiveDestStatus.setAttempts(1);
-                            archiveDestStatus.setLastAttemptAt(java.time.LocalDateTime.now());
-                            archiveDestStatus.setDurationMs(duration);
-                            archiveDestStatus.setFilesTransferred(filesTransferred);
-                            archiveManager.saveDestinationStatus(route.getAeTitle(), study.getStudyUid(),
-                                    destName, archiveDestStatus);
-                        } catch (Exception archiveEx) {
-                            log.warn("[{}] Failed to save destination status to archive: {}",
-                                    route.getAeTitle(), archiveEx.getMessage());
-                        }
-                    }
+                    success = result.isSuccess();
+                    filesTransferred = result.getSuccessCount();
+                    message = success ? "Copied all files" : result.getErrorMessage();
 
-                    if (success) {
-                        anySuccess = true;
-                    } else {
-                        allSuccess = false;
-                    }
+                    log.info("[{}] Copied {}/{} files to file destination {}",
+                            route.getAeTitle(), filesTransferred, study.getFileCount(), destName);
+                }
 
-                } catch (Exception e) {
-                    log.error("[{}] Error forwarding to {}: {}", route.getAeTitle(), destName, e.getMessage(), e);
-                    transferTracker.updateDestinationResult(transferId, destName,
-                            TransferTracker.DestinationStatus.FAILED, e.getMessage(), 0, 0);
+                long duration = System.currentTimeMillis() - startTime;
+                TransferTracker.DestinationStatus destStatus = success ?
+                        TransferTracker.DestinationStatus.SUCCESS :
+                        TransferTracker.DestinationStatus.FAILED;
+                transferTracker.updateDestinationResult(transferId, destName, destStatus, message, duration, filesTransferred);
 
-                    // Save failed destination status to archive
-                    if (route.isEnableArchive() && archiveManager != null) {
-                        try {
-                            ArchiveManager.DestinationStatus archiveDestStatus = new ArchiveManager.DestinationStatus();
-                            archiveDestStatus.setDestination(destName);
-                            archiveDestStatus.setStatus(ArchiveManager.DestinationStatusEnum.FAILED);
-                            archiveDestStatus.setMessage(e.getMessage());
-                            archiveDestStatus.setErrorDetails(e.getClass().getName() + ": " + e.getMessage());
-                            archiveDestStatus.setAttempts(1);
-                            archiveDestStatus.setLastAttemptAt(java.time.LocalDateTime.now());
-                            archiveManager.saveDestinationStatus(route.getAeTitle(), study.getStudyUid(),
-                                    destName, archiveDestStatus);
-                        } catch (Exception archiveEx) {
-                            log.warn("[{}] Failed to save destination status to archive: {}",
-                                    route.getAeTitle(), archiveEx.getMessage());
-                        }
+                // Save destination status to archive for retry/audit purposes
+                if (route.isEnableArchive() && archiveManager != null) {
+                    try {
+                        ArchiveManager.DestinationStatus archiveDestStatus = new ArchiveManager.DestinationStatus();
+                        archiveDestStatus.setDestination(destName);
+                        archiveDestStatus.setStatus(success ?
+                                ArchiveManager.DestinationStatusEnum.SUCCESS :
+                                ArchiveManager.DestinationStatusEnum.FAILED);
+                        archiveDestStatus.setMessage(message);
+                        archiveDestStatus.setAttempts(1);
+                        archiveDestStatus.setLastAttemptAt(java.time.LocalDateTime.now());
+                        archiveDestStatus.setDurationMs(duration);
+                        archiveDestStatus.setFilesTransferred(filesTransferred);
+                        archiveManager.saveDestinationStatus(route.getAeTitle(), study.getStudyUid(),
+                                destName, archiveDestStatus);
+                    } catch (Exception archiveEx) {
+                        log.warn("[{}] Failed to save destination status to archive: {}",
+                                route.getAeTitle(), archiveEx.getMessage());
                     }
+                }
 
-                    allSuccess = false;
+                return success;
+            } catch (Exception e) {
+                if (zipFile != null && zipFile.exists()) {
+                    zipFile.delete();
                 }
+                recordDestinationFailure(study, route, destName, transferId, e, transferTracker, archiveManager);
+                return false;
             }
+        }
+
+        /**
+         * Record a destination that failed with an exception in the tracker and the archive.
+         */
+        private void recordDestinationFailure(DicomReceiver.ReceivedStudy study,
+                                              AppConfig.RouteConfig route,
+                                              String destName,
+                                              String transferId,
+                                              Throwable e,
+                                              TransferTracker transferTracker,
+                                              ArchiveManager archiveManager) {
+            log.error("[{}] Error forwarding to {}: {}", route.getAeTitle(), destName, e.getMessage(), e);
+            transferTracker.updateDestinationResult(transferId, destName,
+                    TransferTracker.DestinationStatus.FAILED, e.getMessage(), 0, 0);
+
+            // Save failed destination status to archive
+            if (route.isEnableArchive() && archiveManager != null) {
+                try {
+                    ArchiveManager.DestinationStatus archiveDestStatus = new ArchiveManager.DestinationStatus();
+                    archiveDestStatus.setDestination(destName);
+                    archiveDestStatus.setStatus(ArchiveManager.DestinationStatusEnum.FAILED);
+                    archiveDestStatus.setMessage(e.getMessage());
+                    archiveDestStatus.setErrorDetails(e.getClass().getName() + ": " + e.getMessage());
+                    archiveDestStatus.setAttempts(1);
+                    archiveDestStatus.setLastAttemptAt(java.time.LocalDateTime.now());
+                    archiveManager.saveDestinationStatus(route.getAeTitle(), study.getStudyUid(),
+                            destName, archiveDestStatus);
+                } catch (Exception archiveEx) {
+                    log.warn("[{}] Failed to save destination status to archive: {}",
+                            route.getAeTitle(), archiveEx.getMessage());
+                }
+            }
+        }
 
+        /**
+         * Move a study once every destination has reported. Runs on the transfer pool of the last send.
+         */
+        private void finishStudy(DicomReceiver.ReceivedStudy study,
+                                 AppConfig.RouteConfig route,
+                                 String transferId,
+                                 boolean allSuccess,
+                                 boolean anySuccess,
+                                 io.xnatworks.router.index.DicomIndexer dicomIndexer) {
             // Move study based on outcome
             // Note: TransferTracker automatically updates status when all destinations report
             if (allSuccess || anySuccess) {
@@ -687,6 +846,142 @@ public class DicomRouter implements Callable<Integer> {
             return createZipFromStudy(study, anonymize, scriptLibrary, anonScriptName, route, archiveManager, null, null);
         }
 
+        /**
+         * Script, script variables, UID callback and archive directory for anonymizing one study.
+         */
+        private static class StudyAnonymization {
+            final String script;
+            final Map<String, String> variables;
+            final StreamingAnonymizer.UidMappingCallback uidCallback;
+            final Path archiveAnonDir; // May be null if archiving is disabled
+            final int dateShiftDays;
+            final boolean hashUidsEnabled;
+            // Streamed uploads only: audit collected across all parts, and the files they anonymized
+            AnonymizationAuditService.AuditCollector audit;
+            final AtomicInteger anonymizedFiles = new AtomicInteger();
+            // A part is written again to resend it after a failed attempt; audit it on its
+            // first write and count its files on its first complete write only
+            final Set<List<File>> auditedParts = java.util.concurrent.ConcurrentHashMap.newKeySet();
+            final Set<List<File>> countedParts = java.util.concurrent.ConcurrentHashMap.newKeySet();
+
+            StudyAnonymization(String script, Map<String, String> variables,
+                               StreamingAnonymizer.UidMappingCallback uidCallback,
+                               Path archiveAnonDir, int dateShiftDays, boolean hashUidsEnabled) {
+                this.script = script;
+                this.variables = variables;
+                this.uidCallback = uidCallback;
+                this.archiveAnonDir = archiveAnonDir;
+                this.dateShiftDays = dateShiftDays;
+                this.hashUidsEnabled = hashUidsEnabled;
+            }
+        }
+
+        private boolean shouldAnonymize(boolean anonymize, ScriptLibrary scriptLibrary, String anonScriptName) {
+            return anonymize && scriptLibrary != null && anonScriptName != null && !anonScriptName.equals("passthrough");
+        }
+
+        /**
+         * Resolve the anonymization script for a study, enhanced with the broker's
+         * date shift and UID hashing, plus the crosswalk callback and archive directory.
+         */
+        private StudyAnonymization prepareAnonymization(DicomReceiver.ReceivedStudy study, String scriptContent,
+                                                        AppConfig.RouteConfig route, ArchiveManager archiveManager,
+                                                        HonestBrokerService honestBrokerService, String brokerName) {
+            // Check if date shifting or UID hashing is enabled via broker config
+            int dateShiftDays = 0;
+            boolean hashUidsEnabled = false;
+
+            if (brokerName != null && honestBrokerService != null) {
+                // Check if date shifting is enabled for this broker
+                if (honestBrokerService.isDateShiftEnabled(brokerName)) {
+                    String patientId = extractPatientId(study);
+                    if (patientId != null) {
+                        dateShiftDays = honestBrokerService.getDateShiftForPatient(brokerName, patientId);
+                        log.debug("Using date shift of {} days for patient {} (broker: {})",
+                                dateShiftDays, patientId, brokerName);
+                    }
+                }
+                hashUidsEnabled = honestBrokerService.isHashUidsEnabled(brokerName);
+            }
+
+            // Enhance script with date shifting and/or UID hashing if enabled. The enhanced
+            // script is the same for every patient; the shift is passed as a script variable
+            // so the compiled script is reused across studies.
+            io.xnatworks.router.anon.ScriptEnhancer.PreparedScript prepared =
+                    io.xnatworks.router.anon.ScriptEnhancer.prepare(
+                            scriptContent, dateShiftDays != 0, hashUidsEnabled);
+
+            // Create UID callback to queue mappings for the crosswalk; they are written in
+            // batches off the anonymizer's thread and flushed once the study is anonymized
+            StreamingAnonymizer.UidMappingCallback uidCallback = null;
+            if (hashUidsEnabled && brokerName != null && honestBrokerService != null) {
+                uidCallback = (originalUid, anonymizedUid, uidType) ->
+                        honestBrokerService.enqueueUidMapping(brokerName, originalUid, anonymizedUid, uidType);
+            }
+
+            // Determine archive directory for dual-write (write anon files while creating ZIP)
+            Path archiveAnonDir = null;
+            if (route != null && route.isEnableArchive() && archiveManager != null) {
+                try {
+                    Path archiveStudyDir = archiveManager.getArchiveStudyDir(route.getAeTitle(), study.getStudyUid());
+                    archiveAnonDir = archiveStudyDir.resolve("anonymized");
+                    java.nio.file.Files.createDirectories(archiveAnonDir);
+                } catch (Exception e) {
+                    log.warn("[{}] Failed to create archive directory, anonymized files won't be archived: {}",
+                            route.getAeTitle(), e.getMessage());
+                    archiveAnonDir = null;
+                }
+            }
+
+            return new StudyAnonymization(prepared.getScript(), prepared.variables(dateShiftDays), uidCallback,
+                    archiveAnonDir, dateShiftDays, hashUidsEnabled);
+        }
+
+        /**
+         * Make sure the crosswalk holds every UID mapping from a study before it is forwarded.
+         * A study whose mappings could not be stored is not forwarded: its hashed UIDs could
+         * not be traced back. The mappings stay queued for the retry. Only the study's own
+         * broker is flushed, so another broker's failing crosswalk does not fail this study.
+         */
+        private void flushUidMappings(StudyAnonymization anon, HonestBrokerService honestBrokerService,
+                                      String brokerName) throws IOException {
+            if (anon.uidCallback != null && !honestBrokerService.flushUidMappings(brokerName)) {
+                log.error("Failed to store UID mappings in crosswalk - FAILING transfer");
+                throw new IOException("Failed to store UID mappings in crosswalk - refusing to send untraceable data");
+            }
+        }
+
+        /**
+         * Save the audit report collected during a dual-write, so review does not have to re-read the study.
+         */
+        private void saveAuditReport(DicomReceiver.ReceivedStudy study, AppConfig.RouteConfig route,
+                                     ArchiveManager archiveManager,
+                                     AnonymizationAuditService.AuditReport report) {
+            try {
+                archiveManager.saveAuditReport(route.getAeTitle(), study.getStudyUid(), report);
+            } catch (Exception e) {
+                log.warn("[{}] Failed to save audit report for study {}: {}",
+                        route.getAeTitle(), study.getStudyUid(), e.getMessage());
+            }
+        }
+
+        /**
+         * Record broker info in the archive metadata after a dual-write, for crosswalk-based matching in Review UI.
+         */
+        private void updateArchiveBrokerInfo(DicomReceiver.ReceivedStudy study, AppConfig.RouteConfig route,
+                                             ArchiveManager archiveManager, String brokerName,
+                                             boolean hashUidsEnabled) {
+            if (archiveManager != null && brokerName != null) {
+                try {
+                    archiveManager.updateBrokerInfo(route.getAeTitle(), study.getStudyUid(),
+                            brokerName, hashUidsEnabled);
+                } catch (Exception e) {
+                    log.warn("[{}] Failed to update broker info in archive metadata: {}",
+                            route.getAeTitle(), e.getMessage());
+                }
+            }
+        }
+
         private ZipCreationResult createZipFromStudy(DicomReceiver.ReceivedStudy study, boolean anonymize,
                                          ScriptLibrary scriptLibrary, String anonScriptName,
                                          AppConfig.RouteConfig route, ArchiveManager archiveManager,
@@ -700,87 +995,43 @@ public class DicomRouter implements Callable<Integer> {
             Path anonymizedDir = null;
 
             // Apply anonymization if enabled - use streaming approach to avoid temp directories
-            if (anonymize && scriptLibrary != null && anonScriptName != null && !anonScriptName.equals("passthrough")) {
+            if (shouldAnonymize(anonymize, scriptLibrary, anonScriptName)) {
                 String scriptContent = scriptLibrary.getScriptContent(anonScriptName);
                 if (scriptContent != null) {
                     try {
-                        // Check if date shifting or UID hashing is enabled via broker config
-                        int dateShiftDays = 0;
-                        boolean hashUidsEnabled = false;
-
-                        if (brokerName != null && honestBrokerService != null) {
-                            // Check if date shifting is enabled for this broker
-                            if (honestBrokerService.isDateShiftEnabled(brokerName)) {
-                                String patientId = extractPatientId(study);
-                                if (patientId != null) {
-                                    dateShiftDays = honestBrokerService.getDateShiftForPatient(brokerName, patientId);
-                                    log.debug("Using date shift of {} days for patient {} (broker: {})",
-                                            dateShiftDays, patientId, brokerName);
-                                }
-                            }
-                            hashUidsEnabled = honestBrokerService.isHashUidsEnabled(brokerName);
-                        }
+                        StudyAnonymization anon = prepareAnonymization(study, scriptContent, route,
+                                archiveManager, honestBrokerService, brokerName);
 
-                        // Enhance script with date shifting and/or UID hashing if enabled
-                        String enhancedScript = io.xnatworks.router.anon.ScriptEnhancer.enhance(
-                                scriptContent, dateShiftDays, hashUidsEnabled);
-
-                        // Create UID callback to store mappings in crosswalk
-                        final String finalBrokerName = brokerName;
-                        final HonestBrokerService finalBrokerService = honestBrokerService;
-                        StreamingAnonymizer.UidMappingCallback uidCallback = null;
-                        if (hashUidsEnabled && finalBrokerName != null && finalBrokerService != null) {
-                            uidCallback = (originalUid, anonymizedUid, uidType) -> {
-                                try {
-                                    finalBrokerService.storeUidMapping(finalBrokerName, originalUid, anonymizedUid, uidType);
-                                } catch (Exception e) {
-                                    log.warn("Failed to store UID mapping in crosswalk: {}", e.getMessage());
-                                }
-                            };
-                        }
-
-                        // Determine archive directory for dual-write (write anon files while creating ZIP)
-                        Path archiveAnonDir = null;
-                        if (route != null && route.isEnableArchive() && archiveManager != null) {
-                            try {
-                                Path archiveStudyDir = archiveManager.getArchiveStudyDir(route.getAeTitle(), study.getStudyUid());
-                                archiveAnonDir = archiveStudyDir.resolve("anonymized");
-                                java.nio.file.Files.createDirectories(archiveAnonDir);
-                            } catch (Exception e) {
-                                log.warn("[{}] Failed to create archive directory, anonymized files won't be archived: {}",
-                                        route.getAeTitle(), e.getMessage());
-                                archiveAnonDir = null;
-                            }
-                        }
+                        // Collect the audit report while anonymizing, when the anonymized files are archived
+                        AnonymizationAuditService.AuditCollector audit = anon.archiveAnonDir != null
+                                ? archiveManager.startAuditReport(route.getAeTitle(), study.getStudyUid(), anonScriptName)
+                                : null;
 
-                        // Use StreamingAnonymizer to write directly to ZIP (and archive directory if enabled)
-                        StreamingAnonymizer streamingAnonymizer = new StreamingAnonymizer();
+                        // Use StreamingAnonymizer to write directly to ZIP (and archive directory if enabled).
+                        // This runs on a CPU pool thread, which already gives each core a study of its own.
+                        StreamingAnonymizer streamingAnonymizer = StreamingAnonymizer.singleThreaded();
                         StreamingAnonymizer.StreamingResult result;
                         result = streamingAnonymizer.anonymizeToZip(
-                                study.getFiles(), tempZip, enhancedScript, Collections.emptyMap(), uidCallback, archiveAnonDir);
+                                study.getFiles(), tempZip, anon.script, anon.variables,
+                                anon.uidCallback, anon.archiveAnonDir, audit);
+                        flushUidMappings(anon, honestBrokerService, brokerName);
 
                         if (result.isSuccess() && result.getSuccessFiles() > 0) {
                             wasAnonymized = true;
                             scriptUsed = anonScriptName;
                             log.info("Streaming anonymized {} files using script '{}' (dateShift={}, hashUids={})",
-                                    result.getSuccessFiles(), anonScriptName, dateShiftDays != 0, hashUidsEnabled);
+                                    result.getSuccessFiles(), anonScriptName, anon.dateShiftDays != 0,
+                                    anon.hashUidsEnabled);
 
                             // Set anonymizedDir if archiving was done via dual-write
-                            if (archiveAnonDir != null) {
-                                anonymizedDir = archiveAnonDir;
+                            if (anon.archiveAnonDir != null) {
+                                anonymizedDir = anon.archiveAnonDir;
                                 log.info("[{}] Archived {} anonymized files for study {} (dual-write)",
                                         route.getAeTitle(), result.getSuccessFiles(), study.getStudyUid());
 
-                                // Update archive metadata with broker info for crosswalk-based matching in Review UI
-                                if (archiveManager != null && brokerName != null) {
-                                    try {
-                                        archiveManager.updateBrokerInfo(route.getAeTitle(), study.getStudyUid(),
-                                                brokerName, hashUidsEnabled);
-                                    } catch (Exception e) {
-                                        log.warn("[{}] Failed to update broker info in archive metadata: {}",
-                                                route.getAeTitle(), e.getMessage());
-                                    }
-                                }
+                                updateArchiveBrokerInfo(study, route, archiveManager, brokerName, anon.hashUidsEnabled);
+                                saveAuditReport(study, route, archiveManager,
+                                        audit.finish(result.getTotalFiles(), result.getSuccessFiles()));
                             }
 
                             // Return early - ZIP is already created with anonymized content
@@ -795,6 +1046,7 @@ public class DicomRouter implements Callable<Integer> {
                         }
                     } catch (IOException e) {
                         // Re-throw IOExceptions (including our anonymization failure)
+                        Files.deleteIfExists(tempZip);
                         throw e;
                     } catch (Exception e) {
                         // SECURITY: NEVER fall back to original files - this could leak PHI
@@ -810,16 +1062,98 @@ public class DicomRouter implements Callable<Integer> {
             }
 
             // Create ZIP from original files (if anonymization was skipped or failed)
-            try (java.util.zip.ZipOutputStream zos = new java.util.zip.ZipOutputStream(Files.newOutputStream(tempZip))) {
-                for (File file : filesToZip) {
-                    java.util.zip.ZipEntry entry = new java.util.zip.ZipEntry(file.getName());
-                    zos.putNextEntry(entry);
-                    Files.copy(file.toPath(), zos);
-                    zos.closeEntry();
+            ZipPackagingPolicy.getDefault().createZip(filesToZip, tempZip);
+
+            return new ZipCreationResult(tempZip.toFile(), wasAnonymized, scriptUsed, anonymizedDir);
+        }
+
+        /**
+         * Resolve the anonymization for a study whose ZIP is written during the upload.
+         * It is prepared once and shared by every upload part and retry.
+         *
+         * @return the prepared anonymization, or null if the study is sent as received
+         */
+        private StudyAnonymization prepareStreamingAnonymization(DicomReceiver.ReceivedStudy study, boolean anonymize,
+                                                                 ScriptLibrary scriptLibrary, String anonScriptName,
+                                                                 AppConfig.RouteConfig route,
+                                                                 ArchiveManager archiveManager,
+                                                                 HonestBrokerService honestBrokerService,
+                                                                 String brokerName) throws IOException {
+            if (!shouldAnonymize(anonymize, scriptLibrary, anonScriptName)) {
+                return null;
+            }
+            String scriptContent = scriptLibrary.getScriptContent(anonScriptName);
+            if (scriptContent == null) {
+                // SECURITY: Script not found - fail the transfer rather than sending un-anonymized data
+                log.error("Anonymization script '{}' not found in library - FAILING transfer to protect PHI", anonScriptName);
+                throw new IOException("Anonymization script '" + anonScriptName + "' not found - refusing to send non-anonymized data");
+            }
+            StudyAnonymization anon;
+            try {
+                anon = prepareAnonymization(study, scriptContent, route, archiveManager,
+                        honestBrokerService, brokerName);
+            } catch (Exception e) {
+                throw new IOException("Anonymization failed - refusing to send non-anonymized data: " + e.getMessage(), e);
+            }
+            // Collect the audit report while anonymizing, when the anonymized files are archived
+            if (anon.archiveAnonDir != null) {
+                anon.audit = archiveManager.startAuditReport(route.getAeTitle(), study.getStudyUid(), anonScriptName);
+            }
+            return anon;
+        }
+
+        /**
+         * Write a ZIP of the study's files (anonymized if configured) to a stream, for
+         * uploads that send the ZIP while it is being built. Any anonymization failure
+         * throws before the ZIP is complete, so a partial study is never accepted.
+         * Called again with the same files when an upload is resent from a temp file.
+         * <p>
+         * This is called from a transfer thread. Anonymization runs single-threaded on
+         * the CPU pool, which writes straight into the upload, so the cores stay shared
+         * between the studies being packaged and the parts being sent.
+         *
+         * @param files the study's files to include - all of them, or one upload part
+         * @param anon  from {@link #prepareStreamingAnonymization}, or null to send the files as received
+         */
+        private void writeStudyZip(DicomReceiver.ReceivedStudy study, List<File> files, StudyAnonymization anon,
+                                   String anonScriptName, AppConfig.RouteConfig route,
+                                   ArchiveManager archiveManager, HonestBrokerService honestBrokerService,
+                                   String brokerName, WorkerPools workerPools,
+                                   java.io.OutputStream out) throws IOException {
+            if (anon != null) {
+                AnonymizationAuditService.AuditCollector audit = anon.auditedParts.add(files) ? anon.audit : null;
+                StreamingAnonymizer.StreamingResult result;
+                try {
+                    result = workerPools.callCpu(route.getAeTitle(), () -> StreamingAnonymizer.singleThreaded()
+                            .anonymizeToStream(files, out, anon.script, anon.variables,
+                                    anon.uidCallback, anon.archiveAnonDir, audit));
+                } catch (IOException | RuntimeException e) {
+                    throw e;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new java.io.InterruptedIOException("Interrupted anonymizing " + study.getStudyUid());
+                } catch (Exception e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+                if (anon.countedParts.add(files)) {
+                    anon.anonymizedFiles.addAndGet(result.getSuccessFiles());
                 }
+                flushUidMappings(anon, honestBrokerService, brokerName);
+                log.info("Streaming anonymized {} files using script '{}' into upload (dateShift={}, hashUids={})",
+                        result.getSuccessFiles(), anonScriptName, anon.dateShiftDays != 0, anon.hashUidsEnabled);
+
+                if (anon.archiveAnonDir != null) {
+                    updateArchiveBrokerInfo(study, route, archiveManager, brokerName, anon.hashUidsEnabled);
+                }
+                return;
             }
 
-            return new ZipCreationResult(tempZip.toFile(), wasAnonymized, scriptUsed, anonymizedDir);
+            java.util.zip.ZipOutputStream zos = new java.util.zip.ZipOutputStream(out);
+            for (File file : files) {
+                ZipPackagingPolicy.getDefault().addFile(zos, file.toPath(), file.getName());
+            }
+            zos.finish();
+            zos.flush();
         }
 
         // Backward-compatible overload without archiveManager
@@ -1432,7 +1766,8 @@ public class DicomRouter implements Callable<Integer> {
     @Command(name = "scripts", description = "Manage anonymization scripts",
             subcommands = {
                     ScriptsCommand.ListScripts.class,
-                    ScriptsCommand.ShowScript.class
+                    ScriptsCommand.ShowScript.class,
+                    ScriptsCommand.ProfileScript.class
             })
     static class ScriptsCommand implements Callable<Integer> {
 
@@ -1504,6 +1839,90 @@ public class DicomRouter implements Callable<Integer> {
                 return 0;
             }
         }
+
+        @Command(name = "profile", description = "Dry-run a script against an archived study and report its cost")
+        static class ProfileScript implements Callable<Integer> {
+            @Option(names = {"-c", "--config"}, defaultValue = "config.yaml")
+            private File configFile;
+
+            @Parameters(index = "0", description = "Script name")
+            private String name;
+
+            @Option(names = {"-r", "--route"}, required = true, description = "Route AE Title whose archive to sample")
+            private String aeTitle;
+
+            @Option(names = {"--study"}, description = "Study Instance UID (default: most recently archived)")
+            private String studyUid;
+
+            @Option(names = {"-l", "--limit"}, defaultValue = "100", description = "Maximum instances to profile")
+            private int limit;
+
+            @Option(names = {"--broker"}, description = "Honest broker whose date shift and UID hashing the script runs with")
+            private String brokerName;
+
+            @Override
+            public Integer call() throws Exception {
+                AppConfig config = AppConfig.load(configFile);
+                Path baseDir = Paths.get(config.getReceiver().getBaseDir());
+                ScriptLibrary library = new ScriptLibrary(baseDir.resolve("scripts"));
+
+                if (library.getScript(name) == null) {
+                    System.err.println("Script not found: " + name);
+                    return 1;
+                }
+
+                AppConfig.HonestBrokerConfig brokerConfig = null;
+                if (brokerName != null) {
+                    brokerConfig = config.getHonestBroker(brokerName);
+                    if (brokerConfig == null) {
+                        System.err.println("Honest broker not found: " + brokerName);
+                        return 1;
+                    }
+                }
+
+                List<Path> files = new ArchiveManager(baseDir, library).getSampleFiles(aeTitle, studyUid, limit);
+                if (files.isEmpty()) {
+                    System.err.println("No archived study to profile against for " + aeTitle);
+                    return 1;
+                }
+
+                ScriptProfiler.ScriptProfile profile = new ScriptProfiler()
+                        .profilePrepared(name, library.getScriptContent(name), brokerConfig, files);
+                library.saveProfile(name, profile.toSummary());
+
+                System.out.println();
+                System.out.println("Profile: " + name + (profile.isSlow() ? "  [SLOW]" : ""));
+                System.out.println("─".repeat(60));
+                System.out.printf("Instances:        %d (%d failed)%n", profile.getInstances().size(), profile.getErrors().size());
+                System.out.printf("Header only:      %s%n", profile.isHeaderOnly() ? "Yes" : "No");
+                System.out.printf("Compile:          %.2f ms%n", profile.getCompileMs());
+                System.out.printf("Per instance:     %.2f ms mean, %.2f ms p95 (apply %.2f ms)%n",
+                        profile.getMeanInstanceMs(), profile.getP95InstanceMs(), profile.getMeanApplyMs());
+                if (profile.getAllocatedBytesPerInstance() >= 0) {
+                    System.out.printf("Allocation:       %.1f KB/instance, %.1f MB/s%n",
+                            profile.getAllocatedBytesPerInstance() / 1024.0, profile.getAllocationMbPerSecond());
+                }
+                System.out.printf("Throughput:       %.1f files/s single thread, %.1f files/s on %d threads%n",
+                        profile.getFilesPerSecond(), profile.getExpectedFilesPerSecond(), profile.getThreads());
+
+                List<ScriptProfiler.StatementCost> slowest = profile.getSlowestStatements(10);
+                if (!slowest.isEmpty()) {
+                    System.out.println();
+                    System.out.printf("%-6s %-10s %-7s %s%n", "LINE", "US/INST", "SHARE", "STATEMENT");
+                    System.out.println("─".repeat(60));
+                    for (ScriptProfiler.StatementCost cost : slowest) {
+                        System.out.printf("%-6d %-10.1f %-7s %s%n", cost.getLine(), cost.getMeanMicros(),
+                                String.format("%.0f%%", cost.getShare() * 100), cost.getStatement());
+                    }
+                }
+                long unmeasured = profile.getStatements().stream().filter(c -> !c.isMeasured()).count();
+                if (unmeasured > 0) {
+                    System.out.println(unmeasured + " statement(s) could not be timed on their own");
+                }
+
+                return 0;
+            }
+        }
     }
 
     // ========================================================================
@@ -1999,7 +2418,8 @@ public class DicomRouter implements Callable<Integer> {
                                     zipFile, projectId, subjectId, sessionLabel,
                                     routeDest.isAutoArchive(),
                                     routeDest.getRetryCount(),
-                                    routeDest.getRetryDelaySeconds() * 1000L
+                                    routeDest.getRetryDelaySeconds() * 1000L,
+                                    (sent, total) -> transferTracker.updateUploadProgress(transferId, sent, total)
                             );
 
                             success = result.isSuccess();
@@ -2052,14 +2472,7 @@ public class DicomRouter implements Callable<Integer> {
 
         private File createZipFromFiles(List<File> files) throws IOException {
             Path tempZip = Files.createTempFile("dicom_import_", ".zip");
-            try (java.util.zip.ZipOutputStream zos = new java.util.zip.ZipOutputStream(Files.newOutputStream(tempZip))) {
-                for (File file : files) {
-                    java.util.zip.ZipEntry entry = new java.util.zip.ZipEntry(file.getName());
-                    zos.putNextEntry(entry);
-                    Files.copy(file.toPath(), zos);
-                    zos.closeEntry();
-                }
-            }
+            ZipPackagingPolicy.getDefault().createZip(files, tempZip);
             return tempZip.toFile();
         }
 
@@ -2092,4 +2505,143 @@ public class DicomRouter implements Callable<Integer> {
             return prefix + "_IMPORT_" + UUID.randomUUID().toString().substring(0, 8);
         }
     }
+
+    // ========================================================================
+    // BATCH COMMAND - Anonymize a directory tree to disk, resumable
+    // ========================================================================
+
+    @Command(name = "batch", description = "Anonymize DICOM files from disk into an output directory (resumable)")
+    static class BatchCommand implements Callable<Integer> {
+
+        @ParentCommand
+        private DicomRouter parent;
+
+        @Parameters(index = "0", description = "Directory containing DICOM files to anonymize")
+        private File inputDir;
+
+        @Option(names = {"-o", "--output"}, required = true, description = "Output directory (also holds the checkpoint)")
+        private File outputDir;
+
+        @Option(names = {"-s", "--script"}, required = true, description = "Anonymization script name")
+        private String scriptName;
+
+        @Option(names = {"-b", "--broker"}, description = "Honest broker for date shifting and UID hashing")
+        private String brokerName;
+
+        @Option(names = {"-t", "--threads"}, description = "Worker threads (default: all cores)")
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        @Option(names = {"--restart"}, description = "Ignore the checkpoint and anonymize every study again")
+        private boolean restart = false;
+
+        @Override
+        public Integer call() throws Exception {
+            if (!inputDir.isDirectory()) {
+                System.err.println("Input directory does not exist: " + inputDir.getAbsolutePath());
+                return 1;
+            }
+
+            AppConfig config = AppConfig.load(parent.configFile);
+            ScriptLibrary scriptLibrary = new ScriptLibrary(Paths.get(config.getReceiver().getBaseDir(), "scripts"));
+            if (scriptLibrary.getScript(scriptName) == null) {
+                System.err.println("Script not found: " + scriptName);
+                return 1;
+            }
+            String script = scriptLibrary.getScriptContent(scriptName);
+
+            io.xnatworks.router.broker.HonestBrokerService honestBrokerService = null;
+            boolean dateShift = false;
+            boolean hashUids = false;
+            if (brokerName != null) {
+                honestBrokerService = new io.xnatworks.router.broker.HonestBrokerService(config);
+                if (honestBrokerService.getBrokerConfig(brokerName) == null) {
+                    System.err.println("Honest broker not found: " + brokerName);
+                    return 1;
+                }
+                dateShift = honestBrokerService.isDateShiftEnabled(brokerName);
+                hashUids = honestBrokerService.isHashUidsEnabled(brokerName);
+            }
+
+            Path checkpoint = outputDir.toPath().resolve(BatchAnonymizer.CHECKPOINT_FILE);
+            if (restart) {
+                Files.deleteIfExists(checkpoint);
+            }
+
+            System.out.println();
+            System.out.println("=========================================================");
+            System.out.println("  DICOM Batch Anonymization");
+            System.out.println("=========================================================");
+            System.out.println();
+            System.out.println("Input Directory:  " + inputDir.getAbsolutePath());
+            System.out.println("Output Directory: " + outputDir.getAbsolutePath());
+            System.out.println("Script:           " + scriptName);
+            System.out.println("Honest Broker:    " + (brokerName != null ? brokerName : "none")
+                    + (dateShift ? " (date shift)" : "") + (hashUids ? " (hash UIDs)" : ""));
+            System.out.println("Threads:          " + threads);
+            System.out.println("Resume:           " + (Files.exists(checkpoint) ? "yes" : "no"));
+            System.out.println();
+
+            // The enhanced script is the same for every study; only the shift variable differs
+            io.xnatworks.router.anon.ScriptEnhancer.PreparedScript prepared =
+                    io.xnatworks.router.anon.ScriptEnhancer.prepare(script, dateShift, hashUids);
+            io.xnatworks.router.broker.HonestBrokerService broker = honestBrokerService;
+            boolean shiftDates = dateShift;
+            java.util.function.Function<BatchAnonymizer.BatchStudy, Map<String, String>> variablesFor = study -> {
+                if (!shiftDates) {
+                    return prepared.variables(0);
+                }
+                // Without a PatientID the study cannot get its patient's shift; fail it rather than leave dates as is
+                if (study.getPatientId() == null || study.getPatientId().isEmpty()) {
+                    throw new IllegalStateException("No PatientID, cannot look up the date shift");
+                }
+                return prepared.variables(broker.getDateShiftForPatient(brokerName, study.getPatientId()));
+            };
+            StreamingAnonymizer.UidMappingCallback uidCallback = hashUids
+                    ? (originalUid, hashedUid, uidType) -> broker.enqueueUidMapping(brokerName, originalUid, hashedUid, uidType)
+                    : null;
+            java.util.function.BooleanSupplier uidFlush = hashUids ? () -> broker.flushUidMappings(brokerName) : null;
+
+            BatchAnonymizer.BatchResult result;
+            try {
+                result = new BatchAnonymizer(threads).run(
+                        inputDir.toPath(), outputDir.toPath(), prepared.getScript(), variablesFor, uidCallback,
+                        uidFlush, progress -> System.out.printf("[%d/%d] %s  files %d/%d  %.1f MB/s  ETA %s%n",
+                                progress.getStudiesDone(), progress.getStudiesTotal(), progress.getStudy().getKey(),
+                                progress.getFilesDone(), progress.getFilesTotal(),
+                                progress.getMegabytesPerSecond(), formatEta(progress.getEtaMs())));
+            } finally {
+                if (honestBrokerService != null) {
+                    honestBrokerService.close();
+                }
+            }
+
+            System.out.println();
+            System.out.println("=========================================================");
+            System.out.println("  Batch Complete");
+            System.out.println("=========================================================");
+            System.out.printf("  Studies:    %d (%d skipped from checkpoint)%n",
+                    result.getStudiesTotal(), result.getStudiesSkipped());
+            System.out.printf("  Completed:  %d%n", result.getStudiesCompleted());
+            System.out.printf("  Failed:     %d%n", result.getFailures().size());
+            System.out.printf("  Files:      %d (%d errors, %d unreadable)%n",
+                    result.getFilesProcessed(), result.getFileErrors(), result.getUnreadableFiles());
+            System.out.printf("  Throughput: %.1f MB/s over %s%n",
+                    result.getMegabytesPerSecond(), formatEta(result.getDurationMs()));
+            for (BatchAnonymizer.StudyFailure failure : result.getFailures()) {
+                System.out.printf("  FAILED %s (%s): %d/%d files - %s%n", failure.getKey(), failure.getStudyUid(),
+                        failure.getErrors(), failure.getFiles(), failure.getMessage());
+            }
+            System.out.println();
+
+            return result.isSuccess() ? 0 : 1;
+        }
+
+        private static String formatEta(long ms) {
+            if (ms < 0) {
+                return "--:--:--";
+            }
+            long seconds = ms / 1000;
+            return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+        }
+    }
 }
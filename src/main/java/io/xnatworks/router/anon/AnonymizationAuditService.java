@@ -13,6 +13,7 @@ import org.dcm4che2.data.SpecificCharacterSet;
 import org.dcm4che2.data.Tag;
 import org.dcm4che2.data.VR;
 import org.dcm4che2.io.DicomInputStream;
+import org.dcm4che2.io.StopTagInputHandler;
 import org.dcm4che2.util.TagUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,6 +24,10 @@ import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -30,10 +35,22 @@ import java.util.stream.Stream;
 /**
  * Service for generating anonymization audit reports.
  * Compares original vs anonymized DICOM files and validates conformance to scripts.
+ * <p>
+ * Reports are built by an {@link AuditCollector}, which reduces per-instance
+ * header diffs into an {@link AuditReport} as they arrive. Anonymizers feed it
+ * while they run, so a report is ready as soon as a study is anonymized;
+ * {@link #generateReport} builds one for an already-archived study by comparing
+ * headers on a pool of threads.
  */
 public class AnonymizationAuditService {
     private static final Logger log = LoggerFactory.getLogger(AnonymizationAuditService.class);
 
+    /** Threads used to compare archived file pairs. */
+    public static final int DEFAULT_COMPARE_THREADS = Runtime.getRuntime().availableProcessors();
+
+    // Comparisons queued ahead of the reducer, per thread
+    private static final int COMPARISONS_IN_FLIGHT_PER_THREAD = 4;
+
     // Known PHI tags to check for residual data
     private static final Map<Integer, String> PHI_TAGS = new LinkedHashMap<>();
     static {
@@ -91,112 +108,128 @@ public class AnonymizationAuditService {
      * @return Audit report with comparison details
      */
     public AuditReport generateReport(Path originalDir, Path anonymizedDir, String scriptName) throws IOException {
+        return generateReport(originalDir, anonymizedDir, scriptName, DEFAULT_COMPARE_THREADS);
+    }
+
+    /**
+     * Generate an audit report comparing original and anonymized DICOM directories,
+     * comparing file pairs in parallel. Only headers are read; pixel data is not compared.
+     *
+     * @param originalDir     Directory with original DICOM files
+     * @param anonymizedDir   Directory with anonymized DICOM files
+     * @param scriptName      Name of the script that was applied
+     * @param threads         Number of file pairs compared concurrently
+     * @return Audit report with comparison details
+     */
+    public AuditReport generateReport(Path originalDir, Path anonymizedDir, String scriptName,
+                                      int threads) throws IOException {
         log.info("Generating audit report: original={}, anonymized={}, script={}",
                 originalDir, anonymizedDir, scriptName);
 
-        AuditReport report = new AuditReport();
-        report.setReportId(UUID.randomUUID().toString());
-        report.setGeneratedAt(LocalDateTime.now());
-        report.setOriginalDirectory(originalDir.toString());
-        report.setAnonymizedDirectory(anonymizedDir.toString());
-        report.setScriptName(scriptName);
-
-        // Load script content and parse expected operations
-        String scriptContent = null;
-        ScriptExpectations expectations = null;
-        if (scriptName != null && !scriptName.equals("passthrough")) {
-            try {
-                scriptContent = scriptLibrary.getScriptContent(scriptName);
-                report.setScriptContent(scriptContent);
-                expectations = parseScriptExpectations(scriptContent);
-            } catch (Exception e) {
-                log.warn("Could not load script '{}': {}", scriptName, e.getMessage());
-            }
-        }
+        AuditCollector collector = startReport(originalDir, anonymizedDir, scriptName);
 
         // Find matching files in both directories
         List<FilePair> filePairs = findFilePairs(originalDir, anonymizedDir);
-        report.setTotalFilesOriginal(countFiles(originalDir));
-        report.setTotalFilesAnonymized(countFiles(anonymizedDir));
+
+        // Compare on a pool; results are reduced into the report in file order
+        compareInParallel(filePairs, collector, threads);
+
+        AuditReport report = collector.finish(countFiles(originalDir), countFiles(anonymizedDir));
         report.setMatchedFiles(filePairs.size());
+        return report;
+    }
 
-        // Analyze each file pair
-        for (FilePair pair : filePairs) {
-            try {
-                FileComparison comparison = compareFiles(pair.original, pair.anonymized, expectations);
-                report.getFileComparisons().add(comparison);
+    /**
+     * Start a report that is filled in one instance at a time, typically while
+     * the study is being anonymized.
+     *
+     * @param originalDir     Directory with original DICOM files (may be null)
+     * @param anonymizedDir   Directory with anonymized DICOM files (may be null)
+     * @param scriptName      Name of the script that is applied
+     * @return Collector to feed comparisons into
+     */
+    public AuditCollector startReport(Path originalDir, Path anonymizedDir, String scriptName) {
+        AuditCollector collector = new AuditCollector(scriptName);
+        collector.report.setOriginalDirectory(originalDir != null ? originalDir.toString() : null);
+        collector.report.setAnonymizedDirectory(anonymizedDir != null ? anonymizedDir.toString() : null);
+        return collector;
+    }
 
-                // Aggregate changed tags
-                for (TagChange change : comparison.getChanges()) {
-                    report.aggregateTagChange(change.getTagHex(), change.getTagName());
+    /**
+     * Generate a simplified audit for a single original/anonymized file pair.
+     */
+    public FileComparison compareFiles(Path originalFile, Path anonymizedFile, String scriptName) throws IOException {
+        return new AuditCollector(scriptName).compare(originalFile, anonymizedFile);
+    }
+
+    /**
+     * Compare file pairs on a per-call pool, keeping a bounded number ahead of the collector.
+     */
+    private void compareInParallel(List<FilePair> filePairs, AuditCollector collector,
+                                   int threads) throws IOException {
+        int poolSize = Math.max(1, Math.min(threads, filePairs.size()));
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread t = new Thread(r, "audit-compare");
+            t.setDaemon(true);
+            return t;
+        });
+
+        Deque<PendingComparison> window = new ArrayDeque<>();
+        int maxInFlight = poolSize * COMPARISONS_IN_FLIGHT_PER_THREAD;
+        int next = 0;
+        try {
+            while (next < filePairs.size() || !window.isEmpty()) {
+                while (next < filePairs.size() && window.size() < maxInFlight) {
+                    FilePair pair = filePairs.get(next++);
+                    window.add(new PendingComparison(pair,
+                            pool.submit(() -> collector.compare(pair.original, pair.anonymized))));
                 }
 
-                // Check conformance
-                if (!comparison.getConformanceIssues().isEmpty()) {
-                    report.incrementNonConformant();
+                PendingComparison head = window.poll();
+                try {
+                    collector.add(head.future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Audit report generation interrupted", e);
+                } catch (ExecutionException e) {
+                    log.error("Error comparing files {} vs {}: {}", head.pair.original.getFileName(),
+                            head.pair.anonymized.getFileName(), e.getCause().getMessage());
+                    collector.addError("Failed to compare " + head.pair.original.getFileName() + ": "
+                            + e.getCause().getMessage());
                 }
-            } catch (Exception e) {
-                log.error("Error comparing files {} vs {}: {}",
-                        pair.original.getFileName(), pair.anonymized.getFileName(), e.getMessage());
-                report.addError("Failed to compare " + pair.original.getFileName() + ": " + e.getMessage());
             }
+        } finally {
+            pool.shutdownNow();
         }
-
-        // Calculate summary statistics
-        report.calculateSummary();
-
-        log.info("Audit report generated: {} files compared, {} conformance issues",
-                report.getMatchedFiles(), report.getNonConformantFiles());
-
-        return report;
     }
 
     /**
-     * Generate a simplified audit for a single original/anonymized file pair.
+     * Read a file's elements up to, but not including, PixelData.
      */
-    public FileComparison compareFiles(Path originalFile, Path anonymizedFile, String scriptName) throws IOException {
-        ScriptExpectations expectations = null;
-        if (scriptName != null && !scriptName.equals("passthrough")) {
-            try {
-                String scriptContent = scriptLibrary.getScriptContent(scriptName);
-                expectations = parseScriptExpectations(scriptContent);
-            } catch (Exception e) {
-                log.warn("Could not load script '{}': {}", scriptName, e.getMessage());
-            }
+    private static DicomObject readHeader(Path file) throws IOException {
+        try (DicomInputStream dis = new DicomInputStream(file.toFile())) {
+            dis.setHandler(new StopTagInputHandler(Tag.PixelData));
+            return dis.readDicomObject();
         }
-        return compareFiles(originalFile, anonymizedFile, expectations);
     }
 
     /**
-     * Compare two DICOM files and identify changes.
+     * Compare an original header snapshot with the anonymized object and identify changes.
      */
-    private FileComparison compareFiles(Path originalFile, Path anonymizedFile,
-                                         ScriptExpectations expectations) throws IOException {
+    private FileComparison compare(String originalName, String anonymizedName, HeaderSnapshot original,
+                                   DicomObject anonymized, ScriptExpectations expectations) {
         FileComparison comparison = new FileComparison();
-        comparison.setOriginalFile(originalFile.getFileName().toString());
-        comparison.setAnonymizedFile(anonymizedFile.getFileName().toString());
-
-        // Read both DICOM files
-        DicomObject original;
-        DicomObject anonymized;
+        comparison.setOriginalFile(originalName);
+        comparison.setAnonymizedFile(anonymizedName);
 
-        try (DicomInputStream dis = new DicomInputStream(originalFile.toFile())) {
-            original = dis.readDicomObject();
-        }
-
-        try (DicomInputStream dis = new DicomInputStream(anonymizedFile.toFile())) {
-            anonymized = dis.readDicomObject();
-        }
-
-        SpecificCharacterSet cs = original.getSpecificCharacterSet();
+        SpecificCharacterSet cs = original.cs;
 
         // Compare all tags that exist in either file
-        Set<Integer> allTags = new TreeSet<>();
-        collectTags(original, allTags);
+        Set<Integer> allTags = new TreeSet<>(original.values.keySet());
         collectTags(anonymized, allTags);
 
         for (int tag : allTags) {
-            String originalValue = getTagValue(original, tag, cs);
+            String originalValue = original.values.get(tag);
             String anonymizedValue = getTagValue(anonymized, tag, cs);
 
             // Check if value changed
@@ -237,6 +270,25 @@ public class AnonymizationAuditService {
         return comparison;
     }
 
+    /**
+     * Load the named script and parse its expected operations; null for passthrough or unknown scripts.
+     */
+    private ScriptExpectations loadExpectations(String scriptName, AuditReport report) {
+        if (scriptName == null || scriptName.equals("passthrough")) {
+            return null;
+        }
+        try {
+            String scriptContent = scriptLibrary.getScriptContent(scriptName);
+            if (report != null) {
+                report.setScriptContent(scriptContent);
+            }
+            return parseScriptExpectations(scriptContent);
+        } catch (Exception e) {
+            log.warn("Could not load script '{}': {}", scriptName, e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Parse script to extract expected tag operations.
      */
@@ -287,7 +339,7 @@ public class AnonymizationAuditService {
     /**
      * Validate that anonymization conforms to script expectations.
      */
-    private void validateConformance(DicomObject original, DicomObject anonymized,
+    private void validateConformance(HeaderSnapshot original, DicomObject anonymized,
                                       SpecificCharacterSet cs, ScriptExpectations expectations,
                                       FileComparison comparison) {
         // Check removed tags (should be empty or missing)
@@ -315,7 +367,7 @@ public class AnonymizationAuditService {
 
         // Check kept tags (should match original)
         for (int tag : expectations.getKeptTags()) {
-            String origValue = getTagValue(original, tag, cs);
+            String origValue = original.values.get(tag);
             String anonValue = getTagValue(anonymized, tag, cs);
 
             if (!Objects.equals(origValue, anonValue)) {
@@ -327,7 +379,7 @@ public class AnonymizationAuditService {
 
         // Check hashed tags (should be different from original but present)
         for (int tag : expectations.getHashedTags()) {
-            String origValue = getTagValue(original, tag, cs);
+            String origValue = original.values.get(tag);
             String anonValue = getTagValue(anonymized, tag, cs);
 
             if (anonValue == null || anonValue.isEmpty()) {
@@ -440,15 +492,18 @@ public class AnonymizationAuditService {
         }
     }
 
-    private void collectTags(DicomObject obj, Set<Integer> tags) {
+    private static void collectTags(DicomObject obj, Set<Integer> tags) {
         Iterator<DicomElement> iter = obj.iterator();
         while (iter.hasNext()) {
             DicomElement elem = iter.next();
-            tags.add(elem.tag());
+            // Pixel data is passed through, not audited
+            if (elem.tag() != Tag.PixelData) {
+                tags.add(elem.tag());
+            }
         }
     }
 
-    private String getTagValue(DicomObject obj, int tag, SpecificCharacterSet cs) {
+    private static String getTagValue(DicomObject obj, int tag, SpecificCharacterSet cs) {
         DicomElement elem = obj.get(tag);
         if (elem == null) return null;
 
@@ -489,8 +544,105 @@ public class AnonymizationAuditService {
         return false;
     }
 
+    /**
+     * Reduces per-instance comparisons into one {@link AuditReport}.
+     * <p>
+     * {@link #snapshot} and {@link #compare} only read shared state and may be
+     * called from any thread, so the diff for an instance can be taken on the
+     * worker that anonymized it. {@link #add}, {@link #addError} and
+     * {@link #finish} must be called from a single thread.
+     */
+    public class AuditCollector {
+        private final AuditReport report = new AuditReport();
+        private final ScriptExpectations expectations;
+
+        private AuditCollector(String scriptName) {
+            report.setReportId(UUID.randomUUID().toString());
+            report.setGeneratedAt(LocalDateTime.now());
+            report.setScriptName(scriptName);
+            this.expectations = loadExpectations(scriptName, report);
+        }
+
+        /**
+         * Capture the header values of an instance before it is anonymized.
+         */
+        HeaderSnapshot snapshot(DicomObject original) {
+            return HeaderSnapshot.of(original);
+        }
+
+        /**
+         * Diff an instance against the snapshot taken before it was anonymized.
+         */
+        FileComparison compare(String originalName, String anonymizedName, HeaderSnapshot original,
+                               DicomObject anonymized) {
+            return AnonymizationAuditService.this.compare(originalName, anonymizedName, original,
+                    anonymized, expectations);
+        }
+
+        /**
+         * Read the headers of an original/anonymized pair and diff them.
+         */
+        FileComparison compare(Path originalFile, Path anonymizedFile) throws IOException {
+            return compare(originalFile.getFileName().toString(), anonymizedFile.getFileName().toString(),
+                    snapshot(readHeader(originalFile)), readHeader(anonymizedFile));
+        }
+
+        /**
+         * Fold one instance's comparison into the report. Safe to call from
+         * the streams of several upload parts at once.
+         */
+        public synchronized void add(FileComparison comparison) {
+            report.addComparison(comparison);
+        }
+
+        public synchronized void addError(String error) {
+            report.addError(error);
+        }
+
+        /**
+         * Complete the report.
+         *
+         * @param totalFilesOriginal   Number of original files
+         * @param totalFilesAnonymized Number of anonymized files
+         */
+        public synchronized AuditReport finish(int totalFilesOriginal, int totalFilesAnonymized) {
+            report.setTotalFilesOriginal(totalFilesOriginal);
+            report.setTotalFilesAnonymized(totalFilesAnonymized);
+            report.setMatchedFiles(report.getFileComparisons().size());
+            report.calculateSummary();
+
+            log.info("Audit report generated: {} files compared, {} conformance issues",
+                    report.getMatchedFiles(), report.getNonConformantFiles());
+            return report;
+        }
+    }
+
     // Inner classes for data structures
 
+    /**
+     * Decoded values of an instance's top-level elements, other than pixel data.
+     */
+    static class HeaderSnapshot {
+        final SpecificCharacterSet cs;
+        final Map<Integer, String> values;
+
+        private HeaderSnapshot(SpecificCharacterSet cs, Map<Integer, String> values) {
+            this.cs = cs;
+            this.values = values;
+        }
+
+        static HeaderSnapshot of(DicomObject obj) {
+            SpecificCharacterSet cs = obj.getSpecificCharacterSet();
+            Set<Integer> tags = new HashSet<>();
+            collectTags(obj, tags);
+            Map<Integer, String> values = new HashMap<>();
+            for (int tag : tags) {
+                values.put(tag, getTagValue(obj, tag, cs));
+            }
+            return new HeaderSnapshot(cs, values);
+        }
+    }
+
     private static class FilePair {
         final Path original;
         final Path anonymized;
@@ -501,6 +653,16 @@ public class AnonymizationAuditService {
         }
     }
 
+    private static class PendingComparison {
+        final FilePair pair;
+        final Future<FileComparison> future;
+
+        PendingComparison(FilePair pair, Future<FileComparison> future) {
+            this.pair = pair;
+            this.future = future;
+        }
+    }
+
     private static class ScriptExpectations {
         private Set<Integer> removedTags = new HashSet<>();
         private Set<Integer> keptTags = new HashSet<>();
@@ -534,6 +696,16 @@ public class AnonymizationAuditService {
         private int phiFieldsModified;
 
         // Aggregation methods
+        public void addComparison(FileComparison comparison) {
+            fileComparisons.add(comparison);
+            for (TagChange change : comparison.getChanges()) {
+                aggregateTagChange(change.getTagHex(), change.getTagName());
+            }
+            if (!comparison.getConformanceIssues().isEmpty()) {
+                incrementNonConformant();
+            }
+        }
+
         public void aggregateTagChange(String tagHex, String tagName) {
             TagSummary summary = tagSummary.computeIfAbsent(tagHex,
                     k -> new TagSummary(tagHex, tagName));
@@ -7,26 +7,28 @@
  */
 package io.xnatworks.router.anon;
 
+import io.xnatworks.router.dicom.ZipPackagingPolicy;
 import io.xnatworks.router.xnat.XnatClient;
 import org.dcm4che2.data.BasicDicomObject;
 import org.dcm4che2.data.DicomObject;
 import org.dcm4che2.io.DicomInputStream;
 import org.dcm4che2.io.DicomOutputStream;
-import org.nrg.dicom.dicomedit.DE6Script;
 import org.nrg.dicom.dicomedit.ScriptApplicatorI;
-import org.nrg.dicom.dicomedit.SerialScriptApplicator;
 import org.nrg.dicom.mizer.exceptions.MizerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.zip.ZipEntry;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipOutputStream;
 
 /**
@@ -43,6 +45,8 @@ public class AnonymizationService {
     private final XnatClient xnatClient;  // Optional - for fetching scripts from XNAT
     private final LargeFileAnonymizer largeFileAnonymizer = new LargeFileAnonymizer();
     private final AnonymizationVerifier verifier = new AnonymizationVerifier();
+    private final ParallelAnonymizer parallel =
+            new ParallelAnonymizer(ParallelAnonymizer.DEFAULT_THREADS, ParallelAnonymizer.DEFAULT_MEMORY_BUDGET);
 
     // Configuration for verification
     private boolean verificationEnabled = true;
@@ -111,28 +115,6 @@ public class AnonymizationService {
         return config;
     }
 
-    /**
-     * Create a ScriptApplicatorI from script content using DicomEdit 6.6.0 API.
-     */
-    private ScriptApplicatorI createApplicator(String script, Map<String, String> variables) throws IOException {
-        try {
-            ByteArrayInputStream scriptStream = new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8));
-            DE6Script de6Script = new DE6Script(scriptStream);
-            ScriptApplicatorI applicator = new SerialScriptApplicator(Collections.singletonList(de6Script));
-
-            // Set variables
-            if (variables != null) {
-                for (Map.Entry<String, String> entry : variables.entrySet()) {
-                    applicator.setVariable(entry.getKey(), entry.getValue());
-                }
-            }
-
-            return applicator;
-        } catch (MizerException e) {
-            throw new IOException("Failed to parse anonymization script: " + e.getMessage(), e);
-        }
-    }
-
     /**
      * Anonymize a single DICOM file using a script from the library.
      *
@@ -164,34 +146,26 @@ public class AnonymizationService {
      */
     public boolean anonymizeFileWithScript(Path inputFile, Path outputFile, String script,
                                             Map<String, String> variables) throws IOException {
-        ScriptApplicatorI applicator = createApplicator(script, variables);
-
         // Read input DICOM using dcm4che2
         DicomObject originalDcm;
         try (DicomInputStream dis = new DicomInputStream(inputFile.toFile())) {
             originalDcm = dis.readDicomObject();
         }
 
-        // Keep a copy for verification if enabled
-        DicomObject dcmForVerification = null;
-        if (verificationEnabled) {
-            // Deep copy for verification - read again from file
-            try (DicomInputStream dis = new DicomInputStream(inputFile.toFile())) {
-                dcmForVerification = dis.readDicomObject();
-            }
-        }
+        // Snapshot the values verification compares against before the script modifies them
+        Map<Integer, String> originalValues = verificationEnabled ? AnonymizationVerifier.snapshot(originalDcm) : null;
 
         // Apply the script to the original object
-        try {
-            applicator.apply(inputFile.toFile(), originalDcm);
+        try (CompiledScriptCache.Lease lease = CompiledScriptCache.getDefault().acquire(script, variables)) {
+            lease.getApplicator().apply(inputFile.toFile(), originalDcm);
         } catch (MizerException e) {
             throw new IOException("Failed to apply anonymization script: " + e.getMessage(), e);
         }
 
         // Verify anonymization was applied correctly BEFORE writing
-        if (verificationEnabled && dcmForVerification != null) {
+        if (originalValues != null) {
             AnonymizationVerifier.VerificationConfig config = createVerificationConfig();
-            AnonymizationVerifier.VerificationResult verifyResult = verifier.verify(dcmForVerification, originalDcm, config);
+            AnonymizationVerifier.VerificationResult verifyResult = verifier.verify(originalValues, originalDcm, config);
 
             if (!verifyResult.isAllPassed()) {
                 String sopUid = originalDcm.getString(org.dcm4che2.data.Tag.SOPInstanceUID, "unknown");
@@ -261,106 +235,56 @@ public class AnonymizationService {
         result.setInputDirectory(inputDir.toString());
         result.setOutputDirectory(outputDir.toString());
 
-        AtomicInteger inputCount = new AtomicInteger(0);
         AtomicInteger outputCount = new AtomicInteger(0);
         AtomicInteger errorCount = new AtomicInteger(0);
 
-        // Create the applicator once for all files
-        ScriptApplicatorI applicator = createApplicator(script, variables);
-
-        // Process all DICOM files
-        try {
-            Files.walk(inputDir)
+        // Collect all DICOM files
+        List<File> inputFiles;
+        try (Stream<Path> paths = Files.walk(inputDir)) {
+            inputFiles = paths
                     .filter(Files::isRegularFile)
                     .filter(this::isDicomFile)
-                    .forEach(inputFile -> {
-                        inputCount.incrementAndGet();
-
-                        // Create output path preserving directory structure
-                        Path relativePath = inputDir.relativize(inputFile);
-                        Path outputFile = outputDir.resolve(relativePath);
-
-                        try {
-                            // Check if this is a large file requiring streaming approach
-                            long fileBytes = Files.size(inputFile);
-                            boolean isLargeFile = fileBytes > LargeFileAnonymizer.LARGE_FILE_THRESHOLD;
-
-                            if (isLargeFile) {
-                                // Use streaming approach for files > 2GB
-                                // Note: Large file anonymization has limited verification support
-                                log.info("Using streaming anonymization for large file: {} ({} GB)",
-                                        inputFile.getFileName(),
-                                        String.format("%.2f", fileBytes / (1024.0 * 1024.0 * 1024.0)));
-                                largeFileAnonymizer.anonymizeLargeFile(inputFile, outputFile, applicator);
-                            } else {
-                                // Standard approach for normal-sized files
-                                // Read original for verification
-                                DicomObject originalDcm = null;
-                                if (verificationEnabled) {
-                                    try (DicomInputStream dis = new DicomInputStream(inputFile.toFile())) {
-                                        originalDcm = dis.readDicomObject();
-                                    }
-                                }
-
-                                // Read input DICOM for anonymization
-                                DicomObject dcmObj;
-                                try (DicomInputStream dis = new DicomInputStream(inputFile.toFile())) {
-                                    dcmObj = dis.readDicomObject();
-                                }
-
-                                // Apply the script
-                                applicator.apply(inputFile.toFile(), dcmObj);
-
-                                // Verify BEFORE writing
-                                if (verificationEnabled && originalDcm != null) {
-                                    AnonymizationVerifier.VerificationConfig config = createVerificationConfig();
-                                    AnonymizationVerifier.VerificationResult verifyResult =
-                                            verifier.verify(originalDcm, dcmObj, config);
-
-                                    if (!verifyResult.isAllPassed()) {
-                                        log.error("ANONYMIZATION VERIFICATION FAILED for {}:\n{}",
-                                                inputFile.getFileName(), verifyResult);
-                                        throw new IOException("Verification failed: " +
-                                                verifyResult.getFailedCount() + " checks failed");
-                                    }
-                                }
-
-                                // Ensure output directory exists
-                                Files.createDirectories(outputFile.getParent());
-
-                                // Write output DICOM (only if verification passed)
-                                try (DicomOutputStream dos = new DicomOutputStream(outputFile.toFile())) {
-                                    dos.writeDicomFile(dcmObj);
-                                }
-                            }
-
-                            outputCount.incrementAndGet();
-
-                        } catch (Exception e) {
-                            errorCount.incrementAndGet();
-                            String fileSize = "unknown";
-                            try {
-                                long bytes = Files.size(inputFile);
-                                fileSize = String.format("%.2f MB", bytes / (1024.0 * 1024.0));
-                            } catch (IOException ignored) {}
-                            log.error("Error anonymizing {} (size: {}): {} - {}",
-                                    inputFile.getFileName(), fileSize,
-                                    e.getClass().getSimpleName(),
-                                    e.getMessage() != null ? e.getMessage() : "no message", e);
-                        } catch (OutOfMemoryError e) {
-                            errorCount.incrementAndGet();
-                            String fileSize = "unknown";
-                            try {
-                                long bytes = Files.size(inputFile);
-                                fileSize = String.format("%.2f MB", bytes / (1024.0 * 1024.0));
-                            } catch (IOException ignored) {}
-                            log.error("OutOfMemoryError processing {} (size: {}). File too large for current heap size.",
-                                    inputFile.getFileName(), fileSize);
-                        }
-                    });
-        } catch (IOException e) {
+                    .map(Path::toFile)
+                    .collect(Collectors.toList());
+        } catch (IOException | UncheckedIOException e) {
             throw new IOException("Error processing directory: " + e.getMessage(), e);
         }
+        AtomicInteger inputCount = new AtomicInteger(inputFiles.size());
+
+        // Instances are read, anonymized, verified and written on worker threads;
+        // files over 2GB are streamed on this thread via LargeFileAnonymizer.
+        // Scripts that do not touch pixels only read and rewrite headers.
+        boolean headerOnly = HeaderOnlyAnonymizer.supports(script);
+        AnonymizationVerifier.VerificationConfig verificationConfig =
+                verificationEnabled ? createVerificationConfig() : null;
+        parallel.run(inputFiles, script, variables,
+                file -> file.length() > LargeFileAnonymizer.LARGE_FILE_THRESHOLD,
+                headerOnly ? ParallelAnonymizer::headerOnlyCost : ParallelAnonymizer::inFlightCost,
+                (file, applicator) -> anonymizeInstance(file.toPath(), outputFileFor(inputDir, outputDir, file),
+                        applicator, headerOnly, verificationConfig),
+                (file, applicator) -> {
+                    // Note: Large file anonymization has limited verification support
+                    log.info("Using streaming anonymization for large file: {} ({} GB)",
+                            file.getName(), String.format("%.2f", file.length() / (1024.0 * 1024.0 * 1024.0)));
+                    LargeFileAnonymizer.checkHeaderOnly(file, headerOnly);
+                    largeFileAnonymizer.anonymizeLargeFile(file.toPath(),
+                            outputFileFor(inputDir, outputDir, file), applicator);
+                    outputCount.incrementAndGet();
+                },
+                (file, outputFile) -> outputCount.incrementAndGet(),
+                (file, e) -> {
+                    errorCount.incrementAndGet();
+                    String fileSize = String.format("%.2f MB", file.length() / (1024.0 * 1024.0));
+                    if (e instanceof OutOfMemoryError) {
+                        log.error("OutOfMemoryError processing {} (size: {}). File too large for current heap size.",
+                                file.getName(), fileSize);
+                    } else {
+                        log.error("Error anonymizing {} (size: {}): {} - {}",
+                                file.getName(), fileSize,
+                                e.getClass().getSimpleName(),
+                                e.getMessage() != null ? e.getMessage() : "no message", e);
+                    }
+                });
 
         result.setInputFiles(inputCount.get());
         result.setOutputFiles(outputCount.get());
@@ -374,6 +298,72 @@ public class AnonymizationService {
         return result;
     }
 
+    /**
+     * Output path for an input file, preserving directory structure.
+     */
+    private static Path outputFileFor(Path inputDir, Path outputDir, File inputFile) {
+        return outputDir.resolve(inputDir.relativize(inputFile.toPath()));
+    }
+
+    /**
+     * Anonymize, verify and write one normal-sized file. Runs on a worker thread.
+     * With headerOnly, only the header is read and the pixel data is copied
+     * from the input file unchanged. Verification is skipped if config is null.
+     */
+    private Path anonymizeInstance(Path inputFile, Path outputFile, ScriptApplicatorI applicator,
+                                   boolean headerOnly,
+                                   AnonymizationVerifier.VerificationConfig config) throws Exception {
+        HeaderOnlyAnonymizer.SplitInstance split = headerOnly ? HeaderOnlyAnonymizer.read(inputFile.toFile()) : null;
+
+        // Read input DICOM once (header only if it could be split from the pixel data)
+        DicomObject dcmObj = split != null ? split.header : readDicomObject(inputFile);
+
+        // Snapshot the values verification compares against before the script modifies them
+        Map<Integer, String> originalValues = config != null ? AnonymizationVerifier.snapshot(dcmObj) : null;
+
+        // Apply the script
+        applicator.apply(inputFile.toFile(), dcmObj);
+
+        // Verify BEFORE writing
+        if (originalValues != null) {
+            AnonymizationVerifier.VerificationResult verifyResult =
+                    verifier.verify(originalValues, dcmObj, config);
+
+            if (!verifyResult.isAllPassed()) {
+                log.error("ANONYMIZATION VERIFICATION FAILED for {}:\n{}",
+                        inputFile.getFileName(), verifyResult);
+                throw new IOException("Verification failed: " +
+                        verifyResult.getFailedCount() + " checks failed");
+            }
+        }
+
+        // Ensure output directory exists
+        Files.createDirectories(outputFile.getParent());
+
+        // Write output DICOM (only if verification passed)
+        if (split == null) {
+            try (DicomOutputStream dos = new DicomOutputStream(outputFile.toFile())) {
+                dos.writeDicomFile(dcmObj);
+            }
+        } else {
+            try (FileChannel out = FileChannel.open(outputFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.wrap(HeaderOnlyAnonymizer.encodeHeader(dcmObj));
+                while (header.hasRemaining()) {
+                    out.write(header);
+                }
+                HeaderOnlyAnonymizer.copyTail(inputFile.toFile(), split, out);
+            }
+        }
+        return outputFile;
+    }
+
+    private static DicomObject readDicomObject(Path file) throws IOException {
+        try (DicomInputStream dis = new DicomInputStream(file.toFile())) {
+            return dis.readDicomObject();
+        }
+    }
+
     /**
      * Check if a file appears to be a DICOM file.
      */
@@ -497,9 +487,7 @@ public class AnonymizationService {
                     .forEach(path -> {
                         try {
                             String entryName = outputDir.relativize(path).toString();
-                            zos.putNextEntry(new ZipEntry(entryName));
-                            Files.copy(path, zos);
-                            zos.closeEntry();
+                            ZipPackagingPolicy.getDefault().addFile(zos, path, entryName);
                         } catch (IOException e) {
                             log.error("Error adding file to ZIP: {}", path, e);
                         }
@@ -17,8 +17,11 @@ import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.IntFunction;
 import java.util.regex.Pattern;
 
 /**
@@ -46,6 +49,13 @@ public class AnonymizationVerifier {
     private static final Pattern ANON_NAME_PATTERN = Pattern.compile(
             "^(Anonymous|ANON|Subject_\\d+|[A-Z0-9_]+)$", Pattern.CASE_INSENSITIVE);
 
+    /** Every tag whose original value the checks compare against. */
+    public static final int[] VERIFIED_TAGS = {
+            Tag.StudyInstanceUID, Tag.SeriesInstanceUID, Tag.SOPInstanceUID,
+            Tag.PatientName, Tag.PatientID,
+            Tag.StudyDate, Tag.SeriesDate, Tag.PatientBirthDate
+    };
+
     /**
      * Types of verification checks.
      */
@@ -235,6 +245,37 @@ public class AnonymizationVerifier {
      * @return Verification result
      */
     public VerificationResult verify(DicomObject original, DicomObject anonymized, VerificationConfig config) {
+        return verify(original::getString, anonymized, config);
+    }
+
+    /**
+     * Verify anonymization against a {@link #snapshot} of the original values,
+     * so the original object does not have to be kept or read twice.
+     *
+     * @param original Values of {@link #VERIFIED_TAGS} before anonymization
+     * @param anonymized The anonymized DICOM object (after anonymization)
+     * @param config Verification configuration
+     * @return Verification result
+     */
+    public VerificationResult verify(Map<Integer, String> original, DicomObject anonymized,
+                                     VerificationConfig config) {
+        return verify(original::get, anonymized, config);
+    }
+
+    /**
+     * Capture the values of {@link #VERIFIED_TAGS}. Take this before the script
+     * runs, as scripts modify the object in place.
+     */
+    public static Map<Integer, String> snapshot(DicomObject original) {
+        Map<Integer, String> values = new HashMap<>(VERIFIED_TAGS.length * 2);
+        for (int tag : VERIFIED_TAGS) {
+            values.put(tag, original.getString(tag));
+        }
+        return values;
+    }
+
+    private VerificationResult verify(IntFunction<String> original, DicomObject anonymized,
+                                      VerificationConfig config) {
         long startTime = System.currentTimeMillis();
         VerificationResult result = new VerificationResult();
 
@@ -268,7 +309,7 @@ public class AnonymizationVerifier {
         if (!result.isAllPassed()) {
             log.error("ANONYMIZATION VERIFICATION FAILED:\n{}", result);
         } else {
-            log.info("Anonymization verified: {} checks passed for SOP {}",
+            log.debug("Anonymization verified: {} checks passed for SOP {}",
                     result.getPassedCount(), result.getSopInstanceUid());
         }
 
@@ -278,7 +319,7 @@ public class AnonymizationVerifier {
     /**
      * Verify UIDs were changed.
      */
-    private void verifyUidsChanged(DicomObject original, DicomObject anonymized,
+    private void verifyUidsChanged(IntFunction<String> original, DicomObject anonymized,
                                     VerificationResult result, VerificationConfig config)
             throws VerificationAbortedException {
 
@@ -292,11 +333,11 @@ public class AnonymizationVerifier {
         checkUidChanged(original, anonymized, Tag.SOPInstanceUID, "SOPInstanceUID", result, config);
     }
 
-    private void checkUidChanged(DicomObject original, DicomObject anonymized, int tag, String name,
+    private void checkUidChanged(IntFunction<String> original, DicomObject anonymized, int tag, String name,
                                   VerificationResult result, VerificationConfig config)
             throws VerificationAbortedException {
 
-        String origUid = original.getString(tag);
+        String origUid = original.apply(tag);
         String newUid = anonymized.getString(tag);
 
         boolean passed = !Objects.equals(origUid, newUid);
@@ -314,12 +355,12 @@ public class AnonymizationVerifier {
     /**
      * Verify patient identifying info was modified.
      */
-    private void verifyPatientInfoModified(DicomObject original, DicomObject anonymized,
+    private void verifyPatientInfoModified(IntFunction<String> original, DicomObject anonymized,
                                             VerificationResult result, VerificationConfig config)
             throws VerificationAbortedException {
 
         // Patient Name - should be changed to anonymous value
-        String origName = original.getString(Tag.PatientName);
+        String origName = original.apply(Tag.PatientName);
         String newName = anonymized.getString(Tag.PatientName);
         boolean nameChanged = !Objects.equals(origName, newName);
         boolean nameAnonymized = newName == null || newName.isEmpty() ||
@@ -338,7 +379,7 @@ public class AnonymizationVerifier {
         }
 
         // Patient ID - should be changed
-        String origId = original.getString(Tag.PatientID);
+        String origId = original.apply(Tag.PatientID);
         String newId = anonymized.getString(Tag.PatientID);
         boolean idChanged = !Objects.equals(origId, newId);
 
@@ -357,7 +398,7 @@ public class AnonymizationVerifier {
     /**
      * Verify date shifts were applied correctly.
      */
-    private void verifyDateShifts(DicomObject original, DicomObject anonymized, int expectedShiftDays,
+    private void verifyDateShifts(IntFunction<String> original, DicomObject anonymized, int expectedShiftDays,
                                    VerificationResult result, VerificationConfig config)
             throws VerificationAbortedException {
 
@@ -374,11 +415,11 @@ public class AnonymizationVerifier {
                 expectedShiftDays, result, config);
     }
 
-    private void verifyDateShift(DicomObject original, DicomObject anonymized, int tag, String name,
+    private void verifyDateShift(IntFunction<String> original, DicomObject anonymized, int tag, String name,
                                   int expectedShiftDays, VerificationResult result, VerificationConfig config)
             throws VerificationAbortedException {
 
-        String origDate = original.getString(tag);
+        String origDate = original.apply(tag);
         String newDate = anonymized.getString(tag);
 
         // Skip if original date is empty
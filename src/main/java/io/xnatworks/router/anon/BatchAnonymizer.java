@@ -0,0 +1,707 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ *
+ * This software is distributed under the terms described in the LICENSE file.
+ */
+package io.xnatworks.router.anon;
+
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.io.DicomInputStream;
+import org.dcm4che2.io.DicomOutputStream;
+import org.dcm4che2.io.StopTagInputHandler;
+import org.nrg.dicom.dicomedit.ScriptApplicatorI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Anonymizes a directory tree of DICOM files study by study into an output
+ * directory, for retrospective de-identification jobs that never touch a
+ * destination.
+ * <p>
+ * All three phases run on one work-stealing {@link ForkJoinPool}: directories
+ * are scanned as forked tasks, studies are grouped by reading each header
+ * only up to StudyInstanceUID, and every instance of every study is its own
+ * task, so a few very large studies do not leave cores idle while the rest
+ * finish. Workers lease their own applicator from the
+ * {@link CompiledScriptCache}.
+ * <p>
+ * Each study is written to {@code <output>/<study key>/}, where the key is a
+ * hash of the original StudyInstanceUID, so output paths carry no PHI. When a
+ * study finishes its key and outcome are appended to {@link #CHECKPOINT_FILE}
+ * in the output directory; a later run over the same output directory skips
+ * studies already completed and retries failed ones.
+ */
+public class BatchAnonymizer {
+    private static final Logger log = LoggerFactory.getLogger(BatchAnonymizer.class);
+
+    public static final String CHECKPOINT_FILE = "batch-checkpoint.tsv";
+
+    static final String STATUS_COMPLETED = "COMPLETED";
+    static final String STATUS_FAILED = "FAILED";
+
+    private final int threads;
+
+    /**
+     * @param threads worker threads shared by scanning, grouping and anonymization
+     */
+    public BatchAnonymizer(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Anonymize every study under a directory.
+     *
+     * @param inputDir     directory scanned recursively for DICOM files
+     * @param outputDir    directory that receives one subdirectory per study and the checkpoint
+     * @param script       DicomEdit script content
+     * @param variablesFor script variables for a study, e.g. its date shift; throwing fails that study
+     *                     (may be null)
+     * @param uidCallback  callback for changed UIDs, once per UID and study (may be null)
+     * @param uidFlush     makes the reported UID mappings durable before a study is recorded as
+     *                     completed; returning false fails the study (may be null)
+     * @param progress     called after each study finishes (may be null)
+     * @return counts, throughput and the studies that failed
+     */
+    public BatchResult run(Path inputDir, Path outputDir, String script,
+                           Function<BatchStudy, Map<String, String>> variablesFor,
+                           StreamingAnonymizer.UidMappingCallback uidCallback, BooleanSupplier uidFlush,
+                           Consumer<BatchProgress> progress) throws IOException {
+        long startTime = System.currentTimeMillis();
+        Files.createDirectories(outputDir);
+        Checkpoint checkpoint = Checkpoint.load(outputDir.resolve(CHECKPOINT_FILE));
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            // Phase 1: scan
+            List<File> files = pool.invoke(new ScanTask(inputDir.toFile()));
+            log.info("Batch scan found {} DICOM files under {}", files.size(), inputDir);
+
+            // Phase 2: group by study from headers only
+            AtomicInteger unreadable = new AtomicInteger();
+            List<BatchStudy> studies = submit(pool, () -> groupByStudy(files, unreadable));
+
+            List<BatchStudy> pending = new ArrayList<>();
+            for (BatchStudy study : studies) {
+                if (checkpoint.isCompleted(study.getKey())) {
+                    log.debug("Skipping study {} completed by an earlier run", study.getKey());
+                } else {
+                    pending.add(study);
+                }
+            }
+            log.info("Batch grouped {} studies ({} already completed, {} unreadable files)",
+                    studies.size(), studies.size() - pending.size(), unreadable.get());
+
+            // Phase 3: anonymize, one task per instance
+            boolean headerOnly = HeaderOnlyAnonymizer.supports(script);
+            Tracker tracker = new Tracker(pending, startTime, progress);
+            List<StudyTask> tasks = new ArrayList<>();
+            for (BatchStudy study : pending) {
+                tasks.add(new StudyTask(study, outputDir.resolve(study.getKey()), script, variablesFor, headerOnly,
+                        uidCallback, uidFlush, checkpoint, tracker));
+            }
+            submit(pool, () -> {
+                ForkJoinTask.invokeAll(tasks);
+                return null;
+            });
+
+            List<StudyFailure> failures = new ArrayList<>();
+            int completed = 0;
+            int fileErrors = 0;
+            for (StudyTask task : tasks) {
+                fileErrors += task.errors.get();
+                if (task.failure != null) {
+                    failures.add(task.failure);
+                } else {
+                    completed++;
+                }
+            }
+
+            BatchResult result = new BatchResult(studies.size(), studies.size() - pending.size(), completed,
+                    failures, tracker.files.get(), fileErrors, unreadable.get(), tracker.bytes.get(),
+                    System.currentTimeMillis() - startTime);
+            log.info("Batch anonymization complete: {} studies completed, {} failed, {} skipped, {} files in {}ms",
+                    completed, failures.size(), result.getStudiesSkipped(), result.getFilesProcessed(),
+                    result.getDurationMs());
+            return result;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static <T> T submit(ForkJoinPool pool, Callable<T> work) throws IOException {
+        try {
+            return pool.submit(work).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch anonymization interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Batch anonymization failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Group files by StudyInstanceUID in parallel, in a stable order so study keys
+     * and output names are the same on every run.
+     */
+    private static List<BatchStudy> groupByStudy(List<File> files, AtomicInteger unreadable) {
+        Map<String, List<StudyHeader>> byStudy = files.parallelStream()
+                .map(file -> readStudyHeader(file, unreadable))
+                .filter(header -> header != null)
+                .collect(Collectors.groupingByConcurrent(header -> header.studyUid));
+
+        List<BatchStudy> studies = new ArrayList<>();
+        for (Map.Entry<String, List<StudyHeader>> entry : new TreeMap<>(byStudy).entrySet()) {
+            List<StudyHeader> headers = new ArrayList<>(entry.getValue());
+            headers.sort(Comparator.comparing(header -> header.file.getPath()));
+            List<File> studyFiles = new ArrayList<>();
+            long bytes = 0;
+            for (StudyHeader header : headers) {
+                studyFiles.add(header.file);
+                bytes += header.file.length();
+            }
+            studies.add(new BatchStudy(studyKey(entry.getKey()), entry.getKey(), headers.get(0).patientId,
+                    studyFiles, bytes));
+        }
+        return studies;
+    }
+
+    /**
+     * Read a file's header up to StudyInstanceUID.
+     *
+     * @return the study it belongs to, or null if it is not readable DICOM
+     */
+    private static StudyHeader readStudyHeader(File file, AtomicInteger unreadable) {
+        try (DicomInputStream dis = new DicomInputStream(file)) {
+            dis.setHandler(new StopTagInputHandler(Tag.SeriesInstanceUID));
+            DicomObject header = dis.readDicomObject();
+            String studyUid = header.getString(Tag.StudyInstanceUID);
+            if (studyUid == null || studyUid.isEmpty()) {
+                // Keep files without a Study UID together by directory
+                studyUid = "dir:" + file.getParentFile().getAbsolutePath();
+            }
+            return new StudyHeader(file, studyUid, header.getString(Tag.PatientID));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Skipping unreadable file {}: {}", file, e.getMessage());
+            unreadable.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Directory name for a study: a hash of its original UID.
+     */
+    static String studyKey(String studyUid) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] digest = md.digest(studyUid.getBytes(StandardCharsets.UTF_8));
+            return "study-" + HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Anonymize one instance to its output file.
+     *
+     * @return the study, series and SOP instance UIDs before and after
+     */
+    private static String[][] anonymizeFile(File inputFile, Path outputFile, ScriptApplicatorI applicator,
+                                            boolean headerOnly) throws Exception {
+        if (inputFile.length() > LargeFileAnonymizer.LARGE_FILE_THRESHOLD) {
+            LargeFileAnonymizer.checkHeaderOnly(inputFile, headerOnly);
+            LargeFileAnonymizer.LargeInstance instance = LargeFileAnonymizer.read(inputFile);
+            String[] originalUids = readUids(instance.getHeader());
+            applicator.apply(inputFile, instance.getHeader());
+            instance.writeTo(outputFile);
+            return new String[][] {originalUids, readUids(instance.getHeader())};
+        }
+
+        HeaderOnlyAnonymizer.SplitInstance split = headerOnly ? HeaderOnlyAnonymizer.read(inputFile) : null;
+        DicomObject dcmObj;
+        if (split != null) {
+            dcmObj = split.header;
+        } else {
+            try (DicomInputStream dis = new DicomInputStream(inputFile)) {
+                dcmObj = dis.readDicomObject();
+            }
+        }
+        String[] originalUids = readUids(dcmObj);
+
+        applicator.apply(inputFile, dcmObj);
+
+        if (split == null) {
+            try (DicomOutputStream dos = new DicomOutputStream(outputFile.toFile())) {
+                dos.writeDicomFile(dcmObj);
+            }
+        } else {
+            try (FileChannel out = FileChannel.open(outputFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.wrap(HeaderOnlyAnonymizer.encodeHeader(dcmObj));
+                while (header.hasRemaining()) {
+                    out.write(header);
+                }
+                HeaderOnlyAnonymizer.copyTail(inputFile, split, out);
+            }
+        }
+        return new String[][] {originalUids, readUids(dcmObj)};
+    }
+
+    private static String[] readUids(DicomObject dcmObj) {
+        return new String[] {
+                dcmObj.getString(Tag.StudyInstanceUID),
+                dcmObj.getString(Tag.SeriesInstanceUID),
+                dcmObj.getString(Tag.SOPInstanceUID)
+        };
+    }
+
+    /**
+     * Whether a file looks like DICOM: by extension, or the DICM marker at offset 128.
+     */
+    static boolean isDicomFile(File file) {
+        String name = file.getName().toLowerCase();
+        if (name.endsWith(".dcm") || name.endsWith(".dicom")) {
+            return true;
+        }
+        if (file.length() > 132) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                raf.seek(128);
+                byte[] magic = new byte[4];
+                raf.readFully(magic);
+                return magic[0] == 'D' && magic[1] == 'I' && magic[2] == 'C' && magic[3] == 'M';
+            } catch (IOException e) {
+                // Not a DICOM file
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lists DICOM files under a directory, forking a task per subdirectory.
+     */
+    private static class ScanTask extends RecursiveTask<List<File>> {
+        private final File dir;
+
+        ScanTask(File dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        protected List<File> compute() {
+            File[] entries = dir.listFiles();
+            if (entries == null) {
+                return Collections.emptyList();
+            }
+            Arrays.sort(entries);
+            List<ScanTask> subdirs = new ArrayList<>();
+            List<File> results = new ArrayList<>();
+            for (File entry : entries) {
+                if (entry.isDirectory()) {
+                    ScanTask task = new ScanTask(entry);
+                    task.fork();
+                    subdirs.add(task);
+                } else if (entry.isFile() && isDicomFile(entry)) {
+                    results.add(entry);
+                }
+            }
+            for (ScanTask task : subdirs) {
+                results.addAll(task.join());
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Anonymizes one study by forking a task per instance, then records its outcome.
+     */
+    private static class StudyTask extends RecursiveAction {
+        private final BatchStudy study;
+        private final Path studyDir;
+        private final String script;
+        private final Function<BatchStudy, Map<String, String>> variablesFor;
+        private final boolean headerOnly;
+        private final StreamingAnonymizer.UidMappingCallback uidCallback;
+        private final BooleanSupplier uidFlush;
+        private final Checkpoint checkpoint;
+        private final Tracker tracker;
+
+        private final Set<String> reportedUids = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger errors = new AtomicInteger();
+        private final AtomicReference<String> firstError = new AtomicReference<>();
+        private volatile StudyFailure failure;
+
+        StudyTask(BatchStudy study, Path studyDir, String script,
+                  Function<BatchStudy, Map<String, String>> variablesFor, boolean headerOnly,
+                  StreamingAnonymizer.UidMappingCallback uidCallback, BooleanSupplier uidFlush,
+                  Checkpoint checkpoint, Tracker tracker) {
+            this.study = study;
+            this.studyDir = studyDir;
+            this.script = script;
+            this.variablesFor = variablesFor;
+            this.headerOnly = headerOnly;
+            this.uidCallback = uidCallback;
+            this.uidFlush = uidFlush;
+            this.checkpoint = checkpoint;
+            this.tracker = tracker;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                Map<String, String> variables = variablesFor != null ? variablesFor.apply(study) : null;
+                Files.createDirectories(studyDir);
+                List<RecursiveAction> instances = new ArrayList<>();
+                List<File> files = study.getFiles();
+                for (int i = 0; i < files.size(); i++) {
+                    File file = files.get(i);
+                    Path outputFile = studyDir.resolve(String.format("%06d.dcm", i + 1));
+                    instances.add(new RecursiveAction() {
+                        @Override
+                        protected void compute() {
+                            anonymizeInstance(file, outputFile, variables);
+                        }
+                    });
+                }
+                invokeAll(instances);
+            } catch (IOException | RuntimeException e) {
+                errors.incrementAndGet();
+                firstError.compareAndSet(null, e.getMessage());
+            }
+
+            // Mappings are only queued while instances run; store them before the study counts as done
+            if (errors.get() == 0 && uidFlush != null && !reportedUids.isEmpty() && !uidFlush.getAsBoolean()) {
+                errors.incrementAndGet();
+                firstError.compareAndSet(null, "Failed to store UID mappings in crosswalk");
+            }
+
+            if (errors.get() > 0) {
+                failure = new StudyFailure(study.getKey(), study.getStudyUid(), study.getFiles().size(),
+                        errors.get(), firstError.get());
+                log.error("Batch study {} ({}) failed: {} of {} files - {}", study.getKey(), study.getStudyUid(),
+                        errors.get(), study.getFiles().size(), firstError.get());
+            }
+            try {
+                checkpoint.record(study.getKey(), failure == null ? STATUS_COMPLETED : STATUS_FAILED,
+                        study.getFiles().size(), errors.get());
+            } catch (IOException e) {
+                log.error("Failed to checkpoint study {}: {}", study.getKey(), e.getMessage());
+            }
+            tracker.studyDone(study);
+        }
+
+        private void anonymizeInstance(File file, Path outputFile, Map<String, String> variables) {
+            try (CompiledScriptCache.Lease lease = CompiledScriptCache.getDefault().acquire(script, variables)) {
+                String[][] uids = anonymizeFile(file, outputFile, lease.getApplicator(), headerOnly);
+                reportUidMappings(uids[0], uids[1]);
+            } catch (Exception | OutOfMemoryError e) {
+                errors.incrementAndGet();
+                firstError.compareAndSet(null, file.getName() + ": " + e.getMessage());
+                log.debug("Batch failed to anonymize {}: {}", file, e.getMessage(), e);
+            }
+            tracker.fileDone(file);
+        }
+
+        private void reportUidMappings(String[] originalUids, String[] newUids) {
+            if (uidCallback == null) {
+                return;
+            }
+            String[] types = {"study_uid", "series_uid", "sop_uid"};
+            for (int i = 0; i < types.length; i++) {
+                String originalUid = originalUids[i];
+                String newUid = newUids[i];
+                if (originalUid != null && newUid != null && !originalUid.equals(newUid)
+                        && reportedUids.add(originalUid)) {
+                    uidCallback.onUidMapping(originalUid, newUid, types[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts work done and reports progress after each study.
+     */
+    private static class Tracker {
+        private final int studiesTotal;
+        private final int filesTotal;
+        private final long bytesTotal;
+        private final long startTime;
+        private final Consumer<BatchProgress> listener;
+
+        private final AtomicInteger studies = new AtomicInteger();
+        private final AtomicInteger files = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+
+        Tracker(List<BatchStudy> pending, long startTime, Consumer<BatchProgress> listener) {
+            int fileCount = 0;
+            long byteCount = 0;
+            for (BatchStudy study : pending) {
+                fileCount += study.getFiles().size();
+                byteCount += study.getTotalBytes();
+            }
+            this.studiesTotal = pending.size();
+            this.filesTotal = fileCount;
+            this.bytesTotal = byteCount;
+            this.startTime = startTime;
+            this.listener = listener;
+        }
+
+        void fileDone(File file) {
+            files.incrementAndGet();
+            bytes.addAndGet(file.length());
+        }
+
+        void studyDone(BatchStudy study) {
+            int done = studies.incrementAndGet();
+            if (listener != null) {
+                BatchProgress progress = new BatchProgress(study, done, studiesTotal, files.get(), filesTotal,
+                        bytes.get(), bytesTotal, System.currentTimeMillis() - startTime);
+                synchronized (this) {
+                    listener.accept(progress);
+                }
+            }
+        }
+    }
+
+    /**
+     * Outcomes recorded by earlier runs, appended to one line per finished study.
+     */
+    static class Checkpoint {
+        private final Path file;
+        private final Set<String> completed;
+
+        private Checkpoint(Path file, Set<String> completed) {
+            this.file = file;
+            this.completed = completed;
+        }
+
+        static Checkpoint load(Path file) throws IOException {
+            Map<String, String> latest = new TreeMap<>();
+            if (Files.exists(file)) {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    String[] fields = line.split("\t");
+                    // A line cut short by a crash is ignored; that study runs again
+                    if (fields.length == 4) {
+                        latest.put(fields[0], fields[1]);
+                    }
+                }
+            }
+            Set<String> completed = new HashSet<>();
+            latest.forEach((key, status) -> {
+                if (STATUS_COMPLETED.equals(status)) {
+                    completed.add(key);
+                }
+            });
+            return new Checkpoint(file, completed);
+        }
+
+        boolean isCompleted(String studyKey) {
+            return completed.contains(studyKey);
+        }
+
+        synchronized void record(String studyKey, String status, int files, int errors) throws IOException {
+            String line = studyKey + "\t" + status + "\t" + files + "\t" + errors + "\n";
+            Files.writeString(file, line, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        }
+    }
+
+    private static class StudyHeader {
+        final File file;
+        final String studyUid;
+        final String patientId;
+
+        StudyHeader(File file, String studyUid, String patientId) {
+            this.file = file;
+            this.studyUid = studyUid;
+            this.patientId = patientId;
+        }
+    }
+
+    /**
+     * One study found by the scan, with its files in a stable order.
+     */
+    public static class BatchStudy {
+        private final String key;
+        private final String studyUid;
+        private final String patientId;
+        private final List<File> files;
+        private final long totalBytes;
+
+        BatchStudy(String key, String studyUid, String patientId, List<File> files, long totalBytes) {
+            this.key = key;
+            this.studyUid = studyUid;
+            this.patientId = patientId;
+            this.files = files;
+            this.totalBytes = totalBytes;
+        }
+
+        public String getKey() { return key; }
+        public String getStudyUid() { return studyUid; }
+        public String getPatientId() { return patientId; }
+        public List<File> getFiles() { return files; }
+        public long getTotalBytes() { return totalBytes; }
+    }
+
+    /**
+     * Progress after a study finishes, with throughput and an estimate of the time left.
+     */
+    public static class BatchProgress {
+        private final BatchStudy study;
+        private final int studiesDone;
+        private final int studiesTotal;
+        private final int filesDone;
+        private final int filesTotal;
+        private final long bytesDone;
+        private final long bytesTotal;
+        private final long elapsedMs;
+
+        BatchProgress(BatchStudy study, int studiesDone, int studiesTotal, int filesDone, int filesTotal,
+                      long bytesDone, long bytesTotal, long elapsedMs) {
+            this.study = study;
+            this.studiesDone = studiesDone;
+            this.studiesTotal = studiesTotal;
+            this.filesDone = filesDone;
+            this.filesTotal = filesTotal;
+            this.bytesDone = bytesDone;
+            this.bytesTotal = bytesTotal;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public BatchStudy getStudy() { return study; }
+        public int getStudiesDone() { return studiesDone; }
+        public int getStudiesTotal() { return studiesTotal; }
+        public int getFilesDone() { return filesDone; }
+        public int getFilesTotal() { return filesTotal; }
+        public long getBytesDone() { return bytesDone; }
+        public long getBytesTotal() { return bytesTotal; }
+        public long getElapsedMs() { return elapsedMs; }
+
+        public double getFilesPerSecond() {
+            return elapsedMs > 0 ? filesDone * 1000.0 / elapsedMs : 0;
+        }
+
+        public double getMegabytesPerSecond() {
+            return elapsedMs > 0 ? bytesDone / (1024.0 * 1024.0) * 1000.0 / elapsedMs : 0;
+        }
+
+        /**
+         * Time left at the throughput so far, in milliseconds, or -1 before anything is done.
+         */
+        public long getEtaMs() {
+            if (bytesDone == 0) {
+                return -1;
+            }
+            return (long) ((bytesTotal - bytesDone) * (double) elapsedMs / bytesDone);
+        }
+    }
+
+    /**
+     * A study with at least one file that could not be anonymized.
+     */
+    public static class StudyFailure {
+        private final String key;
+        private final String studyUid;
+        private final int files;
+        private final int errors;
+        private final String message;
+
+        StudyFailure(String key, String studyUid, int files, int errors, String message) {
+            this.key = key;
+            this.studyUid = studyUid;
+            this.files = files;
+            this.errors = errors;
+            this.message = message;
+        }
+
+        public String getKey() { return key; }
+        public String getStudyUid() { return studyUid; }
+        public int getFiles() { return files; }
+        public int getErrors() { return errors; }
+        public String getMessage() { return message; }
+    }
+
+    /**
+     * Result of a batch run.
+     */
+    public static class BatchResult {
+        private final int studiesTotal;
+        private final int studiesSkipped;
+        private final int studiesCompleted;
+        private final List<StudyFailure> failures;
+        private final int filesProcessed;
+        private final int fileErrors;
+        private final int unreadableFiles;
+        private final long totalBytes;
+        private final long durationMs;
+
+        BatchResult(int studiesTotal, int studiesSkipped, int studiesCompleted, List<StudyFailure> failures,
+                    int filesProcessed, int fileErrors, int unreadableFiles, long totalBytes, long durationMs) {
+            this.studiesTotal = studiesTotal;
+            this.studiesSkipped = studiesSkipped;
+            this.studiesCompleted = studiesCompleted;
+            this.failures = failures;
+            this.filesProcessed = filesProcessed;
+            this.fileErrors = fileErrors;
+            this.unreadableFiles = unreadableFiles;
+            this.totalBytes = totalBytes;
+            this.durationMs = durationMs;
+        }
+
+        public int getStudiesTotal() { return studiesTotal; }
+        public int getStudiesSkipped() { return studiesSkipped; }
+        public int getStudiesCompleted() { return studiesCompleted; }
+        public List<StudyFailure> getFailures() { return failures; }
+        public int getFilesProcessed() { return filesProcessed; }
+        public int getFileErrors() { return fileErrors; }
+        public int getUnreadableFiles() { return unreadableFiles; }
+        public long getTotalBytes() { return totalBytes; }
+        public long getDurationMs() { return durationMs; }
+        public boolean isSuccess() { return failures.isEmpty() && unreadableFiles == 0; }
+
+        public double getMegabytesPerSecond() {
+            return durationMs > 0 ? totalBytes / (1024.0 * 1024.0) * 1000.0 / durationMs : 0;
+        }
+    }
+}
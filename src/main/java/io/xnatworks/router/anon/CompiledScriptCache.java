@@ -0,0 +1,183 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ *
+ * This software is distributed under the terms described in the LICENSE file.
+ */
+package io.xnatworks.router.anon;
+
+import org.nrg.dicom.dicomedit.ScriptApplicatorI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of compiled DicomEdit script applicators.
+ * <p>
+ * Parsing a script is far more expensive than applying it to one instance,
+ * and the same script is used for every study on a route. Applicators are
+ * keyed by a SHA-256 of the script text (after enhancement) and the names of
+ * its variables, so any change to either compiles a fresh one. Variable
+ * values are set on each lease, so per-study values such as the date shift
+ * increment reuse the same compiled script.
+ * <p>
+ * Applicators are not thread-safe, so each key holds a small pool: a caller
+ * {@link #acquire acquires} an applicator for its exclusive use and returns
+ * it by closing the {@link Lease}. The least recently used scripts are
+ * dropped once {@code maxScripts} is exceeded. {@link ScriptLibrary} calls
+ * {@link #invalidateAll()} whenever a script is added, changed or removed.
+ */
+public class CompiledScriptCache {
+    private static final Logger log = LoggerFactory.getLogger(CompiledScriptCache.class);
+
+    public static final int DEFAULT_MAX_SCRIPTS = 32;
+
+    private static final CompiledScriptCache DEFAULT = new CompiledScriptCache(DEFAULT_MAX_SCRIPTS,
+            Runtime.getRuntime().availableProcessors());
+
+    private final int maxScripts;
+    private final int maxIdlePerScript;
+    private final LinkedHashMap<String, Deque<ScriptApplicatorI>> pools;
+
+    // Bumped on invalidation so applicators leased before it are not pooled again
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxScripts       distinct script/variable combinations kept
+     * @param maxIdlePerScript idle applicators kept per combination
+     */
+    public CompiledScriptCache(int maxScripts, int maxIdlePerScript) {
+        this.maxScripts = Math.max(1, maxScripts);
+        this.maxIdlePerScript = Math.max(1, maxIdlePerScript);
+        this.pools = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Deque<ScriptApplicatorI>> eldest) {
+                return size() > CompiledScriptCache.this.maxScripts;
+            }
+        };
+    }
+
+    public static CompiledScriptCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Take an applicator for the script and variables, compiling one if none is idle.
+     * The variables' values are set on the applicator before it is returned.
+     * The applicator must only be used by the caller until the lease is closed.
+     */
+    public Lease acquire(String script, Map<String, String> variables) throws IOException {
+        String key = key(script, variables);
+        long leasedGeneration;
+        synchronized (this) {
+            leasedGeneration = generation;
+            Deque<ScriptApplicatorI> pool = pools.get(key);
+            ScriptApplicatorI applicator = pool != null ? pool.pollFirst() : null;
+            if (applicator != null) {
+                hits.incrementAndGet();
+                setVariables(applicator, variables);
+                return new Lease(key, leasedGeneration, applicator);
+            }
+        }
+        misses.incrementAndGet();
+        log.debug("Compiling anonymization script {}", key.substring(0, 12));
+        return new Lease(key, leasedGeneration, ParallelAnonymizer.createApplicator(script, variables));
+    }
+
+    /**
+     * Drop every compiled applicator. Leases still open are discarded when closed.
+     */
+    public synchronized void invalidateAll() {
+        pools.clear();
+        generation++;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return pools.size();
+    }
+
+    private synchronized void release(String key, long leasedGeneration, ScriptApplicatorI applicator) {
+        if (leasedGeneration != generation) {
+            return;
+        }
+        Deque<ScriptApplicatorI> pool = pools.computeIfAbsent(key, k -> new ArrayDeque<>());
+        if (pool.size() < maxIdlePerScript) {
+            pool.addFirst(applicator);
+        }
+    }
+
+    private static void setVariables(ScriptApplicatorI applicator, Map<String, String> variables) {
+        if (variables != null) {
+            for (Map.Entry<String, String> entry : variables.entrySet()) {
+                applicator.setVariable(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static String key(String script, Map<String, String> variables) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(script.getBytes(StandardCharsets.UTF_8));
+            if (variables != null) {
+                for (String name : new TreeSet<>(variables.keySet())) {
+                    md.update((byte) 0);
+                    md.update(name.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            return HexFormat.of().formatHex(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Exclusive use of one applicator; closing returns it to the cache.
+     */
+    public class Lease implements AutoCloseable {
+        private final String key;
+        private final long leasedGeneration;
+        private final ScriptApplicatorI applicator;
+        private boolean closed;
+
+        private Lease(String key, long leasedGeneration, ScriptApplicatorI applicator) {
+            this.key = key;
+            this.leasedGeneration = leasedGeneration;
+            this.applicator = applicator;
+        }
+
+        public ScriptApplicatorI getApplicator() {
+            return applicator;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(key, leasedGeneration, applicator);
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ *
+ * This software is distributed under the terms described in the LICENSE file.
+ */
+package io.xnatworks.router.anon;
+
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.TransferSyntax;
+import org.dcm4che2.io.DicomInputStream;
+import org.dcm4che2.io.DicomOutputStream;
+import org.dcm4che2.io.StopTagInputHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Anonymizes an instance by its header alone and passes pixel data through.
+ * <p>
+ * For scripts that do not touch pixels, only the elements before PixelData
+ * are parsed and edited. The output is the re-encoded header followed by the
+ * original bytes from PixelData to the end of the file, copied with
+ * {@link FileChannel#transferTo}. Heap and CPU per instance then depend on
+ * the header size rather than the image size.
+ * <p>
+ * Files where the pixel data cannot be located safely by offset (deflated
+ * transfer syntax, no File Meta Information, unexpected layout) are not
+ * split; callers fall back to reading the whole object. The same goes for
+ * files with anything after PixelData, such as digital signatures or
+ * private groups: the script never sees the copied bytes, so they must be
+ * pixel data and nothing else.
+ */
+final class HeaderOnlyAnonymizer {
+    private static final Logger log = LoggerFactory.getLogger(HeaderOnlyAnonymizer.class);
+
+    /** Assumed header size when budgeting memory for instances in flight. */
+    static final long HEADER_ESTIMATE = 1024 * 1024;
+
+    private static final int CRC_BUFFER_SIZE = 64 * 1024;
+
+    // Item and sequence delimiter tags of encapsulated pixel data
+    private static final int ITEM_TAG = 0xFFFEE000;
+    private static final int SEQUENCE_DELIMITER_TAG = 0xFFFEE0DD;
+
+    // A tag in a script: (0010,0010), (50XX,XXXX) or a private (0019,{Vendor}10)
+    private static final Pattern TAG_REFERENCE =
+            Pattern.compile("\\(\\s*([0-9A-Fa-fXx@#]{4})\\s*,\\s*([^)]*?)\\s*\\)");
+
+    private HeaderOnlyAnonymizer() {
+    }
+
+    /**
+     * An instance split into its parsed header and the byte range that follows it.
+     */
+    static class SplitInstance {
+        final DicomObject header;
+        final long tailOffset;
+        final long tailLength;
+
+        SplitInstance(DicomObject header, long tailOffset, long tailLength) {
+            this.header = header;
+            this.tailOffset = tailOffset;
+            this.tailLength = tailLength;
+        }
+    }
+
+    /**
+     * Whether a script can be applied to the header alone: it does not call
+     * {@code alterPixels} and refers to no tag from PixelData on, even by
+     * wildcard. Anything else needs the whole object.
+     */
+    static boolean supports(String script) {
+        if (script == null || script.contains("alterPixels")) {
+            return false;
+        }
+        Matcher matcher = TAG_REFERENCE.matcher(script);
+        while (matcher.find()) {
+            if (maxTag(matcher.group(1), matcher.group(2)) >= (Tag.PixelData & 0xFFFFFFFFL)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Highest tag a script reference can match, taking wildcard digits at their highest.
+     */
+    private static long maxTag(String group, String element) {
+        long maxGroup = Long.parseLong(group.replaceAll("[^0-9A-Fa-f]", "F"), 16);
+        long maxElement = element.matches("[0-9A-Fa-fXx@#]{4}")
+                ? Long.parseLong(element.replaceAll("[^0-9A-Fa-f]", "F"), 16)
+                : 0xFFFF;
+        return (maxGroup << 16) | maxElement;
+    }
+
+    /**
+     * Read a file's header up to PixelData.
+     *
+     * @return the split instance, or null if the file must be read whole
+     */
+    static SplitInstance read(File file) throws IOException {
+        return split(file, false);
+    }
+
+    /**
+     * Read a file's header up to PixelData, for a file that cannot be read whole.
+     *
+     * @throws IOException saying why, if the file cannot be split at its pixel data
+     */
+    static SplitInstance readSplit(File file) throws IOException {
+        return split(file, true);
+    }
+
+    /**
+     * @param required throw rather than return null when the file cannot be split
+     */
+    private static SplitInstance split(File file, boolean required) throws IOException {
+        long fileLength = file.length();
+        DicomObject header;
+        TransferSyntax ts;
+        long position;
+        long tagPosition;
+        try (DicomInputStream dis = new DicomInputStream(file)) {
+            dis.setHandler(new StopTagInputHandler(Tag.PixelData));
+            header = dis.readDicomObject();
+            ts = dis.getTransferSyntax();
+            position = dis.getStreamPosition();
+            tagPosition = dis.tagPosition();
+        }
+
+        String reason;
+        if (ts.deflated()) {
+            reason = "its transfer syntax is deflated";
+        } else if (!ts.uid().equals(header.getString(Tag.TransferSyntaxUID))) {
+            reason = "its dataset is not encoded in the File Meta Information's transfer syntax ("
+                    + header.getString(Tag.TransferSyntaxUID) + ")";
+        } else if (position >= fileLength) {
+            // No pixel data: the header is the whole object
+            return new SplitInstance(header, fileLength, 0);
+        } else {
+            long end = tagPosition < fileLength ? pixelDataEnd(file, tagPosition, ts) : -1;
+            if (end == fileLength) {
+                header.remove(Tag.PixelData);
+                return new SplitInstance(header, tagPosition, fileLength - tagPosition);
+            }
+            reason = end > 0
+                    ? "it has elements after PixelData"
+                    : "its pixel data is not at offset " + tagPosition + " or is truncated";
+        }
+
+        if (required) {
+            throw new IOException("Cannot split " + file.getName() + " at its pixel data: " + reason);
+        }
+        log.debug("Not splitting {} because {}, reading whole object", file.getName(), reason);
+        return null;
+    }
+
+    /**
+     * Encode a header as a DICOM file prefix: preamble, File Meta Information and dataset.
+     */
+    static byte[] encodeHeader(DicomObject header) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        DicomOutputStream dos = new DicomOutputStream(out);
+        dos.writeDicomFile(header);
+        dos.flush();
+        return out.toByteArray();
+    }
+
+    /**
+     * Copy the bytes after the header to a channel.
+     */
+    static void copyTail(File file, SplitInstance instance, WritableByteChannel target) throws IOException {
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long position = instance.tailOffset;
+            long end = instance.tailOffset + instance.tailLength;
+            while (position < end) {
+                long transferred = in.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    throw new IOException("Unexpected end of " + file.getName() + " at offset " + position);
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * CRC-32 of the re-encoded header followed by the bytes after it.
+     */
+    static long checksum(byte[] head, File file, SplitInstance instance) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(head);
+        ByteBuffer buffer = ByteBuffer.allocate(CRC_BUFFER_SIZE);
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long position = instance.tailOffset;
+            long end = instance.tailOffset + instance.tailLength;
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                int read = in.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of " + file.getName() + " at offset " + position);
+                }
+                buffer.flip();
+                crc.update(buffer);
+                position += read;
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Find the end of the PixelData element at an offset, reading only element
+     * and item headers.
+     *
+     * @return the offset just past PixelData, or -1 if the element there is
+     *         not PixelData or runs past the end of the file
+     */
+    private static long pixelDataEnd(File file, long offset, TransferSyntax ts) throws IOException {
+        long fileLength = file.length();
+        ByteBuffer buffer = ByteBuffer.allocate(12).order(ts.bigEndian() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // OB, OW and UN have a 12 byte header in explicit VR
+            int headerLength = ts.explicitVR() ? 12 : 8;
+            if (!readFully(in, buffer, offset, headerLength) || readTag(buffer) != Tag.PixelData) {
+                return -1;
+            }
+            if (ts.explicitVR()) {
+                String vr = new String(new byte[] {buffer.get(4), buffer.get(5)}, StandardCharsets.US_ASCII);
+                if (!vr.equals("OB") && !vr.equals("OW") && !vr.equals("UN")) {
+                    return -1;
+                }
+            }
+            long length = Integer.toUnsignedLong(buffer.getInt(headerLength - 4));
+            long position = offset + headerLength;
+            if (length != 0xFFFFFFFFL) {
+                return position + length <= fileLength ? position + length : -1;
+            }
+
+            // Encapsulated: items up to the sequence delimiter
+            while (readFully(in, buffer, position, 8)) {
+                int tag = readTag(buffer);
+                position += 8;
+                if (tag == SEQUENCE_DELIMITER_TAG) {
+                    return position;
+                }
+                if (tag != ITEM_TAG) {
+                    return -1;
+                }
+                position += Integer.toUnsignedLong(buffer.getInt(4));
+            }
+            return -1;
+        }
+    }
+
+    private static boolean readFully(FileChannel in, ByteBuffer buffer, long position, int length)
+            throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readTag(ByteBuffer buffer) {
+        return ((buffer.getShort(0) & 0xFFFF) << 16) | (buffer.getShort(2) & 0xFFFF);
+    }
+}
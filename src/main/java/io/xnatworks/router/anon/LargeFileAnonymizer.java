@@ -7,32 +7,26 @@
  */
 package io.xnatworks.router.anon;
 
-import org.dcm4che2.data.DicomElement;
+import io.xnatworks.router.dicom.ZipPackagingPolicy;
 import org.dcm4che2.data.DicomObject;
 import org.dcm4che2.data.Tag;
 import org.dcm4che2.data.TransferSyntax;
-import org.dcm4che2.data.VR;
-import org.dcm4che2.io.DicomInputStream;
-import org.dcm4che2.io.DicomOutputStream;
-import org.dcm4che2.io.StopTagInputHandler;
-import org.nrg.dicom.dicomedit.DE6Script;
 import org.nrg.dicom.dicomedit.ScriptApplicatorI;
-import org.nrg.dicom.dicomedit.SerialScriptApplicator;
-import org.nrg.dicom.mizer.exceptions.MizerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.zip.ZipOutputStream;
 
 /**
  * Handles anonymization of very large DICOM files (> 2GB) using a streaming approach.
@@ -45,6 +39,13 @@ import java.util.Map;
  *
  * This approach is valid because DICOM anonymization only needs to modify metadata tags,
  * not the actual pixel data. The pixel data is simply copied unchanged.
+ *
+ * This is the one large-object engine: {@link AnonymizationService} uses it to write files
+ * and {@link StreamingAnonymizer} to write ZIP entries. The bytes from PixelData to the end
+ * of the file never pass through the heap as a whole: they are copied with
+ * {@link FileChannel#transferTo} into files, and from memory-mapped regions into streams.
+ * Encapsulated pixel data is copied fragment for fragment as stored; only the item headers
+ * are read, to check the fragments are all present before anything is written.
  */
 public class LargeFileAnonymizer {
     private static final Logger log = LoggerFactory.getLogger(LargeFileAnonymizer.class);
@@ -52,11 +53,14 @@ public class LargeFileAnonymizer {
     // Files larger than this threshold (2GB) use streaming approach
     public static final long LARGE_FILE_THRESHOLD = 2L * 1024 * 1024 * 1024;
 
-    // Buffer size for copying pixel data (64MB for fast streaming)
-    private static final int COPY_BUFFER_SIZE = 64 * 1024 * 1024;
+    // Region of pixel data mapped at a time when copying to a stream
+    private static final long MAP_REGION_SIZE = 256L * 1024 * 1024;
+
+    // Chunk handed from a mapped region to the target stream
+    private static final int STREAM_CHUNK_SIZE = 1024 * 1024;
 
-    // PixelData tag - where we stop reading metadata
-    private static final int PIXEL_DATA_TAG = Tag.PixelData;
+    // Sequence delimiter tag of encapsulated pixel data
+    private static final int SEQUENCE_DELIMITER_TAG = 0xFFFEE0DD;
 
     /**
      * Check if a file should use the streaming approach.
@@ -80,115 +84,18 @@ public class LargeFileAnonymizer {
                 inputFile.getFileName(), String.format("%.2f", fileSize / (1024.0 * 1024.0 * 1024.0)));
 
         // Step 1: Read only the header (metadata), stopping before PixelData
-        DicomObject header;
-        long pixelDataOffset;
-        String transferSyntaxUID;
-
-        try (RandomAccessFile raf = new RandomAccessFile(inputFile.toFile(), "r")) {
-            try (DicomInputStream dis = new DicomInputStream(inputFile.toFile())) {
-                // Set handler to stop at PixelData tag
-                dis.setHandler(new StopTagInputHandler(PIXEL_DATA_TAG));
-
-                // Read header only
-                header = dis.readDicomObject();
-
-                // Get the position where PixelData starts (or end of file if no PixelData)
-                // The position after readDicomObject with StopTagInputHandler is where it stopped
-                pixelDataOffset = dis.getStreamPosition();
-
-                // Get transfer syntax for proper output
-                transferSyntaxUID = dis.getTransferSyntax().uid();
-            }
-        }
-
-        log.debug("Read header up to offset {} (header size: {} MB)",
-                pixelDataOffset, String.format("%.2f", pixelDataOffset / (1024.0 * 1024.0)));
+        LargeInstance instance = read(inputFile.toFile());
 
         // Step 2: Apply anonymization script to header
         try {
-            applicator.apply(inputFile.toFile(), header);
+            applicator.apply(inputFile.toFile(), instance.getHeader());
         } catch (Exception e) {
             throw new IOException("Failed to apply anonymization script: " + e.getMessage(), e);
         }
 
         // Step 3: Write output file with anonymized header + original pixel data
         Files.createDirectories(outputFile.getParent());
-
-        try (FileOutputStream fos = new FileOutputStream(outputFile.toFile());
-             BufferedOutputStream bos = new BufferedOutputStream(fos, COPY_BUFFER_SIZE)) {
-
-            // Write anonymized header
-            DicomOutputStream dos = new DicomOutputStream(bos);
-            dos.setAutoFinish(false);
-
-            // Write DICOM preamble (128 bytes of zeros + "DICM")
-            bos.write(new byte[128]);
-            bos.write(new byte[] {'D', 'I', 'C', 'M'});
-
-            // Write File Meta Information
-            dos.writeFileMetaInformation(header);
-
-            // Write Dataset (header elements, stopping before PixelData)
-            TransferSyntax ts = TransferSyntax.valueOf(transferSyntaxUID);
-            Iterator<DicomElement> iter = header.iterator();
-            while (iter.hasNext()) {
-                DicomElement elem = iter.next();
-                int tag = elem.tag();
-                // Skip group length tags (element 0x0000 in any group) and File Meta Information
-                int element = tag & 0x0000FFFF;
-                int group = (tag >> 16) & 0x0000FFFF;
-                if (element == 0x0000 || group == 0x0002) {
-                    continue;
-                }
-                // Skip PixelData - we'll copy it from original
-                if (tag == Tag.PixelData) {
-                    continue;
-                }
-                // Stop when we reach or pass PixelData tag
-                if (tag > Tag.PixelData) {
-                    break;
-                }
-                dos.writeHeader(tag, elem.vr(), elem.length());
-                if (elem.length() > 0) {
-                    dos.write(elem.getBytes());
-                }
-            }
-
-            // Flush the buffered output
-            bos.flush();
-
-            // Step 4: Copy pixel data from original file
-            try (FileChannel inChannel = FileChannel.open(inputFile, StandardOpenOption.READ)) {
-                try (FileChannel outChannel = FileChannel.open(outputFile,
-                        StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
-
-                    // Copy everything from pixelDataOffset to end of file
-                    long remaining = inChannel.size() - pixelDataOffset;
-                    if (remaining > 0) {
-                        log.debug("Copying {} bytes of pixel data (starting at offset {})",
-                                remaining, pixelDataOffset);
-
-                        // Position input at pixel data start
-                        inChannel.position(pixelDataOffset);
-
-                        // Transfer using direct buffer copy (very fast)
-                        long copied = 0;
-                        ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
-                        while (copied < remaining) {
-                            buffer.clear();
-                            int bytesRead = inChannel.read(buffer);
-                            if (bytesRead < 0) break;
-                            buffer.flip();
-                            while (buffer.hasRemaining()) {
-                                copied += outChannel.write(buffer);
-                            }
-                        }
-
-                        log.debug("Copied {} bytes of pixel data", copied);
-                    }
-                }
-            }
-        }
+        instance.writeTo(outputFile);
 
         // Verify output file size is reasonable (should be close to input size)
         long outputSize = Files.size(outputFile);
@@ -210,23 +117,181 @@ public class LargeFileAnonymizer {
      */
     public boolean anonymizeLargeFile(Path inputFile, Path outputFile, String script,
             Map<String, String> variables) throws IOException {
-        // Create applicator from script using DicomEdit 6.6.0 API
-        ScriptApplicatorI applicator;
-        try {
-            ByteArrayInputStream scriptStream = new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8));
-            DE6Script de6Script = new DE6Script(scriptStream);
-            applicator = new SerialScriptApplicator(Collections.singletonList(de6Script));
-
-            // Set variables
-            if (variables != null) {
-                for (Map.Entry<String, String> entry : variables.entrySet()) {
-                    applicator.setVariable(entry.getKey(), entry.getValue());
+        checkHeaderOnly(inputFile.toFile(), HeaderOnlyAnonymizer.supports(script));
+
+        // Lease a compiled applicator for this script and variables
+        try (CompiledScriptCache.Lease lease = CompiledScriptCache.getDefault().acquire(script, variables)) {
+            return anonymizeLargeFile(inputFile, outputFile, lease.getApplicator());
+        }
+    }
+
+    /**
+     * Refuse a large file if the script needs more than its header: the rest of
+     * the file is never read into memory, so it would be passed through unedited.
+     *
+     * @param headerOnly whether {@link HeaderOnlyAnonymizer#supports} the script
+     */
+    static void checkHeaderOnly(File file, boolean headerOnly) throws IOException {
+        if (!headerOnly) {
+            throw new IOException("Script edits pixel data or elements after it, which is not supported for "
+                    + file.getName() + " (over 2GB)");
+        }
+    }
+
+    /**
+     * Read a file's header and locate its pixel data without reading it.
+     * <p>
+     * A file this large cannot fall back to a whole-object read, so one that
+     * cannot be split at its pixel data is rejected: a deflated transfer syntax,
+     * a dataset not in the File Meta Information's transfer syntax, elements
+     * after PixelData, or truncated pixel data.
+     *
+     * @throws IOException saying why the file cannot be split
+     */
+    static LargeInstance read(File file) throws IOException {
+        HeaderOnlyAnonymizer.SplitInstance split = HeaderOnlyAnonymizer.readSplit(file);
+        int fragments = countFragments(file, split);
+        log.debug("Read header of {} up to offset {}; {} bytes of pixel data{}", file.getName(),
+                split.tailOffset, split.tailLength, fragments >= 0 ? " in " + fragments + " fragments" : "");
+        return new LargeInstance(file, split, fragments);
+    }
+
+    /**
+     * A large file split at its pixel data. Apply the script to {@link #getHeader()},
+     * then write the instance; the pixel data is copied from the file as it is written.
+     */
+    static class LargeInstance {
+        private final File file;
+        private final HeaderOnlyAnonymizer.SplitInstance split;
+        private final int fragments;
+        private byte[] head;
+
+        LargeInstance(File file, HeaderOnlyAnonymizer.SplitInstance split, int fragments) {
+            this.file = file;
+            this.split = split;
+            this.fragments = fragments;
+        }
+
+        DicomObject getHeader() {
+            return split.header;
+        }
+
+        /**
+         * Fragments of encapsulated pixel data, excluding the offset table, or -1 if not encapsulated.
+         */
+        int getFragments() {
+            return fragments;
+        }
+
+        /**
+         * Write the instance to a file, copying the pixel data with {@link FileChannel#transferTo}.
+         */
+        void writeTo(Path outputFile) throws IOException {
+            try (FileChannel out = FileChannel.open(outputFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(head());
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
                 }
+                HeaderOnlyAnonymizer.copyTail(file, split, out);
             }
-        } catch (MizerException e) {
-            throw new IOException("Failed to parse anonymization script: " + e.getMessage(), e);
         }
 
-        return anonymizeLargeFile(inputFile, outputFile, applicator);
+        /**
+         * Write the instance to a stream, copying the pixel data from memory-mapped regions.
+         */
+        void writeTo(OutputStream out) throws IOException {
+            out.write(head());
+            copyMapped(file, split, out);
+        }
+
+        /**
+         * Write the instance as one ZIP entry, deflated only if the pixel data is not already compressed.
+         */
+        void writeEntry(ZipOutputStream zos, String entryName) throws IOException {
+            ZipPackagingPolicy.getDefault().putNextEntry(zos, entryName,
+                    split.header.getString(Tag.TransferSyntaxUID));
+            writeTo(zos);
+            zos.closeEntry();
+        }
+
+        // The header is encoded on first write, after the script has been applied
+        private byte[] head() throws IOException {
+            if (head == null) {
+                head = HeaderOnlyAnonymizer.encodeHeader(split.header);
+            }
+            return head;
+        }
+    }
+
+    /**
+     * Copy the bytes after the header to a stream, one mapped region at a time.
+     */
+    private static void copyMapped(File file, HeaderOnlyAnonymizer.SplitInstance split, OutputStream out)
+            throws IOException {
+        byte[] chunk = new byte[STREAM_CHUNK_SIZE];
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long position = split.tailOffset;
+            long end = split.tailOffset + split.tailLength;
+            while (position < end) {
+                long size = Math.min(MAP_REGION_SIZE, end - position);
+                MappedByteBuffer region = in.map(FileChannel.MapMode.READ_ONLY, position, size);
+                while (region.hasRemaining()) {
+                    int length = Math.min(chunk.length, region.remaining());
+                    region.get(chunk, 0, length);
+                    out.write(chunk, 0, length);
+                }
+                position += size;
+            }
+        }
+    }
+
+    /**
+     * Count the fragments of encapsulated pixel data, reading only item headers.
+     * The split has already checked that the pixel data is complete and ends the file.
+     *
+     * @return fragments excluding the offset table, or -1 if not encapsulated
+     */
+    static int countFragments(File file, HeaderOnlyAnonymizer.SplitInstance split) throws IOException {
+        if (split.tailLength == 0) {
+            return -1;
+        }
+        TransferSyntax ts = TransferSyntax.valueOf(split.header.getString(Tag.TransferSyntaxUID));
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(12)
+                    .order(ts.bigEndian() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+            int headerLength = ts.explicitVR() ? 12 : 8;
+            readFully(in, buffer, split.tailOffset, headerLength);
+            if (buffer.getInt(headerLength - 4) != -1) {
+                return -1;
+            }
+
+            // Encapsulated: offset table item, one item per fragment, sequence delimiter
+            long position = split.tailOffset + headerLength;
+            int items = 0;
+            while (true) {
+                readFully(in, buffer, position, 8);
+                if (readTag(buffer) == SEQUENCE_DELIMITER_TAG) {
+                    return Math.max(0, items - 1);
+                }
+                position += 8 + Integer.toUnsignedLong(buffer.getInt(4));
+                items++;
+            }
+        }
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position, int length)
+            throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file at offset " + (position + buffer.position()));
+            }
+        }
+    }
+
+    private static int readTag(ByteBuffer buffer) {
+        return ((buffer.getShort(0) & 0xFFFF) << 16) | (buffer.getShort(2) & 0xFFFF);
     }
 }
@@ -0,0 +1,269 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ *
+ * This software is distributed under the terms described in the LICENSE file.
+ */
+package io.xnatworks.router.anon;
+
+import org.nrg.dicom.dicomedit.DE6Script;
+import org.nrg.dicom.dicomedit.ScriptApplicatorI;
+import org.nrg.dicom.dicomedit.SerialScriptApplicator;
+import org.nrg.dicom.mizer.exceptions.MizerException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Runs DicomEdit over a list of instances on a bounded pool while results are
+ * consumed strictly in input order on the calling thread.
+ * <p>
+ * Each worker thread leases its own script applicator from the
+ * {@link CompiledScriptCache}, since applicators are not safe to share. The
+ * calling thread is the single writer: it submits work ahead of itself
+ * while the memory budget allows, then hands each result to
+ * the {@link ResultHandler} in the order the files were given. Anything the
+ * handler touches - the ZIP stream, the archive directory, UID callbacks -
+ * is therefore only ever used from one thread, and output is the same as a
+ * sequential run.
+ * <p>
+ * Files selected as inline (e.g. &gt; 2GB files that are streamed rather than
+ * loaded) run on the calling thread once every earlier result is written.
+ */
+final class ParallelAnonymizer {
+
+    /** One worker per core. */
+    static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /** A quarter of the heap for datasets in flight. */
+    static final long DEFAULT_MEMORY_BUDGET = Runtime.getRuntime().maxMemory() / 4;
+
+    /**
+     * Anonymizes one instance on a worker thread and returns what the writer needs.
+     */
+    @FunctionalInterface
+    interface InstanceTask<T> {
+        T process(File file, ScriptApplicatorI applicator) throws Exception;
+    }
+
+    /**
+     * Consumes one result on the calling thread, in input order.
+     */
+    @FunctionalInterface
+    interface ResultHandler<T> {
+        void accept(File file, T result) throws Exception;
+    }
+
+    /**
+     * Processes an inline file completely on the calling thread.
+     */
+    @FunctionalInterface
+    interface InlineTask {
+        void process(File file, ScriptApplicatorI applicator) throws Exception;
+    }
+
+    /**
+     * Called on the calling thread for a file that failed; throw to stop the run.
+     */
+    @FunctionalInterface
+    interface ErrorHandler {
+        void onError(File file, Throwable error) throws IOException;
+    }
+
+    private final int threads;
+    private final long memoryBudgetBytes;
+    private final CompiledScriptCache scriptCache;
+
+    /**
+     * @param threads           maximum worker threads; 1 runs everything on the calling thread
+     * @param memoryBudgetBytes cap on memory held by instances in flight; one
+     *                          instance is always allowed, however large
+     */
+    ParallelAnonymizer(int threads, long memoryBudgetBytes) {
+        this(threads, memoryBudgetBytes, CompiledScriptCache.getDefault());
+    }
+
+    ParallelAnonymizer(int threads, long memoryBudgetBytes, CompiledScriptCache scriptCache) {
+        this.threads = Math.max(1, threads);
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.scriptCache = scriptCache;
+    }
+
+    /**
+     * Compile a script applicator using the DicomEdit 6.6.0 API.
+     * Callers normally lease one from {@link CompiledScriptCache} instead.
+     */
+    static ScriptApplicatorI createApplicator(String script, Map<String, String> variables) throws IOException {
+        try {
+            ByteArrayInputStream scriptStream = new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8));
+            DE6Script de6Script = new DE6Script(scriptStream);
+            ScriptApplicatorI applicator = new SerialScriptApplicator(Collections.singletonList(de6Script));
+            if (variables != null) {
+                for (Map.Entry<String, String> entry : variables.entrySet()) {
+                    applicator.setVariable(entry.getKey(), entry.getValue());
+                }
+            }
+            return applicator;
+        } catch (MizerException e) {
+            throw new IOException("Failed to parse anonymization script: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Memory an instance is expected to hold while in flight when read whole:
+     * the parsed dataset plus its encoded output, each about the size of the file.
+     */
+    static long inFlightCost(File file) {
+        return 2 * file.length();
+    }
+
+    /**
+     * Memory an instance is expected to hold while in flight when only its
+     * header is parsed and the pixel data is copied from the file.
+     */
+    static long headerOnlyCost(File file) {
+        return 2 * Math.min(file.length(), HeaderOnlyAnonymizer.HEADER_ESTIMATE);
+    }
+
+    /**
+     * Run the task over every file.
+     *
+     * @param cost estimated memory an instance holds while in flight
+     */
+    <T> void run(List<File> files, String script, Map<String, String> variables, Predicate<File> inline,
+                 ToLongFunction<File> cost, InstanceTask<T> task, InlineTask inlineTask,
+                 ResultHandler<T> handler, ErrorHandler onError) throws IOException {
+        // Leased here first so a bad script fails before any work starts
+        CompiledScriptCache.Lease callerLease = scriptCache.acquire(script, variables);
+        if (files.isEmpty()) {
+            callerLease.close();
+            return;
+        }
+        if (threads == 1) {
+            runOnCallingThread(files, inline, task, inlineTask, handler, onError, callerLease);
+            return;
+        }
+
+        // Worker leases go back to the cache only once every worker is done with them
+        Queue<CompiledScriptCache.Lease> workerLeases = new ConcurrentLinkedQueue<>();
+        ThreadLocal<CompiledScriptCache.Lease> threadLeases = new ThreadLocal<>();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, files.size()), r -> {
+            Thread t = new Thread(r, "anon-worker");
+            t.setDaemon(true);
+            return t;
+        });
+
+        Deque<Pending<T>> window = new ArrayDeque<>();
+        long inFlight = 0;
+        int next = 0;
+        boolean completed = false;
+        try {
+            while (next < files.size() || !window.isEmpty()) {
+                // Submit ahead while the budget allows; inline files wait for the window to drain
+                while (next < files.size() && !inline.test(files.get(next))
+                        && (window.isEmpty() || inFlight + cost.applyAsLong(files.get(next)) <= memoryBudgetBytes)) {
+                    File file = files.get(next++);
+                    Future<T> future = pool.submit(() ->
+                            task.process(file, workerApplicator(threadLeases, workerLeases, script, variables)));
+                    Pending<T> pending = new Pending<>(file, cost.applyAsLong(file), future);
+                    window.add(pending);
+                    inFlight += pending.cost;
+                }
+
+                if (window.isEmpty()) {
+                    File file = files.get(next++);
+                    try {
+                        inlineTask.process(file, callerLease.getApplicator());
+                    } catch (Exception | OutOfMemoryError e) {
+                        onError.onError(file, e);
+                    }
+                    continue;
+                }
+
+                Pending<T> head = window.poll();
+                inFlight -= head.cost;
+                try {
+                    handler.accept(head.file, head.future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Anonymization interrupted", e);
+                } catch (ExecutionException e) {
+                    onError.onError(head.file, e.getCause());
+                } catch (Exception | OutOfMemoryError e) {
+                    onError.onError(head.file, e);
+                }
+            }
+            completed = true;
+        } finally {
+            pool.shutdownNow();
+            callerLease.close();
+            if (completed) {
+                workerLeases.forEach(CompiledScriptCache.Lease::close);
+            }
+        }
+    }
+
+    /**
+     * Process every file on the calling thread, for callers already running on a pool
+     * of their own, without starting a worker pool.
+     */
+    private <T> void runOnCallingThread(List<File> files, Predicate<File> inline, InstanceTask<T> task,
+                                        InlineTask inlineTask, ResultHandler<T> handler, ErrorHandler onError,
+                                        CompiledScriptCache.Lease lease) throws IOException {
+        try {
+            for (File file : files) {
+                try {
+                    if (inline.test(file)) {
+                        inlineTask.process(file, lease.getApplicator());
+                    } else {
+                        handler.accept(file, task.process(file, lease.getApplicator()));
+                    }
+                } catch (Exception | OutOfMemoryError e) {
+                    onError.onError(file, e);
+                }
+            }
+        } finally {
+            lease.close();
+        }
+    }
+
+    private ScriptApplicatorI workerApplicator(ThreadLocal<CompiledScriptCache.Lease> threadLeases,
+                                               Queue<CompiledScriptCache.Lease> workerLeases,
+                                               String script, Map<String, String> variables) throws IOException {
+        CompiledScriptCache.Lease lease = threadLeases.get();
+        if (lease == null) {
+            lease = scriptCache.acquire(script, variables);
+            threadLeases.set(lease);
+            workerLeases.add(lease);
+        }
+        return lease.getApplicator();
+    }
+
+    private static class Pending<T> {
+        final File file;
+        final long cost;
+        final Future<T> future;
+
+        Pending(File file, long cost, Future<T> future) {
+            this.file = file;
+            this.cost = cost;
+            this.future = future;
+        }
+    }
+}
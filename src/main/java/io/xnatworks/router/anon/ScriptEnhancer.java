@@ -11,7 +11,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -31,10 +34,28 @@ import java.util.regex.Pattern;
  *   <li>hashUID[(tag)] - Replaces UID with a deterministic hash-based UID (Version 5 UUID, SHA-1).</li>
  * </ul>
  * </p>
+ *
+ * <p>{@link #prepare} builds the enhanced script once per base script with the shift
+ * left as the {@link #DATE_SHIFT_VARIABLE} script variable, so one compiled script
+ * serves every patient and only the variable changes per study.</p>
  */
 public class ScriptEnhancer {
     private static final Logger log = LoggerFactory.getLogger(ScriptEnhancer.class);
 
+    /** Script variable holding the increment passed to shiftDateTimeByIncrement[] by prepared scripts. */
+    public static final String DATE_SHIFT_VARIABLE = "dateShiftIncrement";
+
+    private static final int MAX_PREPARED_SCRIPTS = 32;
+
+    // Prepared scripts by options and base script, least recently used dropped first
+    private static final Map<String, PreparedScript> preparedScripts =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedScript> eldest) {
+                    return size() > MAX_PREPARED_SCRIPTS;
+                }
+            };
+
     // DICOM date tags that should be shifted
     private static final String[] DATE_TAGS = {
         "(0008,0020)",  // Study Date
@@ -102,23 +123,46 @@ public class ScriptEnhancer {
         StringBuilder enhanced = new StringBuilder();
         enhanced.append(script);
 
-        // Add date shift commands using DicomEdit 6 syntax
-        // NOTE: When using (tag) := shiftDateTimeByIncrement[(tag), ...], the shift is applied twice
-        // because the RHS reads the tag (applying shift) and then assigns back (applying shift again).
-        // Workaround: divide the requested shift by 2 so the net effect is correct.
-        int adjustedShift = dateShiftDays / 2;
-        int remainder = dateShiftDays % 2;
-        if (remainder != 0) {
-            log.warn("Date shift {} is odd, will be rounded to {} days (effective: {} days)",
-                    dateShiftDays, adjustedShift, adjustedShift * 2);
-        }
+        int adjustedShift = adjustedShift(dateShiftDays);
 
         enhanced.append("\n\n// Date Shifting - Patient-specific offset: ").append(dateShiftDays).append(" days\n");
         enhanced.append("// Using DicomEdit 6 shiftDateTimeByIncrement function\n");
         enhanced.append("// Note: Script uses ").append(adjustedShift).append(" to achieve ").append(adjustedShift * 2).append(" day shift (DicomEdit applies twice)\n");
 
-        List<String> existingTags = extractExistingTags(script);
+        appendDateShiftCommands(enhanced, script, "\"" + adjustedShift + "\"",
+                "  // Shift by " + dateShiftDays + " days\n");
+
+        log.debug("Enhanced script with date shift of {} days", dateShiftDays);
+        return enhanced.toString();
+    }
 
+    /**
+     * Enhance a script with date shifting by the {@link #DATE_SHIFT_VARIABLE} variable,
+     * which must be set to {@link PreparedScript#variables(int)} when the script is applied.
+     *
+     * @param script The original DicomEdit script
+     * @return Enhanced script with shiftDateTimeByIncrement[] commands
+     */
+    public static String enhanceWithDateShiftVariable(String script) {
+        StringBuilder enhanced = new StringBuilder();
+        enhanced.append(script);
+
+        enhanced.append("\n\n// Date Shifting - Patient-specific offset set through the ")
+                .append(DATE_SHIFT_VARIABLE).append(" variable\n");
+        enhanced.append("// Using DicomEdit 6 shiftDateTimeByIncrement function\n");
+        enhanced.append("// Note: The variable holds half the offset (DicomEdit applies twice)\n");
+
+        appendDateShiftCommands(enhanced, script, DATE_SHIFT_VARIABLE, "\n");
+
+        log.debug("Enhanced script with parameterized date shift");
+        return enhanced.toString();
+    }
+
+    /**
+     * Append a shiftDateTimeByIncrement[] command for each date tag the script does not already set.
+     */
+    private static void appendDateShiftCommands(StringBuilder enhanced, String script, String shift,
+                                                String lineEnd) {
         for (String tag : DATE_TAGS) {
             // Don't add if script already sets this tag to empty or specific value
             if (!tagIsModified(script, tag) || tagIsClearedOnly(script, tag)) {
@@ -126,14 +170,27 @@ public class ScriptEnhancer {
                 if (!tagIsCleared(script, tag)) {
                     // DicomEdit 6 syntax: shiftDateTimeByIncrement[(tag), "shift", "days"]
                     enhanced.append(tag).append(" := shiftDateTimeByIncrement[").append(tag)
-                            .append(", \"").append(adjustedShift).append("\", \"days\"]")
-                            .append("  // Shift by ").append(dateShiftDays).append(" days\n");
+                            .append(", ").append(shift).append(", \"days\"]")
+                            .append(lineEnd);
                 }
             }
         }
+    }
 
-        log.debug("Enhanced script with date shift of {} days", dateShiftDays);
-        return enhanced.toString();
+    /**
+     * The increment that shifts dates by the requested number of days.
+     * NOTE: When using (tag) := shiftDateTimeByIncrement[(tag), ...], the shift is applied twice
+     * because the RHS reads the tag (applying shift) and then assigns back (applying shift again).
+     * Workaround: divide the requested shift by 2 so the net effect is correct.
+     */
+    private static int adjustedShift(int dateShiftDays) {
+        int adjustedShift = dateShiftDays / 2;
+        int remainder = dateShiftDays % 2;
+        if (remainder != 0) {
+            log.warn("Date shift {} is odd, will be rounded to {} days (effective: {} days)",
+                    dateShiftDays, adjustedShift, adjustedShift * 2);
+        }
+        return adjustedShift;
     }
 
     /**
@@ -190,6 +247,71 @@ public class ScriptEnhancer {
         return result;
     }
 
+    /**
+     * Enhance a script for date shifting and/or UID hashing, leaving the shift as a variable.
+     * The result depends only on the base script and options, so it is built once and reused;
+     * pass {@link PreparedScript#variables(int)} with each patient's shift when applying it.
+     *
+     * @param script The original DicomEdit script
+     * @param dateShift Whether to add date shifting
+     * @param hashUids Whether to add hashUID for all UIDs
+     * @return The prepared script
+     */
+    public static PreparedScript prepare(String script, boolean dateShift, boolean hashUids) {
+        String key = (dateShift ? "D" : "-") + (hashUids ? "H" : "-") + script;
+        synchronized (preparedScripts) {
+            PreparedScript prepared = preparedScripts.get(key);
+            if (prepared != null) {
+                return prepared;
+            }
+        }
+
+        String result = script;
+        if (dateShift) {
+            result = enhanceWithDateShiftVariable(result);
+        }
+        if (hashUids) {
+            result = enhanceWithUidHashing(result);
+        }
+
+        PreparedScript prepared = new PreparedScript(result, dateShift);
+        synchronized (preparedScripts) {
+            preparedScripts.put(key, prepared);
+        }
+        return prepared;
+    }
+
+    /**
+     * An enhanced script whose date shift, if any, is supplied through script variables.
+     */
+    public static class PreparedScript {
+        private final String script;
+        private final boolean dateShift;
+
+        private PreparedScript(String script, boolean dateShift) {
+            this.script = script;
+            this.dateShift = dateShift;
+        }
+
+        public String getScript() {
+            return script;
+        }
+
+        public boolean isDateShift() {
+            return dateShift;
+        }
+
+        /**
+         * Script variables that shift dates by the given number of days.
+         */
+        public Map<String, String> variables(int dateShiftDays) {
+            if (!dateShift) {
+                return Collections.emptyMap();
+            }
+            return Collections.singletonMap(DATE_SHIFT_VARIABLE, String.valueOf(adjustedShift(dateShiftDays)));
+        }
+    }
+
     /**
      * Extract tags that are already modified in the script.
      */
@@ -16,9 +16,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -50,6 +52,9 @@ public class ScriptLibrary {
 
     private Map<String, ScriptEntry> scripts = new LinkedHashMap<>();
 
+    // Script content by name, re-read only when the file's modification time changes
+    private final Map<String, CachedContent> contentCache = new ConcurrentHashMap<>();
+
     public ScriptLibrary(Path scriptsDir) throws IOException {
         this.scriptsDir = scriptsDir;
         this.libraryFile = scriptsDir.resolve("library.json");
@@ -174,7 +179,23 @@ public class ScriptLibrary {
         if (entry == null) {
             throw new IllegalArgumentException("Script not found: " + name);
         }
-        return Files.readString(Paths.get(entry.getFilePath()));
+        Path scriptFile = Paths.get(entry.getFilePath());
+        FileTime lastModified = Files.getLastModifiedTime(scriptFile);
+        CachedContent cached = contentCache.get(name);
+        if (cached != null && cached.path.equals(scriptFile) && cached.lastModified.equals(lastModified)) {
+            return cached.content;
+        }
+        String content = Files.readString(scriptFile);
+        contentCache.put(name, new CachedContent(scriptFile, lastModified, content));
+        return content;
+    }
+
+    /**
+     * Forget cached content for a script and any applicators compiled from the library.
+     */
+    private void scriptChanged(String name) {
+        contentCache.remove(name);
+        CompiledScriptCache.getDefault().invalidateAll();
     }
 
     /**
@@ -217,6 +238,7 @@ public class ScriptLibrary {
 
         scripts.put(name, entry);
         saveLibrary();
+        scriptChanged(name);
 
         log.info("Added script: {}", name);
         return entry;
@@ -240,15 +262,31 @@ public class ScriptLibrary {
         if (description != null) entry.setDescription(description);
         if (content != null) {
             Files.writeString(Paths.get(entry.getFilePath()), content);
+            // A profile of the old content no longer says anything about this one
+            entry.setProfile(null);
         }
         entry.setModifiedAt(LocalDateTime.now());
 
         saveLibrary();
+        scriptChanged(name);
 
         log.info("Updated script: {}", name);
         return entry;
     }
 
+    /**
+     * Record the result of profiling a script.
+     */
+    public void saveProfile(String name, ProfileSummary profile) {
+        ScriptEntry entry = scripts.get(name);
+        if (entry == null) {
+            throw new IllegalArgumentException("Script not found: " + name);
+        }
+
+        entry.setProfile(profile);
+        saveLibrary();
+    }
+
     /**
      * Delete a script.
      */
@@ -265,6 +303,7 @@ public class ScriptLibrary {
         Files.deleteIfExists(Paths.get(entry.getFilePath()));
         scripts.remove(name);
         saveLibrary();
+        scriptChanged(name);
 
         log.info("Deleted script: {}", name);
     }
@@ -292,6 +331,7 @@ public class ScriptLibrary {
 
         scripts.put(safeName, entry);
         saveLibrary();
+        scriptChanged(safeName);
 
         log.info("Imported script from XNAT: {} -> {}", xnatUrl, safeName);
         return entry;
@@ -615,6 +655,7 @@ public class ScriptLibrary {
         private String sourceProject;  // For imported scripts
         private LocalDateTime createdAt;
         private LocalDateTime modifiedAt;
+        private ProfileSummary profile;
 
         // Getters and setters
         public String getName() { return name; }
@@ -647,6 +688,9 @@ public class ScriptLibrary {
         public LocalDateTime getModifiedAt() { return modifiedAt; }
         public void setModifiedAt(LocalDateTime modifiedAt) { this.modifiedAt = modifiedAt; }
 
+        public ProfileSummary getProfile() { return profile; }
+        public void setProfile(ProfileSummary profile) { this.profile = profile; }
+
         public String getSource() {
             if (builtIn) {
                 return "built-in";
@@ -658,6 +702,61 @@ public class ScriptLibrary {
         }
     }
 
+    /**
+     * Outcome of the last dry-run profile of a script (see {@link ScriptProfiler}).
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ProfileSummary {
+        private LocalDateTime profiledAt;
+        private int instances;
+        private double meanInstanceMs;
+        private double p95InstanceMs;
+        private double meanApplyMs;
+        private double expectedFilesPerSecond;
+        private long allocatedBytesPerInstance;
+        private boolean slow;
+        private String slowestStatement;
+
+        public LocalDateTime getProfiledAt() { return profiledAt; }
+        public void setProfiledAt(LocalDateTime profiledAt) { this.profiledAt = profiledAt; }
+
+        public int getInstances() { return instances; }
+        public void setInstances(int instances) { this.instances = instances; }
+
+        public double getMeanInstanceMs() { return meanInstanceMs; }
+        public void setMeanInstanceMs(double meanInstanceMs) { this.meanInstanceMs = meanInstanceMs; }
+
+        public double getP95InstanceMs() { return p95InstanceMs; }
+        public void setP95InstanceMs(double p95InstanceMs) { this.p95InstanceMs = p95InstanceMs; }
+
+        public double getMeanApplyMs() { return meanApplyMs; }
+        public void setMeanApplyMs(double meanApplyMs) { this.meanApplyMs = meanApplyMs; }
+
+        public double getExpectedFilesPerSecond() { return expectedFilesPerSecond; }
+        public void setExpectedFilesPerSecond(double expectedFilesPerSecond) { this.expectedFilesPerSecond = expectedFilesPerSecond; }
+
+        public long getAllocatedBytesPerInstance() { return allocatedBytesPerInstance; }
+        public void setAllocatedBytesPerInstance(long allocatedBytesPerInstance) { this.allocatedBytesPerInstance = allocatedBytesPerInstance; }
+
+        public boolean isSlow() { return slow; }
+        public void setSlow(boolean slow) { this.slow = slow; }
+
+        public String getSlowestStatement() { return slowestStatement; }
+        public void setSlowestStatement(String slowestStatement) { this.slowestStatement = slowestStatement; }
+    }
+
+    private static class CachedContent {
+        final Path path;
+        final FileTime lastModified;
+        final String content;
+
+        CachedContent(Path path, FileTime lastModified, String content) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.content = content;
+        }
+    }
+
     @JsonIgnoreProperties(ignoreUnknown = true)
     private static class ScriptLibraryData {
         private LocalDateTime lastModified;
@@ -0,0 +1,400 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ *
+ * This software is distributed under the terms described in the LICENSE file.
+ */
+package io.xnatworks.router.anon;
+
+import io.xnatworks.router.config.AppConfig;
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.io.DicomInputStream;
+import org.dcm4che2.io.DicomOutputStream;
+import org.nrg.dicom.dicomedit.ScriptApplicatorI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dry-runs an anonymization script against sample instances and measures
+ * what it costs, without writing any output.
+ * <p>
+ * Each instance is read the way the router would read it (header only when
+ * the script allows), the compiled script is applied and the result is
+ * encoded to a discarding stream. Read, apply and encode time and the bytes
+ * allocated by the profiling thread are recorded per instance.
+ * <p>
+ * DicomEdit does not expose per-statement hooks, so statement cost is
+ * estimated by compiling each statement as a script of its own and applying
+ * it to copies of the first few headers. Statements that only compile in
+ * context (for example those referring to variables declared elsewhere) are
+ * reported without a cost.
+ */
+public class ScriptProfiler {
+    private static final Logger log = LoggerFactory.getLogger(ScriptProfiler.class);
+
+    /** Mean time per instance above which a script is flagged as slow. */
+    public static final double SLOW_INSTANCE_MS = 50.0;
+
+    /** Instances profiled when no limit is given. */
+    public static final int DEFAULT_SAMPLE_LIMIT = 100;
+
+    /** Instances each statement is timed against on its own. */
+    static final int STATEMENT_SAMPLE_LIMIT = 10;
+
+    private final int threads;
+
+    public ScriptProfiler() {
+        this(ParallelAnonymizer.DEFAULT_THREADS);
+    }
+
+    /**
+     * @param threads worker threads the expected throughput is estimated for
+     */
+    public ScriptProfiler(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Profile a script as a route sending through an honest broker runs it: prepared
+     * with the broker's date shift and UID hashing. Any shift costs the same, so a
+     * fixed one is used rather than creating crosswalk entries for the samples.
+     *
+     * @param scriptName   name reported with the result
+     * @param content      DicomEdit script content as stored in the library
+     * @param brokerConfig honest broker the script runs with, or null for none
+     * @param files        sample instances; nothing is written back to them
+     */
+    public ScriptProfile profilePrepared(String scriptName, String content, AppConfig.HonestBrokerConfig brokerConfig,
+                                         List<Path> files) throws IOException {
+        boolean dateShift = brokerConfig != null && brokerConfig.isDateShiftEnabled();
+        boolean hashUids = brokerConfig != null && brokerConfig.isHashUidsEnabled();
+        ScriptEnhancer.PreparedScript prepared = ScriptEnhancer.prepare(content, dateShift, hashUids);
+        int dateShiftDays = dateShift ? brokerConfig.getDateShiftMaxDays() : 0;
+        return profile(scriptName, prepared.getScript(), prepared.variables(dateShiftDays), files);
+    }
+
+    /**
+     * Profile a script against sample files.
+     *
+     * @param scriptName name reported with the result
+     * @param script     DicomEdit script content
+     * @param variables  script variables, may be null
+     * @param files      sample instances; nothing is written back to them
+     */
+    public ScriptProfile profile(String scriptName, String script, Map<String, String> variables,
+                                 List<Path> files) throws IOException {
+        ScriptProfile profile = new ScriptProfile(scriptName);
+        boolean headerOnly = HeaderOnlyAnonymizer.supports(script);
+        profile.headerOnly = headerOnly;
+
+        long compileStart = System.nanoTime();
+        ScriptApplicatorI applicator = ParallelAnonymizer.createApplicator(script, variables);
+        profile.compileMs = millis(System.nanoTime() - compileStart);
+
+        List<DicomObject> originals = new ArrayList<>();
+        List<File> originalFiles = new ArrayList<>();
+        boolean warmedUp = false;
+
+        for (Path path : files) {
+            File file = path.toFile();
+            try {
+                if (!warmedUp) {
+                    // The first pass loads DicomEdit's classes and is not representative
+                    applicator.apply(file, readHeader(file, headerOnly));
+                    warmedUp = true;
+                }
+
+                if (originals.size() < STATEMENT_SAMPLE_LIMIT) {
+                    originals.add(readHeader(file, headerOnly));
+                    originalFiles.add(file);
+                }
+
+                long allocatedBefore = allocatedBytes();
+                long start = System.nanoTime();
+                DicomObject dcm = readHeader(file, headerOnly);
+                long read = System.nanoTime();
+                applicator.apply(file, dcm);
+                long applied = System.nanoTime();
+                encode(dcm, headerOnly);
+                long encoded = System.nanoTime();
+                long allocatedAfter = allocatedBytes();
+
+                InstanceTiming timing = new InstanceTiming();
+                timing.file = file.getName();
+                timing.sizeBytes = file.length();
+                timing.readMs = millis(read - start);
+                timing.applyMs = millis(applied - read);
+                timing.encodeMs = millis(encoded - applied);
+                timing.allocatedBytes = allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore;
+                profile.instances.add(timing);
+            } catch (Exception e) {
+                log.debug("Failed to profile {}: {}", file, e.getMessage());
+                profile.errors.add(file.getName() + ": " + e.getMessage());
+            }
+        }
+
+        profile.statements = profileStatements(script, variables, originalFiles, originals);
+        profile.summarize(threads);
+
+        log.info("Profiled script {} on {} instances: {} ms/instance, {} files/s expected",
+                scriptName, profile.instances.size(), String.format("%.2f", profile.meanInstanceMs),
+                String.format("%.1f", profile.expectedFilesPerSecond));
+        return profile;
+    }
+
+    /**
+     * Time each statement of a script on its own against copies of the sample headers.
+     */
+    private List<StatementCost> profileStatements(String script, Map<String, String> variables,
+                                                  List<File> files, List<DicomObject> headers) {
+        List<StatementCost> costs = new ArrayList<>();
+        if (headers.isEmpty()) {
+            return costs;
+        }
+
+        String[] lines = script.split("\\R");
+        String version = Arrays.stream(lines)
+                .map(String::trim)
+                .filter(line -> line.startsWith("version"))
+                .findFirst()
+                .orElse(null);
+
+        for (int i = 0; i < lines.length; i++) {
+            String statement = lines[i].trim();
+            if (!isStatement(statement)) {
+                continue;
+            }
+
+            StatementCost cost = new StatementCost();
+            cost.line = i + 1;
+            cost.statement = statement;
+            costs.add(cost);
+
+            ScriptApplicatorI applicator;
+            try {
+                applicator = ParallelAnonymizer.createApplicator(
+                        version == null ? statement : version + "\n" + statement, variables);
+            } catch (Exception e) {
+                continue;
+            }
+
+            try {
+                long total = 0;
+                for (int j = 0; j < headers.size(); j++) {
+                    DicomObject dcm = copy(headers.get(j));
+                    long start = System.nanoTime();
+                    applicator.apply(files.get(j), dcm);
+                    total += System.nanoTime() - start;
+                }
+                cost.measured = true;
+                cost.meanMicros = total / 1000.0 / headers.size();
+            } catch (Exception e) {
+                log.debug("Statement on line {} failed on its own: {}", cost.line, e.getMessage());
+            }
+        }
+
+        double total = costs.stream().filter(c -> c.measured).mapToDouble(c -> c.meanMicros).sum();
+        if (total > 0) {
+            costs.stream().filter(c -> c.measured).forEach(c -> c.share = c.meanMicros / total);
+        }
+        return costs;
+    }
+
+    static boolean isStatement(String line) {
+        return !line.isEmpty() && !line.startsWith("//") && !line.startsWith("#")
+                && !line.startsWith("version");
+    }
+
+    private static DicomObject readHeader(File file, boolean headerOnly) throws IOException {
+        if (headerOnly) {
+            HeaderOnlyAnonymizer.SplitInstance split = HeaderOnlyAnonymizer.read(file);
+            if (split != null) {
+                return split.header;
+            }
+        }
+        try (DicomInputStream dis = new DicomInputStream(file)) {
+            return dis.readDicomObject();
+        }
+    }
+
+    private static void encode(DicomObject dcm, boolean headerOnly) throws IOException {
+        if (headerOnly) {
+            HeaderOnlyAnonymizer.encodeHeader(dcm);
+            return;
+        }
+        try (DicomOutputStream dos = new DicomOutputStream(OutputStream.nullOutputStream())) {
+            dos.writeDicomFile(dcm);
+        }
+    }
+
+    private static DicomObject copy(DicomObject dcm) {
+        DicomObject copy = new BasicDicomObject();
+        dcm.copyTo(copy);
+        return copy;
+    }
+
+    /**
+     * Bytes allocated by the current thread so far, or -1 if the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sunBean && sunBean.isThreadAllocatedMemoryEnabled()) {
+            return sunBean.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Timing for one sample instance.
+     */
+    public static class InstanceTiming {
+        private String file;
+        private long sizeBytes;
+        private double readMs;
+        private double applyMs;
+        private double encodeMs;
+        private long allocatedBytes;
+
+        public String getFile() { return file; }
+        public long getSizeBytes() { return sizeBytes; }
+        public double getReadMs() { return readMs; }
+        public double getApplyMs() { return applyMs; }
+        public double getEncodeMs() { return encodeMs; }
+        public long getAllocatedBytes() { return allocatedBytes; }
+        public double getTotalMs() { return readMs + applyMs + encodeMs; }
+    }
+
+    /**
+     * Estimated cost of one script statement applied on its own.
+     */
+    public static class StatementCost {
+        private int line;
+        private String statement;
+        private boolean measured;
+        private double meanMicros;
+        private double share;
+
+        public int getLine() { return line; }
+        public String getStatement() { return statement; }
+        public boolean isMeasured() { return measured; }
+        public double getMeanMicros() { return meanMicros; }
+        public double getShare() { return share; }
+    }
+
+    /**
+     * Result of profiling a script.
+     */
+    public static class ScriptProfile {
+        private final String scriptName;
+        private final LocalDateTime profiledAt = LocalDateTime.now();
+        private boolean headerOnly;
+        private double compileMs;
+        private final List<InstanceTiming> instances = new ArrayList<>();
+        private List<StatementCost> statements = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+
+        private double meanInstanceMs;
+        private double p95InstanceMs;
+        private double meanApplyMs;
+        private double filesPerSecond;
+        private double expectedFilesPerSecond;
+        private long allocatedBytesPerInstance = -1;
+        private double allocationMbPerSecond;
+        private int threads;
+
+        ScriptProfile(String scriptName) {
+            this.scriptName = scriptName;
+        }
+
+        private void summarize(int threads) {
+            this.threads = threads;
+            if (instances.isEmpty()) {
+                return;
+            }
+            double[] totals = instances.stream().mapToDouble(InstanceTiming::getTotalMs).sorted().toArray();
+            double totalMs = Arrays.stream(totals).sum();
+            meanInstanceMs = totalMs / totals.length;
+            p95InstanceMs = totals[Math.min(totals.length - 1, (int) Math.ceil(totals.length * 0.95) - 1)];
+            meanApplyMs = instances.stream().mapToDouble(InstanceTiming::getApplyMs).average().orElse(0);
+            if (meanInstanceMs > 0) {
+                filesPerSecond = 1000.0 / meanInstanceMs;
+                // Instances are independent, so workers scale until the disk or heap gives out
+                expectedFilesPerSecond = filesPerSecond * threads;
+            }
+            if (instances.stream().allMatch(t -> t.allocatedBytes >= 0)) {
+                long allocated = instances.stream().mapToLong(InstanceTiming::getAllocatedBytes).sum();
+                allocatedBytesPerInstance = allocated / instances.size();
+                if (totalMs > 0) {
+                    allocationMbPerSecond = allocated / (1024.0 * 1024.0) / (totalMs / 1000.0);
+                }
+            }
+        }
+
+        public String getScriptName() { return scriptName; }
+        public LocalDateTime getProfiledAt() { return profiledAt; }
+        public boolean isHeaderOnly() { return headerOnly; }
+        public double getCompileMs() { return compileMs; }
+        public List<InstanceTiming> getInstances() { return instances; }
+        public List<StatementCost> getStatements() { return statements; }
+        public List<String> getErrors() { return errors; }
+        public double getMeanInstanceMs() { return meanInstanceMs; }
+        public double getP95InstanceMs() { return p95InstanceMs; }
+        public double getMeanApplyMs() { return meanApplyMs; }
+        public double getFilesPerSecond() { return filesPerSecond; }
+        public double getExpectedFilesPerSecond() { return expectedFilesPerSecond; }
+        public long getAllocatedBytesPerInstance() { return allocatedBytesPerInstance; }
+        public double getAllocationMbPerSecond() { return allocationMbPerSecond; }
+        public int getThreads() { return threads; }
+
+        public boolean isSlow() {
+            return meanInstanceMs > SLOW_INSTANCE_MS;
+        }
+
+        /**
+         * The measured statements, most expensive first.
+         */
+        public List<StatementCost> getSlowestStatements(int limit) {
+            return statements.stream()
+                    .filter(StatementCost::isMeasured)
+                    .sorted(Comparator.comparingDouble(StatementCost::getMeanMicros).reversed())
+                    .limit(limit)
+                    .toList();
+        }
+
+        /**
+         * Summary kept with the script metadata.
+         */
+        public ScriptLibrary.ProfileSummary toSummary() {
+            ScriptLibrary.ProfileSummary summary = new ScriptLibrary.ProfileSummary();
+            summary.setProfiledAt(profiledAt);
+            summary.setInstances(instances.size());
+            summary.setMeanInstanceMs(meanInstanceMs);
+            summary.setP95InstanceMs(p95InstanceMs);
+            summary.setMeanApplyMs(meanApplyMs);
+            summary.setExpectedFilesPerSecond(expectedFilesPerSecond);
+            summary.setAllocatedBytesPerInstance(allocatedBytesPerInstance);
+            summary.setSlow(isSlow());
+            getSlowestStatements(1).stream().findFirst()
+                    .ifPresent(cost -> summary.setSlowestStatement(cost.getStatement()));
+            return summary;
+        }
+    }
+}
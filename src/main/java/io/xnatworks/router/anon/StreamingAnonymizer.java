@@ -7,17 +7,12 @@
  */
 package io.xnatworks.router.anon;
 
+import io.xnatworks.router.dicom.ZipPackagingPolicy;
 import org.dcm4che2.data.DicomObject;
 import org.dcm4che2.data.Tag;
-import org.dcm4che2.data.TransferSyntax;
-import org.dcm4che2.data.DicomElement;
 import org.dcm4che2.io.DicomInputStream;
 import org.dcm4che2.io.DicomOutputStream;
-import org.dcm4che2.io.StopTagInputHandler;
-import org.nrg.dicom.dicomedit.DE6Script;
 import org.nrg.dicom.dicomedit.ScriptApplicatorI;
-import org.nrg.dicom.dicomedit.SerialScriptApplicator;
-import org.nrg.dicom.mizer.exceptions.MizerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,37 +20,56 @@ import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
-import java.nio.channels.WritableByteChannel;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Consumer;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 /**
  * Streaming anonymizer that writes directly to a ZIP file without intermediate temp directories.
  * This dramatically reduces disk usage for large studies from 4x to 2x (incoming + ZIP only).
  *
- * For very large files (> 2GB), uses the same streaming approach as LargeFileAnonymizer
- * but writes directly to the ZIP stream.
+ * For very large files (> 2GB), uses LargeFileAnonymizer to write the anonymized header
+ * and the original pixel data directly to the ZIP stream.
  */
 public class StreamingAnonymizer {
     private static final Logger log = LoggerFactory.getLogger(StreamingAnonymizer.class);
 
     // Files larger than this threshold (2GB) use streaming approach for header/pixel separation
-    public static final long LARGE_FILE_THRESHOLD = 2L * 1024 * 1024 * 1024;
+    public static final long LARGE_FILE_THRESHOLD = LargeFileAnonymizer.LARGE_FILE_THRESHOLD;
 
     // Buffer size for copying data (64MB)
     private static final int COPY_BUFFER_SIZE = 64 * 1024 * 1024;
 
+    private final ParallelAnonymizer parallel;
+
+    /**
+     * Anonymizer using one worker per core and a quarter of the heap for instances in flight.
+     */
+    public StreamingAnonymizer() {
+        this(ParallelAnonymizer.DEFAULT_THREADS, ParallelAnonymizer.DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * @param threads           worker threads that anonymize instances concurrently
+     * @param memoryBudgetBytes cap on the estimated memory of instances in flight
+     */
+    public StreamingAnonymizer(int threads, long memoryBudgetBytes) {
+        this.parallel = new ParallelAnonymizer(threads, memoryBudgetBytes);
+    }
+
+    /**
+     * Anonymizer that works through instances on the calling thread, for callers
+     * that already run one study per core, such as tasks on the router's CPU pool.
+     */
+    public static StreamingAnonymizer singleThreaded() {
+        return new StreamingAnonymizer(1, ParallelAnonymizer.DEFAULT_MEMORY_BUDGET);
+    }
+
     /**
      * Callback interface for capturing UID mappings during anonymization.
      * Called once for each unique UID encountered.
@@ -109,80 +123,7 @@ public class StreamingAnonymizer {
      */
     public StreamingResult anonymizeToZip(List<File> inputFiles, Path zipFile, String script,
                                           Map<String, String> variables) throws IOException {
-        long startTime = System.currentTimeMillis();
-        AtomicInteger successCount = new AtomicInteger(0);
-        AtomicInteger errorCount = new AtomicInteger(0);
-        AtomicInteger totalBytes = new AtomicInteger(0);
-
-        // Create script applicator using DicomEdit 6.6.0 API
-        ScriptApplicatorI applicator;
-        try {
-            ByteArrayInputStream scriptStream = new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8));
-            DE6Script de6Script = new DE6Script(scriptStream);
-            applicator = new SerialScriptApplicator(Collections.singletonList(de6Script));
-            if (variables != null) {
-                for (Map.Entry<String, String> entry : variables.entrySet()) {
-                    applicator.setVariable(entry.getKey(), entry.getValue());
-                }
-            }
-        } catch (MizerException e) {
-            throw new IOException("Failed to parse anonymization script: " + e.getMessage(), e);
-        }
-
-        // Create ZIP output stream
-        try (FileOutputStream fos = new FileOutputStream(zipFile.toFile());
-             BufferedOutputStream bos = new BufferedOutputStream(fos, COPY_BUFFER_SIZE);
-             ZipOutputStream zos = new ZipOutputStream(bos)) {
-
-            zos.setLevel(0); // No compression for DICOM (already compressed or incompressible)
-
-            for (File inputFile : inputFiles) {
-                try {
-                    long fileSize = inputFile.length();
-
-                    if (fileSize > LARGE_FILE_THRESHOLD) {
-                        // Large file: use streaming header/pixel separation
-                        anonymizeLargeFileToZip(inputFile, zos, applicator);
-                    } else {
-                        // Normal file: load into memory, anonymize, write to ZIP
-                        anonymizeNormalFileToZip(inputFile, zos, applicator);
-                    }
-
-                    successCount.incrementAndGet();
-                    totalBytes.addAndGet((int) Math.min(fileSize, Integer.MAX_VALUE));
-
-                } catch (Exception e) {
-                    errorCount.incrementAndGet();
-                    log.error("Error anonymizing {} to ZIP: {} - {}",
-                            inputFile.getName(), e.getClass().getSimpleName(), e.getMessage());
-                } catch (OutOfMemoryError e) {
-                    errorCount.incrementAndGet();
-                    log.error("OutOfMemoryError processing {} (size: {} MB). Consider using larger heap.",
-                            inputFile.getName(), inputFile.length() / (1024.0 * 1024.0));
-                }
-            }
-
-            // Ensure ZIP is properly finalized before close
-            zos.finish();
-            zos.flush();
-            bos.flush();
-            fos.flush();
-            // Force sync to disk before closing
-            fos.getChannel().force(true);
-        }
-
-        long durationMs = System.currentTimeMillis() - startTime;
-
-        log.info("Streaming anonymization complete: {} -> {} files ({} errors) in {}ms",
-                inputFiles.size(), successCount.get(), errorCount.get(), durationMs);
-
-        return new StreamingResult(
-                inputFiles.size(),
-                successCount.get(),
-                errorCount.get(),
-                totalBytes.get(),
-                durationMs
-        );
+        return anonymizeToZip(inputFiles, zipFile, script, variables, null, null);
     }
 
     /**
@@ -219,6 +160,87 @@ public class StreamingAnonymizer {
                                           Map<String, String> variables,
                                           UidMappingCallback uidCallback,
                                           Path archiveDir) throws IOException {
+        return anonymizeToZip(inputFiles, zipFile, script, variables, uidCallback, archiveDir, null);
+    }
+
+    /**
+     * Anonymize files and write directly to a ZIP file, recording an audit diff for each instance.
+     * The diff between each instance's header before and after the script is taken on the worker
+     * that anonymizes it and added to the collector in input order, so the audit report is
+     * complete when this returns.
+     *
+     * @param inputFiles List of DICOM files to anonymize
+     * @param zipFile Output ZIP file path
+     * @param script DicomEdit script content
+     * @param variables Script variables
+     * @param uidCallback Callback for UID mappings (may be null)
+     * @param archiveDir Optional directory to write copies of anonymized files for archiving (may be null)
+     * @param audit Collector for the audit report (may be null)
+     * @return Result containing counts of processed files
+     */
+    public StreamingResult anonymizeToZip(List<File> inputFiles, Path zipFile, String script,
+                                          Map<String, String> variables,
+                                          UidMappingCallback uidCallback,
+                                          Path archiveDir,
+                                          AnonymizationAuditService.AuditCollector audit) throws IOException {
+        try (FileOutputStream fos = new FileOutputStream(zipFile.toFile());
+             BufferedOutputStream bos = new BufferedOutputStream(fos, COPY_BUFFER_SIZE)) {
+
+            StreamingResult result = anonymizeToZipStream(inputFiles, bos, script, variables,
+                    uidCallback, archiveDir, audit, false);
+
+            bos.flush();
+            fos.flush();
+            // Force sync to disk before closing
+            fos.getChannel().force(true);
+            return result;
+        }
+    }
+
+    /**
+     * Anonymize files and write the ZIP to an output stream, such as an HTTP request body.
+     * Stops at the first file that fails: entries already written cannot be taken back,
+     * so the caller must abort whatever is consuming the stream.
+     * The stream is flushed but not closed.
+     *
+     * @param inputFiles List of DICOM files to anonymize
+     * @param out Stream to write the ZIP to
+     * @param script DicomEdit script content
+     * @param variables Script variables
+     * @param uidCallback Callback for UID mappings (may be null)
+     * @param archiveDir Optional directory to write copies of anonymized files for archiving (may be null)
+     * @return Result containing counts of processed files
+     * @throws IOException if any file fails to anonymize or the stream cannot be written
+     */
+    public StreamingResult anonymizeToStream(List<File> inputFiles, OutputStream out, String script,
+                                             Map<String, String> variables,
+                                             UidMappingCallback uidCallback,
+                                             Path archiveDir) throws IOException {
+        return anonymizeToStream(inputFiles, out, script, variables, uidCallback, archiveDir, null);
+    }
+
+    /**
+     * Anonymize files into a ZIP stream, collecting the audit report as each
+     * instance is anonymized. One collector may be shared by the streams of
+     * several upload parts.
+     *
+     * @param audit Collector for the audit report (may be null)
+     * @see #anonymizeToStream(List, OutputStream, String, Map, UidMappingCallback, Path)
+     */
+    public StreamingResult anonymizeToStream(List<File> inputFiles, OutputStream out, String script,
+                                             Map<String, String> variables,
+                                             UidMappingCallback uidCallback,
+                                             Path archiveDir,
+                                             AnonymizationAuditService.AuditCollector audit) throws IOException {
+        return anonymizeToZipStream(inputFiles, out, script, variables, uidCallback, archiveDir, audit, true);
+    }
+
+    private StreamingResult anonymizeToZipStream(List<File> inputFiles, OutputStream out, String script,
+                                                 Map<String, String> variables,
+                                                 UidMappingCallback uidCallback,
+                                                 Path archiveDir,
+                                                 AnonymizationAuditService.AuditCollector audit,
+                                                 boolean failFast) throws IOException {
         long startTime = System.currentTimeMillis();
         AtomicInteger successCount = new AtomicInteger(0);
         AtomicInteger errorCount = new AtomicInteger(0);
@@ -235,61 +257,57 @@ public class StreamingAnonymizer {
         Map<String, String> reportedSeriesUids = new HashMap<>();
         Map<String, String> reportedSopUids = new HashMap<>();
 
-        // Create script applicator using DicomEdit 6.6.0 API
-        ScriptApplicatorI applicator;
-        try {
-            ByteArrayInputStream scriptStream = new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8));
-            DE6Script de6Script = new DE6Script(scriptStream);
-            applicator = new SerialScriptApplicator(Collections.singletonList(de6Script));
-            if (variables != null) {
-                for (Map.Entry<String, String> entry : variables.entrySet()) {
-                    applicator.setVariable(entry.getKey(), entry.getValue());
-                }
-            }
-        } catch (MizerException e) {
-            throw new IOException("Failed to parse anonymization script: " + e.getMessage(), e);
-        }
-
-        // Create ZIP output stream
-        try (FileOutputStream fos = new FileOutputStream(zipFile.toFile());
-             BufferedOutputStream bos = new BufferedOutputStream(fos, COPY_BUFFER_SIZE);
-             ZipOutputStream zos = new ZipOutputStream(bos)) {
-
-            zos.setLevel(0); // No compression for DICOM
-
-            for (File inputFile : inputFiles) {
-                try {
-                    long fileSize = inputFile.length();
-
-                    if (fileSize > LARGE_FILE_THRESHOLD) {
+        // Create ZIP output stream (closing it must not close the caller's stream)
+        try (ZipOutputStream zos = new ZipOutputStream(new NonClosingOutputStream(out))) {
+
+            // Instances are anonymized on worker threads; results, UID callbacks and
+            // ZIP entries are handled here on the calling thread, in input order
+            boolean headerOnly = HeaderOnlyAnonymizer.supports(script);
+            parallel.run(inputFiles, script, variables,
+                    file -> file.length() > LARGE_FILE_THRESHOLD,
+                    headerOnly ? ParallelAnonymizer::headerOnlyCost : ParallelAnonymizer::inFlightCost,
+                    (inputFile, applicator) -> anonymizeInstance(inputFile, applicator, headerOnly, audit),
+                    (inputFile, applicator) -> {
+                        LargeFileAnonymizer.checkHeaderOnly(inputFile, headerOnly);
                         anonymizeLargeFileToZipWithCallback(inputFile, zos, applicator,
-                                uidCallback, reportedStudyUids, reportedSeriesUids, reportedSopUids, archiveDir);
-                    } else {
-                        anonymizeNormalFileToZipWithCallback(inputFile, zos, applicator,
-                                uidCallback, reportedStudyUids, reportedSeriesUids, reportedSopUids, archiveDir);
-                    }
-
-                    successCount.incrementAndGet();
-                    totalBytes.addAndGet((int) Math.min(fileSize, Integer.MAX_VALUE));
-
-                } catch (Exception e) {
-                    errorCount.incrementAndGet();
-                    log.error("Error anonymizing {} to ZIP: {} - {}",
-                            inputFile.getName(), e.getClass().getSimpleName(), e.getMessage());
-                } catch (OutOfMemoryError e) {
-                    errorCount.incrementAndGet();
-                    log.error("OutOfMemoryError processing {} (size: {} MB). Consider using larger heap.",
-                            inputFile.getName(), inputFile.length() / (1024.0 * 1024.0));
-                }
-            }
+                                uidCallback, reportedStudyUids, reportedSeriesUids, reportedSopUids, archiveDir,
+                                audit);
+                        successCount.incrementAndGet();
+                        totalBytes.addAndGet((int) Math.min(inputFile.length(), Integer.MAX_VALUE));
+                    },
+                    (inputFile, instance) -> {
+                        reportUidMappings(instance.originalUids, instance.newUids, uidCallback,
+                                reportedStudyUids, reportedSeriesUids, reportedSopUids);
+                        writeInstance(inputFile, instance, zos, archiveDir);
+                        if (audit != null) {
+                            audit.add(instance.comparison);
+                        }
+                        successCount.incrementAndGet();
+                        totalBytes.addAndGet((int) Math.min(inputFile.length(), Integer.MAX_VALUE));
+                    },
+                    (inputFile, e) -> {
+                        errorCount.incrementAndGet();
+                        if (audit != null) {
+                            audit.addError("Failed to anonymize " + inputFile.getName() + ": " + e.getMessage());
+                        }
+                        if (e instanceof OutOfMemoryError) {
+                            log.error("OutOfMemoryError processing {} (size: {} MB). Consider using larger heap.",
+                                    inputFile.getName(), inputFile.length() / (1024.0 * 1024.0));
+                            if (failFast) {
+                                throw new IOException("Out of memory anonymizing " + inputFile.getName(), e);
+                            }
+                            return;
+                        }
+                        log.error("Error anonymizing {} to ZIP: {} - {}",
+                                inputFile.getName(), e.getClass().getSimpleName(), e.getMessage());
+                        if (failFast) {
+                            throw new IOException("Anonymization failed for " + inputFile.getName() + ": " + e.getMessage(), e);
+                        }
+                    });
 
             // Ensure ZIP is properly finalized before close
             zos.finish();
             zos.flush();
-            bos.flush();
-            fos.flush();
-            // Force sync to disk before closing
-            fos.getChannel().force(true);
         }
 
         long durationMs = System.currentTimeMillis() - startTime;
@@ -308,105 +326,134 @@ public class StreamingAnonymizer {
     }
 
     /**
-     * Anonymize a normal-sized file and write to ZIP.
+     * Anonymize a normal-sized file. Runs on a worker thread, so it touches
+     * nothing but the file and this thread's applicator. When the script does
+     * not touch pixels only the header is read and edited; the pixel data is
+     * copied from the file when the instance is written. If auditing, the
+     * header diff is taken here too.
      */
-    private void anonymizeNormalFileToZip(File inputFile, ZipOutputStream zos,
-                                          ScriptApplicatorI applicator) throws Exception {
-        anonymizeNormalFileToZipWithCallback(inputFile, zos, applicator, null, null, null, null, null);
-    }
+    private AnonymizedInstance anonymizeInstance(File inputFile, ScriptApplicatorI applicator,
+                                                 boolean headerOnly,
+                                                 AnonymizationAuditService.AuditCollector audit) throws Exception {
+        HeaderOnlyAnonymizer.SplitInstance split = headerOnly ? HeaderOnlyAnonymizer.read(inputFile) : null;
 
-    /**
-     * Anonymize a normal-sized file and write to ZIP, with UID callback and optional archive copy.
-     */
-    private void anonymizeNormalFileToZipWithCallback(File inputFile, ZipOutputStream zos,
-                                                      ScriptApplicatorI applicator,
-                                                      UidMappingCallback uidCallback,
-                                                      Map<String, String> reportedStudyUids,
-                                                      Map<String, String> reportedSeriesUids,
-                                                      Map<String, String> reportedSopUids,
-                                                      Path archiveDir) throws Exception {
-        // Read DICOM object
+        // Read DICOM object (header only if it could be split from the pixel data)
         DicomObject dcmObj;
-        try (DicomInputStream dis = new DicomInputStream(inputFile)) {
-            dcmObj = dis.readDicomObject();
+        if (split != null) {
+            dcmObj = split.header;
+        } else {
+            try (DicomInputStream dis = new DicomInputStream(inputFile)) {
+                dcmObj = dis.readDicomObject();
+            }
         }
 
-        // Capture original UIDs before anonymization
-        String origStudyUid = dcmObj.getString(Tag.StudyInstanceUID);
-        String origSeriesUid = dcmObj.getString(Tag.SeriesInstanceUID);
-        String origSopUid = dcmObj.getString(Tag.SOPInstanceUID);
+        // Capture original UIDs (and header values, if auditing) before anonymization
+        String[] originalUids = readUids(dcmObj);
+        AnonymizationAuditService.HeaderSnapshot before = audit != null ? audit.snapshot(dcmObj) : null;
 
         // Apply anonymization
         applicator.apply(inputFile, dcmObj);
 
-        // Capture new UIDs after anonymization and report to callback
-        if (uidCallback != null) {
-            String newStudyUid = dcmObj.getString(Tag.StudyInstanceUID);
-            String newSeriesUid = dcmObj.getString(Tag.SeriesInstanceUID);
-            String newSopUid = dcmObj.getString(Tag.SOPInstanceUID);
-
-            // Report study UID mapping (once per unique original UID)
-            if (origStudyUid != null && newStudyUid != null && !origStudyUid.equals(newStudyUid)) {
-                if (reportedStudyUids == null || !reportedStudyUids.containsKey(origStudyUid)) {
-                    uidCallback.onUidMapping(origStudyUid, newStudyUid, "study_uid");
-                    if (reportedStudyUids != null) {
-                        reportedStudyUids.put(origStudyUid, newStudyUid);
-                    }
-                }
-            }
-
-            // Report series UID mapping
-            if (origSeriesUid != null && newSeriesUid != null && !origSeriesUid.equals(newSeriesUid)) {
-                if (reportedSeriesUids == null || !reportedSeriesUids.containsKey(origSeriesUid)) {
-                    uidCallback.onUidMapping(origSeriesUid, newSeriesUid, "series_uid");
-                    if (reportedSeriesUids != null) {
-                        reportedSeriesUids.put(origSeriesUid, newSeriesUid);
-                    }
-                }
-            }
-
-            // Report SOP UID mapping (every instance is unique)
-            if (origSopUid != null && newSopUid != null && !origSopUid.equals(newSopUid)) {
-                if (reportedSopUids == null || !reportedSopUids.containsKey(origSopUid)) {
-                    uidCallback.onUidMapping(origSopUid, newSopUid, "sop_uid");
-                    if (reportedSopUids != null) {
-                        reportedSopUids.put(origSopUid, newSopUid);
-                    }
-                }
-            }
+        AnonymizationAuditService.FileComparison comparison = audit != null
+                ? audit.compare(inputFile.getName(), inputFile.getName(), before, dcmObj) : null;
+
+        // Encode once; the same bytes go to the ZIP and the archive copy
+        String transferSyntaxUid = dcmObj.getString(Tag.TransferSyntaxUID);
+        byte[] data;
+        if (split != null) {
+            data = HeaderOnlyAnonymizer.encodeHeader(dcmObj);
+        } else {
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream((int) Math.min(inputFile.length() + 4096, Integer.MAX_VALUE - 8));
+            DicomOutputStream dos = new DicomOutputStream(encoded);
+            dos.writeDicomFile(dcmObj);
+            data = encoded.toByteArray();
         }
 
-        // Write to ZIP entry
-        ZipEntry entry = new ZipEntry(inputFile.getName());
-        zos.putNextEntry(entry);
+        // A STORED entry needs its CRC up front; compute it here rather than on the writer
+        long crc = -1;
+        if (split != null && ZipPackagingPolicy.isCompressedTransferSyntax(transferSyntaxUid)) {
+            crc = HeaderOnlyAnonymizer.checksum(data, inputFile, split);
+        }
 
-        // Write DICOM to ZIP stream
-        DicomOutputStream dos = new DicomOutputStream(zos);
-        dos.writeDicomFile(dcmObj);
+        return new AnonymizedInstance(data, split, crc, transferSyntaxUid, originalUids, readUids(dcmObj),
+                comparison);
+    }
 
-        zos.closeEntry();
+    /**
+     * Write an anonymized instance to the ZIP and, if provided, the archive directory.
+     */
+    private void writeInstance(File inputFile, AnonymizedInstance instance, ZipOutputStream zos,
+                               Path archiveDir) throws IOException {
+        ZipPackagingPolicy policy = ZipPackagingPolicy.getDefault();
+        if (instance.split == null) {
+            // Write to ZIP entry, stored if the pixel data is already compressed
+            policy.addEntry(zos, inputFile.getName(), instance.data, instance.transferSyntaxUid);
+        } else {
+            policy.putNextEntry(zos, inputFile.getName(), instance.transferSyntaxUid,
+                    instance.data.length + instance.split.tailLength, instance.crc);
+            zos.write(instance.data);
+            HeaderOnlyAnonymizer.copyTail(inputFile, instance.split, Channels.newChannel(zos));
+            zos.closeEntry();
+        }
 
         // Also write to archive directory if provided
         if (archiveDir != null) {
             Path archiveFile = archiveDir.resolve(inputFile.getName());
-            try (FileOutputStream archiveFos = new FileOutputStream(archiveFile.toFile())) {
-                DicomOutputStream archiveDos = new DicomOutputStream(archiveFos);
-                archiveDos.writeDicomFile(dcmObj);
+            if (instance.split == null) {
+                Files.write(archiveFile, instance.data);
+            } else {
+                try (FileChannel out = FileChannel.open(archiveFile, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    ByteBuffer head = ByteBuffer.wrap(instance.data);
+                    while (head.hasRemaining()) {
+                        out.write(head);
+                    }
+                    HeaderOnlyAnonymizer.copyTail(inputFile, instance.split, out);
+                }
             }
         }
     }
 
     /**
-     * Anonymize a large file (>2GB) using streaming and write to ZIP.
-     * Only reads header into memory, streams pixel data directly.
+     * Study, series and SOP instance UIDs, in that order.
      */
-    private void anonymizeLargeFileToZip(File inputFile, ZipOutputStream zos,
-                                         ScriptApplicatorI applicator) throws Exception {
-        anonymizeLargeFileToZipWithCallback(inputFile, zos, applicator, null, null, null, null, null);
+    private static String[] readUids(DicomObject dcmObj) {
+        return new String[] {
+                dcmObj.getString(Tag.StudyInstanceUID),
+                dcmObj.getString(Tag.SeriesInstanceUID),
+                dcmObj.getString(Tag.SOPInstanceUID)
+        };
+    }
+
+    /**
+     * Report changed UIDs to the callback, once per unique original UID.
+     */
+    private static void reportUidMappings(String[] originalUids, String[] newUids,
+                                          UidMappingCallback uidCallback,
+                                          Map<String, String> reportedStudyUids,
+                                          Map<String, String> reportedSeriesUids,
+                                          Map<String, String> reportedSopUids) {
+        if (uidCallback == null) {
+            return;
+        }
+        reportUidMapping(originalUids[0], newUids[0], "study_uid", uidCallback, reportedStudyUids);
+        reportUidMapping(originalUids[1], newUids[1], "series_uid", uidCallback, reportedSeriesUids);
+        reportUidMapping(originalUids[2], newUids[2], "sop_uid", uidCallback, reportedSopUids);
+    }
+
+    private static void reportUidMapping(String originalUid, String newUid, String uidType,
+                                         UidMappingCallback uidCallback, Map<String, String> reported) {
+        if (originalUid != null && newUid != null && !originalUid.equals(newUid)
+                && !reported.containsKey(originalUid)) {
+            uidCallback.onUidMapping(originalUid, newUid, uidType);
+            reported.put(originalUid, newUid);
+        }
     }
 
     /**
      * Anonymize a large file with UID callback and optional archive copy support.
+     * Only the header is read and edited; the pixel data is copied from the file
+     * into the ZIP entry and the archive copy by {@link LargeFileAnonymizer}.
      */
     private void anonymizeLargeFileToZipWithCallback(File inputFile, ZipOutputStream zos,
                                                      ScriptApplicatorI applicator,
@@ -414,192 +461,83 @@ public class StreamingAnonymizer {
                                                      Map<String, String> reportedStudyUids,
                                                      Map<String, String> reportedSeriesUids,
                                                      Map<String, String> reportedSopUids,
-                                                     Path archiveDir) throws Exception {
+                                                     Path archiveDir,
+                                                     AnonymizationAuditService.AuditCollector audit) throws Exception {
         log.info("Using streaming anonymization for large file: {} ({} GB)",
                 inputFile.getName(), String.format("%.2f", inputFile.length() / (1024.0 * 1024.0 * 1024.0)));
 
         // Step 1: Read only the header
-        DicomObject header;
-        long pixelDataOffset;
-        String transferSyntaxUID;
-
-        try (DicomInputStream dis = new DicomInputStream(inputFile)) {
-            dis.setHandler(new StopTagInputHandler(Tag.PixelData));
-            header = dis.readDicomObject();
-            pixelDataOffset = dis.getStreamPosition();
-            transferSyntaxUID = dis.getTransferSyntax().uid();
-        }
+        LargeFileAnonymizer.LargeInstance instance = LargeFileAnonymizer.read(inputFile);
+        DicomObject header = instance.getHeader();
 
-        // Capture original UIDs before anonymization
-        String origStudyUid = header.getString(Tag.StudyInstanceUID);
-        String origSeriesUid = header.getString(Tag.SeriesInstanceUID);
-        String origSopUid = header.getString(Tag.SOPInstanceUID);
+        // Capture original UIDs (and header values, if auditing) before anonymization
+        String[] originalUids = readUids(header);
+        AnonymizationAuditService.HeaderSnapshot before = audit != null ? audit.snapshot(header) : null;
 
         // Step 2: Apply anonymization to header only
         applicator.apply(inputFile, header);
 
-        // Capture new UIDs after anonymization and report to callback
-        if (uidCallback != null) {
-            String newStudyUid = header.getString(Tag.StudyInstanceUID);
-            String newSeriesUid = header.getString(Tag.SeriesInstanceUID);
-            String newSopUid = header.getString(Tag.SOPInstanceUID);
-
-            if (origStudyUid != null && newStudyUid != null && !origStudyUid.equals(newStudyUid)) {
-                if (reportedStudyUids == null || !reportedStudyUids.containsKey(origStudyUid)) {
-                    uidCallback.onUidMapping(origStudyUid, newStudyUid, "study_uid");
-                    if (reportedStudyUids != null) {
-                        reportedStudyUids.put(origStudyUid, newStudyUid);
-                    }
-                }
-            }
+        AnonymizationAuditService.FileComparison comparison = audit != null
+                ? audit.compare(inputFile.getName(), inputFile.getName(), before, header) : null;
 
-            if (origSeriesUid != null && newSeriesUid != null && !origSeriesUid.equals(newSeriesUid)) {
-                if (reportedSeriesUids == null || !reportedSeriesUids.containsKey(origSeriesUid)) {
-                    uidCallback.onUidMapping(origSeriesUid, newSeriesUid, "series_uid");
-                    if (reportedSeriesUids != null) {
-                        reportedSeriesUids.put(origSeriesUid, newSeriesUid);
-                    }
-                }
-            }
+        // Report changed UIDs to callback
+        reportUidMappings(originalUids, readUids(header), uidCallback,
+                reportedStudyUids, reportedSeriesUids, reportedSopUids);
 
-            if (origSopUid != null && newSopUid != null && !origSopUid.equals(newSopUid)) {
-                if (reportedSopUids == null || !reportedSopUids.containsKey(origSopUid)) {
-                    uidCallback.onUidMapping(origSopUid, newSopUid, "sop_uid");
-                    if (reportedSopUids != null) {
-                        reportedSopUids.put(origSopUid, newSopUid);
-                    }
-                }
-            }
+        // Step 3: Write the anonymized header and the original pixel data to the ZIP and archive
+        instance.writeEntry(zos, inputFile.getName());
+        if (archiveDir != null) {
+            instance.writeTo(archiveDir.resolve(inputFile.getName()));
         }
 
-        // Step 3: Write to ZIP entry
-        ZipEntry entry = new ZipEntry(inputFile.getName());
-        zos.putNextEntry(entry);
-
-        // Write DICOM preamble
-        zos.write(new byte[128]);
-        zos.write(new byte[] {'D', 'I', 'C', 'M'});
-
-        // Create DicomOutputStream wrapping the ZipOutputStream
-        DicomOutputStream dos = new DicomOutputStream(zos);
-        dos.setAutoFinish(false);
-
-        // Write File Meta Information
-        dos.writeFileMetaInformation(header);
-
-        // Write Dataset (header elements, stopping before PixelData)
-        TransferSyntax ts = TransferSyntax.valueOf(transferSyntaxUID);
-        Iterator<DicomElement> iter = header.iterator();
-        while (iter.hasNext()) {
-            DicomElement elem = iter.next();
-            int tag = elem.tag();
-            // Skip group length tags and File Meta Information
-            int element = tag & 0x0000FFFF;
-            int group = (tag >> 16) & 0x0000FFFF;
-            if (element == 0x0000 || group == 0x0002) {
-                continue;
-            }
-            // Skip PixelData - we'll copy it from original
-            if (tag == Tag.PixelData) {
-                continue;
-            }
-            // Stop when we reach or pass PixelData tag
-            if (tag > Tag.PixelData) {
-                break;
-            }
-            dos.writeHeader(tag, elem.vr(), elem.length());
-            if (elem.length() > 0) {
-                dos.write(elem.getBytes());
-            }
+        if (audit != null) {
+            audit.add(comparison);
         }
+    }
 
-        // Step 4: Copy pixel data from original file directly to ZIP
-        try (FileChannel inChannel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
-            long remaining = inChannel.size() - pixelDataOffset;
-            if (remaining > 0) {
-                log.debug("Copying {} bytes of pixel data to ZIP", remaining);
-
-                inChannel.position(pixelDataOffset);
-
-                // Use WritableByteChannel wrapper around ZipOutputStream
-                WritableByteChannel outChannel = Channels.newChannel(zos);
-                ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
-
-                long copied = 0;
-                while (copied < remaining) {
-                    buffer.clear();
-                    int bytesRead = inChannel.read(buffer);
-                    if (bytesRead < 0) break;
-                    buffer.flip();
-                    while (buffer.hasRemaining()) {
-                        copied += outChannel.write(buffer);
-                    }
-                }
-
-                log.debug("Copied {} bytes of pixel data to ZIP", copied);
-            }
+    /**
+     * An anonymized instance waiting to be written, with the UIDs it had before and after.
+     * If split is set, data holds only the header and the rest is copied from the file.
+     * comparison is null unless an audit report is being collected.
+     */
+    private static class AnonymizedInstance {
+        final byte[] data;
+        final HeaderOnlyAnonymizer.SplitInstance split;
+        final long crc;
+        final String transferSyntaxUid;
+        final String[] originalUids;
+        final String[] newUids;
+        final AnonymizationAuditService.FileComparison comparison;
+
+        AnonymizedInstance(byte[] data, HeaderOnlyAnonymizer.SplitInstance split, long crc,
+                           String transferSyntaxUid, String[] originalUids, String[] newUids,
+                           AnonymizationAuditService.FileComparison comparison) {
+            this.data = data;
+            this.split = split;
+            this.crc = crc;
+            this.transferSyntaxUid = transferSyntaxUid;
+            this.originalUids = originalUids;
+            this.newUids = newUids;
+            this.comparison = comparison;
         }
+    }
 
-        zos.closeEntry();
+    /**
+     * Passes writes straight through but only flushes on close.
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
 
-        // For large files with archive, we need to write a complete file to archive
-        // Since large files stream the pixel data directly, we have to re-create the file
-        if (archiveDir != null) {
-            Path archiveFile = archiveDir.resolve(inputFile.getName());
-            try (FileOutputStream archiveFos = new FileOutputStream(archiveFile.toFile());
-                 BufferedOutputStream archiveBos = new BufferedOutputStream(archiveFos, COPY_BUFFER_SIZE)) {
-
-                // Write DICOM preamble
-                archiveBos.write(new byte[128]);
-                archiveBos.write(new byte[] {'D', 'I', 'C', 'M'});
-
-                // Write header using DicomOutputStream
-                DicomOutputStream archiveDos = new DicomOutputStream(archiveBos);
-                archiveDos.setAutoFinish(false);
-                archiveDos.writeFileMetaInformation(header);
-
-                // Write Dataset elements
-                Iterator<DicomElement> archiveIter = header.iterator();
-                while (archiveIter.hasNext()) {
-                    DicomElement elem = archiveIter.next();
-                    int tag = elem.tag();
-                    int element = tag & 0x0000FFFF;
-                    int group = (tag >> 16) & 0x0000FFFF;
-                    if (element == 0x0000 || group == 0x0002) {
-                        continue;
-                    }
-                    if (tag == Tag.PixelData) {
-                        continue;
-                    }
-                    if (tag > Tag.PixelData) {
-                        break;
-                    }
-                    archiveDos.writeHeader(tag, elem.vr(), elem.length());
-                    if (elem.length() > 0) {
-                        archiveDos.write(elem.getBytes());
-                    }
-                }
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
 
-                // Copy pixel data from original file
-                try (FileChannel inChannel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
-                    long remaining = inChannel.size() - pixelDataOffset;
-                    if (remaining > 0) {
-                        inChannel.position(pixelDataOffset);
-                        WritableByteChannel outChannel = Channels.newChannel(archiveBos);
-                        ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
-                        long copied = 0;
-                        while (copied < remaining) {
-                            buffer.clear();
-                            int bytesRead = inChannel.read(buffer);
-                            if (bytesRead < 0) break;
-                            buffer.flip();
-                            while (buffer.hasRemaining()) {
-                                copied += outChannel.write(buffer);
-                            }
-                        }
-                    }
-                }
-            }
+        @Override
+        public void close() throws IOException {
+            flush();
         }
     }
 }
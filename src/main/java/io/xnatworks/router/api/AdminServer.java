@@ -16,6 +16,7 @@ import io.xnatworks.router.metrics.MetricsCollector;
 import io.xnatworks.router.ocr.OcrService;
 import io.xnatworks.router.review.DicomComparisonService;
 import io.xnatworks.router.routing.DestinationManager;
+import io.xnatworks.router.routing.WorkerPools;
 import io.xnatworks.router.store.RouterStore;
 import io.xnatworks.router.tracking.TransferTracker;
 import org.eclipse.jetty.http.UriCompliance;
@@ -52,6 +53,8 @@ public class AdminServer {
     private final boolean headless;
     private final ArchiveManager archiveManager;
     private final OcrService ocrService;
+    private final WorkerPools workerPools;
+    private final HonestBrokerService honestBrokerService;
 
     private Server server;
 
@@ -100,6 +103,35 @@ public class AdminServer {
                        boolean headless,
                        ArchiveManager archiveManager,
                        OcrService ocrService) {
+        this(port, host, config, destinationManager, transferTracker, scriptLibrary, metricsCollector, routerStore, dicomIndexer, headless, archiveManager, ocrService, null);
+    }
+
+    public AdminServer(int port, String host, AppConfig config,
+                       DestinationManager destinationManager,
+                       TransferTracker transferTracker,
+                       ScriptLibrary scriptLibrary,
+                       MetricsCollector metricsCollector,
+                       RouterStore routerStore,
+                       DicomIndexer dicomIndexer,
+                       boolean headless,
+                       ArchiveManager archiveManager,
+                       OcrService ocrService,
+                       WorkerPools workerPools) {
+        this(port, host, config, destinationManager, transferTracker, scriptLibrary, metricsCollector, routerStore, dicomIndexer, headless, archiveManager, ocrService, workerPools, null);
+    }
+
+    public AdminServer(int port, String host, AppConfig config,
+                       DestinationManager destinationManager,
+                       TransferTracker transferTracker,
+                       ScriptLibrary scriptLibrary,
+                       MetricsCollector metricsCollector,
+                       RouterStore routerStore,
+                       DicomIndexer dicomIndexer,
+                       boolean headless,
+                       ArchiveManager archiveManager,
+                       OcrService ocrService,
+                       WorkerPools workerPools,
+                       HonestBrokerService honestBrokerService) {
         this.port = port;
         this.host = host;
         this.config = config;
@@ -112,6 +144,8 @@ public class AdminServer {
         this.headless = headless;
         this.archiveManager = archiveManager;
         this.ocrService = ocrService;
+        this.workerPools = workerPools;
+        this.honestBrokerService = honestBrokerService;
     }
 
     /**
@@ -134,18 +168,21 @@ public class AdminServer {
         final StatusResource statusResource = new StatusResource(config, destinationManager, transferTracker);
         final RoutesResource routesResource = new RoutesResource(config);
         final DestinationsResource destinationsResource = new DestinationsResource(config, destinationManager);
-        final ScriptsResource scriptsResource = new ScriptsResource(scriptLibrary);
         final TransfersResource transfersResource = new TransfersResource(transferTracker);
         final ConfigResource configResource = new ConfigResource(config);
         final AuthResource authResource = new AuthResource(config);
         final StorageResource storageResource = new StorageResource(config);
         final LogsResource logsResource = new LogsResource(config);
-        final HonestBrokerService honestBrokerService = new HonestBrokerService(config);
+        // Share the router's broker service so the API reports the caches routes actually use
+        final HonestBrokerService honestBrokerService = this.honestBrokerService != null
+                ? this.honestBrokerService : new HonestBrokerService(config);
+        final ScriptsResource scriptsResource = new ScriptsResource(scriptLibrary, archiveManager, honestBrokerService);
         final HonestBrokersResource honestBrokersResource = new HonestBrokersResource(config, honestBrokerService);
         final ImportResource importResource = new ImportResource(config, destinationManager, transferTracker, scriptLibrary, honestBrokerService);
         final OcrResource ocrResource = new OcrResource(config);
-        final QueryRetrieveResource queryRetrieveResource = new QueryRetrieveResource(config, destinationManager, transferTracker);
-        final MetricsResource metricsResource = metricsCollector != null ? new MetricsResource(metricsCollector) : null;
+        final QueryRetrieveResource queryRetrieveResource = new QueryRetrieveResource(config, destinationManager, transferTracker, routerStore);
+        queryRetrieveResource.resumeRetrieveJobs();
+        final MetricsResource metricsResource = metricsCollector != null ? new MetricsResource(metricsCollector, workerPools) : null;
         final SearchResource searchResource = (routerStore != null && dicomIndexer != null)
                 ? new SearchResource(config, routerStore, dicomIndexer) : null;
         final AuditResource auditResource = new AuditResource(scriptLibrary, java.nio.file.Paths.get(config.getDataDirectory()));
@@ -9,6 +9,7 @@ package io.xnatworks.router.api;
 
 import io.xnatworks.router.config.AppConfig;
 import io.xnatworks.router.routing.DestinationManager;
+import io.xnatworks.router.xnat.XnatClientManager;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -250,6 +251,11 @@ public class DestinationsResource {
         result.put("lastAvailable", health.getLastAvailableTime() != null ? health.getLastAvailableTime().toString() : null);
         result.put("downtimeSeconds", health.getDowntimeSeconds());
 
+        XnatClientManager.EndpointMetrics metrics = destinationManager.getXnatMetrics(name);
+        if (metrics != null) {
+            result.put("connection", metrics.toMap());
+        }
+
         return Response.ok(result).build();
     }
 
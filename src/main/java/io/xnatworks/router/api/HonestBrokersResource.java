@@ -10,6 +10,7 @@ package io.xnatworks.router.api;
 import io.xnatworks.router.broker.CrosswalkStore;
 import io.xnatworks.router.broker.CrosswalkStore.BackupInfo;
 import io.xnatworks.router.broker.HonestBrokerService;
+import io.xnatworks.router.broker.LookupCache;
 import io.xnatworks.router.config.AppConfig;
 import io.xnatworks.router.config.AppConfig.HonestBrokerConfig;
 import jakarta.ws.rs.*;
@@ -34,6 +35,8 @@ import java.util.*;
  *   <li>POST /brokers/{name}/test - Test broker connection</li>
  *   <li>POST /brokers/{name}/lookup - Perform a lookup</li>
  *   <li>POST /brokers/{name}/cache/clear - Clear broker cache</li>
+ *   <li>GET /brokers/{name}/cache/stats - Lookup cache hit/miss/eviction counters</li>
+ *   <li>GET /brokers/cache/stats - Lookup cache counters for every broker</li>
  * </ul>
  * </p>
  */
@@ -293,6 +296,37 @@ public class HonestBrokersResource {
         return Response.ok(Map.of("success", true, "message", "All broker caches cleared")).build();
     }
 
+    /**
+     * Get lookup cache counters for a broker.
+     */
+    @GET
+    @Path("/{name}/cache/stats")
+    public Response getCacheStats(@PathParam("name") String name) {
+        HonestBrokerConfig broker = config.getHonestBroker(name);
+        if (broker == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(Map.of("error", "Broker not found: " + name))
+                    .build();
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("broker", name);
+        result.put("enabled", broker.isCacheEnabled());
+        result.putAll(cacheStatsToMap(brokerService.getCacheStats(name), broker.getCacheMaxSize()));
+        return Response.ok(result).build();
+    }
+
+    /**
+     * Get lookup cache counters for every broker whose cache is in use.
+     */
+    @GET
+    @Path("/cache/stats")
+    public Response getAllCacheStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        brokerService.getCacheStats().forEach((name, stats) -> result.put(name, cacheStatsToMap(stats, stats.getMaxSize())));
+        return Response.ok(result).build();
+    }
+
     /**
      * Get crosswalk mappings for a broker.
      */
@@ -626,6 +660,10 @@ public class HonestBrokersResource {
         connection.put("stsHost", broker.getStsHost());
         connection.put("apiHost", broker.getApiHost());
         connection.put("timeout", broker.getTimeout());
+        connection.put("batchLookupEnabled", broker.isBatchLookupEnabled());
+        connection.put("batchWindowMs", broker.getBatchWindowMs());
+        connection.put("batchMaxSize", broker.getBatchMaxSize());
+        connection.put("lookupConcurrency", broker.getLookupConcurrency());
         map.put("connection", connection);
 
         // Authentication (exclude sensitive data)
@@ -641,6 +679,9 @@ public class HonestBrokersResource {
         cache.put("enabled", broker.isCacheEnabled());
         cache.put("ttlSeconds", broker.getCacheTtlSeconds());
         cache.put("maxSize", broker.getCacheMaxSize());
+        cache.put("negativeTtlSeconds", broker.getCacheNegativeTtlSeconds());
+        cache.put("warmUp", broker.isCacheWarmUp());
+        cache.put("stats", cacheStatsToMap(brokerService.getCacheStats(name), broker.getCacheMaxSize()));
         map.put("cache", cache);
 
         // Behavior settings
@@ -654,6 +695,8 @@ public class HonestBrokersResource {
         behavior.put("cacheEnabled", broker.isCacheEnabled());
         behavior.put("cacheTtlSeconds", broker.getCacheTtlSeconds());
         behavior.put("cacheMaxSize", broker.getCacheMaxSize());
+        behavior.put("cacheNegativeTtlSeconds", broker.getCacheNegativeTtlSeconds());
+        behavior.put("cacheWarmUp", broker.isCacheWarmUp());
         map.put("behavior", behavior);
 
         // Date shifting settings
@@ -706,6 +749,18 @@ public class HonestBrokersResource {
             if (connection.containsKey("timeout")) {
                 broker.setTimeout(toInt(connection.get("timeout"), 30));
             }
+            if (connection.containsKey("batchLookupEnabled")) {
+                broker.setBatchLookupEnabled(toBoolean(connection.get("batchLookupEnabled"), false));
+            }
+            if (connection.containsKey("batchWindowMs")) {
+                broker.setBatchWindowMs(toInt(connection.get("batchWindowMs"), 10));
+            }
+            if (connection.containsKey("batchMaxSize")) {
+                broker.setBatchMaxSize(toInt(connection.get("batchMaxSize"), 100));
+            }
+            if (connection.containsKey("lookupConcurrency")) {
+                broker.setLookupConcurrency(toInt(connection.get("lookupConcurrency"), 8));
+            }
         } else {
             // Flat structure - support both camelCase and snake_case
             if (data.containsKey("stsHost") || data.containsKey("sts_host")) {
@@ -717,6 +772,23 @@ public class HonestBrokersResource {
             if (data.containsKey("timeout")) {
                 broker.setTimeout(toInt(data.get("timeout"), 30));
             }
+            if (data.containsKey("batchLookupEnabled") || data.containsKey("batch_lookup_enabled")) {
+                broker.setBatchLookupEnabled(toBoolean(
+                    data.containsKey("batchLookupEnabled") ? data.get("batchLookupEnabled") : data.get("batch_lookup_enabled"),
+                    false));
+            }
+            if (data.containsKey("batchWindowMs") || data.containsKey("batch_window_ms")) {
+                broker.setBatchWindowMs(toInt(
+                    data.containsKey("batchWindowMs") ? data.get("batchWindowMs") : data.get("batch_window_ms"), 10));
+            }
+            if (data.containsKey("batchMaxSize") || data.containsKey("batch_max_size")) {
+                broker.setBatchMaxSize(toInt(
+                    data.containsKey("batchMaxSize") ? data.get("batchMaxSize") : data.get("batch_max_size"), 100));
+            }
+            if (data.containsKey("lookupConcurrency") || data.containsKey("lookup_concurrency")) {
+                broker.setLookupConcurrency(toInt(
+                    data.containsKey("lookupConcurrency") ? data.get("lookupConcurrency") : data.get("lookup_concurrency"), 8));
+            }
         }
 
         // Auth settings
@@ -768,6 +840,12 @@ public class HonestBrokersResource {
             if (cache.containsKey("maxSize")) {
                 broker.setCacheMaxSize(toInt(cache.get("maxSize"), 10000));
             }
+            if (cache.containsKey("negativeTtlSeconds")) {
+                broker.setCacheNegativeTtlSeconds(toInt(cache.get("negativeTtlSeconds"), 30));
+            }
+            if (cache.containsKey("warmUp")) {
+                broker.setCacheWarmUp(toBoolean(cache.get("warmUp"), false));
+            }
         } else {
             // Flat structure
             if (data.containsKey("cacheEnabled")) {
@@ -779,6 +857,12 @@ public class HonestBrokersResource {
             if (data.containsKey("cacheMaxSize")) {
                 broker.setCacheMaxSize(toInt(data.get("cacheMaxSize"), 10000));
             }
+            if (data.containsKey("cacheNegativeTtlSeconds")) {
+                broker.setCacheNegativeTtlSeconds(toInt(data.get("cacheNegativeTtlSeconds"), 30));
+            }
+            if (data.containsKey("cacheWarmUp")) {
+                broker.setCacheWarmUp(toBoolean(data.get("cacheWarmUp"), false));
+            }
         }
 
         // Behavior settings
@@ -842,6 +926,12 @@ public class HonestBrokersResource {
         if (data.containsKey("cache_max_size")) {
             broker.setCacheMaxSize(toInt(data.get("cache_max_size"), 10000));
         }
+        if (data.containsKey("cache_negative_ttl_seconds")) {
+            broker.setCacheNegativeTtlSeconds(toInt(data.get("cache_negative_ttl_seconds"), 30));
+        }
+        if (data.containsKey("cache_warm_up")) {
+            broker.setCacheWarmUp(toBoolean(data.get("cache_warm_up"), false));
+        }
 
         // Handle flat broker_type (snake_case from frontend)
         if (data.containsKey("broker_type")) {
@@ -888,6 +978,22 @@ public class HonestBrokersResource {
         }
     }
 
+    /**
+     * Lookup cache counters; all zero when the cache has not been used yet.
+     */
+    private Map<String, Object> cacheStatsToMap(LookupCache.Stats stats, int maxSize) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("size", stats != null ? stats.getSize() : 0);
+        map.put("maxSize", maxSize);
+        map.put("hits", stats != null ? stats.getHits() : 0L);
+        map.put("negativeHits", stats != null ? stats.getNegativeHits() : 0L);
+        map.put("misses", stats != null ? stats.getMisses() : 0L);
+        map.put("evictions", stats != null ? stats.getEvictions() : 0L);
+        map.put("expirations", stats != null ? stats.getExpirations() : 0L);
+        map.put("hitRate", stats != null ? stats.getHitRate() : 0.0);
+        return map;
+    }
+
     private boolean toBoolean(Object value, boolean defaultValue) {
         if (value == null) return defaultValue;
         if (value instanceof Boolean) return (Boolean) value;
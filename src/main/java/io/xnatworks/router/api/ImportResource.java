@@ -12,6 +12,7 @@ import io.xnatworks.router.broker.HonestBrokerService;
 import io.xnatworks.router.config.AppConfig;
 import io.xnatworks.router.dicom.DicomClient;
 import io.xnatworks.router.dicom.DicomReceiver;
+import io.xnatworks.router.dicom.ZipPackagingPolicy;
 import io.xnatworks.router.routing.DestinationManager;
 import io.xnatworks.router.tracking.TransferTracker;
 import io.xnatworks.router.xnat.XnatClient;
@@ -34,8 +35,6 @@ import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 /**
  * REST API for importing DICOM files from disk.
@@ -272,6 +271,8 @@ public class ImportResource {
             java.nio.file.Path baseDir = Paths.get(config.getReceiver().getBaseDir());
             Files.createDirectories(baseDir);
 
+            Map<String, Map<String, String>> subjectIds = prefetchSubjectIds(studiesByUid, route);
+
             for (Map.Entry<String, List<File>> entry : studiesByUid.entrySet()) {
                 if (job.isCancelled()) {
                     job.setStatus("cancelled");
@@ -308,7 +309,7 @@ public class ImportResource {
                     study.setTotalSize(totalSize);
                     study.setReceivedAt(java.time.LocalDateTime.now());
 
-                    boolean success = processStudy(study, route);
+                    boolean success = processStudy(study, route, subjectIds);
                     job.incrementProcessedStudies();
 
                     if (success) {
@@ -333,7 +334,47 @@ public class ImportResource {
         }
     }
 
-    private boolean processStudy(DicomReceiver.ReceivedStudy study, AppConfig.RouteConfig route) {
+    /**
+     * Look up the subject IDs for every study up front, one bulk lookup per
+     * remote honest broker on the route, instead of one request per study.
+     *
+     * @return Broker name -> original PatientID -> de-identified ID
+     */
+    private Map<String, Map<String, String>> prefetchSubjectIds(Map<String, List<File>> studiesByUid,
+                                                                AppConfig.RouteConfig route) {
+        Map<String, Map<String, String>> subjectIds = new HashMap<>();
+        if (honestBrokerService == null) {
+            return subjectIds;
+        }
+
+        Set<String> brokerNames = new LinkedHashSet<>();
+        for (AppConfig.RouteDestination routeDest : route.getDestinations()) {
+            if (!routeDest.isEnabled() || !routeDest.isUseHonestBroker() || routeDest.getHonestBrokerName() == null) {
+                continue;
+            }
+            AppConfig.HonestBrokerConfig brokerConfig = honestBrokerService.getBrokerConfig(routeDest.getHonestBrokerName());
+            if (brokerConfig != null && "remote".equalsIgnoreCase(brokerConfig.getBrokerType())) {
+                brokerNames.add(routeDest.getHonestBrokerName());
+            }
+        }
+        if (brokerNames.isEmpty()) {
+            return subjectIds;
+        }
+
+        Set<String> patientIds = new LinkedHashSet<>();
+        for (List<File> files : studiesByUid.values()) {
+            patientIds.add(extractPatientIdFromFiles(files));
+        }
+        for (String brokerName : brokerNames) {
+            subjectIds.put(brokerName, honestBrokerService.lookupAll(brokerName, patientIds));
+            log.info("Prefetched {} of {} subject IDs from honest broker {}",
+                    subjectIds.get(brokerName).size(), patientIds.size(), brokerName);
+        }
+        return subjectIds;
+    }
+
+    private boolean processStudy(DicomReceiver.ReceivedStudy study, AppConfig.RouteConfig route,
+                                 Map<String, Map<String, String>> subjectIds) {
         TransferTracker.TransferRecord transfer = transferTracker.createTransfer(
                 route.getAeTitle(),
                 study.getStudyUid(),
@@ -380,7 +421,11 @@ public class ImportResource {
                         String subjectId;
                         if (routeDest.isUseHonestBroker() && routeDest.getHonestBrokerName() != null && honestBrokerService != null) {
                             String originalPatientId = extractPatientIdFromFiles(study.getFiles());
-                            String deidentifiedId = honestBrokerService.lookup(routeDest.getHonestBrokerName(), originalPatientId);
+                            String deidentifiedId = subjectIds.getOrDefault(routeDest.getHonestBrokerName(), Map.of())
+                                    .get(originalPatientId);
+                            if (deidentifiedId == null) {
+                                deidentifiedId = honestBrokerService.lookup(routeDest.getHonestBrokerName(), originalPatientId);
+                            }
                             subjectId = deidentifiedId != null ? deidentifiedId :
                                     routeDest.getSubjectPrefix() + "_" + study.getStudyUid().substring(Math.max(0, study.getStudyUid().length() - 8));
                         } else {
@@ -394,7 +439,8 @@ public class ImportResource {
                                 zipFile, projectId, subjectId, sessionLabel,
                                 routeDest.isAutoArchive(),
                                 routeDest.getRetryCount(),
-                                routeDest.getRetryDelaySeconds() * 1000L
+                                routeDest.getRetryDelaySeconds() * 1000L,
+                                (sent, total) -> transferTracker.updateUploadProgress(transferId, sent, total)
                         );
 
                         success = result.isSuccess();
@@ -508,23 +554,17 @@ public class ImportResource {
 
     private File createZipFromFiles(List<File> files) throws IOException {
         java.nio.file.Path tempZip = Files.createTempFile("dicom_import_", ".zip");
-        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(tempZip))) {
-            for (File file : files) {
-                ZipEntry entry = new ZipEntry(file.getName());
-                zos.putNextEntry(entry);
-                Files.copy(file.toPath(), zos);
-                zos.closeEntry();
-            }
-        }
+        ZipPackagingPolicy.getDefault().createZip(files, tempZip);
         return tempZip.toFile();
     }
 
     private String extractPatientIdFromFiles(List<File> files) {
         if (files.isEmpty()) return "UNKNOWN";
+        // Read the header only as far as PatientID rather than the whole instance
         try (DicomInputStream dis = new DicomInputStream(files.get(0))) {
-            Attributes attrs = dis.readDataset();
-            return attrs.getString(Tag.PatientID, "UNKNOWN");
-        } catch (IOException e) {
+            String patientId = dis.readDataset(-1, Tag.PatientID + 1).getString(Tag.PatientID);
+            return patientId != null ? patientId : "UNKNOWN";
+        } catch (IOException | RuntimeException e) {
             return "UNKNOWN";
         }
     }
@@ -10,6 +10,7 @@ package io.xnatworks.router.api;
 import io.xnatworks.router.metrics.MetricsCollector;
 import io.xnatworks.router.metrics.MetricsCollector.MetricPoint;
 import io.xnatworks.router.metrics.MetricsCollector.RouteSummary;
+import io.xnatworks.router.routing.WorkerPools;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -24,9 +25,15 @@ import java.util.*;
 public class MetricsResource {
 
     private final MetricsCollector metricsCollector;
+    private final WorkerPools workerPools;
 
     public MetricsResource(MetricsCollector metricsCollector) {
+        this(metricsCollector, null);
+    }
+
+    public MetricsResource(MetricsCollector metricsCollector, WorkerPools workerPools) {
         this.metricsCollector = metricsCollector;
+        this.workerPools = workerPools;
     }
 
     /**
@@ -39,10 +46,25 @@ public class MetricsResource {
         summary.put("currentThroughput", metricsCollector.getCurrentThroughput());
         summary.put("currentBytesPerMinute", metricsCollector.getCurrentBytesPerMinute());
         summary.put("routes", metricsCollector.getRouteSummaries());
+        if (workerPools != null) {
+            summary.put("pools", workerPools.getStats());
+        }
 
         return Response.ok(summary).build();
     }
 
+    /**
+     * Get utilization and queue depth of the CPU and transfer pools.
+     */
+    @GET
+    @Path("/pools")
+    public Response getPoolMetrics() {
+        if (workerPools == null) {
+            return Response.ok(List.of()).build();
+        }
+        return Response.ok(workerPools.getStats()).build();
+    }
+
     /**
      * Get time-series data for the last N minutes.
      */
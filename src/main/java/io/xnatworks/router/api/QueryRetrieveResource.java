@@ -7,13 +7,17 @@
  */
 package io.xnatworks.router.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.xnatworks.router.config.AppConfig;
 import io.xnatworks.router.dicom.DicomClient;
+import io.xnatworks.router.dicom.IncomingInstanceWriter;
 import io.xnatworks.router.routing.DestinationManager;
+import io.xnatworks.router.store.RouterStore;
 import io.xnatworks.router.tracking.TransferTracker;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.data.UID;
@@ -21,17 +25,29 @@ import org.dcm4che3.data.VR;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * REST API for DICOM Query/Retrieve operations.
@@ -45,6 +61,16 @@ public class QueryRetrieveResource {
     private final AppConfig config;
     private final DestinationManager destinationManager;
     private final TransferTracker transferTracker;
+    private final RouterStore routerStore;
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    // Per-source C-FIND rate caps
+    private final Map<String, QueryRateLimiter> queryRateLimiters = new ConcurrentHashMap<>();
+
+    // Per-source retrieve associations, shared by every job against that source
+    private final Map<String, RetrieveSlots> retrieveSlots = new ConcurrentHashMap<>();
 
     // Track active retrieve jobs
     private final Map<String, RetrieveJob> activeJobs = new ConcurrentHashMap<>();
@@ -53,9 +79,49 @@ public class QueryRetrieveResource {
 
     public QueryRetrieveResource(AppConfig config, DestinationManager destinationManager,
                                   TransferTracker transferTracker) {
+        this(config, destinationManager, transferTracker, null);
+    }
+
+    /**
+     * @param routerStore store for retrieve jobs so they survive a restart, or null to keep them in memory only
+     */
+    public QueryRetrieveResource(AppConfig config, DestinationManager destinationManager,
+                                  TransferTracker transferTracker, RouterStore routerStore) {
         this.config = config;
         this.destinationManager = destinationManager;
         this.transferTracker = transferTracker;
+        this.routerStore = routerStore;
+    }
+
+    /**
+     * Restart retrieve jobs that were pending or running when the router stopped.
+     * Studies already completed or failed are not retrieved again.
+     */
+    public void resumeRetrieveJobs() {
+        if (routerStore == null) return;
+
+        for (RouterStore.RetrieveJobRecord record : routerStore.getUnfinishedRetrieveJobs()) {
+            RetrieveJob job = RetrieveJob.fromRecord(record);
+            activeJobs.put(job.getJobId(), job);
+
+            AppConfig.DicomAeDestination source = config.getDicomAeDestinations().get(job.getSourceName());
+            AppConfig.RouteConfig route = config.findRouteByAeTitle(job.getTargetRoute());
+            if (source == null || route == null) {
+                log.warn("Cannot resume retrieve job {}: source '{}' or route '{}' is no longer configured",
+                        job.getJobId(), job.getSourceName(), job.getTargetRoute());
+                job.setStatus("FAILED");
+                job.addError("Cannot resume: source or target route is no longer configured");
+                job.setEndTime(System.currentTimeMillis());
+                persistJobStatus(job);
+                continue;
+            }
+
+            job.addMessage("Resumed after restart");
+            log.info("Resuming retrieve job {} from '{}' to route '{}': {} of {} studies left",
+                    job.getJobId(), job.getSourceName(), job.getTargetRoute(),
+                    job.getUnfinishedStudies().size(), job.getStudyUIDs().size());
+            retrieveExecutor.submit(() -> executeRetrieve(job, source, route));
+        }
     }
 
     /**
@@ -131,6 +197,11 @@ public class QueryRetrieveResource {
         try {
             Attributes queryKeys = buildQueryKeys(queryParams);
 
+            QueryRateLimiter limiter = getQueryRateLimiter(sourceName, source);
+            if (limiter != null) {
+                limiter.acquire();
+            }
+
             try (DicomClient client = new DicomClient(sourceName, source)) {
                 List<Attributes> results = client.findStudies(queryKeys);
 
@@ -461,15 +532,139 @@ public class QueryRetrieveResource {
 
     /**
      * Bulk query - query multiple Study UIDs or Accession Numbers at once.
+     * Identifiers are queried concurrently over the source's pool of query associations.
      */
     @POST
     @Path("/query/bulk")
     @Consumes(MediaType.APPLICATION_JSON)
     public Response bulkQuery(Map<String, Object> queryParams) {
+        Response invalid = validateBulkQuery(queryParams);
+        if (invalid != null) {
+            return invalid;
+        }
+
+        String sourceName = (String) queryParams.get("source");
+        AppConfig.DicomAeDestination source = config.getDicomAeDestinations().get(sourceName);
+        @SuppressWarnings("unchecked")
+        List<String> identifiers = (List<String>) queryParams.get("identifiers");
+        String identifierType = (String) queryParams.getOrDefault("identifierType", "studyInstanceUID");
+
+        // Keep the response in request order even though queries finish out of order
+        BulkQueryItem[] items = new BulkQueryItem[identifiers.size()];
+        try {
+            runBulkQuery(sourceName, source, identifiers, identifierType, item -> items[item.index] = item);
+        } catch (Exception e) {
+            log.error("Bulk query failed: {}", e.getMessage(), e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(Map.of("error", "Bulk query failed: " + e.getMessage()))
+                    .build();
+        }
+
+        List<Map<String, Object>> allStudies = new ArrayList<>();
+        List<String> notFound = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (BulkQueryItem item : items) {
+            if (item == null) continue;
+            if (item.error != null) {
+                errors.add(item.error);
+            } else if (item.studies.isEmpty()) {
+                notFound.add(item.identifier);
+            } else {
+                allStudies.addAll(item.studies);
+            }
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("source", sourceName);
+        response.put("studies", allStudies);
+        response.put("found", allStudies.size());
+        response.put("notFound", notFound);
+        response.put("errors", errors);
+        response.put("totalQueried", identifiers.size());
+
+        return Response.ok(response).build();
+    }
+
+    /**
+     * Streaming bulk query. Same request as {@link #bulkQuery}, but results are
+     * written as newline-delimited JSON while they arrive, one event per line:
+     * {@code study}, {@code notFound} and {@code error}, then a final {@code summary}.
+     */
+    @POST
+    @Path("/query/bulk/stream")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({NDJSON, MediaType.APPLICATION_JSON})
+    public Response bulkQueryStream(Map<String, Object> queryParams) {
+        Response invalid = validateBulkQuery(queryParams);
+        if (invalid != null) {
+            return invalid;
+        }
+
+        String sourceName = (String) queryParams.get("source");
+        AppConfig.DicomAeDestination source = config.getDicomAeDestinations().get(sourceName);
+        @SuppressWarnings("unchecked")
+        List<String> identifiers = (List<String>) queryParams.get("identifiers");
+        String identifierType = (String) queryParams.getOrDefault("identifierType", "studyInstanceUID");
+
+        StreamingOutput stream = output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            int[] counts = new int[3]; // found, notFound, errors
+            long startTime = System.currentTimeMillis();
+
+            try {
+                runBulkQuery(sourceName, source, identifiers, identifierType, item -> {
+                    synchronized (writer) {
+                        try {
+                            if (item.error != null) {
+                                counts[2]++;
+                                writeEvent(writer, "error", Map.of("identifier", item.identifier, "error", item.error));
+                            } else if (item.studies.isEmpty()) {
+                                counts[1]++;
+                                writeEvent(writer, "notFound", Map.of("identifier", item.identifier));
+                            } else {
+                                for (Map<String, Object> study : item.studies) {
+                                    counts[0]++;
+                                    writeEvent(writer, "study", study);
+                                }
+                            }
+                            writer.flush();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                // Client went away - nothing more to write
+                log.debug("Bulk query stream to client closed: {}", e.getMessage());
+                return;
+            } catch (Exception e) {
+                log.error("Bulk query failed: {}", e.getMessage(), e);
+                writeEvent(writer, "error", Map.of("error", "Bulk query failed: " + e.getMessage()));
+            }
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("source", sourceName);
+            summary.put("found", counts[0]);
+            summary.put("notFound", counts[1]);
+            summary.put("errors", counts[2]);
+            summary.put("totalQueried", identifiers.size());
+            summary.put("durationMs", System.currentTimeMillis() - startTime);
+            writeEvent(writer, "summary", summary);
+            writer.flush();
+        };
+
+        return Response.ok(stream, NDJSON).build();
+    }
+
+    /**
+     * Validate a bulk query request, returning the error response or null if valid.
+     */
+    private Response validateBulkQuery(Map<String, Object> queryParams) {
         String sourceName = (String) queryParams.get("source");
         if (sourceName == null || sourceName.isEmpty()) {
             return Response.status(Response.Status.BAD_REQUEST)
                     .entity(Map.of("error", "Source name is required"))
+                    .type(MediaType.APPLICATION_JSON)
                     .build();
         }
 
@@ -477,92 +672,159 @@ public class QueryRetrieveResource {
         if (source == null) {
             return Response.status(Response.Status.NOT_FOUND)
                     .entity(Map.of("error", "Source not found: " + sourceName))
+                    .type(MediaType.APPLICATION_JSON)
                     .build();
         }
 
-        // Get the list of identifiers
         @SuppressWarnings("unchecked")
         List<String> identifiers = (List<String>) queryParams.get("identifiers");
-        String identifierType = (String) queryParams.getOrDefault("identifierType", "studyInstanceUID");
-
         if (identifiers == null || identifiers.isEmpty()) {
             return Response.status(Response.Status.BAD_REQUEST)
                     .entity(Map.of("error", "Identifiers list is required"))
+                    .type(MediaType.APPLICATION_JSON)
                     .build();
         }
 
-        List<Map<String, Object>> allStudies = new ArrayList<>();
-        List<String> notFound = new ArrayList<>();
-        List<String> errors = new ArrayList<>();
+        return null;
+    }
 
-        try (DicomClient client = new DicomClient(sourceName, source)) {
-            for (String identifier : identifiers) {
-                try {
-                    Attributes queryKeys = new Attributes();
-                    // Include return keys
-                    addReturnKeys(queryKeys);
-
-                    switch (identifierType.toLowerCase()) {
-                        case "studyinstanceuid":
-                            queryKeys.setString(Tag.StudyInstanceUID, VR.UI, identifier.trim());
-                            break;
-                        case "accessionnumber":
-                            queryKeys.setString(Tag.AccessionNumber, VR.SH, identifier.trim());
-                            break;
-                        case "patientid":
-                            queryKeys.setString(Tag.PatientID, VR.LO, identifier.trim());
-                            break;
-                        default:
-                            errors.add("Invalid identifier type: " + identifierType);
-                            continue;
-                    }
+    /**
+     * Query every identifier against the source with bounded concurrency.
+     * Each worker holds one long-lived association and takes the next identifier
+     * until none are left. The sink is called from worker threads, once per identifier.
+     */
+    private void runBulkQuery(String sourceName, AppConfig.DicomAeDestination source,
+                              List<String> identifiers, String identifierType,
+                              Consumer<BulkQueryItem> sink) throws Exception {
+        int workers = Math.max(1, Math.min(source.getMaxQueryAssociations(), identifiers.size()));
+        QueryRateLimiter limiter = getQueryRateLimiter(sourceName, source);
+        AtomicInteger next = new AtomicInteger();
+        long startTime = System.currentTimeMillis();
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "bulk-query-" + sourceName);
+            t.setDaemon(true);
+            return t;
+        });
 
-                    List<Attributes> results = client.findStudies(queryKeys);
-                    if (results.isEmpty()) {
-                        notFound.add(identifier);
-                    } else {
-                        for (Attributes attrs : results) {
-                            Map<String, Object> study = new LinkedHashMap<>();
-                            study.put("studyInstanceUID", attrs.getString(Tag.StudyInstanceUID, ""));
-                            study.put("patientID", attrs.getString(Tag.PatientID, ""));
-                            study.put("patientName", formatPatientName(attrs.getString(Tag.PatientName, "")));
-                            study.put("accessionNumber", attrs.getString(Tag.AccessionNumber, ""));
-                            study.put("studyDate", attrs.getString(Tag.StudyDate, ""));
-                            study.put("studyTime", attrs.getString(Tag.StudyTime, ""));
-                            study.put("studyDescription", attrs.getString(Tag.StudyDescription, ""));
-                            study.put("modality", attrs.getString(Tag.ModalitiesInStudy, attrs.getString(Tag.Modality, "")));
-                            study.put("numberOfSeries", attrs.getInt(Tag.NumberOfStudyRelatedSeries, 0));
-                            study.put("numberOfInstances", attrs.getInt(Tag.NumberOfStudyRelatedInstances, 0));
-                            study.put("queryIdentifier", identifier);
-                            allStudies.add(study);
+        try (DicomClient client = new DicomClient(sourceName, source)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                futures.add(pool.submit(() -> {
+                    try (DicomClient.QuerySession session =
+                                 client.openQuerySession(UID.StudyRootQueryRetrieveInformationModelFind)) {
+                        int i;
+                        while ((i = next.getAndIncrement()) < identifiers.size()) {
+                            sink.accept(queryIdentifier(session, limiter, i, identifiers.get(i), identifierType));
                         }
                     }
-                } catch (Exception e) {
-                    log.warn("Query failed for identifier '{}': {}", identifier, e.getMessage());
-                    errors.add(identifier + ": " + e.getMessage());
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+                    throw e;
                 }
             }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        log.info("Bulk query to '{}': {} identifiers over {} associations in {}ms",
+                sourceName, identifiers.size(), workers, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Run the C-FIND for a single bulk query identifier.
+     */
+    private BulkQueryItem queryIdentifier(DicomClient.QuerySession session, QueryRateLimiter limiter,
+                                          int index, String identifier, String identifierType) {
+        BulkQueryItem item = new BulkQueryItem(index, identifier);
+        try {
+            Attributes queryKeys = new Attributes();
+            // Include return keys
+            addReturnKeys(queryKeys);
+
+            switch (identifierType.toLowerCase()) {
+                case "studyinstanceuid":
+                    queryKeys.setString(Tag.StudyInstanceUID, VR.UI, identifier.trim());
+                    break;
+                case "accessionnumber":
+                    queryKeys.setString(Tag.AccessionNumber, VR.SH, identifier.trim());
+                    break;
+                case "patientid":
+                    queryKeys.setString(Tag.PatientID, VR.LO, identifier.trim());
+                    break;
+                default:
+                    item.error = "Invalid identifier type: " + identifierType;
+                    return item;
+            }
+
+            if (limiter != null) {
+                limiter.acquire();
+            }
+
+            session.find(queryKeys, attrs -> {
+                Map<String, Object> study = new LinkedHashMap<>();
+                study.put("studyInstanceUID", attrs.getString(Tag.StudyInstanceUID, ""));
+                study.put("patientID", attrs.getString(Tag.PatientID, ""));
+                study.put("patientName", formatPatientName(attrs.getString(Tag.PatientName, "")));
+                study.put("accessionNumber", attrs.getString(Tag.AccessionNumber, ""));
+                study.put("studyDate", attrs.getString(Tag.StudyDate, ""));
+                study.put("studyTime", attrs.getString(Tag.StudyTime, ""));
+                study.put("studyDescription", attrs.getString(Tag.StudyDescription, ""));
+                study.put("modality", attrs.getString(Tag.ModalitiesInStudy, attrs.getString(Tag.Modality, "")));
+                study.put("numberOfSeries", attrs.getInt(Tag.NumberOfStudyRelatedSeries, 0));
+                study.put("numberOfInstances", attrs.getInt(Tag.NumberOfStudyRelatedInstances, 0));
+                study.put("queryIdentifier", identifier);
+                item.studies.add(study);
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            item.error = identifier + ": interrupted";
         } catch (Exception e) {
-            log.error("Bulk query failed: {}", e.getMessage(), e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(Map.of("error", "Bulk query failed: " + e.getMessage()))
-                    .build();
+            log.warn("Query failed for identifier '{}': {}", identifier, e.getMessage());
+            item.error = identifier + ": " + e.getMessage();
         }
+        return item;
+    }
 
-        Map<String, Object> response = new LinkedHashMap<>();
-        response.put("source", sourceName);
-        response.put("studies", allStudies);
-        response.put("found", allStudies.size());
-        response.put("notFound", notFound);
-        response.put("errors", errors);
-        response.put("totalQueried", identifiers.size());
+    private void writeEvent(Writer writer, String type, Map<String, ?> fields) throws IOException {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("type", type);
+        event.putAll(fields);
+        writer.write(JSON.writeValueAsString(event));
+        writer.write('\n');
+    }
 
-        return Response.ok(response).build();
+    /**
+     * Rate limiter for C-FIND against a source, shared by all requests.
+     * Returns null when the source has no rate cap.
+     */
+    private QueryRateLimiter getQueryRateLimiter(String sourceName, AppConfig.DicomAeDestination source) {
+        int perSecond = source.getQueryRateLimit();
+        if (perSecond <= 0) {
+            queryRateLimiters.remove(sourceName);
+            return null;
+        }
+        return queryRateLimiters.compute(sourceName, (name, existing) ->
+                existing != null && existing.getPerSecond() == perSecond ? existing : new QueryRateLimiter(perSecond));
+    }
+
+    private RetrieveSlots getRetrieveSlots(String sourceName, AppConfig.DicomAeDestination source) {
+        int permits = Math.max(1, source.getMaxConcurrentRetrieves());
+        return retrieveSlots.compute(sourceName, (name, existing) ->
+                existing != null && existing.getPermits() == permits ? existing : new RetrieveSlots(permits));
     }
 
     /**
      * Retrieve studies from a PACS and forward to a route.
-     * Uses C-MOVE to retrieve studies to one of our configured routes.
+     * Uses C-MOVE to retrieve studies to one of our configured routes, or C-GET
+     * ("retrieveMode": "C-GET") for sources that cannot connect back to us.
+     * C-GET writes straight into the route's incoming directory.
      */
     @POST
     @Path("/retrieve")
@@ -573,6 +835,8 @@ public class QueryRetrieveResource {
 
         @SuppressWarnings("unchecked")
         List<String> studyUIDs = (List<String>) retrieveParams.get("studyUIDs");
+        Object requestedMode = retrieveParams.get("retrieveMode");
+        String retrieveMode = requestedMode != null ? requestedMode.toString().toUpperCase() : RetrieveJob.MODE_MOVE;
 
         if (sourceName == null || sourceName.isEmpty()) {
             return Response.status(Response.Status.BAD_REQUEST)
@@ -592,6 +856,12 @@ public class QueryRetrieveResource {
                     .build();
         }
 
+        if (!RetrieveJob.MODE_MOVE.equals(retrieveMode) && !RetrieveJob.MODE_GET.equals(retrieveMode)) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("error", "Invalid retrieve mode: " + retrieveMode + " (expected C-MOVE or C-GET)"))
+                    .build();
+        }
+
         // Verify source exists
         AppConfig.DicomAeDestination source = config.getDicomAeDestinations().get(sourceName);
         if (source == null) {
@@ -610,8 +880,11 @@ public class QueryRetrieveResource {
 
         // Create a retrieve job
         String jobId = String.format("QR-%d-%d", System.currentTimeMillis(), jobIdCounter.incrementAndGet());
-        RetrieveJob job = new RetrieveJob(jobId, sourceName, targetRoute, studyUIDs);
+        RetrieveJob job = new RetrieveJob(jobId, sourceName, targetRoute, studyUIDs, retrieveMode);
         activeJobs.put(jobId, job);
+        if (routerStore != null) {
+            routerStore.saveRetrieveJob(job.toRecord());
+        }
 
         // Start the retrieve asynchronously
         retrieveExecutor.submit(() -> executeRetrieve(job, source, route));
@@ -621,11 +894,13 @@ public class QueryRetrieveResource {
         response.put("status", "STARTED");
         response.put("source", sourceName);
         response.put("targetRoute", targetRoute);
+        response.put("retrieveMode", retrieveMode);
         response.put("studyCount", studyUIDs.size());
+        response.put("concurrentRetrieves", Math.max(1, source.getMaxConcurrentRetrieves()));
         response.put("message", "Retrieve job started");
 
-        log.info("Started retrieve job {} from '{}' to route '{}' for {} studies",
-                jobId, sourceName, targetRoute, studyUIDs.size());
+        log.info("Started {} retrieve job {} from '{}' to route '{}' for {} studies",
+                retrieveMode, jobId, sourceName, targetRoute, studyUIDs.size());
 
         return Response.accepted(response).build();
     }
@@ -820,49 +1095,72 @@ public class QueryRetrieveResource {
         return name.replace("^", " ").trim();
     }
 
+    /**
+     * Run a retrieve job. Each worker takes a slot from the source's
+     * max_concurrent_retrieves, shared with every other job against that source,
+     * then takes the next unfinished study and retrieves it on its own
+     * association; pending responses update the study's progress.
+     */
     private void executeRetrieve(RetrieveJob job, AppConfig.DicomAeDestination source,
                                   AppConfig.RouteConfig route) {
         job.setStatus("RUNNING");
+        persistJobStatus(job);
         String moveDestination = route.getAeTitle();
 
-        try (DicomClient client = new DicomClient(job.getSourceName(), source)) {
-            for (String studyUID : job.getStudyUIDs()) {
-                if (job.isCancelled()) {
-                    job.setStatus("CANCELLED");
-                    break;
-                }
+        // C-GET lands instances in the route's incoming directory, same as the receiver
+        IncomingInstanceWriter incomingWriter = null;
+        if (job.isCGet()) {
+            incomingWriter = new IncomingInstanceWriter(route.getAeTitle(),
+                    Paths.get(config.getReceiver().getIncomingDir(route.getAeTitle())),
+                    Paths.get(config.getReceiver().getBaseDir(), route.getAeTitle(), "logs"));
+        }
+        final IncomingInstanceWriter writer = incomingWriter;
 
-                try {
-                    Attributes moveKeys = new Attributes();
-                    moveKeys.setString(Tag.QueryRetrieveLevel, VR.CS, "STUDY");
-                    moveKeys.setString(Tag.StudyInstanceUID, VR.UI, studyUID);
-
-                    log.info("Retrieving study {} from '{}' to '{}'",
-                            studyUID, job.getSourceName(), moveDestination);
-
-                    DicomClient.MoveResult result = client.move(
-                            UID.StudyRootQueryRetrieveInformationModelMove,
-                            moveKeys,
-                            moveDestination
-                    );
-
-                    if (result.isSuccess()) {
-                        job.incrementCompleted();
-                        job.addMessage("Study " + studyUID + ": " + result.getCompleted() + " instances retrieved");
-                    } else {
-                        job.incrementFailed();
-                        job.addError("Study " + studyUID + " failed with status 0x" +
-                                Integer.toHexString(result.getStatus()));
-                    }
+        List<RetrieveJob.StudyProgress> studies = job.getUnfinishedStudies();
+        RetrieveSlots slots = getRetrieveSlots(job.getSourceName(), source);
+        int workers = Math.max(1, Math.min(slots.getPermits(), studies.size()));
+        AtomicInteger next = new AtomicInteger();
 
-                } catch (Exception e) {
-                    log.error("Failed to retrieve study {}: {}", studyUID, e.getMessage());
-                    job.incrementFailed();
-                    job.addError("Study " + studyUID + ": " + e.getMessage());
+        ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "retrieve-" + job.getJobId());
+            t.setDaemon(true);
+            return t;
+        });
+
+        try (DicomClient client = new DicomClient(job.getSourceName(), source)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                futures.add(pool.submit(() -> {
+                    while (!job.isCancelled()) {
+                        // Wait in short steps so a cancelled job stops waiting for a slot
+                        if (!slots.tryAcquire(1, TimeUnit.SECONDS)) {
+                            continue;
+                        }
+                        try {
+                            int i = next.getAndIncrement();
+                            if (i >= studies.size()) {
+                                break;
+                            }
+                            retrieveStudy(client, job, studies.get(i), moveDestination, writer);
+                        } finally {
+                            slots.release();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+                    throw e;
                 }
             }
 
-            if (!job.isCancelled()) {
+            if (job.isCancelled()) {
+                job.setStatus("CANCELLED");
+            } else {
                 job.setStatus(job.getFailedCount() == 0 ? "COMPLETED" : "COMPLETED_WITH_ERRORS");
             }
 
@@ -870,11 +1168,159 @@ public class QueryRetrieveResource {
             log.error("Retrieve job {} failed: {}", job.getJobId(), e.getMessage(), e);
             job.setStatus("FAILED");
             job.addError("Job failed: " + e.getMessage());
+        } finally {
+            pool.shutdownNow();
         }
 
         job.setEndTime(System.currentTimeMillis());
-        log.info("Retrieve job {} completed: {} succeeded, {} failed",
-                job.getJobId(), job.getCompletedCount(), job.getFailedCount());
+        persistJobStatus(job);
+        log.info("Retrieve job {} completed: {} succeeded, {} failed ({} concurrent)",
+                job.getJobId(), job.getCompletedCount(), job.getFailedCount(), workers);
+    }
+
+    /**
+     * Retrieve one study of a job with C-MOVE or C-GET.
+     */
+    private void retrieveStudy(DicomClient client, RetrieveJob job, RetrieveJob.StudyProgress study,
+                               String moveDestination, IncomingInstanceWriter incomingWriter) {
+        String studyUID = study.getStudyUID();
+        study.setStatus(RetrieveJob.StudyProgress.RUNNING);
+        persistStudy(job, study);
+
+        try {
+            Attributes moveKeys = new Attributes();
+            moveKeys.setString(Tag.QueryRetrieveLevel, VR.CS, "STUDY");
+            moveKeys.setString(Tag.StudyInstanceUID, VR.UI, studyUID);
+
+            log.info("Retrieving study {} from '{}' to '{}' via {}",
+                    studyUID, job.getSourceName(), moveDestination, job.getRetrieveMode());
+
+            if (job.isCGet()) {
+                DicomClient.GetResult result = client.get(
+                        UID.StudyRootQueryRetrieveInformationModelGet,
+                        moveKeys,
+                        incomingWriter,
+                        r -> study.update(r.getCompleted(), r.getFailed(), r.getWarnings(), r.getRemaining())
+                );
+                study.update(result.getCompleted(), result.getFailed(), result.getWarnings(), 0);
+
+                if (result.isSuccess() && result.getFailed() == 0) {
+                    study.setStatus(RetrieveJob.StudyProgress.COMPLETED);
+                    job.incrementCompleted();
+                    job.addMessage("Study " + studyUID + ": " + result.getFileCount() + " instances retrieved");
+                } else {
+                    String error = "failed with status 0x" + Integer.toHexString(result.getStatus()) +
+                            " (" + result.getFailed() + " sub-operations failed)";
+                    study.fail(error);
+                    job.incrementFailed();
+                    job.addError("Study " + studyUID + " " + error);
+                }
+            } else {
+                DicomClient.MoveResult result = client.move(
+                        UID.StudyRootQueryRetrieveInformationModelMove,
+                        moveKeys,
+                        moveDestination,
+                        r -> study.update(r.getCompleted(), r.getFailed(), r.getWarnings(), r.getRemaining())
+                );
+                study.update(result.getCompleted(), result.getFailed(), result.getWarnings(), 0);
+
+                if (result.isSuccess()) {
+                    study.setStatus(RetrieveJob.StudyProgress.COMPLETED);
+                    job.incrementCompleted();
+                    job.addMessage("Study " + studyUID + ": " + result.getCompleted() + " instances retrieved");
+                } else {
+                    String error = "failed with status 0x" + Integer.toHexString(result.getStatus());
+                    study.fail(error);
+                    job.incrementFailed();
+                    job.addError("Study " + studyUID + " " + error);
+                }
+            }
+
+        } catch (Exception e) {
+            log.error("Failed to retrieve study {}: {}", studyUID, e.getMessage());
+            study.fail(e.getMessage());
+            job.incrementFailed();
+            job.addError("Study " + studyUID + ": " + e.getMessage());
+        }
+
+        persistStudy(job, study);
+    }
+
+    private void persistJobStatus(RetrieveJob job) {
+        if (routerStore != null) {
+            routerStore.updateRetrieveJobStatus(job.getJobId(), job.getStatus(), job.getEndTime());
+        }
+    }
+
+    private void persistStudy(RetrieveJob job, RetrieveJob.StudyProgress study) {
+        if (routerStore != null) {
+            routerStore.updateRetrieveStudy(job.getJobId(), study.getStudyUID(), study.getStatus(),
+                    study.getCompleted(), study.getFailed(), study.getWarnings(), study.getError());
+        }
+    }
+
+    // ========================================================================
+    // Bulk query helpers
+    // ========================================================================
+
+    /**
+     * Outcome of querying one bulk identifier.
+     */
+    private static class BulkQueryItem {
+        final int index;
+        final String identifier;
+        final List<Map<String, Object>> studies = new ArrayList<>();
+        String error;
+
+        BulkQueryItem(int index, String identifier) {
+            this.index = index;
+            this.identifier = identifier;
+        }
+    }
+
+    /**
+     * Retrieve associations allowed to one source at once, across all jobs.
+     */
+    private static class RetrieveSlots extends Semaphore {
+        private final int permits;
+
+        RetrieveSlots(int permits) {
+            super(permits, true);
+            this.permits = permits;
+        }
+
+        int getPermits() { return permits; }
+    }
+
+    /**
+     * Paces C-FIND requests to a fixed number per second by handing out evenly spaced slots.
+     */
+    private static class QueryRateLimiter {
+        private final int perSecond;
+        private final long intervalNanos;
+        private long nextSlot = System.nanoTime();
+
+        QueryRateLimiter(int perSecond) {
+            this.perSecond = perSecond;
+            this.intervalNanos = 1_000_000_000L / perSecond;
+        }
+
+        int getPerSecond() { return perSecond; }
+
+        void acquire() throws InterruptedException {
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                if (nextSlot < now) {
+                    nextSlot = now;
+                }
+                wait = nextSlot - now;
+                nextSlot += intervalNanos;
+            }
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
     }
 
     // ========================================================================
@@ -882,25 +1328,96 @@ public class QueryRetrieveResource {
     // ========================================================================
 
     public static class RetrieveJob {
+        public static final String MODE_MOVE = "C-MOVE";
+        public static final String MODE_GET = "C-GET";
+
         private final String jobId;
         private final String sourceName;
         private final String targetRoute;
         private final List<String> studyUIDs;
+        private final String retrieveMode;
         private final long startTime;
         private long endTime;
         private volatile String status = "PENDING";
         private volatile boolean cancelled = false;
         private volatile int completedCount = 0;
         private volatile int failedCount = 0;
+        private final Map<String, StudyProgress> studies = new LinkedHashMap<>();
         private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
         private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
 
         public RetrieveJob(String jobId, String sourceName, String targetRoute, List<String> studyUIDs) {
+            this(jobId, sourceName, targetRoute, studyUIDs, MODE_MOVE);
+        }
+
+        public RetrieveJob(String jobId, String sourceName, String targetRoute, List<String> studyUIDs,
+                           String retrieveMode) {
+            this(jobId, sourceName, targetRoute, studyUIDs, retrieveMode, System.currentTimeMillis());
+        }
+
+        private RetrieveJob(String jobId, String sourceName, String targetRoute, List<String> studyUIDs,
+                            String retrieveMode, long startTime) {
             this.jobId = jobId;
             this.sourceName = sourceName;
             this.targetRoute = targetRoute;
             this.studyUIDs = new ArrayList<>(studyUIDs);
-            this.startTime = System.currentTimeMillis();
+            this.retrieveMode = retrieveMode;
+            this.startTime = startTime;
+            for (String studyUID : this.studyUIDs) {
+                studies.putIfAbsent(studyUID, new StudyProgress(studyUID));
+            }
+        }
+
+        /**
+         * Rebuild a job saved in the router store, keeping the outcome of studies already done.
+         */
+        public static RetrieveJob fromRecord(RouterStore.RetrieveJobRecord record) {
+            List<String> studyUIDs = new ArrayList<>();
+            for (RouterStore.RetrieveStudyRecord study : record.studies) {
+                studyUIDs.add(study.studyUid);
+            }
+
+            RetrieveJob job = new RetrieveJob(record.jobId, record.sourceName, record.targetRoute, studyUIDs,
+                    record.retrieveMode, record.startTime);
+            for (RouterStore.RetrieveStudyRecord saved : record.studies) {
+                StudyProgress study = job.studies.get(saved.studyUid);
+                study.update(saved.completed, saved.failed, saved.warnings, 0);
+                if (StudyProgress.COMPLETED.equals(saved.status)) {
+                    study.setStatus(StudyProgress.COMPLETED);
+                    job.incrementCompleted();
+                } else if (StudyProgress.FAILED.equals(saved.status)) {
+                    study.fail(saved.error);
+                    job.incrementFailed();
+                }
+            }
+            return job;
+        }
+
+        /**
+         * Snapshot of this job for the router store.
+         */
+        public RouterStore.RetrieveJobRecord toRecord() {
+            RouterStore.RetrieveJobRecord record = new RouterStore.RetrieveJobRecord();
+            record.jobId = jobId;
+            record.sourceName = sourceName;
+            record.targetRoute = targetRoute;
+            record.retrieveMode = retrieveMode;
+            record.status = status;
+            record.startTime = startTime;
+            record.endTime = endTime;
+            int position = 0;
+            for (StudyProgress study : studies.values()) {
+                RouterStore.RetrieveStudyRecord studyRecord = new RouterStore.RetrieveStudyRecord();
+                studyRecord.studyUid = study.getStudyUID();
+                studyRecord.position = position++;
+                studyRecord.status = study.getStatus();
+                studyRecord.completed = study.getCompleted();
+                studyRecord.failed = study.getFailed();
+                studyRecord.warnings = study.getWarnings();
+                studyRecord.error = study.getError();
+                record.studies.add(studyRecord);
+            }
+            return record;
         }
 
         public String getJobId() { return jobId; }
@@ -908,6 +1425,8 @@ public class QueryRetrieveResource {
         public String getTargetRoute() { return targetRoute; }
         public List<String> getStudyUIDs() { return studyUIDs; }
         public long getStartTime() { return startTime; }
+        public String getRetrieveMode() { return retrieveMode; }
+        public boolean isCGet() { return MODE_GET.equals(retrieveMode); }
 
         public String getStatus() { return status; }
         public void setStatus(String status) { this.status = status; }
@@ -921,8 +1440,24 @@ public class QueryRetrieveResource {
         public int getFailedCount() { return failedCount; }
         public synchronized void incrementFailed() { this.failedCount++; }
 
+        public long getEndTime() { return endTime; }
         public void setEndTime(long endTime) { this.endTime = endTime; }
 
+        public StudyProgress getStudy(String studyUID) { return studies.get(studyUID); }
+
+        /**
+         * Studies not yet completed or failed, in request order.
+         */
+        public List<StudyProgress> getUnfinishedStudies() {
+            List<StudyProgress> unfinished = new ArrayList<>();
+            for (StudyProgress study : studies.values()) {
+                if (!study.isFinished()) {
+                    unfinished.add(study);
+                }
+            }
+            return unfinished;
+        }
+
         public void addMessage(String message) { messages.add(message); }
         public void addError(String error) { errors.add(error); }
 
@@ -931,6 +1466,7 @@ public class QueryRetrieveResource {
             map.put("jobId", jobId);
             map.put("source", sourceName);
             map.put("targetRoute", targetRoute);
+            map.put("retrieveMode", retrieveMode);
             map.put("status", status);
             map.put("totalStudies", studyUIDs.size());
             map.put("completedCount", completedCount);
@@ -942,9 +1478,76 @@ public class QueryRetrieveResource {
                 map.put("endTime", endTime);
                 map.put("durationMs", endTime - startTime);
             }
+            List<Map<String, Object>> studyList = new ArrayList<>();
+            for (StudyProgress study : studies.values()) {
+                studyList.add(study.toMap());
+            }
+            map.put("studies", studyList);
             map.put("messages", messages);
             map.put("errors", errors);
             return map;
         }
+
+        /**
+         * Progress of one study, updated from the sub-operation counts in C-MOVE/C-GET responses.
+         */
+        public static class StudyProgress {
+            public static final String PENDING = "PENDING";
+            public static final String RUNNING = "RUNNING";
+            public static final String COMPLETED = "COMPLETED";
+            public static final String FAILED = "FAILED";
+
+            private final String studyUID;
+            private volatile String status = PENDING;
+            private int completed;
+            private int failed;
+            private int warnings;
+            private int remaining;
+            private volatile String error;
+
+            StudyProgress(String studyUID) {
+                this.studyUID = studyUID;
+            }
+
+            public String getStudyUID() { return studyUID; }
+
+            public String getStatus() { return status; }
+            public void setStatus(String status) { this.status = status; }
+
+            public boolean isFinished() { return COMPLETED.equals(status) || FAILED.equals(status); }
+
+            public void fail(String error) {
+                this.error = error;
+                this.status = FAILED;
+            }
+
+            public String getError() { return error; }
+
+            public synchronized void update(int completed, int failed, int warnings, int remaining) {
+                this.completed = completed;
+                this.failed = failed;
+                this.warnings = warnings;
+                this.remaining = remaining;
+            }
+
+            public synchronized int getCompleted() { return completed; }
+            public synchronized int getFailed() { return failed; }
+            public synchronized int getWarnings() { return warnings; }
+            public synchronized int getRemaining() { return remaining; }
+
+            public synchronized Map<String, Object> toMap() {
+                Map<String, Object> map = new LinkedHashMap<>();
+                map.put("studyUID", studyUID);
+                map.put("status", status);
+                map.put("completed", completed);
+                map.put("failed", failed);
+                map.put("warnings", warnings);
+                map.put("remaining", remaining);
+                if (error != null) {
+                    map.put("error", error);
+                }
+                return map;
+            }
+        }
     }
 }
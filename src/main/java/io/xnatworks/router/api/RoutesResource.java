@@ -356,6 +356,9 @@ public class RoutesResource {
         if (data.containsKey("workerThreads")) {
             route.setWorkerThreads(((Number) data.get("workerThreads")).intValue());
         }
+        if (data.containsKey("cpuWeight")) {
+            route.setCpuWeight(((Number) data.get("cpuWeight")).intValue());
+        }
         if (data.containsKey("maxConcurrentTransfers")) {
             route.setMaxConcurrentTransfers(((Number) data.get("maxConcurrentTransfers")).intValue());
         }
@@ -441,6 +444,7 @@ public class RoutesResource {
     private Map<String, Object> routeToDetailedMap(AppConfig.RouteConfig route) {
         Map<String, Object> map = routeToMap(route);
         map.put("maxConcurrentTransfers", route.getMaxConcurrentTransfers());
+        map.put("cpuWeight", route.getCpuWeight());
         map.put("studyTimeoutSeconds", route.getStudyTimeoutSeconds());
         map.put("rateLimitPerMinute", route.getRateLimitPerMinute());
         map.put("webhookUrl", route.getWebhookUrl());
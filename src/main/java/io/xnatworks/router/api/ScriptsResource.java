@@ -8,6 +8,10 @@
 package io.xnatworks.router.api;
 
 import io.xnatworks.router.anon.ScriptLibrary;
+import io.xnatworks.router.anon.ScriptProfiler;
+import io.xnatworks.router.archive.ArchiveManager;
+import io.xnatworks.router.broker.HonestBrokerService;
+import io.xnatworks.router.config.AppConfig.HonestBrokerConfig;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -22,9 +26,18 @@ import java.util.*;
 public class ScriptsResource {
 
     private final ScriptLibrary scriptLibrary;
+    private final ArchiveManager archiveManager;
+    private final HonestBrokerService honestBrokerService;
 
     public ScriptsResource(ScriptLibrary scriptLibrary) {
+        this(scriptLibrary, null, null);
+    }
+
+    public ScriptsResource(ScriptLibrary scriptLibrary, ArchiveManager archiveManager,
+                           HonestBrokerService honestBrokerService) {
         this.scriptLibrary = scriptLibrary;
+        this.archiveManager = archiveManager;
+        this.honestBrokerService = honestBrokerService;
     }
 
     @GET
@@ -214,6 +227,88 @@ public class ScriptsResource {
         }
     }
 
+    /**
+     * Dry-run a script against an archived study and record how fast it is.
+     * With a broker the script is profiled as routes run it, with that broker's
+     * date shifting and UID hashing added. Nothing is written to the archive
+     * or the crosswalk.
+     */
+    @POST
+    @Path("/{name}/profile")
+    public Response profileScript(@PathParam("name") String name,
+                                  @QueryParam("aeTitle") String aeTitle,
+                                  @QueryParam("studyUid") String studyUid,
+                                  @QueryParam("broker") String brokerName,
+                                  @QueryParam("limit") @DefaultValue("100") int limit) {
+        if (scriptLibrary.getScript(name) == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(Map.of("error", "Script not found: " + name))
+                    .build();
+        }
+
+        HonestBrokerConfig brokerConfig = null;
+        if (brokerName != null && !brokerName.isEmpty()) {
+            brokerConfig = honestBrokerService != null ? honestBrokerService.getBrokerConfig(brokerName) : null;
+            if (brokerConfig == null) {
+                return Response.status(Response.Status.NOT_FOUND)
+                        .entity(Map.of("error", "Honest broker not found: " + brokerName))
+                        .build();
+            }
+        }
+
+        if (archiveManager == null) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity(Map.of("error", "Archive is not available"))
+                    .build();
+        }
+
+        if (aeTitle == null || aeTitle.isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("error", "aeTitle is required"))
+                    .build();
+        }
+
+        List<java.nio.file.Path> files = archiveManager.getSampleFiles(aeTitle, studyUid, Math.max(1, limit));
+        if (files.isEmpty()) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(Map.of("error", "No archived study to profile against for " + aeTitle))
+                    .build();
+        }
+
+        try {
+            ScriptProfiler.ScriptProfile profile = new ScriptProfiler().profilePrepared(name,
+                    scriptLibrary.getScriptContent(name), brokerConfig, files);
+            scriptLibrary.saveProfile(name, profile.toSummary());
+            return Response.ok(profileToMap(profile)).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(Map.of("error", "Failed to profile script: " + e.getMessage()))
+                    .build();
+        }
+    }
+
+    private Map<String, Object> profileToMap(ScriptProfiler.ScriptProfile profile) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("scriptName", profile.getScriptName());
+        map.put("profiledAt", profile.getProfiledAt().toString());
+        map.put("headerOnly", profile.isHeaderOnly());
+        map.put("compileMs", profile.getCompileMs());
+        map.put("instanceCount", profile.getInstances().size());
+        map.put("meanInstanceMs", profile.getMeanInstanceMs());
+        map.put("p95InstanceMs", profile.getP95InstanceMs());
+        map.put("meanApplyMs", profile.getMeanApplyMs());
+        map.put("filesPerSecond", profile.getFilesPerSecond());
+        map.put("expectedFilesPerSecond", profile.getExpectedFilesPerSecond());
+        map.put("threads", profile.getThreads());
+        map.put("allocatedBytesPerInstance", profile.getAllocatedBytesPerInstance());
+        map.put("allocationMbPerSecond", profile.getAllocationMbPerSecond());
+        map.put("slow", profile.isSlow());
+        map.put("instances", profile.getInstances());
+        map.put("statements", profile.getStatements());
+        map.put("errors", profile.getErrors());
+        return map;
+    }
+
     private Map<String, Object> scriptToMap(ScriptLibrary.ScriptEntry entry, boolean includeContent) {
         Map<String, Object> map = new LinkedHashMap<>();
         map.put("name", entry.getName());
@@ -223,6 +318,21 @@ public class ScriptsResource {
         map.put("createdAt", entry.getCreatedAt() != null ? entry.getCreatedAt().toString() : null);
         map.put("modifiedAt", entry.getModifiedAt() != null ? entry.getModifiedAt().toString() : null);
 
+        ScriptLibrary.ProfileSummary profile = entry.getProfile();
+        if (profile != null) {
+            Map<String, Object> profileMap = new LinkedHashMap<>();
+            profileMap.put("profiledAt", profile.getProfiledAt() != null ? profile.getProfiledAt().toString() : null);
+            profileMap.put("instances", profile.getInstances());
+            profileMap.put("meanInstanceMs", profile.getMeanInstanceMs());
+            profileMap.put("p95InstanceMs", profile.getP95InstanceMs());
+            profileMap.put("meanApplyMs", profile.getMeanApplyMs());
+            profileMap.put("expectedFilesPerSecond", profile.getExpectedFilesPerSecond());
+            profileMap.put("allocatedBytesPerInstance", profile.getAllocatedBytesPerInstance());
+            profileMap.put("slowestStatement", profile.getSlowestStatement());
+            map.put("profile", profileMap);
+        }
+        map.put("slow", profile != null && profile.isSlow());
+
         if (includeContent) {
             try {
                 map.put("content", scriptLibrary.getScriptContent(entry.getName()));
@@ -281,10 +281,43 @@ public class ArchiveManager {
             throw new IOException("Both original and anonymized directories must exist for audit report");
         }
 
-        // Generate the audit report
+        // Generate the audit report, comparing file pairs in parallel
         AnonymizationAuditService.AuditReport report = auditService.generateReport(
                 originalDir, anonymizedDir, scriptName);
 
+        saveAuditReport(aeTitle, studyUid, report);
+        return report;
+    }
+
+    /**
+     * Start an audit report to be filled in while a study is anonymized,
+     * so it is ready without re-reading the archived files afterwards.
+     *
+     * @param aeTitle    The AE Title (route) for this study
+     * @param studyUid   The Study Instance UID
+     * @param scriptName Name of the anonymization script being applied
+     * @return Collector to pass to the anonymizer
+     */
+    public AnonymizationAuditService.AuditCollector startAuditReport(String aeTitle, String studyUid,
+                                                                     String scriptName) {
+        Path archiveStudyDir = getArchiveStudyDir(aeTitle, studyUid);
+        return auditService.startReport(archiveStudyDir.resolve(ORIGINAL_DIR),
+                archiveStudyDir.resolve(ANONYMIZED_DIR), scriptName);
+    }
+
+    /**
+     * Save an audit report to archive/{date}/study_{uid}/audit_report.json
+     * and record its totals in the archive metadata.
+     *
+     * @param aeTitle  The AE Title (route) for this study
+     * @param studyUid The Study Instance UID
+     * @param report   The completed audit report
+     */
+    public void saveAuditReport(String aeTitle, String studyUid,
+                                AnonymizationAuditService.AuditReport report) throws IOException {
+        Path archiveStudyDir = getArchiveStudyDir(aeTitle, studyUid);
+        Files.createDirectories(archiveStudyDir);
+
         // Save to archive
         Path reportFile = archiveStudyDir.resolve(AUDIT_REPORT_FILE);
         objectMapper.writeValue(reportFile.toFile(), report);
@@ -298,8 +331,6 @@ public class ArchiveManager {
             metadata.setConformanceIssues(report.getNonConformantFiles());
             saveMetadata(archiveStudyDir, metadata);
         }
-
-        return report;
     }
 
     /**
@@ -493,6 +524,36 @@ public class ArchiveManager {
         return studies;
     }
 
+    /**
+     * Get original files of an archived study to try scripts against.
+     *
+     * @param aeTitle  The AE Title (route)
+     * @param studyUid The Study Instance UID, or null for the most recently archived study
+     * @param limit    Maximum number of files
+     * @return Sample files, empty if no archived study with originals was found
+     */
+    public List<Path> getSampleFiles(String aeTitle, String studyUid, int limit) {
+        if (studyUid == null || studyUid.isBlank()) {
+            studyUid = listArchivedStudies(aeTitle, 20).stream()
+                    .filter(ArchivedStudySummary::isHasOriginal)
+                    .map(ArchivedStudySummary::getStudyUid)
+                    .findFirst()
+                    .orElse(null);
+            if (studyUid == null) {
+                return Collections.emptyList();
+            }
+        }
+
+        ArchivedStudy study = getArchivedStudy(aeTitle, studyUid);
+        if (study == null || study.getOriginalFiles() == null) {
+            return Collections.emptyList();
+        }
+        return study.getOriginalFiles().stream()
+                .sorted()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Clean up old archive entries based on retention policy.
      *
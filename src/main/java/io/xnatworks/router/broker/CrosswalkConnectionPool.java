@@ -0,0 +1,311 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ *
+ * This software is distributed under the terms described in the LICENSE file.
+ */
+package io.xnatworks.router.broker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SQLite connections for the crosswalk database: one writer and a fixed set of readers.
+ *
+ * <p>The database runs in WAL mode, so readers see the last committed state
+ * without waiting for the writer, and a lookup on one route never queues
+ * behind another route's inserts. Writes are serialized on the single writer
+ * connection, which is what SQLite does anyway, but in Java rather than by
+ * retrying on SQLITE_BUSY.</p>
+ *
+ * <p>Each connection keeps its prepared statements, keyed by SQL, so the hot
+ * lookup and store paths parse their SQL once per connection. Statements
+ * handed out by {@link PooledConnection#prepare} belong to the pool and must
+ * not be closed by the caller; result sets must be.</p>
+ */
+class CrosswalkConnectionPool implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(CrosswalkConnectionPool.class);
+
+    static final int DEFAULT_READERS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+    static final int BUSY_TIMEOUT_MS = 5000;
+
+    // Multi-row inserts produce one SQL string per batch size, so bound the cache
+    private static final int MAX_CACHED_STATEMENTS = 64;
+
+    private final String url;
+    private final int readers;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final BlockingQueue<PooledConnection> idleReaders = new LinkedBlockingQueue<>();
+    private PooledConnection writer;
+    private volatile boolean closed;
+
+    CrosswalkConnectionPool(String dbPath, int readers) {
+        this.url = "jdbc:sqlite:" + dbPath;
+        this.readers = Math.max(1, readers);
+    }
+
+    /**
+     * Open the writer, switch the database to WAL mode, then open the readers.
+     */
+    void open() throws SQLException {
+        writeLock.lock();
+        try {
+            openConnections();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void openConnections() throws SQLException {
+        writer = new PooledConnection(DriverManager.getConnection(url));
+        try (Statement stmt = writer.getConnection().createStatement()) {
+            stmt.execute("PRAGMA journal_mode=WAL");
+            stmt.execute("PRAGMA synchronous=NORMAL");
+            stmt.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MS);
+        }
+        for (int i = 0; i < readers; i++) {
+            PooledConnection reader = new PooledConnection(DriverManager.getConnection(url));
+            try (Statement stmt = reader.getConnection().createStatement()) {
+                stmt.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MS);
+                stmt.execute("PRAGMA query_only=1");
+            }
+            idleReaders.add(reader);
+        }
+    }
+
+    /**
+     * Run a query on an idle reader, waiting for one if all are busy.
+     */
+    <T> T read(SqlWork<T> work) throws SQLException {
+        PooledConnection reader = borrowReader();
+        try {
+            return work.run(reader);
+        } finally {
+            idleReaders.add(reader);
+        }
+    }
+
+    /**
+     * Run a statement on the writer in auto-commit mode.
+     */
+    <T> T write(SqlWork<T> work) throws SQLException {
+        lockWriter();
+        try {
+            return work.run(writer);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Run work on the writer in a single transaction, rolled back if it throws.
+     */
+    <T> T transaction(SqlWork<T> work) throws SQLException {
+        lockWriter();
+        try {
+            Connection connection = writer.getConnection();
+            connection.setAutoCommit(false);
+            try {
+                T result = work.run(writer);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Close every connection once in-flight work has finished, run {@code swap}
+     * (e.g. replace the database file), then open fresh connections. The
+     * connections are reopened even if {@code swap} fails.
+     */
+    void reopen(FileWork swap) throws SQLException, IOException {
+        lockWriter();
+        try {
+            List<PooledConnection> drained = drainReaders();
+            drained.forEach(PooledConnection::close);
+            writer.close();
+            try {
+                swap.run();
+            } finally {
+                openConnections();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            closed = true;
+            try {
+                drainReaders().forEach(PooledConnection::close);
+            } catch (SQLException e) {
+                log.warn("Closing crosswalk connections while readers are in use: {}", e.getMessage());
+                idleReaders.forEach(PooledConnection::close);
+            }
+            if (writer != null) {
+                writer.close();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    private void lockWriter() throws SQLException {
+        if (closed) {
+            throw new SQLException("Crosswalk database is closed");
+        }
+        writeLock.lock();
+        if (closed) {
+            writeLock.unlock();
+            throw new SQLException("Crosswalk database is closed");
+        }
+    }
+
+    private PooledConnection borrowReader() throws SQLException {
+        try {
+            PooledConnection reader;
+            while ((reader = idleReaders.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                if (closed) {
+                    throw new SQLException("Crosswalk database is closed");
+                }
+            }
+            return reader;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a crosswalk connection", e);
+        }
+    }
+
+    /**
+     * Take every reader out of the pool, waiting for borrowed ones to come back.
+     */
+    private List<PooledConnection> drainReaders() throws SQLException {
+        List<PooledConnection> drained = new ArrayList<>(readers);
+        try {
+            while (drained.size() < readers) {
+                PooledConnection reader = idleReaders.poll(BUSY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (reader == null) {
+                    idleReaders.addAll(drained);
+                    throw new SQLException("Timed out waiting for crosswalk readers to finish");
+                }
+                drained.add(reader);
+            }
+            return drained;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            idleReaders.addAll(drained);
+            throw new SQLException("Interrupted waiting for crosswalk readers", e);
+        }
+    }
+
+    /**
+     * Work run against one pooled connection.
+     */
+    @FunctionalInterface
+    interface SqlWork<T> {
+        T run(PooledConnection connection) throws SQLException;
+    }
+
+    /**
+     * File work run while every connection is closed.
+     */
+    @FunctionalInterface
+    interface FileWork {
+        void run() throws IOException;
+    }
+
+    /**
+     * A connection and its cached prepared statements. Only one thread uses it at a time.
+     */
+    static class PooledConnection {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                        if (size() > MAX_CACHED_STATEMENTS) {
+                            closeQuietly(eldest.getValue());
+                            return true;
+                        }
+                        return false;
+                    }
+                };
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Return the cached statement for {@code sql}, preparing it on first use.
+         */
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement stmt = statements.get(sql);
+            if (stmt == null) {
+                stmt = connection.prepareStatement(sql);
+                statements.put(sql, stmt);
+            } else {
+                stmt.clearParameters();
+            }
+            return stmt;
+        }
+
+        Connection getConnection() {
+            return connection;
+        }
+
+        int getCachedStatementCount() {
+            return statements.size();
+        }
+
+        void close() {
+            statements.values().forEach(PooledConnection::closeQuietly);
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.warn("Error closing crosswalk connection: {}", e.getMessage());
+            }
+        }
+
+        private static void closeQuietly(PreparedStatement stmt) {
+            try {
+                stmt.close();
+            } catch (SQLException ignored) {
+                // Connection is going away or the statement is already closed
+            }
+        }
+    }
+}
@@ -22,6 +22,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.Executors;
@@ -38,8 +39,13 @@ import java.util.concurrent.TimeUnit;
  * <ul>
  *   <li>crosswalk - main mapping table (id_in → id_out)</li>
  *   <li>crosswalk_log - audit log of all lookups/creates</li>
+ *   <li>crosswalk_suffix - highest collision suffix handed out per generated base ID</li>
  * </ul>
  * </p>
+ *
+ * <p>Connections come from a {@link CrosswalkConnectionPool}: lookups run on
+ * pooled WAL readers and never wait for another route's writes, while all
+ * writes go through the single writer connection.</p>
  */
 public class CrosswalkStore {
     private static final Logger log = LoggerFactory.getLogger(CrosswalkStore.class);
@@ -47,9 +53,13 @@ public class CrosswalkStore {
     private static final int DEFAULT_BACKUP_RETENTION_DAYS = 30;
     private static final int DEFAULT_MAX_BACKUPS = 10;
 
+    // Rows per multi-row INSERT; the log insert binds 10 parameters per row and
+    // older SQLite builds allow at most 999 per statement
+    private static final int MAX_ROWS_PER_INSERT = 90;
+
     private final String dbPath;
     private final String backupDirectory;
-    private Connection connection;
+    private final CrosswalkConnectionPool pool;
     private ScheduledExecutorService backupScheduler;
     private int backupRetentionDays = DEFAULT_BACKUP_RETENTION_DAYS;
     private int maxBackups = DEFAULT_MAX_BACKUPS;
@@ -67,6 +77,7 @@ public class CrosswalkStore {
     public CrosswalkStore(String dataDirectory) {
         this.dbPath = dataDirectory + File.separator + "crosswalk.db";
         this.backupDirectory = dataDirectory + File.separator + "backups";
+        this.pool = new CrosswalkConnectionPool(dbPath, CrosswalkConnectionPool.DEFAULT_READERS);
         initialize();
         startScheduledBackups();
     }
@@ -83,8 +94,8 @@ public class CrosswalkStore {
             // Load SQLite JDBC driver
             Class.forName("org.sqlite.JDBC");
 
-            connection = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
-            createTables();
+            pool.open();
+            pool.write(this::createTables);
             log.info("CrosswalkStore initialized at: {}", dbPath);
         } catch (Exception e) {
             log.error("Failed to initialize CrosswalkStore: {}", e.getMessage(), e);
@@ -92,8 +103,8 @@ public class CrosswalkStore {
         }
     }
 
-    private void createTables() throws SQLException {
-        try (Statement stmt = connection.createStatement()) {
+    private Void createTables(CrosswalkConnectionPool.PooledConnection conn) throws SQLException {
+        try (Statement stmt = conn.getConnection().createStatement()) {
             // Main crosswalk table
             stmt.execute(
                 "CREATE TABLE IF NOT EXISTS crosswalk (" +
@@ -117,6 +128,11 @@ public class CrosswalkStore {
                 "CREATE INDEX IF NOT EXISTS idx_crosswalk_reverse " +
                 "ON crosswalk(broker_name, id_out, id_type)");
 
+            // Case-insensitive reverse index for seeding the suffix allocator
+            stmt.execute(
+                "CREATE INDEX IF NOT EXISTS idx_crosswalk_reverse_nocase " +
+                "ON crosswalk(broker_name, id_out COLLATE NOCASE)");
+
             // Audit log table
             stmt.execute(
                 "CREATE TABLE IF NOT EXISTS crosswalk_log (" +
@@ -137,7 +153,17 @@ public class CrosswalkStore {
             stmt.execute(
                 "CREATE INDEX IF NOT EXISTS idx_crosswalk_log_time " +
                 "ON crosswalk_log(timestamp DESC)");
+
+            // Suffix allocator, keyed by the upper-cased base ID
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS crosswalk_suffix (" +
+                "    broker_name TEXT NOT NULL," +
+                "    base_id TEXT NOT NULL," +
+                "    max_suffix INTEGER NOT NULL," +
+                "    PRIMARY KEY(broker_name, base_id)" +
+                ") WITHOUT ROWID");
         }
+        return null;
     }
 
     /**
@@ -150,15 +176,17 @@ public class CrosswalkStore {
      */
     public String lookup(String brokerName, String idIn, String idType) {
         String sql = "SELECT id_out FROM crosswalk WHERE broker_name = ? AND id_in = ? AND id_type = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, brokerName);
-            stmt.setString(2, idIn);
-            stmt.setString(3, idType);
-
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getString("id_out");
-            }
+        try {
+            return pool.read(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setString(1, brokerName);
+                stmt.setString(2, idIn);
+                stmt.setString(3, idType);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? rs.getString("id_out") : null;
+                }
+            });
         } catch (SQLException e) {
             log.error("Failed to lookup crosswalk for broker={} idIn={}: {}", brokerName, idIn, e.getMessage(), e);
         }
@@ -175,15 +203,17 @@ public class CrosswalkStore {
      */
     public String reverseLookup(String brokerName, String idOut, String idType) {
         String sql = "SELECT id_in FROM crosswalk WHERE broker_name = ? AND id_out = ? AND id_type = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, brokerName);
-            stmt.setString(2, idOut);
-            stmt.setString(3, idType);
-
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getString("id_in");
-            }
+        try {
+            return pool.read(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setString(1, brokerName);
+                stmt.setString(2, idOut);
+                stmt.setString(3, idType);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? rs.getString("id_in") : null;
+                }
+            });
         } catch (SQLException e) {
             log.error("Failed to reverse lookup crosswalk for broker={} idOut={}: {}", brokerName, idOut, e.getMessage(), e);
         }
@@ -207,15 +237,17 @@ public class CrosswalkStore {
             "ON CONFLICT(broker_name, id_in, id_type) DO UPDATE SET " +
             "id_out = excluded.id_out, updated_at = excluded.updated_at";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, brokerName);
-            stmt.setString(2, idIn);
-            stmt.setString(3, idOut);
-            stmt.setString(4, idType);
-            stmt.setString(5, now);
-            stmt.setString(6, now);
-
-            stmt.executeUpdate();
+        try {
+            pool.write(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setString(1, brokerName);
+                stmt.setString(2, idIn);
+                stmt.setString(3, idOut);
+                stmt.setString(4, idType);
+                stmt.setString(5, now);
+                stmt.setString(6, now);
+                return stmt.executeUpdate();
+            });
             log.debug("Stored crosswalk mapping: broker={} {} {} -> {}", brokerName, idType, idIn, idOut);
             return true;
         } catch (SQLException e) {
@@ -224,6 +256,89 @@ public class CrosswalkStore {
         }
     }
 
+    /**
+     * Reserve the next collision suffix for a generated base ID.
+     *
+     * <p>Returns 0 the first time a base ID is seen and one more than the last
+     * value on each later call, so concurrent routes never get the same suffix.
+     * The first call for a base ID seeds the allocator from the IDs already
+     * issued under it in any case, found by a range scan on the case-insensitive
+     * reverse lookup index.</p>
+     *
+     * @param brokerName Name of the broker
+     * @param baseId Base ID, compared case-insensitively
+     * @return The reserved suffix
+     */
+    public int allocateSuffix(String brokerName, String baseId) {
+        String key = baseId.toUpperCase();
+        try {
+            return pool.transaction(conn -> {
+                Integer current = currentSuffix(conn, brokerName, key);
+                if (current == null) {
+                    current = maxIssuedSuffix(conn, brokerName, key);
+                }
+                int next = current + 1;
+
+                PreparedStatement stmt = conn.prepare(
+                        "INSERT INTO crosswalk_suffix (broker_name, base_id, max_suffix) VALUES (?, ?, ?) " +
+                        "ON CONFLICT(broker_name, base_id) DO UPDATE SET max_suffix = excluded.max_suffix");
+                stmt.setString(1, brokerName);
+                stmt.setString(2, key);
+                stmt.setInt(3, next);
+                stmt.executeUpdate();
+                return next;
+            });
+        } catch (SQLException e) {
+            log.error("Failed to allocate suffix for broker={} base={}: {}", brokerName, baseId, e.getMessage(), e);
+            throw new RuntimeException("Failed to allocate crosswalk suffix", e);
+        }
+    }
+
+    private Integer currentSuffix(CrosswalkConnectionPool.PooledConnection conn, String brokerName, String key)
+            throws SQLException {
+        PreparedStatement stmt = conn.prepare("SELECT max_suffix FROM crosswalk_suffix WHERE broker_name = ? AND base_id = ?");
+        stmt.setString(1, brokerName);
+        stmt.setString(2, key);
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : null;
+        }
+    }
+
+    /**
+     * Highest suffix among IDs already issued under a base ID in any case, or -1 if
+     * there are none. The base itself counts as suffix 0.
+     */
+    private int maxIssuedSuffix(CrosswalkConnectionPool.PooledConnection conn, String brokerName, String baseId)
+            throws SQLException {
+        // A single NOCASE range keeps this a search on idx_crosswalk_reverse_nocase; '.' sorts
+        // right after '-', so the range holds the base itself and every ID starting with "base-"
+        PreparedStatement stmt = conn.prepare(
+                "SELECT id_out FROM crosswalk WHERE broker_name = ? " +
+                "AND id_out >= ? COLLATE NOCASE AND id_out < ? COLLATE NOCASE");
+        stmt.setString(1, brokerName);
+        stmt.setString(2, baseId);
+        stmt.setString(3, baseId + ".");
+        int max = -1;
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                String idOut = rs.getString(1);
+                if (idOut.length() == baseId.length()) {
+                    max = Math.max(max, 0);
+                    continue;
+                }
+                if (idOut.charAt(baseId.length()) != '-') {
+                    continue;
+                }
+                try {
+                    max = Math.max(max, Integer.parseInt(idOut.substring(baseId.length() + 1)));
+                } catch (NumberFormatException ignored) {
+                    // Not a numeric suffix, ignore
+                }
+            }
+        }
+        return max;
+    }
+
     /**
      * Log a crosswalk operation for audit purposes.
      *
@@ -245,19 +360,21 @@ public class CrosswalkStore {
             "(broker_name, action, id_in, id_out, id_type, route_ae_title, destination, study_uid, details, timestamp) " +
             "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, brokerName);
-            stmt.setString(2, action);
-            stmt.setString(3, idIn);
-            stmt.setString(4, idOut);
-            stmt.setString(5, idType);
-            stmt.setString(6, routeAeTitle);
-            stmt.setString(7, destination);
-            stmt.setString(8, studyUid);
-            stmt.setString(9, details);
-            stmt.setString(10, Instant.now().toString());
-
-            stmt.executeUpdate();
+        try {
+            pool.write(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setString(1, brokerName);
+                stmt.setString(2, action);
+                stmt.setString(3, idIn);
+                stmt.setString(4, idOut);
+                stmt.setString(5, idType);
+                stmt.setString(6, routeAeTitle);
+                stmt.setString(7, destination);
+                stmt.setString(8, studyUid);
+                stmt.setString(9, details);
+                stmt.setString(10, Instant.now().toString());
+                return stmt.executeUpdate();
+            });
         } catch (SQLException e) {
             log.error("Failed to log crosswalk operation: {}", e.getMessage(), e);
         }
@@ -273,25 +390,29 @@ public class CrosswalkStore {
         List<CrosswalkLogEntry> entries = new ArrayList<>();
         String sql = "SELECT * FROM crosswalk_log ORDER BY timestamp DESC LIMIT ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setInt(1, limit);
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                CrosswalkLogEntry entry = new CrosswalkLogEntry();
-                entry.setId(rs.getLong("id"));
-                entry.setBrokerName(rs.getString("broker_name"));
-                entry.setAction(rs.getString("action"));
-                entry.setIdIn(rs.getString("id_in"));
-                entry.setIdOut(rs.getString("id_out"));
-                entry.setIdType(rs.getString("id_type"));
-                entry.setRouteAeTitle(rs.getString("route_ae_title"));
-                entry.setDestination(rs.getString("destination"));
-                entry.setStudyUid(rs.getString("study_uid"));
-                entry.setDetails(rs.getString("details"));
-                entry.setTimestamp(rs.getString("timestamp"));
-                entries.add(entry);
-            }
+        try {
+            pool.read(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setInt(1, limit);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        CrosswalkLogEntry entry = new CrosswalkLogEntry();
+                        entry.setId(rs.getLong("id"));
+                        entry.setBrokerName(rs.getString("broker_name"));
+                        entry.setAction(rs.getString("action"));
+                        entry.setIdIn(rs.getString("id_in"));
+                        entry.setIdOut(rs.getString("id_out"));
+                        entry.setIdType(rs.getString("id_type"));
+                        entry.setRouteAeTitle(rs.getString("route_ae_title"));
+                        entry.setDestination(rs.getString("destination"));
+                        entry.setStudyUid(rs.getString("study_uid"));
+                        entry.setDetails(rs.getString("details"));
+                        entry.setTimestamp(rs.getString("timestamp"));
+                        entries.add(entry);
+                    }
+                }
+                return entries;
+            });
         } catch (SQLException e) {
             log.error("Failed to get crosswalk logs: {}", e.getMessage(), e);
         }
@@ -309,21 +430,25 @@ public class CrosswalkStore {
         List<CrosswalkEntry> entries = new ArrayList<>();
         String sql = "SELECT * FROM crosswalk WHERE broker_name = ? ORDER BY created_at DESC";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, brokerName);
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                CrosswalkEntry entry = new CrosswalkEntry();
-                entry.setId(rs.getLong("id"));
-                entry.setBrokerName(rs.getString("broker_name"));
-                entry.setIdIn(rs.getString("id_in"));
-                entry.setIdOut(rs.getString("id_out"));
-                entry.setIdType(rs.getString("id_type"));
-                entry.setCreatedAt(rs.getString("created_at"));
-                entry.setUpdatedAt(rs.getString("updated_at"));
-                entries.add(entry);
-            }
+        try {
+            pool.read(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setString(1, brokerName);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        CrosswalkEntry entry = new CrosswalkEntry();
+                        entry.setId(rs.getLong("id"));
+                        entry.setBrokerName(rs.getString("broker_name"));
+                        entry.setIdIn(rs.getString("id_in"));
+                        entry.setIdOut(rs.getString("id_out"));
+                        entry.setIdType(rs.getString("id_type"));
+                        entry.setCreatedAt(rs.getString("created_at"));
+                        entry.setUpdatedAt(rs.getString("updated_at"));
+                        entries.add(entry);
+                    }
+                }
+                return entries;
+            });
         } catch (SQLException e) {
             log.error("Failed to get crosswalk mappings: {}", e.getMessage(), e);
         }
@@ -331,17 +456,59 @@ public class CrosswalkStore {
         return entries;
     }
 
+    /**
+     * Get the most recently updated mappings of one ID type for a broker.
+     *
+     * @param brokerName Name of the broker
+     * @param idType Type of ID
+     * @param limit Maximum number of mappings to return
+     * @return Mappings, most recently updated first
+     */
+    public List<CrosswalkEntry> getRecentMappings(String brokerName, String idType, int limit) {
+        List<CrosswalkEntry> entries = new ArrayList<>();
+        String sql = "SELECT * FROM crosswalk WHERE broker_name = ? AND id_type = ? ORDER BY updated_at DESC LIMIT ?";
+
+        try {
+            pool.read(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setString(1, brokerName);
+                stmt.setString(2, idType);
+                stmt.setInt(3, limit);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        CrosswalkEntry entry = new CrosswalkEntry();
+                        entry.setId(rs.getLong("id"));
+                        entry.setBrokerName(rs.getString("broker_name"));
+                        entry.setIdIn(rs.getString("id_in"));
+                        entry.setIdOut(rs.getString("id_out"));
+                        entry.setIdType(rs.getString("id_type"));
+                        entry.setCreatedAt(rs.getString("created_at"));
+                        entry.setUpdatedAt(rs.getString("updated_at"));
+                        entries.add(entry);
+                    }
+                }
+                return entries;
+            });
+        } catch (SQLException e) {
+            log.error("Failed to get recent crosswalk mappings: {}", e.getMessage(), e);
+        }
+
+        return entries;
+    }
+
     /**
      * Get count of mappings for a broker.
      */
     public int getMappingCount(String brokerName) {
         String sql = "SELECT COUNT(*) FROM crosswalk WHERE broker_name = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, brokerName);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
+        try {
+            return pool.read(conn -> {
+                PreparedStatement stmt = conn.prepare(sql);
+                stmt.setString(1, brokerName);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            });
         } catch (SQLException e) {
             log.error("Failed to get mapping count: {}", e.getMessage(), e);
         }
@@ -427,6 +594,83 @@ public class CrosswalkStore {
         return success;
     }
 
+    /**
+     * Store a batch of UID mappings in one transaction, using multi-row inserts
+     * for both the mappings and their audit log entries.
+     *
+     * @param brokerName Name of the broker
+     * @param mappings UID mappings to store
+     * @return true if the whole batch was stored; on failure none of it is
+     */
+    public boolean storeUidMappings(String brokerName, List<UidMapping> mappings) {
+        if (mappings.isEmpty()) {
+            return true;
+        }
+
+        String now = Instant.now().toString();
+        try {
+            pool.transaction(conn -> {
+                for (int start = 0; start < mappings.size(); start += MAX_ROWS_PER_INSERT) {
+                    List<UidMapping> rows = mappings.subList(start,
+                            Math.min(start + MAX_ROWS_PER_INSERT, mappings.size()));
+                    insertUidMappingRows(conn, brokerName, rows, now);
+                    insertUidLogRows(conn, brokerName, rows, now);
+                }
+                return null;
+            });
+            log.debug("Stored {} UID mappings for broker {}", mappings.size(), brokerName);
+            return true;
+        } catch (SQLException e) {
+            log.error("Failed to store {} UID mappings: {}", mappings.size(), e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private void insertUidMappingRows(CrosswalkConnectionPool.PooledConnection conn, String brokerName,
+                                      List<UidMapping> rows, String now) throws SQLException {
+        String sql =
+            "INSERT INTO crosswalk (broker_name, id_in, id_out, id_type, created_at, updated_at) " +
+            "VALUES " + String.join(", ", Collections.nCopies(rows.size(), "(?, ?, ?, ?, ?, ?)")) + " " +
+            "ON CONFLICT(broker_name, id_in, id_type) DO UPDATE SET " +
+            "id_out = excluded.id_out, updated_at = excluded.updated_at";
+
+        PreparedStatement stmt = conn.prepare(sql);
+        int i = 1;
+        for (UidMapping row : rows) {
+            stmt.setString(i++, brokerName);
+            stmt.setString(i++, row.getOriginalUid());
+            stmt.setString(i++, row.getHashedUid());
+            stmt.setString(i++, row.getUidType());
+            stmt.setString(i++, now);
+            stmt.setString(i++, now);
+        }
+        stmt.executeUpdate();
+    }
+
+    private void insertUidLogRows(CrosswalkConnectionPool.PooledConnection conn, String brokerName,
+                                  List<UidMapping> rows, String now) throws SQLException {
+        String sql =
+            "INSERT INTO crosswalk_log " +
+            "(broker_name, action, id_in, id_out, id_type, route_ae_title, destination, study_uid, details, timestamp) " +
+            "VALUES " + String.join(", ", Collections.nCopies(rows.size(), "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"));
+
+        PreparedStatement stmt = conn.prepare(sql);
+        int i = 1;
+        for (UidMapping row : rows) {
+            stmt.setString(i++, brokerName);
+            stmt.setString(i++, "uid_hash");
+            stmt.setString(i++, row.getOriginalUid());
+            stmt.setString(i++, row.getHashedUid());
+            stmt.setString(i++, row.getUidType());
+            stmt.setString(i++, null);
+            stmt.setString(i++, null);
+            stmt.setString(i++, null);
+            stmt.setString(i++, null);
+            stmt.setString(i++, now);
+        }
+        stmt.executeUpdate();
+    }
+
     /**
      * Lookup a hashed UID from the original UID.
      *
@@ -502,13 +746,19 @@ public class CrosswalkStore {
             String backupFilename = "crosswalk_" + timestamp + ".db";
             Path backupPath = backupDir.resolve(backupFilename);
 
-            // Force SQLite to checkpoint WAL to main database file
-            try (Statement stmt = connection.createStatement()) {
-                stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
-            }
-
-            // Copy database file
-            Files.copy(Paths.get(dbPath), backupPath, StandardCopyOption.REPLACE_EXISTING);
+            // Checkpoint the WAL into the main database file and copy it while
+            // holding the writer, so no commit lands between the two
+            pool.write(conn -> {
+                try (Statement stmt = conn.getConnection().createStatement()) {
+                    stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+                }
+                try {
+                    Files.copy(Paths.get(dbPath), backupPath, StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    throw new SQLException("Failed to copy crosswalk database", e);
+                }
+                return null;
+            });
 
             // Get file size
             long sizeBytes = Files.size(backupPath);
@@ -600,29 +850,17 @@ public class CrosswalkStore {
             // Create a pre-restore backup first
             createBackup("pre-restore");
 
-            // Close current connection
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-            }
-
-            // Copy backup over current database
-            Files.copy(backupPath, Paths.get(dbPath), StandardCopyOption.REPLACE_EXISTING);
+            // Close every connection once in-flight work is done, copy the backup
+            // over the current database and reconnect (also if the copy fails)
+            pool.reopen(() -> Files.copy(backupPath, Paths.get(dbPath), StandardCopyOption.REPLACE_EXISTING));
 
-            // Reconnect
-            connection = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
+            // Backups taken before a table was added lack it
+            pool.write(this::createTables);
 
             log.info("Successfully restored crosswalk database from: {}", backupFilename);
             return true;
         } catch (Exception e) {
             log.error("Failed to restore from backup {}: {}", backupFilename, e.getMessage(), e);
-
-            // Try to reconnect to existing database
-            try {
-                connection = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
-            } catch (SQLException ex) {
-                log.error("Failed to reconnect after restore failure: {}", ex.getMessage(), ex);
-            }
-
             return false;
         }
     }
@@ -698,11 +936,12 @@ public class CrosswalkStore {
      */
     public int getTotalMappingCount() {
         String sql = "SELECT COUNT(*) FROM crosswalk";
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
+        try {
+            return pool.read(conn -> {
+                try (ResultSet rs = conn.prepare(sql).executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            });
         } catch (SQLException e) {
             log.error("Failed to get total mapping count: {}", e.getMessage(), e);
         }
@@ -714,11 +953,12 @@ public class CrosswalkStore {
      */
     public int getTotalLogCount() {
         String sql = "SELECT COUNT(*) FROM crosswalk_log";
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
+        try {
+            return pool.read(conn -> {
+                try (ResultSet rs = conn.prepare(sql).executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            });
         } catch (SQLException e) {
             log.error("Failed to get total log count: {}", e.getMessage(), e);
         }
@@ -735,17 +975,22 @@ public class CrosswalkStore {
         csv.append("id,broker_name,id_in,id_out,id_type,created_at,updated_at\n");
 
         String sql = "SELECT * FROM crosswalk ORDER BY created_at DESC";
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                csv.append(rs.getLong("id")).append(",");
-                csv.append(escapeCsv(rs.getString("broker_name"))).append(",");
-                csv.append(escapeCsv(rs.getString("id_in"))).append(",");
-                csv.append(escapeCsv(rs.getString("id_out"))).append(",");
-                csv.append(escapeCsv(rs.getString("id_type"))).append(",");
-                csv.append(rs.getString("created_at")).append(",");
-                csv.append(rs.getString("updated_at")).append("\n");
-            }
+        try {
+            pool.read(conn -> {
+                try (Statement stmt = conn.getConnection().createStatement();
+                     ResultSet rs = stmt.executeQuery(sql)) {
+                    while (rs.next()) {
+                        csv.append(rs.getLong("id")).append(",");
+                        csv.append(escapeCsv(rs.getString("broker_name"))).append(",");
+                        csv.append(escapeCsv(rs.getString("id_in"))).append(",");
+                        csv.append(escapeCsv(rs.getString("id_out"))).append(",");
+                        csv.append(escapeCsv(rs.getString("id_type"))).append(",");
+                        csv.append(rs.getString("created_at")).append(",");
+                        csv.append(rs.getString("updated_at")).append("\n");
+                    }
+                }
+                return csv;
+            });
         } catch (SQLException e) {
             log.error("Failed to export crosswalk to CSV: {}", e.getMessage(), e);
         }
@@ -790,7 +1035,7 @@ public class CrosswalkStore {
     }
 
     /**
-     * Close the database connection.
+     * Close the database connections.
      */
     public void close() {
         // Stop scheduled backups
@@ -803,13 +1048,9 @@ public class CrosswalkStore {
             }
         }
 
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                log.info("CrosswalkStore closed");
-            }
-        } catch (SQLException e) {
-            log.error("Error closing CrosswalkStore: {}", e.getMessage(), e);
+        if (!pool.isClosed()) {
+            pool.close();
+            log.info("CrosswalkStore closed");
         }
     }
 
@@ -817,6 +1058,25 @@ public class CrosswalkStore {
     // Data Classes
     // ========================================================================
 
+    /**
+     * An original UID and the UID it was hashed to.
+     */
+    public static class UidMapping {
+        private final String originalUid;
+        private final String hashedUid;
+        private final String uidType;
+
+        public UidMapping(String originalUid, String hashedUid, String uidType) {
+            this.originalUid = originalUid;
+            this.hashedUid = hashedUid;
+            this.uidType = uidType;
+        }
+
+        public String getOriginalUid() { return originalUid; }
+        public String getHashedUid() { return hashedUid; }
+        public String getUidType() { return uidType; }
+    }
+
     public static class CrosswalkEntry {
         private long id;
         private String brokerName;
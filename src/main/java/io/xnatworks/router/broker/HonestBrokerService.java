@@ -18,7 +18,13 @@ import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -37,7 +43,9 @@ import java.util.concurrent.ConcurrentHashMap;
  *
  * <p>Features:
  * <ul>
- *   <li>Optional caching of lookup results to reduce API calls</li>
+ *   <li>Optional bounded caching of lookup results, including "not found", to reduce API calls</li>
+ *   <li>Remote lookups coalesced per broker, deduplicated while in flight, and sent in batches
+ *       where the broker supports it</li>
  *   <li>Support for multiple broker configurations</li>
  *   <li>Persistent crosswalk storage for audit trail</li>
  * </ul>
@@ -52,18 +60,29 @@ public class HonestBrokerService {
     // Cache for JWT tokens (broker name -> token)
     private final Map<String, TokenCache> tokenCache = new ConcurrentHashMap<>();
 
+    // Serializes STS logins per broker so concurrent lookups share one token
+    private final Map<String, Object> authLocks = new ConcurrentHashMap<>();
+
     // Cache for lookup results (broker name + idIn -> idOut)
     private final Map<String, LookupCache> lookupCaches = new ConcurrentHashMap<>();
 
+    // Coalesces remote lookups (broker name -> batcher)
+    private final Map<String, RemoteLookupBatcher> remoteBatchers = new ConcurrentHashMap<>();
+
     // Local broker instances (broker name -> LocalHonestBroker)
     private final Map<String, LocalHonestBroker> localBrokers = new ConcurrentHashMap<>();
 
     // Crosswalk store for persistent mapping storage
     private final CrosswalkStore crosswalkStore;
 
+    // Batches UID mappings reported by the anonymizer into the crosswalk
+    private final UidMappingWriter uidMappingWriter;
+
     public HonestBrokerService(AppConfig config) {
         this.config = config;
         this.crosswalkStore = new CrosswalkStore(config.getDataDirectory());
+        this.uidMappingWriter = new UidMappingWriter(crosswalkStore,
+                UidMappingWriter.DEFAULT_BATCH_SIZE, UidMappingWriter.DEFAULT_FLUSH_INTERVAL_MS);
         log.info("HonestBrokerService initialized with {} configured brokers",
                 config.getHonestBrokers() != null ? config.getHonestBrokers().size() : 0);
     }
@@ -113,11 +132,12 @@ public class HonestBrokerService {
         }
 
         // Check cache first
-        if (brokerConfig.isCacheEnabled()) {
-            String cached = getCachedLookup(brokerName, idIn);
+        LookupCache cache = brokerConfig.isCacheEnabled() ? getLookupCache(brokerName, brokerConfig) : null;
+        if (cache != null) {
+            LookupCache.Entry cached = cache.get(idIn);
             if (cached != null) {
-                log.debug("Cache hit for broker {} idIn {}", brokerName, idIn);
-                return cached;
+                log.debug("Cache hit for broker {} idIn {}{}", brokerName, idIn, cached.isNegative() ? " (not found)" : "");
+                return cached.getValue();
             }
         }
 
@@ -129,20 +149,68 @@ public class HonestBrokerService {
             LocalHonestBroker localBroker = getLocalBroker(brokerName, brokerConfig);
             result = localBroker.lookup(idIn, "patient_id");
         } else if ("remote".equalsIgnoreCase(brokerType)) {
-            result = remoteLookup(brokerName, brokerConfig, idIn);
+            result = lookupRemote(brokerName, brokerConfig, idIn, cache).join();
         } else {
             log.error("Unknown broker type: {} for broker {}", brokerType, brokerName);
             return null;
         }
 
         // Cache result
-        if (result != null && brokerConfig.isCacheEnabled()) {
-            cacheLookup(brokerName, idIn, result, brokerConfig.getCacheTtlSeconds());
+        if (result != null && cache != null) {
+            cache.put(idIn, result);
         }
 
         return result;
     }
 
+    /**
+     * Look up the de-identified IDs for several input IDs at once.
+     *
+     * <p>For a remote broker the uncached IDs are sent together rather than
+     * one request per ID; see {@link HonestBrokerConfig#isBatchLookupEnabled()}.</p>
+     *
+     * @param brokerName The name of the broker configuration to use
+     * @param idsIn The original IDs (e.g., PatientIDs)
+     * @return Map of original ID to de-identified ID; IDs whose lookup found nothing or failed are absent
+     */
+    public Map<String, String> lookupAll(String brokerName, Collection<String> idsIn) {
+        Map<String, String> results = new LinkedHashMap<>();
+        HonestBrokerConfig brokerConfig = config.getHonestBroker(brokerName);
+        if (brokerConfig == null || !brokerConfig.isEnabled()
+                || !"remote".equalsIgnoreCase(brokerConfig.getBrokerType())) {
+            for (String idIn : new LinkedHashSet<>(idsIn)) {
+                String idOut = lookup(brokerName, idIn);
+                if (idOut != null) {
+                    results.put(idIn, idOut);
+                }
+            }
+            return results;
+        }
+
+        LookupCache cache = brokerConfig.isCacheEnabled() ? getLookupCache(brokerName, brokerConfig) : null;
+        Map<String, CompletableFuture<String>> pending = new LinkedHashMap<>();
+        for (String idIn : new LinkedHashSet<>(idsIn)) {
+            LookupCache.Entry cached = cache != null ? cache.get(idIn) : null;
+            if (cached == null) {
+                pending.put(idIn, lookupRemote(brokerName, brokerConfig, idIn, cache));
+            } else if (!cached.isNegative()) {
+                results.put(idIn, cached.getValue());
+            }
+        }
+        log.debug("[HonestBroker:{}] Bulk lookup of {} IDs, {} not cached", brokerName, idsIn.size(), pending.size());
+
+        pending.forEach((idIn, future) -> {
+            String idOut = future.join();
+            if (idOut != null) {
+                results.put(idIn, idOut);
+                if (cache != null) {
+                    cache.put(idIn, idOut);
+                }
+            }
+        });
+        return results;
+    }
+
     /**
      * Reverse lookup - get original ID from de-identified ID.
      *
@@ -211,6 +279,10 @@ public class HonestBrokerService {
     public void clearCache(String brokerName) {
         tokenCache.remove(brokerName);
         lookupCaches.remove(brokerName);
+        RemoteLookupBatcher batcher = remoteBatchers.remove(brokerName);
+        if (batcher != null) {
+            batcher.close();
+        }
         log.info("Cleared cache for broker: {}", brokerName);
     }
 
@@ -220,9 +292,63 @@ public class HonestBrokerService {
     public void clearAllCaches() {
         tokenCache.clear();
         lookupCaches.clear();
+        closeRemoteBatchers();
         log.info("Cleared all broker caches");
     }
 
+    /**
+     * Get lookup cache counters for a broker.
+     *
+     * @return The stats, or null if the broker's cache has not been used since it was last cleared
+     */
+    public LookupCache.Stats getCacheStats(String brokerName) {
+        LookupCache cache = lookupCaches.get(brokerName);
+        return cache != null ? cache.getStats() : null;
+    }
+
+    /**
+     * Get lookup cache counters for every broker whose cache is in use.
+     */
+    public Map<String, LookupCache.Stats> getCacheStats() {
+        Map<String, LookupCache.Stats> stats = new LinkedHashMap<>();
+        lookupCaches.forEach((name, cache) -> stats.put(name, cache.getStats()));
+        return stats;
+    }
+
+    /**
+     * Preload the lookup cache of each local broker with {@code cache_warm_up} set
+     * from its most recently updated crosswalk mappings, up to the cache size.
+     *
+     * @return Number of mappings loaded across all brokers
+     */
+    public int warmUpCaches() {
+        Map<String, HonestBrokerConfig> brokers = config.getHonestBrokers();
+        if (brokers == null) {
+            return 0;
+        }
+
+        int loaded = 0;
+        for (Map.Entry<String, HonestBrokerConfig> entry : brokers.entrySet()) {
+            String brokerName = entry.getKey();
+            HonestBrokerConfig brokerConfig = entry.getValue();
+            if (!brokerConfig.isEnabled() || !brokerConfig.isCacheEnabled() || !brokerConfig.isCacheWarmUp()
+                    || !"local".equalsIgnoreCase(brokerConfig.getBrokerType())) {
+                continue;
+            }
+
+            LookupCache cache = getLookupCache(brokerName, brokerConfig);
+            List<CrosswalkStore.CrosswalkEntry> mappings = crosswalkStore.getRecentMappings(
+                    brokerName, CrosswalkStore.ID_TYPE_PATIENT_ID, brokerConfig.getCacheMaxSize());
+            // Oldest first, so the most recent mappings end up most recently used
+            for (int i = mappings.size() - 1; i >= 0; i--) {
+                cache.put(mappings.get(i).getIdIn(), mappings.get(i).getIdOut());
+            }
+            loaded += mappings.size();
+            log.info("Warmed up lookup cache for broker {} with {} mappings", brokerName, mappings.size());
+        }
+        return loaded;
+    }
+
     // ========================================================================
     // Date Shift and UID Hash Methods
     // ========================================================================
@@ -264,6 +390,44 @@ public class HonestBrokerService {
         return localBroker.storeUidMapping(originalUid, hashedUid, uidType);
     }
 
+    /**
+     * Queue a UID mapping to be stored with the next batch, if UID hashing is enabled.
+     * Use this from the anonymizer; call {@link #flushUidMappings(String)} before relying on
+     * the crosswalk containing the mapping.
+     *
+     * @param brokerName Name of the broker
+     * @param originalUid Original UID
+     * @param hashedUid Hashed/anonymized UID
+     * @param uidType Type of UID (study_uid, series_uid, sop_uid)
+     */
+    public void enqueueUidMapping(String brokerName, String originalUid, String hashedUid, String uidType) {
+        HonestBrokerConfig brokerConfig = config.getHonestBroker(brokerName);
+        if (brokerConfig == null || !"local".equalsIgnoreCase(brokerConfig.getBrokerType())
+                || !brokerConfig.isHashUidsEnabled()) {
+            return; // Not a local broker storing UID hashes, nothing to store
+        }
+        uidMappingWriter.enqueue(brokerName, originalUid, hashedUid, uidType);
+    }
+
+    /**
+     * Write a broker's queued UID mappings to the crosswalk. Other brokers'
+     * mappings are left to the background writer.
+     *
+     * @param brokerName Name of the broker
+     * @return true if all of them were stored
+     */
+    public boolean flushUidMappings(String brokerName) {
+        return uidMappingWriter.flush(brokerName);
+    }
+
+    /**
+     * Finish in-flight remote lookups, write any queued UID mappings and stop the background threads.
+     */
+    public void close() {
+        closeRemoteBatchers();
+        uidMappingWriter.close();
+    }
+
     /**
      * Check if date shifting is enabled for a broker.
      */
@@ -315,6 +479,17 @@ public class HonestBrokerService {
             return cached.token;
         }
 
+        // Parallel lookups can all find the token expired; only one of them logs in
+        synchronized (authLocks.computeIfAbsent(brokerName, k -> new Object())) {
+            cached = tokenCache.get(brokerName);
+            if (cached != null && !cached.isExpired()) {
+                return cached.token;
+            }
+            return requestToken(brokerName, brokerConfig);
+        }
+    }
+
+    private String requestToken(String brokerName, HonestBrokerConfig brokerConfig) {
         String stsUrl = "https://" + brokerConfig.getStsHost() + "/token";
         log.info("[HonestBroker:{}] Authenticating with STS at {}", brokerName, stsUrl);
 
@@ -357,15 +532,35 @@ public class HonestBrokerService {
     }
 
     /**
-     * Perform lookup using remote DeIdentification API.
+     * Queue a lookup with the broker's batcher. The future completes with null,
+     * never exceptionally, if the lookup failed; a definite "not found" is cached.
      */
-    private String remoteLookup(String brokerName, HonestBrokerConfig brokerConfig, String idIn) {
+    private CompletableFuture<String> lookupRemote(String brokerName, HonestBrokerConfig brokerConfig,
+                                                   String idIn, LookupCache cache) {
         log.info("[HonestBroker:{}] Remote lookup requested for idIn={}", brokerName, idIn);
+        return getRemoteBatcher(brokerName, brokerConfig).lookup(idIn).handle((idOut, error) -> {
+            if (error != null) {
+                log.error("[HonestBroker:{}] Lookup FAILED for idIn={}: {}", brokerName, idIn, error.getMessage(), error);
+                return null;
+            }
+            // Only a definite "not found" is cached; failures are retried on the next lookup
+            if (idOut == null && cache != null) {
+                cache.putNotFound(idIn);
+            }
+            return idOut;
+        });
+    }
 
+    /**
+     * Perform lookup using remote DeIdentification API.
+     *
+     * @return The de-identified ID, or null if the broker has no mapping
+     * @throws IOException if authentication or the request failed
+     */
+    private String fetchRemote(String brokerName, HonestBrokerConfig brokerConfig, String idIn) throws IOException {
         String token = authenticate(brokerName, brokerConfig);
         if (token == null) {
-            log.error("[HonestBroker:{}] Cannot lookup - authentication failed", brokerName);
-            return null;
+            throw new IOException("Cannot lookup - authentication failed");
         }
 
         String apiUrl = String.format("https://%s/DeIdentification/lookup?idIn=%s",
@@ -373,31 +568,66 @@ public class HonestBrokerService {
         log.debug("[HonestBroker:{}] Calling API: GET {}", brokerName, apiUrl);
 
         long startTime = System.currentTimeMillis();
-        try {
-            String response = doGet(apiUrl, "Bearer " + token, brokerConfig.getTimeout());
-            long duration = System.currentTimeMillis() - startTime;
+        String response = doGet(apiUrl, "Bearer " + token, brokerConfig.getTimeout());
+        long duration = System.currentTimeMillis() - startTime;
 
-            if (response != null) {
-                log.debug("[HonestBroker:{}] API response ({}ms): {}", brokerName, duration,
-                        response.length() > 200 ? response.substring(0, 200) + "..." : response);
+        if (response == null) {
+            log.warn("[HonestBroker:{}] Lookup returned null response ({}ms): idIn={}", brokerName, duration, idIn);
+            throw new IOException("Lookup returned null response");
+        }
+        log.debug("[HonestBroker:{}] API response ({}ms): {}", brokerName, duration,
+                response.length() > 200 ? response.substring(0, 200) + "..." : response);
 
-                // Parse response - expecting array of lookup results
-                LookupResult[] results = objectMapper.readValue(response, LookupResult[].class);
-                if (results != null && results.length > 0) {
-                    String idOut = results[0].getIdOut();
-                    log.info("[HonestBroker:{}] Lookup SUCCESS ({}ms): idIn={} -> idOut={}", brokerName, duration, idIn, idOut);
-                    return idOut;
-                } else {
-                    log.warn("[HonestBroker:{}] Lookup returned empty results ({}ms): idIn={}", brokerName, duration, idIn);
+        // Parse response - expecting array of lookup results
+        LookupResult[] results = objectMapper.readValue(response, LookupResult[].class);
+        if (results != null && results.length > 0) {
+            String idOut = results[0].getIdOut();
+            log.info("[HonestBroker:{}] Lookup SUCCESS ({}ms): idIn={} -> idOut={}", brokerName, duration, idIn, idOut);
+            return idOut;
+        }
+        log.warn("[HonestBroker:{}] Lookup returned empty results ({}ms): idIn={}", brokerName, duration, idIn);
+        return null;
+    }
+
+    /**
+     * Perform several lookups in one request: POST a JSON array of
+     * {@code {"idIn": ...}} objects to the DeIdentification lookup endpoint,
+     * which answers with the same array of lookup results as a single lookup.
+     *
+     * @return Map of original ID to de-identified ID for the IDs the broker has a mapping for
+     * @throws IOException if authentication or the request failed
+     */
+    private Map<String, String> fetchRemoteBatch(String brokerName, HonestBrokerConfig brokerConfig,
+                                                 List<String> idsIn) throws IOException {
+        String token = authenticate(brokerName, brokerConfig);
+        if (token == null) {
+            throw new IOException("Cannot lookup - authentication failed");
+        }
+
+        List<Map<String, String>> request = new ArrayList<>(idsIn.size());
+        for (String idIn : idsIn) {
+            request.add(Map.of("idIn", idIn));
+        }
+        String apiUrl = String.format("https://%s/DeIdentification/lookup", brokerConfig.getApiHost());
+        log.debug("[HonestBroker:{}] Calling API: POST {} ({} IDs)", brokerName, apiUrl, idsIn.size());
+
+        long startTime = System.currentTimeMillis();
+        String response = doPost(apiUrl, objectMapper.writeValueAsString(request), "Bearer " + token,
+                brokerConfig.getTimeout());
+        long duration = System.currentTimeMillis() - startTime;
+
+        Map<String, String> mappings = new LinkedHashMap<>();
+        LookupResult[] results = objectMapper.readValue(response, LookupResult[].class);
+        if (results != null) {
+            for (LookupResult result : results) {
+                if (result.getIdIn() != null && result.getIdOut() != null) {
+                    mappings.put(result.getIdIn(), result.getIdOut());
                 }
-            } else {
-                log.warn("[HonestBroker:{}] Lookup returned null response ({}ms): idIn={}", brokerName, duration, idIn);
             }
-        } catch (Exception e) {
-            long duration = System.currentTimeMillis() - startTime;
-            log.error("[HonestBroker:{}] Lookup FAILED ({}ms) for idIn={}: {}", brokerName, duration, idIn, e.getMessage(), e);
         }
-        return null;
+        log.info("[HonestBroker:{}] Batch lookup SUCCESS ({}ms): {} of {} IDs mapped",
+                brokerName, duration, mappings.size(), idsIn.size());
+        return mappings;
     }
 
     /**
@@ -510,21 +740,25 @@ public class HonestBrokerService {
     // Caching
     // ========================================================================
 
-    private String getCachedLookup(String brokerName, String idIn) {
-        LookupCache cache = lookupCaches.get(brokerName);
-        if (cache == null) {
-            return null;
-        }
-        return cache.get(idIn);
+    private LookupCache getLookupCache(String brokerName, HonestBrokerConfig brokerConfig) {
+        return lookupCaches.computeIfAbsent(brokerName, k -> new LookupCache(brokerConfig.getCacheMaxSize(),
+                brokerConfig.getCacheTtlSeconds() * 1000L, brokerConfig.getCacheNegativeTtlSeconds() * 1000L));
     }
 
-    private void cacheLookup(String brokerName, String idIn, String idOut, int ttlSeconds) {
-        HonestBrokerConfig brokerConfig = config.getHonestBroker(brokerName);
-        int maxSize = brokerConfig != null ? brokerConfig.getCacheMaxSize() : 10000;
+    private RemoteLookupBatcher getRemoteBatcher(String brokerName, HonestBrokerConfig brokerConfig) {
+        return remoteBatchers.computeIfAbsent(brokerName, k -> new RemoteLookupBatcher(brokerName,
+                brokerConfig.getBatchWindowMs(), brokerConfig.getBatchMaxSize(), brokerConfig.getLookupConcurrency(),
+                idIn -> fetchRemote(brokerName, brokerConfig, idIn),
+                brokerConfig.isBatchLookupEnabled() ? idsIn -> fetchRemoteBatch(brokerName, brokerConfig, idsIn) : null));
+    }
 
-        LookupCache cache = lookupCaches.computeIfAbsent(brokerName,
-                k -> new LookupCache(maxSize, ttlSeconds * 1000L));
-        cache.put(idIn, idOut);
+    private void closeRemoteBatchers() {
+        for (String brokerName : new ArrayList<>(remoteBatchers.keySet())) {
+            RemoteLookupBatcher batcher = remoteBatchers.remove(brokerName);
+            if (batcher != null) {
+                batcher.close();
+            }
+        }
     }
 
     // ========================================================================
@@ -548,64 +782,6 @@ public class HonestBrokerService {
         }
     }
 
-    /**
-     * Simple LRU-style lookup cache with TTL.
-     */
-    private static class LookupCache {
-        private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
-        private final int maxSize;
-        private final long defaultTtl;
-
-        LookupCache(int maxSize, long defaultTtl) {
-            this.maxSize = maxSize;
-            this.defaultTtl = defaultTtl;
-        }
-
-        String get(String key) {
-            CacheEntry entry = cache.get(key);
-            if (entry == null) {
-                return null;
-            }
-            if (entry.isExpired()) {
-                cache.remove(key);
-                return null;
-            }
-            return entry.value;
-        }
-
-        void put(String key, String value) {
-            // Simple size management - clear old entries if over limit
-            if (cache.size() >= maxSize) {
-                // Remove expired entries first
-                cache.entrySet().removeIf(e -> e.getValue().isExpired());
-
-                // If still over, remove oldest entries (approximation)
-                if (cache.size() >= maxSize) {
-                    int toRemove = cache.size() - maxSize + 100;
-                    cache.entrySet().stream()
-                            .limit(toRemove)
-                            .map(Map.Entry::getKey)
-                            .forEach(cache::remove);
-                }
-            }
-            cache.put(key, new CacheEntry(value, System.currentTimeMillis() + defaultTtl));
-        }
-
-        private static class CacheEntry {
-            final String value;
-            final long expiresAt;
-
-            CacheEntry(String value, long expiresAt) {
-                this.value = value;
-                this.expiresAt = expiresAt;
-            }
-
-            boolean isExpired() {
-                return System.currentTimeMillis() >= expiresAt;
-            }
-        }
-    }
-
     /**
      * Lookup result from remote honest broker API.
      * Uses @JsonIgnoreProperties to handle unknown fields from different API versions.
@@ -399,26 +399,7 @@ public class LocalHonestBroker {
      * Get the next available suffix for a base ID to ensure uniqueness.
      */
     private int getNextSuffix(String baseId) {
-        // Check if baseId alone is available
-        List<CrosswalkStore.CrosswalkEntry> mappings = crosswalkStore.getMappings(brokerName);
-
-        int maxSuffix = -1;
-        for (CrosswalkStore.CrosswalkEntry entry : mappings) {
-            String existingOut = entry.getIdOut();
-            if (existingOut.equalsIgnoreCase(baseId)) {
-                maxSuffix = Math.max(maxSuffix, 0);
-            } else if (existingOut.toUpperCase().startsWith(baseId.toUpperCase() + "-")) {
-                String suffixStr = existingOut.substring(baseId.length() + 1);
-                try {
-                    int suffix = Integer.parseInt(suffixStr);
-                    maxSuffix = Math.max(maxSuffix, suffix);
-                } catch (NumberFormatException ignored) {
-                    // Not a numeric suffix, ignore
-                }
-            }
-        }
-
-        return maxSuffix + 1;
+        return crosswalkStore.allocateSuffix(brokerName, baseId);
     }
 
     /**
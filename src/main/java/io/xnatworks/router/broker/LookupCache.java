@@ -0,0 +1,281 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ *
+ * This software is distributed under the terms described in the LICENSE file.
+ */
+package io.xnatworks.router.broker;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, concurrent cache of honest broker lookups with per-entry expiry.
+ *
+ * <p>Eviction is segmented LRU. New entries start in a probation segment
+ * (a fifth of the capacity) and move to the protected segment on their
+ * second hit; the least recently used protected entry drops back to
+ * probation, and entries leave the cache only from the probation tail. A
+ * burst of one-off patients therefore evicts other one-off patients, not the
+ * subjects that are looked up over and over while a study streams in.</p>
+ *
+ * <p>A lookup that found nothing can be cached as a negative entry with its
+ * own, shorter TTL, so a missing subject is not asked for again on every
+ * instance. Keys are spread over independently locked shards so lookups on
+ * different routes rarely contend.</p>
+ */
+public class LookupCache {
+
+    // Shards are only worth having when each still holds a useful number of entries
+    private static final int MAX_SHARDS = 16;
+    private static final int MIN_ENTRIES_PER_SHARD = 64;
+
+    private final Shard[] shards;
+    private final int maxSize;
+    private final long ttlMs;
+    private final long negativeTtlMs;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * @param maxSize       most entries held, positive and negative together
+     * @param ttlMs         how long a found mapping is kept
+     * @param negativeTtlMs how long a "not found" result is kept; 0 to not cache them
+     */
+    public LookupCache(int maxSize, long ttlMs, long negativeTtlMs) {
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlMs = ttlMs;
+        this.negativeTtlMs = negativeTtlMs;
+
+        int shardCount = Math.max(1, Math.min(MAX_SHARDS, this.maxSize / MIN_ENTRIES_PER_SHARD));
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            // Spread the remainder so the shard capacities add up to maxSize
+            int capacity = this.maxSize / shardCount + (i < this.maxSize % shardCount ? 1 : 0);
+            shards[i] = new Shard(capacity);
+        }
+    }
+
+    /**
+     * Look up a cached result.
+     *
+     * @return the entry, whose value is null for a cached "not found", or null on a miss
+     */
+    public Entry get(String key) {
+        Entry entry = shardFor(key).get(key, System.currentTimeMillis());
+        if (entry == null) {
+            misses.increment();
+        } else if (entry.isNegative()) {
+            negativeHits.increment();
+        } else {
+            hits.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * Cache a found mapping.
+     */
+    public void put(String key, String value) {
+        shardFor(key).put(key, new Entry(value, System.currentTimeMillis() + ttlMs));
+    }
+
+    /**
+     * Cache that a lookup found nothing, unless negative caching is off.
+     */
+    public void putNotFound(String key) {
+        if (negativeTtlMs > 0) {
+            shardFor(key).put(key, new Entry(null, System.currentTimeMillis() + negativeTtlMs));
+        }
+    }
+
+    public void invalidate(String key) {
+        shardFor(key).remove(key);
+    }
+
+    public void clear() {
+        for (Shard shard : shards) {
+            shard.clear();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    public Stats getStats() {
+        Stats stats = new Stats();
+        stats.setSize(size());
+        stats.setMaxSize(maxSize);
+        stats.setHits(hits.sum());
+        stats.setNegativeHits(negativeHits.sum());
+        stats.setMisses(misses.sum());
+        stats.setEvictions(evictions.sum());
+        stats.setExpirations(expirations.sum());
+        long requests = stats.getHits() + stats.getNegativeHits() + stats.getMisses();
+        stats.setHitRate(requests > 0 ? (double) (stats.getHits() + stats.getNegativeHits()) / requests : 0.0);
+        return stats;
+    }
+
+    private Shard shardFor(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return shards[Math.floorMod(h, shards.length)];
+    }
+
+    /**
+     * A cached lookup result.
+     */
+    public static class Entry {
+        private final String value;
+        private final long expiresAt;
+
+        Entry(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getValue() { return value; }
+
+        public boolean isNegative() { return value == null; }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
+    /**
+     * One independently locked slice of the cache, holding its own two segments.
+     */
+    private class Shard {
+        private final int protectedCapacity;
+        private final int capacity;
+        // Access-ordered: iteration starts at the least recently used entry
+        private final LinkedHashMap<String, Entry> probation = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<String, Entry> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+        Shard(int capacity) {
+            this.capacity = capacity;
+            this.protectedCapacity = capacity - Math.max(1, capacity / 5);
+        }
+
+        synchronized Entry get(String key, long now) {
+            Entry entry = protectedSegment.get(key);
+            if (entry != null) {
+                if (entry.isExpired(now)) {
+                    protectedSegment.remove(key);
+                    expirations.increment();
+                    return null;
+                }
+                return entry;
+            }
+
+            entry = probation.remove(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired(now)) {
+                expirations.increment();
+                return null;
+            }
+            promote(key, entry);
+            return entry;
+        }
+
+        synchronized void put(String key, Entry entry) {
+            if (protectedSegment.containsKey(key)) {
+                protectedSegment.put(key, entry);
+                return;
+            }
+            probation.put(key, entry);
+            evictIfFull();
+        }
+
+        synchronized void remove(String key) {
+            if (protectedSegment.remove(key) == null) {
+                probation.remove(key);
+            }
+        }
+
+        synchronized void clear() {
+            probation.clear();
+            protectedSegment.clear();
+        }
+
+        synchronized int size() {
+            return probation.size() + protectedSegment.size();
+        }
+
+        private void promote(String key, Entry entry) {
+            if (protectedCapacity <= 0) {
+                probation.put(key, entry);
+                return;
+            }
+            protectedSegment.put(key, entry);
+            if (protectedSegment.size() > protectedCapacity) {
+                Iterator<Map.Entry<String, Entry>> eldest = protectedSegment.entrySet().iterator();
+                Map.Entry<String, Entry> demoted = eldest.next();
+                eldest.remove();
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+        }
+
+        private void evictIfFull() {
+            Iterator<Map.Entry<String, Entry>> eldest = probation.entrySet().iterator();
+            while (probation.size() + protectedSegment.size() > capacity && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Counters and occupancy for one cache, as reported by the API.
+     */
+    public static class Stats {
+        private int size;
+        private int maxSize;
+        private long hits;
+        private long negativeHits;
+        private long misses;
+        private long evictions;
+        private long expirations;
+        private double hitRate;
+
+        public int getSize() { return size; }
+        public void setSize(int size) { this.size = size; }
+
+        public int getMaxSize() { return maxSize; }
+        public void setMaxSize(int maxSize) { this.maxSize = maxSize; }
+
+        public long getHits() { return hits; }
+        public void setHits(long hits) { this.hits = hits; }
+
+        public long getNegativeHits() { return negativeHits; }
+        public void setNegativeHits(long negativeHits) { this.negativeHits = negativeHits; }
+
+        public long getMisses() { return misses; }
+        public void setMisses(long misses) { this.misses = misses; }
+
+        public long getEvictions() { return evictions; }
+        public void setEvictions(long evictions) { this.evictions = evictions; }
+
+        public long getExpirations() { return expirations; }
+        public void setExpirations(long expirations) { this.expirations = expirations; }
+
+        public double getHitRate() { return hitRate; }
+        public void setHitRate(double hitRate) { this.hitRate = hitRate; }
+    }
+}
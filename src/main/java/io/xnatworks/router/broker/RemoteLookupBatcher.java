@@ -0,0 +1,252 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ *
+ * This software is distributed under the terms described in the LICENSE file.
+ */
+package io.xnatworks.router.broker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces remote honest broker lookups for one broker.
+ *
+ * <p>Lookups that arrive within {@code windowMs} of each other are collected
+ * and sent together: as batch requests of up to {@code maxBatchSize} IDs when
+ * the remote API supports it, otherwise as single requests fanned out over
+ * at most {@code maxConcurrency} threads. A lookup for an ID that is already
+ * queued or in flight shares that request's result instead of sending
+ * another.</p>
+ *
+ * <p>Each returned future completes with the de-identified ID, with null if
+ * the broker has no mapping, or exceptionally if the request failed.</p>
+ */
+class RemoteLookupBatcher implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(RemoteLookupBatcher.class);
+
+    private final String brokerName;
+    private final long windowMs;
+    private final int maxBatchSize;
+    private final SingleLookup singleLookup;
+    private final BatchLookup batchLookup;
+    private final ScheduledExecutorService scheduler;
+    private final ThreadPoolExecutor fetchers;
+
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<String>> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    private final LongAdder requestsSent = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+
+    /**
+     * @param brokerName     broker the lookups go to, for thread names and logs
+     * @param windowMs       how long to collect lookups before sending them
+     * @param maxBatchSize   most IDs per batch request, and per flush
+     * @param maxConcurrency most requests in flight at once
+     * @param singleLookup   looks up one ID
+     * @param batchLookup    looks up several IDs in one request, or null if the API has no batch lookup
+     */
+    RemoteLookupBatcher(String brokerName, long windowMs, int maxBatchSize, int maxConcurrency,
+                        SingleLookup singleLookup, BatchLookup batchLookup) {
+        this.brokerName = brokerName;
+        this.windowMs = Math.max(0, windowMs);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.singleLookup = singleLookup;
+        this.batchLookup = batchLookup;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "broker-batch-" + brokerName);
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger threadCount = new AtomicInteger();
+        int threads = Math.max(1, maxConcurrency);
+        this.fetchers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "broker-lookup-" + brokerName + "-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.fetchers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queue a lookup, or join the one already queued or in flight for the same ID.
+     */
+    CompletableFuture<String> lookup(String idIn) {
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(idIn, created);
+        if (existing != null) {
+            deduplicated.increment();
+            return existing;
+        }
+        created.whenComplete((idOut, error) -> inFlight.remove(idIn, created));
+
+        Map<String, CompletableFuture<String>> full = null;
+        synchronized (pending) {
+            pending.put(idIn, created);
+            if (pending.size() >= maxBatchSize) {
+                full = takePending();
+            } else if (scheduledFlush == null) {
+                try {
+                    scheduledFlush = scheduler.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    full = takePending();
+                }
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return created;
+    }
+
+    /**
+     * Look up several IDs at once and wait for all of them.
+     *
+     * @return Found mappings; IDs with no mapping or a failed request are absent
+     */
+    Map<String, String> lookupAll(Collection<String> idsIn) {
+        Map<String, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        for (String idIn : idsIn) {
+            futures.computeIfAbsent(idIn, this::lookup);
+        }
+        Map<String, String> results = new LinkedHashMap<>();
+        futures.forEach((idIn, future) -> {
+            String idOut = future.exceptionally(error -> null).join();
+            if (idOut != null) {
+                results.put(idIn, idOut);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Send everything queued so far without waiting for the window to close.
+     */
+    void flush() {
+        Map<String, CompletableFuture<String>> batch;
+        synchronized (pending) {
+            batch = takePending();
+        }
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    long getRequestsSent() {
+        return requestsSent.sum();
+    }
+
+    long getDeduplicated() {
+        return deduplicated.sum();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        flush();
+        fetchers.shutdown();
+        try {
+            if (!fetchers.awaitTermination(5, TimeUnit.SECONDS)) {
+                fetchers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fetchers.shutdownNow();
+        }
+    }
+
+    // Caller holds the pending lock
+    private Map<String, CompletableFuture<String>> takePending() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        Map<String, CompletableFuture<String>> batch = new LinkedHashMap<>(pending);
+        pending.clear();
+        return batch;
+    }
+
+    private void dispatch(Map<String, CompletableFuture<String>> batch) {
+        log.debug("[HonestBroker:{}] Sending {} coalesced lookups ({})", brokerName, batch.size(),
+                batchLookup != null ? "batch" : "fan-out");
+        if (batchLookup != null) {
+            List<String> ids = new ArrayList<>(batch.keySet());
+            for (int start = 0; start < ids.size(); start += maxBatchSize) {
+                List<String> chunk = ids.subList(start, Math.min(start + maxBatchSize, ids.size()));
+                submit(() -> fetchBatch(chunk, batch));
+            }
+        } else {
+            batch.forEach((idIn, future) -> submit(() -> fetchSingle(idIn, future)));
+        }
+    }
+
+    private void submit(Runnable fetch) {
+        try {
+            fetchers.execute(fetch);
+        } catch (RejectedExecutionException e) {
+            // Closed while lookups were queued; run them on the caller rather than lose them
+            fetch.run();
+        }
+    }
+
+    private void fetchSingle(String idIn, CompletableFuture<String> future) {
+        requestsSent.increment();
+        try {
+            future.complete(singleLookup.lookup(idIn));
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private void fetchBatch(List<String> ids, Map<String, CompletableFuture<String>> futures) {
+        requestsSent.increment();
+        try {
+            Map<String, String> results = batchLookup.lookup(ids);
+            for (String idIn : ids) {
+                futures.get(idIn).complete(results.get(idIn));
+            }
+        } catch (Exception e) {
+            for (String idIn : ids) {
+                futures.get(idIn).completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Looks up one ID; returns null if the broker has no mapping.
+     */
+    @FunctionalInterface
+    interface SingleLookup {
+        String lookup(String idIn) throws IOException;
+    }
+
+    /**
+     * Looks up several IDs in one request; IDs with no mapping are absent from the result.
+     */
+    @FunctionalInterface
+    interface BatchLookup {
+        Map<String, String> lookup(List<String> idsIn) throws IOException;
+    }
+}
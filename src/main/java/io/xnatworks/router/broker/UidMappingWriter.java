@@ -0,0 +1,177 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ *
+ * This software is distributed under the terms described in the LICENSE file.
+ */
+package io.xnatworks.router.broker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes UID mappings to the crosswalk in batches on a background thread.
+ *
+ * <p>With UID hashing enabled every anonymized instance produces a SOP
+ * instance mapping. Storing each one as it is reported costs an SQLite
+ * transaction per instance and holds up the anonymizer. Mappings are instead
+ * queued and written with {@link CrosswalkStore#storeUidMappings} whenever
+ * {@code batchSize} are pending or every {@code flushIntervalMs}.</p>
+ *
+ * <p>Callers that need the crosswalk to be complete, e.g. before a study is
+ * forwarded, call {@link #flush(String)} for the study's broker, which returns
+ * once everything queued so far for that broker has been written. Mappings are
+ * queued per broker, so one broker's failing writes do not hold up or fail
+ * another's. A batch that fails to write is kept and tried again, ahead of
+ * newer mappings of its broker, on the next flush.</p>
+ */
+public class UidMappingWriter implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(UidMappingWriter.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 250;
+
+    private final CrosswalkStore crosswalkStore;
+    private final int batchSize;
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<String, Queue<CrosswalkStore.UidMapping>> pending = new ConcurrentHashMap<>();
+    // Mappings whose write failed by broker, retried first; only touched under the flush lock
+    private final Map<String, List<CrosswalkStore.UidMapping>> failed = new LinkedHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private volatile boolean closed;
+
+    /**
+     * @param crosswalkStore  store the mappings are written to
+     * @param batchSize       pending mappings that trigger a write
+     * @param flushIntervalMs longest a mapping waits before it is written
+     */
+    public UidMappingWriter(CrosswalkStore crosswalkStore, int batchSize, long flushIntervalMs) {
+        this.crosswalkStore = crosswalkStore;
+        this.batchSize = Math.max(1, batchSize);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "UidMappingWriter");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queue a mapping to be written in the next batch. Never blocks on the database.
+     */
+    public void enqueue(String brokerName, String originalUid, String hashedUid, String uidType) {
+        pending.computeIfAbsent(brokerName, k -> new ConcurrentLinkedQueue<>())
+                .add(new CrosswalkStore.UidMapping(originalUid, hashedUid, uidType));
+        int queued = pendingCount.incrementAndGet();
+        if (closed) {
+            flush();
+            return;
+        }
+        if (queued >= batchSize && flushQueued.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(() -> {
+                    flushQueued.set(false);
+                    flushQuietly();
+                });
+            } catch (RejectedExecutionException e) {
+                // Closed meanwhile; close() has flushed or the next flush() will
+                flushQueued.set(false);
+            }
+        }
+    }
+
+    /**
+     * Write every queued mapping, one transaction per broker. Mappings of a
+     * broker whose write fails stay queued for the next flush.
+     *
+     * @return true if all of them were stored
+     */
+    public synchronized boolean flush() {
+        Set<String> brokers = new LinkedHashSet<>(failed.keySet());
+        brokers.addAll(pending.keySet());
+        boolean success = true;
+        for (String brokerName : brokers) {
+            success &= flush(brokerName);
+        }
+        return success;
+    }
+
+    /**
+     * Write every mapping queued for one broker, in one transaction. If the
+     * write fails they stay queued for the next flush.
+     *
+     * @return true if all of them were stored
+     */
+    public synchronized boolean flush(String brokerName) {
+        List<CrosswalkStore.UidMapping> batch = failed.remove(brokerName);
+        if (batch == null) {
+            batch = new ArrayList<>();
+        }
+        Queue<CrosswalkStore.UidMapping> queue = pending.get(brokerName);
+        CrosswalkStore.UidMapping next;
+        while (queue != null && (next = queue.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            return true;
+        }
+
+        if (!crosswalkStore.storeUidMappings(brokerName, batch)) {
+            log.warn("Failed to store {} UID mappings for broker {} in crosswalk, will retry",
+                    batch.size(), brokerName);
+            failed.put(brokerName, batch);
+            return false;
+        }
+        pendingCount.addAndGet(-batch.size());
+        return true;
+    }
+
+    /**
+     * Mappings queued but not yet written.
+     */
+    public int getPendingCount() {
+        return Math.max(0, pendingCount.get());
+    }
+
+    /**
+     * Stop the background writer and write anything still queued.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Failed to write UID mappings: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -382,6 +382,12 @@ public class AppConfig {
         protected String description = "";
         protected boolean enabled = true;
 
+        /**
+         * Threads sending to this destination, separate from anonymization.
+         */
+        @JsonProperty("transfer_threads")
+        protected int transferThreads = 2;
+
         public abstract String getType();
 
         public String getDescription() { return description; }
@@ -389,6 +395,9 @@ public class AppConfig {
 
         public boolean isEnabled() { return enabled; }
         public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getTransferThreads() { return transferThreads; }
+        public void setTransferThreads(int transferThreads) { this.transferThreads = transferThreads; }
     }
 
     /**
@@ -463,6 +472,56 @@ public class AppConfig {
         @JsonProperty("max_retries")
         private int maxRetries = 3;
 
+        /**
+         * Maximum number of parallel associations used to C-STORE one study.
+         * Instances are split across associations, idle associations steal
+         * remaining work from busy ones. 1 keeps the single-association behaviour.
+         */
+        @JsonProperty("max_associations")
+        private int maxAssociations = 1;
+
+        /**
+         * Adapt the number of associations (between 1 and max_associations)
+         * to the throughput measured on previous stores.
+         */
+        @JsonProperty("adaptive_associations")
+        private boolean adaptiveAssociations = false;
+
+        /**
+         * Asynchronous operations window requested on each association: how many
+         * C-STORE requests may be outstanding before waiting for a response.
+         * 1 = synchronous, 0 = unlimited. The destination may negotiate it down.
+         */
+        @JsonProperty("max_ops_invoked")
+        private int maxOpsInvoked = 8;
+
+        /**
+         * Upper bound on instance data (in MB) sent but not yet acknowledged,
+         * shared by all associations to this destination.
+         */
+        @JsonProperty("max_in_flight_mb")
+        private int maxInFlightMb = 256;
+
+        /**
+         * Number of associations kept open for bulk C-FIND against this source.
+         * Also the number of queries run concurrently.
+         */
+        @JsonProperty("max_query_associations")
+        private int maxQueryAssociations = 4;
+
+        /**
+         * Maximum C-FIND requests per second sent to this source (0 = unlimited).
+         */
+        @JsonProperty("query_rate_limit")
+        private int queryRateLimit = 0;
+
+        /**
+         * Number of studies moved from this source at once, across all retrieve
+         * jobs, each C-MOVE (or C-GET) on its own association.
+         */
+        @JsonProperty("max_concurrent_retrieves")
+        private int maxConcurrentRetrieves = 4;
+
         /**
          * REST API URL for the PACS server (e.g., Orthanc's HTTP API).
          * Used for image preview functionality.
@@ -510,6 +569,27 @@ public class AppConfig {
         public int getMaxRetries() { return maxRetries; }
         public void setMaxRetries(int maxRetries) { this.maxRetries = maxRetries; }
 
+        public int getMaxAssociations() { return maxAssociations; }
+        public void setMaxAssociations(int maxAssociations) { this.maxAssociations = maxAssociations; }
+
+        public boolean isAdaptiveAssociations() { return adaptiveAssociations; }
+        public void setAdaptiveAssociations(boolean adaptiveAssociations) { this.adaptiveAssociations = adaptiveAssociations; }
+
+        public int getMaxOpsInvoked() { return maxOpsInvoked; }
+        public void setMaxOpsInvoked(int maxOpsInvoked) { this.maxOpsInvoked = maxOpsInvoked; }
+
+        public int getMaxInFlightMb() { return maxInFlightMb; }
+        public void setMaxInFlightMb(int maxInFlightMb) { this.maxInFlightMb = maxInFlightMb; }
+
+        public int getMaxQueryAssociations() { return maxQueryAssociations; }
+        public void setMaxQueryAssociations(int maxQueryAssociations) { this.maxQueryAssociations = maxQueryAssociations; }
+
+        public int getQueryRateLimit() { return queryRateLimit; }
+        public void setQueryRateLimit(int queryRateLimit) { this.queryRateLimit = queryRateLimit; }
+
+        public int getMaxConcurrentRetrieves() { return maxConcurrentRetrieves; }
+        public void setMaxConcurrentRetrieves(int maxConcurrentRetrieves) { this.maxConcurrentRetrieves = maxConcurrentRetrieves; }
+
         public String getRestApiUrl() { return restApiUrl; }
         public void setRestApiUrl(String restApiUrl) { this.restApiUrl = restApiUrl; }
 
@@ -616,6 +696,12 @@ public class AppConfig {
         @JsonProperty("rate_limit_per_minute")
         private int rateLimitPerMinute = 0;
 
+        /**
+         * Share of the shared CPU pool relative to other routes (default 1).
+         */
+        @JsonProperty("cpu_weight")
+        private int cpuWeight = 1;
+
         /**
          * Conditional routing rules - determines which destinations to use
          * based on DICOM attributes.
@@ -714,6 +800,9 @@ public class AppConfig {
         public int getRateLimitPerMinute() { return rateLimitPerMinute; }
         public void setRateLimitPerMinute(int rateLimitPerMinute) { this.rateLimitPerMinute = rateLimitPerMinute; }
 
+        public int getCpuWeight() { return cpuWeight; }
+        public void setCpuWeight(int cpuWeight) { this.cpuWeight = cpuWeight; }
+
         public List<RoutingRule> getRoutingRules() { return routingRules; }
         public void setRoutingRules(List<RoutingRule> routingRules) { this.routingRules = routingRules; }
 
@@ -1057,6 +1146,34 @@ public class AppConfig {
         @JsonProperty("auto_archive")
         private boolean autoArchive = true;
 
+        /**
+         * XNAT-specific: Write the study ZIP straight into the upload request
+         * instead of a temp file. The temp file is only written if a retry is needed.
+         */
+        @JsonProperty("stream_upload")
+        private boolean streamUpload = false;
+
+        /**
+         * XNAT-specific: Split the study into ZIP parts that upload concurrently
+         * into the same session, each retried on its own: "none", "series"
+         * (one part per series) or "size" (parts up to upload_part_size_mb).
+         */
+        @JsonProperty("upload_split")
+        private String uploadSplit = "none";
+
+        /**
+         * XNAT-specific: Largest ZIP part in MB when upload_split is set.
+         * Series bigger than this are split across several parts.
+         */
+        @JsonProperty("upload_part_size_mb")
+        private int uploadPartSizeMb = 512;
+
+        /**
+         * XNAT-specific: Number of ZIP parts uploaded at the same time.
+         */
+        @JsonProperty("max_concurrent_parts")
+        private int maxConcurrentParts = 4;
+
         /**
          * Whether this destination is enabled for this route.
          */
@@ -1143,6 +1260,18 @@ public class AppConfig {
         public boolean isAutoArchive() { return autoArchive; }
         public void setAutoArchive(boolean autoArchive) { this.autoArchive = autoArchive; }
 
+        public boolean isStreamUpload() { return streamUpload; }
+        public void setStreamUpload(boolean streamUpload) { this.streamUpload = streamUpload; }
+
+        public String getUploadSplit() { return uploadSplit; }
+        public void setUploadSplit(String uploadSplit) { this.uploadSplit = uploadSplit; }
+
+        public int getUploadPartSizeMb() { return uploadPartSizeMb; }
+        public void setUploadPartSizeMb(int uploadPartSizeMb) { this.uploadPartSizeMb = uploadPartSizeMb; }
+
+        public int getMaxConcurrentParts() { return maxConcurrentParts; }
+        public void setMaxConcurrentParts(int maxConcurrentParts) { this.maxConcurrentParts = maxConcurrentParts; }
+
         public boolean isEnabled() { return enabled; }
         public void setEnabled(boolean enabled) { this.enabled = enabled; }
 
@@ -1519,6 +1648,30 @@ public class AppConfig {
          */
         private int timeout = 30;
 
+        /**
+         * Whether the remote API accepts several IDs in one lookup request.
+         */
+        @JsonProperty("batch_lookup_enabled")
+        private boolean batchLookupEnabled = false;
+
+        /**
+         * How long to collect concurrent remote lookups before sending them, in milliseconds.
+         */
+        @JsonProperty("batch_window_ms")
+        private int batchWindowMs = 10;
+
+        /**
+         * Most IDs sent in one remote batch request.
+         */
+        @JsonProperty("batch_max_size")
+        private int batchMaxSize = 100;
+
+        /**
+         * Most remote lookup requests in flight at once for this broker.
+         */
+        @JsonProperty("lookup_concurrency")
+        private int lookupConcurrency = 8;
+
         /**
          * Whether to cache lookup results to reduce API calls.
          */
@@ -1537,6 +1690,18 @@ public class AppConfig {
         @JsonProperty("cache_max_size")
         private int cacheMaxSize = 10000;
 
+        /**
+         * How long a "not found" lookup result is cached, in seconds (0 disables negative caching).
+         */
+        @JsonProperty("cache_negative_ttl_seconds")
+        private int cacheNegativeTtlSeconds = 30;
+
+        /**
+         * Whether to preload the cache from the crosswalk at startup (local brokers).
+         */
+        @JsonProperty("cache_warm_up")
+        private boolean cacheWarmUp = false;
+
         /**
          * Whether to use the broker result for PatientID replacement.
          */
@@ -1672,6 +1837,18 @@ public class AppConfig {
         public int getTimeout() { return timeout; }
         public void setTimeout(int timeout) { this.timeout = timeout; }
 
+        public boolean isBatchLookupEnabled() { return batchLookupEnabled; }
+        public void setBatchLookupEnabled(boolean batchLookupEnabled) { this.batchLookupEnabled = batchLookupEnabled; }
+
+        public int getBatchWindowMs() { return batchWindowMs; }
+        public void setBatchWindowMs(int batchWindowMs) { this.batchWindowMs = batchWindowMs; }
+
+        public int getBatchMaxSize() { return batchMaxSize; }
+        public void setBatchMaxSize(int batchMaxSize) { this.batchMaxSize = batchMaxSize; }
+
+        public int getLookupConcurrency() { return lookupConcurrency; }
+        public void setLookupConcurrency(int lookupConcurrency) { this.lookupConcurrency = lookupConcurrency; }
+
         public boolean isCacheEnabled() { return cacheEnabled; }
         public void setCacheEnabled(boolean cacheEnabled) { this.cacheEnabled = cacheEnabled; }
 
@@ -1681,6 +1858,12 @@ public class AppConfig {
         public int getCacheMaxSize() { return cacheMaxSize; }
         public void setCacheMaxSize(int cacheMaxSize) { this.cacheMaxSize = cacheMaxSize; }
 
+        public int getCacheNegativeTtlSeconds() { return cacheNegativeTtlSeconds; }
+        public void setCacheNegativeTtlSeconds(int cacheNegativeTtlSeconds) { this.cacheNegativeTtlSeconds = cacheNegativeTtlSeconds; }
+
+        public boolean isCacheWarmUp() { return cacheWarmUp; }
+        public void setCacheWarmUp(boolean cacheWarmUp) { this.cacheWarmUp = cacheWarmUp; }
+
         public boolean isReplacePatientId() { return replacePatientId; }
         public void setReplacePatientId(boolean replacePatientId) { this.replacePatientId = replacePatientId; }
 
@@ -1764,6 +1947,7 @@ public class AppConfig {
         private String password = "admin";
         private String description = "";
         private boolean enabled = true;
+        private int connectionPoolSize = 5;
 
         public String getUrl() { return url; }
         public void setUrl(String url) { this.url = url; }
@@ -1779,6 +1963,9 @@ public class AppConfig {
 
         public boolean isEnabled() { return enabled; }
         public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+        public int getConnectionPoolSize() { return connectionPoolSize; }
+        public void setConnectionPoolSize(int connectionPoolSize) { this.connectionPoolSize = connectionPoolSize; }
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
@@ -16,6 +16,10 @@ import org.dcm4che3.io.DicomInputStream;
 import org.dcm4che3.net.*;
 import org.dcm4che3.net.pdu.AAssociateRQ;
 import org.dcm4che3.net.pdu.PresentationContext;
+import org.dcm4che3.net.pdu.RoleSelection;
+import org.dcm4che3.net.service.BasicCStoreSCP;
+import org.dcm4che3.net.service.DicomServiceException;
+import org.dcm4che3.net.service.DicomServiceRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -25,11 +29,22 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * DICOM client for C-STORE SCU, C-FIND, C-MOVE, and C-GET operations.
@@ -44,6 +59,18 @@ public class DicomClient implements AutoCloseable {
     private final String host;
     private final int port;
     private final boolean useTls;
+    private final int maxAssociations;
+    private final boolean adaptiveAssociations;
+    private final int maxOpsInvoked;
+    private final int maxInFlightKb;
+
+    // Byte budget (in KB) for C-STORE data sent but not yet acknowledged, shared by all associations
+    private final Semaphore inFlightKb;
+
+    // Adaptive association state (hill-climbing on measured throughput)
+    private volatile int currentAssociations = 1;
+    private int associationStep = 1;
+    private double lastThroughput;
 
     private Device device;
     private ApplicationEntity ae;
@@ -52,6 +79,73 @@ public class DicomClient implements AutoCloseable {
     private ExecutorService executor;
     private ScheduledExecutorService scheduledExecutor;
 
+    // Target of the C-GET running on each association, for its storage sub-operations
+    private final Map<Association, GetTarget> activeGets = new ConcurrentHashMap<>();
+
+    // Don't open an extra association for fewer instances than this
+    private static final int MIN_INSTANCES_PER_ASSOCIATION = 10;
+
+    // Relative throughput change treated as noise by the adaptive tuner
+    private static final double ADAPTIVE_TOLERANCE = 0.05;
+
+    // Flow control defaults, matching AppConfig.DicomAeDestination
+    private static final int DEFAULT_MAX_OPS_INVOKED = 8;
+    private static final int DEFAULT_MAX_IN_FLIGHT_MB = 256;
+
+    // Storage SOP classes offered (SCP role) for C-GET sub-operations.
+    // Kept under the 128 presentation context limit together with the C-GET context.
+    private static final String[] GET_STORAGE_SOP_CLASSES = {
+            UID.ComputedRadiographyImageStorage,
+            UID.DigitalXRayImageStorageForPresentation,
+            UID.DigitalXRayImageStorageForProcessing,
+            UID.DigitalMammographyXRayImageStorageForPresentation,
+            UID.DigitalMammographyXRayImageStorageForProcessing,
+            UID.BreastTomosynthesisImageStorage,
+            UID.CTImageStorage,
+            UID.EnhancedCTImageStorage,
+            UID.MRImageStorage,
+            UID.EnhancedMRImageStorage,
+            UID.EnhancedMRColorImageStorage,
+            UID.MRSpectroscopyStorage,
+            UID.UltrasoundImageStorage,
+            UID.UltrasoundMultiFrameImageStorage,
+            UID.EnhancedUSVolumeStorage,
+            UID.SecondaryCaptureImageStorage,
+            UID.MultiFrameGrayscaleByteSecondaryCaptureImageStorage,
+            UID.MultiFrameGrayscaleWordSecondaryCaptureImageStorage,
+            UID.MultiFrameTrueColorSecondaryCaptureImageStorage,
+            UID.XRayAngiographicImageStorage,
+            UID.EnhancedXAImageStorage,
+            UID.XRayRadiofluoroscopicImageStorage,
+            UID.EnhancedXRFImageStorage,
+            UID.XRay3DAngiographicImageStorage,
+            UID.NuclearMedicineImageStorage,
+            UID.PositronEmissionTomographyImageStorage,
+            UID.EnhancedPETImageStorage,
+            UID.VLEndoscopicImageStorage,
+            UID.VLMicroscopicImageStorage,
+            UID.VLPhotographicImageStorage,
+            UID.VLWholeSlideMicroscopyImageStorage,
+            UID.OphthalmicPhotography8BitImageStorage,
+            UID.OphthalmicTomographyImageStorage,
+            UID.SegmentationStorage,
+            UID.SpatialRegistrationStorage,
+            UID.GrayscaleSoftcopyPresentationStateStorage,
+            UID.KeyObjectSelectionDocumentStorage,
+            UID.BasicTextSRStorage,
+            UID.EnhancedSRStorage,
+            UID.ComprehensiveSRStorage,
+            UID.XRayRadiationDoseSRStorage,
+            UID.EncapsulatedPDFStorage,
+            UID.RTImageStorage,
+            UID.RTDoseStorage,
+            UID.RTStructureSetStorage,
+            UID.RTPlanStorage,
+            UID.RTIonPlanStorage,
+            UID.RTBeamsTreatmentRecordStorage,
+            UID.RawDataStorage
+    };
+
     // Common transfer syntaxes
     private static final String[] TRANSFER_SYNTAXES = {
             UID.ImplicitVRLittleEndian,
@@ -80,6 +174,11 @@ public class DicomClient implements AutoCloseable {
         this.host = config.getHost();
         this.port = config.getPort();
         this.useTls = config.isUseTls();
+        this.maxAssociations = Math.max(1, config.getMaxAssociations());
+        this.adaptiveAssociations = config.isAdaptiveAssociations() && maxAssociations > 1;
+        this.maxOpsInvoked = Math.max(0, config.getMaxOpsInvoked());
+        this.maxInFlightKb = Math.max(1, config.getMaxInFlightMb()) * 1024;
+        this.inFlightKb = new Semaphore(maxInFlightKb);
     }
 
     public DicomClient(String destinationName, String calledAeTitle, String host, int port,
@@ -90,12 +189,17 @@ public class DicomClient implements AutoCloseable {
         this.port = port;
         this.callingAeTitle = callingAeTitle;
         this.useTls = useTls;
+        this.maxAssociations = 1;
+        this.adaptiveAssociations = false;
+        this.maxOpsInvoked = DEFAULT_MAX_OPS_INVOKED;
+        this.maxInFlightKb = DEFAULT_MAX_IN_FLIGHT_MB * 1024;
+        this.inFlightKb = new Semaphore(maxInFlightKb);
     }
 
     /**
      * Initialize the DICOM device and connection.
      */
-    private void initialize() throws IOException, GeneralSecurityException {
+    private synchronized void initialize() throws IOException, GeneralSecurityException {
         if (device != null) return;
 
         executor = Executors.newCachedThreadPool();
@@ -105,8 +209,9 @@ public class DicomClient implements AutoCloseable {
         device.setExecutor(executor);
         device.setScheduledExecutor(scheduledExecutor);
 
-        // Local connection
+        // Local connection - request the asynchronous operations window explicitly
         conn = new Connection();
+        conn.setMaxOpsInvoked(maxOpsInvoked);
         device.addConnection(conn);
 
         // Remote connection
@@ -120,6 +225,11 @@ public class DicomClient implements AutoCloseable {
         ae.setAssociationInitiator(true);
         device.addApplicationEntity(ae);
 
+        // Handle storage sub-operations of C-GET on our own associations
+        DicomServiceRegistry serviceRegistry = new DicomServiceRegistry();
+        serviceRegistry.addDicomService(createGetStoreSCP());
+        ae.setDimseRQHandler(serviceRegistry);
+
         log.debug("Initialized DICOM client for '{}': {} -> {}@{}:{}",
                 destinationName, callingAeTitle, calledAeTitle, host, port);
     }
@@ -152,6 +262,11 @@ public class DicomClient implements AutoCloseable {
 
     /**
      * Send DICOM files via C-STORE.
+     * <p>
+     * Large studies are split across up to {@code max_associations} parallel
+     * associations. Each association works through its own queue of instances
+     * and steals from the busiest remaining queue once its own is drained, so
+     * a slow association does not hold up the rest of the study.
      */
     public StoreResult store(List<File> files) throws IOException, GeneralSecurityException, InterruptedException, IncompatibleConnectionException {
         initialize();
@@ -164,6 +279,7 @@ public class DicomClient implements AutoCloseable {
 
         // Collect all SOP classes needed
         List<FileInfo> fileInfos = new ArrayList<>();
+        long totalBytes = 0;
         for (File file : files) {
             try (DicomInputStream dis = new DicomInputStream(file)) {
                 Attributes fmi = dis.readFileMetaInformation();
@@ -177,9 +293,10 @@ public class DicomClient implements AutoCloseable {
                 info.sopInstanceUid = sopInstanceUid;
                 info.transferSyntax = transferSyntax;
                 fileInfos.add(info);
+                totalBytes += file.length();
             } catch (Exception e) {
                 log.warn("Failed to read DICOM file {}: {}", file.getName(), e.getMessage());
-                result.incrementFailed();
+                result.recordInstance(null, file.getName(), -1, -1, e.getMessage());
             }
         }
 
@@ -188,63 +305,99 @@ public class DicomClient implements AutoCloseable {
             return result;
         }
 
-        // Build association request with all needed presentation contexts
-        AAssociateRQ rq = new AAssociateRQ();
-        rq.setCalledAET(calledAeTitle);
-        rq.setCallingAET(callingAeTitle);
-
-        int pcid = 1;
+        Set<String> sopClasses = new LinkedHashSet<>();
         for (FileInfo info : fileInfos) {
-            rq.addPresentationContext(new PresentationContext(pcid, info.sopClassUid, IMAGE_TRANSFER_SYNTAXES));
-            pcid += 2;
-            if (pcid > 255) break; // Max presentation contexts
+            sopClasses.add(info.sopClassUid);
         }
 
-        Association as = null;
-        try {
-            as = ae.connect(remoteConn, rq);
+        int associations = resolveAssociationCount(fileInfos.size());
+        result.setAssociationCount(associations);
 
-            for (FileInfo info : fileInfos) {
+        // Pre-partition instances round-robin, idle associations steal the rest
+        List<Deque<FileInfo>> queues = new ArrayList<>(associations);
+        for (int i = 0; i < associations; i++) {
+            queues.add(new ConcurrentLinkedDeque<>());
+        }
+        for (int i = 0; i < fileInfos.size(); i++) {
+            queues.get(i % associations).add(fileInfos.get(i));
+        }
+
+        if (associations == 1) {
+            runStoreWorker(0, sopClasses, queues, result);
+        } else {
+            List<Future<?>> workers = new ArrayList<>(associations);
+            for (int i = 0; i < associations; i++) {
+                final int index = i;
+                workers.add(executor.submit(() -> {
+                    runStoreWorker(index, sopClasses, queues, result);
+                    return null;
+                }));
+            }
+
+            Exception firstError = null;
+            int connectFailures = 0;
+            for (Future<?> worker : workers) {
                 try {
-                    byte[] data = Files.readAllBytes(info.file.toPath());
-
-                    DimseRSPHandler rspHandler = new DimseRSPHandler(as.nextMessageID()) {
-                        @Override
-                        public void onDimseRSP(Association as, Attributes cmd, Attributes data) {
-                            int status = cmd.getInt(Tag.Status, -1);
-                            if (status == Status.Success) {
-                                result.incrementSuccess();
-                            } else {
-                                result.incrementFailed();
-                                log.warn("C-STORE failed for {} with status 0x{}", info.file.getName(),
-                                        Integer.toHexString(status));
-                            }
-                        }
-                    };
-
-                    // Find accepted presentation context - use ImplicitVRLittleEndian as default
-                    String ts = UID.ImplicitVRLittleEndian;
-
-                    // Create store request
-                    Attributes storeRq = new Attributes();
-                    storeRq.setString(Tag.AffectedSOPClassUID, VR.UI, info.sopClassUid);
-                    storeRq.setString(Tag.AffectedSOPInstanceUID, VR.UI, info.sopInstanceUid);
-                    storeRq.setInt(Tag.Priority, VR.US, Priority.NORMAL);
-
-                    // Read DICOM dataset
-                    try (DicomInputStream dis = new DicomInputStream(info.file)) {
-                        dis.readFileMetaInformation();
-                        Attributes dataset = dis.readDataset();
-
-                        as.cstore(info.sopClassUid, info.sopInstanceUid, Priority.NORMAL,
-                                new DataWriterAdapter(dataset), ts, rspHandler);
+                    worker.get();
+                } catch (ExecutionException e) {
+                    connectFailures++;
+                    if (firstError == null && e.getCause() instanceof Exception) {
+                        firstError = (Exception) e.getCause();
                     }
+                    log.warn("C-STORE association to '{}' failed: {}", destinationName,
+                            e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                }
+            }
 
-                } catch (Exception e) {
-                    log.error("Failed to store {}: {}", info.file.getName(), e.getMessage());
-                    result.incrementFailed();
+            // No association could be opened - surface the error like the single-association path
+            if (connectFailures == associations && firstError != null) {
+                if (firstError instanceof IOException) throw (IOException) firstError;
+                if (firstError instanceof IncompatibleConnectionException) throw (IncompatibleConnectionException) firstError;
+                if (firstError instanceof GeneralSecurityException) throw (GeneralSecurityException) firstError;
+                throw new IOException(firstError.getMessage(), firstError);
+            }
+
+            // Anything left over belonged to associations that failed mid-study
+            for (Deque<FileInfo> queue : queues) {
+                FileInfo info;
+                while ((info = queue.poll()) != null) {
+                    result.recordInstance(info.sopInstanceUid, info.file.getName(), -1, -1,
+                            "No association available");
                 }
             }
+        }
+
+        result.setDurationMs(System.currentTimeMillis() - startTime);
+        log.info("C-STORE to '{}': {} succeeded, {} failed in {}ms over {} association(s)",
+                destinationName, result.getSuccessCount(), result.getFailedCount(), result.getDurationMs(),
+                associations);
+
+        if (adaptiveAssociations && result.getDurationMs() > 0) {
+            adjustAssociationCount(associations, totalBytes * 1000.0 / result.getDurationMs());
+        }
+
+        return result;
+    }
+
+    /**
+     * Open one association and store instances until there is no work left to take or steal.
+     */
+    private void runStoreWorker(int index, Set<String> sopClasses, List<Deque<FileInfo>> queues, StoreResult result)
+            throws IOException, GeneralSecurityException, InterruptedException, IncompatibleConnectionException {
+        Association as = null;
+        try {
+            as = ae.connect(remoteConn, buildStoreRequest(sopClasses));
+
+            // Pace sends by the window the destination actually accepted
+            int window = effectiveWindow(as.getMaxOpsInvoked());
+            Semaphore outstanding = new Semaphore(window);
+            log.debug("C-STORE association {} to '{}': async ops window {} (requested {})",
+                    index, destinationName, window == Integer.MAX_VALUE ? "unlimited" : window, maxOpsInvoked);
+
+            FileInfo info;
+            while ((info = nextWork(index, queues)) != null) {
+                storeInstance(as, info, index, outstanding, result);
+            }
 
             // Wait for all responses
             as.waitForOutstandingRSP();
@@ -258,12 +411,169 @@ public class DicomClient implements AutoCloseable {
                 }
             }
         }
+    }
 
-        result.setDurationMs(System.currentTimeMillis() - startTime);
-        log.info("C-STORE to '{}': {} succeeded, {} failed in {}ms",
-                destinationName, result.getSuccessCount(), result.getFailedCount(), result.getDurationMs());
+    /**
+     * Take the next instance from this association's own queue, or steal from
+     * the tail of the longest other queue.
+     */
+    private static FileInfo nextWork(int index, List<Deque<FileInfo>> queues) {
+        FileInfo info = queues.get(index).pollFirst();
+        while (info == null) {
+            Deque<FileInfo> victim = null;
+            int victimSize = 0;
+            for (int i = 0; i < queues.size(); i++) {
+                if (i == index) continue;
+                int size = queues.get(i).size();
+                if (size > victimSize) {
+                    victim = queues.get(i);
+                    victimSize = size;
+                }
+            }
+            if (victim == null) {
+                return null;
+            }
+            info = victim.pollLast();
+        }
+        return info;
+    }
 
-        return result;
+    /**
+     * Issue the C-STORE for a single instance on an open association.
+     * Blocks while the association's operations window or the client-wide
+     * byte budget is exhausted; both are returned when the response arrives.
+     */
+    private void storeInstance(Association as, FileInfo info, int associationIndex,
+                               Semaphore outstanding, StoreResult result) {
+        InFlight inFlight;
+        try {
+            inFlight = InFlight.acquire(outstanding, inFlightKb, toKbPermits(info.file.length()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.recordInstance(info.sopInstanceUid, info.file.getName(), -1, associationIndex, "Interrupted");
+            return;
+        }
+
+        try {
+            DimseRSPHandler rspHandler = new DimseRSPHandler(as.nextMessageID()) {
+                @Override
+                public void onDimseRSP(Association as, Attributes cmd, Attributes data) {
+                    int status = cmd.getInt(Tag.Status, -1);
+                    if (status == Status.Success) {
+                        result.recordInstance(info.sopInstanceUid, info.file.getName(), status,
+                                associationIndex, null);
+                    } else {
+                        result.recordInstance(info.sopInstanceUid, info.file.getName(), status,
+                                associationIndex, cmd.getString(Tag.ErrorComment));
+                        log.warn("C-STORE failed for {} with status 0x{}", info.file.getName(),
+                                Integer.toHexString(status));
+                    }
+                    inFlight.release();
+                }
+
+                @Override
+                public void onClose(Association as) {
+                    super.onClose(as);
+                    // Association dropped before the response arrived
+                    if (inFlight.release()) {
+                        result.recordInstance(info.sopInstanceUid, info.file.getName(), -1,
+                                associationIndex, "Association closed before response");
+                    }
+                }
+            };
+
+            // Find accepted presentation context - use ImplicitVRLittleEndian as default
+            String ts = UID.ImplicitVRLittleEndian;
+
+            // Read DICOM dataset
+            try (DicomInputStream dis = new DicomInputStream(info.file)) {
+                dis.readFileMetaInformation();
+                Attributes dataset = dis.readDataset();
+
+                as.cstore(info.sopClassUid, info.sopInstanceUid, Priority.NORMAL,
+                        new DataWriterAdapter(dataset), ts, rspHandler);
+            }
+
+        } catch (Exception e) {
+            log.error("Failed to store {}: {}", info.file.getName(), e.getMessage());
+            if (inFlight.release()) {
+                result.recordInstance(info.sopInstanceUid, info.file.getName(), -1, associationIndex, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Operations window to pace one association by.
+     * The negotiated value wins when the destination lowered our request; 0 means unlimited.
+     */
+    private int effectiveWindow(int negotiated) {
+        int requested = maxOpsInvoked > 0 ? maxOpsInvoked : Integer.MAX_VALUE;
+        int accepted = negotiated > 0 ? negotiated : Integer.MAX_VALUE;
+        return Math.min(requested, accepted);
+    }
+
+    /**
+     * Permits (KB) an instance takes from the byte budget. Instances larger than the
+     * whole budget take all of it, so they are sent alone rather than never.
+     */
+    private int toKbPermits(long bytes) {
+        long kb = Math.max(1, (bytes + 1023) / 1024);
+        return (int) Math.min(kb, maxInFlightKb);
+    }
+
+    /**
+     * Build an association request with one presentation context per distinct SOP class.
+     */
+    private AAssociateRQ buildStoreRequest(Set<String> sopClasses) {
+        AAssociateRQ rq = new AAssociateRQ();
+        rq.setCalledAET(calledAeTitle);
+        rq.setCallingAET(callingAeTitle);
+
+        int pcid = 1;
+        for (String sopClassUid : sopClasses) {
+            rq.addPresentationContext(new PresentationContext(pcid, sopClassUid, IMAGE_TRANSFER_SYNTAXES));
+            pcid += 2;
+            if (pcid > 255) break; // Max presentation contexts
+        }
+        return rq;
+    }
+
+    /**
+     * Number of associations to use for a study of the given size.
+     */
+    private int resolveAssociationCount(int instanceCount) {
+        int target = adaptiveAssociations ? currentAssociations : maxAssociations;
+        int bySize = (instanceCount + MIN_INSTANCES_PER_ASSOCIATION - 1) / MIN_INSTANCES_PER_ASSOCIATION;
+        return Math.max(1, Math.min(target, bySize));
+    }
+
+    /**
+     * Hill-climb the association count towards the best measured throughput.
+     * Keeps moving in the same direction while throughput improves, reverses when it drops.
+     */
+    private synchronized void adjustAssociationCount(int used, double bytesPerSecond) {
+        // Only learn from stores that actually ran at the current target
+        if (used != currentAssociations) return;
+
+        if (lastThroughput > 0) {
+            if (bytesPerSecond < lastThroughput * (1 - ADAPTIVE_TOLERANCE)) {
+                associationStep = -associationStep;
+            } else if (bytesPerSecond <= lastThroughput * (1 + ADAPTIVE_TOLERANCE)) {
+                // No meaningful change - hold steady
+                lastThroughput = bytesPerSecond;
+                return;
+            }
+        }
+        lastThroughput = bytesPerSecond;
+
+        int next = Math.max(1, Math.min(maxAssociations, currentAssociations + associationStep));
+        if (next == currentAssociations) {
+            associationStep = -associationStep;
+        } else {
+            log.debug("Adaptive C-STORE to '{}': {} -> {} associations ({} MB/s)",
+                    destinationName, currentAssociations, next, String.format("%.1f", bytesPerSecond / 1_048_576));
+            currentAssociations = next;
+        }
     }
 
     /**
@@ -284,33 +594,74 @@ public class DicomClient implements AutoCloseable {
      * Query with C-FIND.
      */
     public List<Attributes> find(String sopClassUid, Attributes queryKeys) throws Exception {
+        List<Attributes> results = new ArrayList<>();
+        try (QuerySession session = openQuerySession(sopClassUid)) {
+            session.find(queryKeys, results::add);
+        }
+
+        log.info("C-FIND to '{}': found {} results", destinationName, results.size());
+        return results;
+    }
+
+    /**
+     * Open a C-FIND session that keeps one association for many queries.
+     * The association is opened on the first query and re-opened if the peer drops it.
+     * A session runs one query at a time; use one session per thread for concurrency.
+     */
+    public QuerySession openQuerySession(String sopClassUid) throws IOException, GeneralSecurityException {
         initialize();
+        return new QuerySession(sopClassUid);
+    }
 
-        List<Attributes> results = new ArrayList<>();
+    /**
+     * Long-lived C-FIND association. Matches are handed to the caller as they arrive.
+     */
+    public class QuerySession implements AutoCloseable {
+        private final String sopClassUid;
+        private Association as;
+        private int queries;
 
-        AAssociateRQ rq = new AAssociateRQ();
-        rq.setCalledAET(calledAeTitle);
-        rq.setCallingAET(callingAeTitle);
-        rq.addPresentationContext(new PresentationContext(1, sopClassUid, TRANSFER_SYNTAXES));
+        private QuerySession(String sopClassUid) {
+            this.sopClassUid = sopClassUid;
+        }
 
-        Association as = null;
-        try {
-            as = ae.connect(remoteConn, rq);
+        /**
+         * Run one C-FIND on this session's association.
+         *
+         * @param onMatch called on the association reader thread for each pending response
+         * @return number of matches
+         */
+        public int find(Attributes queryKeys, Consumer<Attributes> onMatch) throws Exception {
+            if (as == null || !as.isReadyForDataTransfer()) {
+                releaseQuietly();
+                AAssociateRQ rq = new AAssociateRQ();
+                rq.setCalledAET(calledAeTitle);
+                rq.setCallingAET(callingAeTitle);
+                rq.addPresentationContext(new PresentationContext(1, sopClassUid, TRANSFER_SYNTAXES));
+                as = ae.connect(remoteConn, rq);
+            }
 
+            int[] matches = {0};
             DimseRSPHandler rspHandler = new DimseRSPHandler(as.nextMessageID()) {
                 @Override
                 public void onDimseRSP(Association as, Attributes cmd, Attributes data) {
                     int status = cmd.getInt(Tag.Status, -1);
                     if (Status.isPending(status) && data != null) {
-                        results.add(data);
+                        matches[0]++;
+                        onMatch.accept(data);
                     }
                 }
             };
 
             as.cfind(sopClassUid, Priority.NORMAL, queryKeys, null, rspHandler);
             as.waitForOutstandingRSP();
+            queries++;
+            return matches[0];
+        }
 
-        } finally {
+        public int getQueryCount() { return queries; }
+
+        private void releaseQuietly() {
             if (as != null && as.isReadyForDataTransfer()) {
                 try {
                     as.release();
@@ -318,16 +669,30 @@ public class DicomClient implements AutoCloseable {
                     log.debug("Error releasing association: {}", e.getMessage());
                 }
             }
+            as = null;
         }
 
-        log.info("C-FIND to '{}': found {} results", destinationName, results.size());
-        return results;
+        @Override
+        public void close() {
+            releaseQuietly();
+        }
     }
 
     /**
      * Retrieve with C-MOVE.
      */
     public MoveResult move(String sopClassUid, Attributes queryKeys, String moveDestination) throws Exception {
+        return move(sopClassUid, queryKeys, moveDestination, null);
+    }
+
+    /**
+     * Retrieve with C-MOVE, reporting sub-operation counts as pending responses arrive.
+     * Each call opens its own association, so several moves may run at once.
+     *
+     * @param onPending called on the association reader thread after each pending response, or null
+     */
+    public MoveResult move(String sopClassUid, Attributes queryKeys, String moveDestination,
+                           Consumer<MoveResult> onPending) throws Exception {
         initialize();
 
         MoveResult result = new MoveResult();
@@ -361,6 +726,9 @@ public class DicomClient implements AutoCloseable {
                     if (cmd.containsValue(Tag.NumberOfRemainingSuboperations)) {
                         result.setRemaining(cmd.getInt(Tag.NumberOfRemainingSuboperations, 0));
                     }
+                    if (onPending != null && Status.isPending(status)) {
+                        onPending.accept(result);
+                    }
                 }
             };
 
@@ -389,17 +757,127 @@ public class DicomClient implements AutoCloseable {
      * Retrieve with C-GET (files stored locally).
      */
     public GetResult get(String sopClassUid, Attributes queryKeys, Path outputDir) throws Exception {
+        return get(sopClassUid, queryKeys, new IncomingInstanceWriter(destinationName, outputDir, null));
+    }
+
+    /**
+     * Retrieve with C-GET.
+     * Storage sub-operations come back on the same association, so this works
+     * for sources that cannot open a connection back to us for C-MOVE. Each
+     * instance is streamed straight into the writer's incoming directory.
+     */
+    public GetResult get(String sopClassUid, Attributes queryKeys, IncomingInstanceWriter writer) throws Exception {
+        return get(sopClassUid, queryKeys, writer, null);
+    }
+
+    /**
+     * Retrieve with C-GET, reporting sub-operation counts as pending responses arrive.
+     *
+     * @param onPending called on the association reader thread after each pending response, or null
+     */
+    public GetResult get(String sopClassUid, Attributes queryKeys, IncomingInstanceWriter writer,
+                         Consumer<GetResult> onPending) throws Exception {
         initialize();
 
         GetResult result = new GetResult();
         result.setDestination(destinationName);
-        result.setOutputDirectory(outputDir.toString());
+        result.setOutputDirectory(writer.getIncomingDir().toString());
+
+        Files.createDirectories(writer.getIncomingDir());
+
+        AAssociateRQ rq = new AAssociateRQ();
+        rq.setCalledAET(calledAeTitle);
+        rq.setCallingAET(callingAeTitle);
+        rq.addPresentationContext(new PresentationContext(1, sopClassUid, TRANSFER_SYNTAXES));
+
+        // Offer storage SOP classes in the SCP role for the sub-operations
+        int pcid = 3;
+        for (String storageClass : GET_STORAGE_SOP_CLASSES) {
+            rq.addPresentationContext(new PresentationContext(pcid, storageClass, IMAGE_TRANSFER_SYNTAXES));
+            rq.addRoleSelection(new RoleSelection(storageClass, false, true));
+            pcid += 2;
+        }
+
+        Association as = null;
+        try {
+            as = ae.connect(remoteConn, rq);
+            activeGets.put(as, new GetTarget(writer, result));
+            long startTime = System.currentTimeMillis();
+
+            DimseRSPHandler rspHandler = new DimseRSPHandler(as.nextMessageID()) {
+                @Override
+                public void onDimseRSP(Association as, Attributes cmd, Attributes data) {
+                    int status = cmd.getInt(Tag.Status, -1);
+                    result.setStatus(status);
+
+                    if (cmd.containsValue(Tag.NumberOfCompletedSuboperations)) {
+                        result.setCompleted(cmd.getInt(Tag.NumberOfCompletedSuboperations, 0));
+                    }
+                    if (cmd.containsValue(Tag.NumberOfFailedSuboperations)) {
+                        result.setFailed(cmd.getInt(Tag.NumberOfFailedSuboperations, 0));
+                    }
+                    if (cmd.containsValue(Tag.NumberOfWarningSuboperations)) {
+                        result.setWarnings(cmd.getInt(Tag.NumberOfWarningSuboperations, 0));
+                    }
+                    if (cmd.containsValue(Tag.NumberOfRemainingSuboperations)) {
+                        result.setRemaining(cmd.getInt(Tag.NumberOfRemainingSuboperations, 0));
+                    }
+                    if (onPending != null && Status.isPending(status)) {
+                        onPending.accept(result);
+                    }
+                }
+            };
+
+            as.cget(sopClassUid, Priority.NORMAL, queryKeys, null, rspHandler);
+            as.waitForOutstandingRSP();
+
+            result.setDurationMs(System.currentTimeMillis() - startTime);
+
+        } finally {
+            if (as != null) {
+                activeGets.remove(as);
+                if (as.isReadyForDataTransfer()) {
+                    try {
+                        as.release();
+                    } catch (Exception e) {
+                        log.debug("Error releasing association: {}", e.getMessage());
+                    }
+                }
+            }
+        }
 
-        Files.createDirectories(outputDir);
+        log.info("C-GET from '{}': {} files ({} bytes) stored, {} failed in {}ms",
+                destinationName, result.getFileCount(), result.getTotalBytes(), result.getFailed(),
+                result.getDurationMs());
 
-        // TODO: Implement C-GET with local storage SCP
-        // This requires setting up a temporary SCP to receive the files
-        throw new UnsupportedOperationException("C-GET not yet implemented - use C-MOVE instead");
+        return result;
+    }
+
+    /**
+     * C-STORE SCP for C-GET sub-operations. Looks up the C-GET running on the
+     * association, so one client can serve several retrieves.
+     */
+    private BasicCStoreSCP createGetStoreSCP() {
+        return new BasicCStoreSCP("*") {
+            @Override
+            protected void store(Association as, PresentationContext pc, Attributes rq,
+                                 PDVInputStream data, Attributes rsp) throws IOException {
+                GetTarget target = activeGets.get(as);
+                if (target == null) {
+                    throw new DicomServiceException(Status.ProcessingFailure, "No C-GET in progress");
+                }
+
+                String sopClassUID = rq.getString(Tag.AffectedSOPClassUID);
+                String sopInstanceUID = rq.getString(Tag.AffectedSOPInstanceUID);
+                String transferSyntax = pc.getTransferSyntax();
+
+                Attributes fmi = as.createFileMetaInformation(sopInstanceUID, sopClassUID, transferSyntax);
+                long fileSize = target.writer.write(as.getRemoteAET(), fmi, sopInstanceUID, transferSyntax, data);
+                target.result.addFile(fileSize);
+
+                rsp.setInt(Tag.Status, VR.US, Status.Success);
+            }
+        };
     }
 
     @Override
@@ -428,6 +906,9 @@ public class DicomClient implements AutoCloseable {
     public String getCalledAeTitle() { return calledAeTitle; }
     public String getHost() { return host; }
     public int getPort() { return port; }
+    public int getMaxAssociations() { return maxAssociations; }
+    public int getCurrentAssociations() { return adaptiveAssociations ? currentAssociations : maxAssociations; }
+    public int getMaxOpsInvoked() { return maxOpsInvoked; }
 
     // Helper classes
     private static class FileInfo {
@@ -437,15 +918,69 @@ public class DicomClient implements AutoCloseable {
         String transferSyntax;
     }
 
+    /**
+     * Where a running C-GET puts its instances and counts them.
+     */
+    private static class GetTarget {
+        private final IncomingInstanceWriter writer;
+        private final GetResult result;
+
+        private GetTarget(IncomingInstanceWriter writer, GetResult result) {
+            this.writer = writer;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Window slots held by one outstanding C-STORE. Released exactly once,
+     * whichever of response, association close or send failure comes first.
+     */
+    private static class InFlight {
+        private final Semaphore outstanding;
+        private final Semaphore bytes;
+        private final int kb;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private InFlight(Semaphore outstanding, Semaphore bytes, int kb) {
+            this.outstanding = outstanding;
+            this.bytes = bytes;
+            this.kb = kb;
+        }
+
+        static InFlight acquire(Semaphore outstanding, Semaphore bytes, int kb) throws InterruptedException {
+            bytes.acquire(kb);
+            try {
+                outstanding.acquire();
+            } catch (InterruptedException e) {
+                bytes.release(kb);
+                throw e;
+            }
+            return new InFlight(outstanding, bytes, kb);
+        }
+
+        /**
+         * @return true if this call released the slots, false if already released
+         */
+        boolean release() {
+            if (!released.compareAndSet(false, true)) return false;
+            outstanding.release();
+            bytes.release(kb);
+            return true;
+        }
+    }
+
     /**
      * Result of C-STORE operation.
+     * Counters are updated from the response handlers of several associations, so they are synchronized.
      */
     public static class StoreResult {
         private String destination;
         private int totalFiles;
         private int successCount;
         private int failedCount;
+        private int associationCount = 1;
         private long durationMs;
+        private final List<InstanceStatus> instances = new ArrayList<>();
 
         public String getDestination() { return destination; }
         public void setDestination(String destination) { this.destination = destination; }
@@ -453,16 +988,64 @@ public class DicomClient implements AutoCloseable {
         public int getTotalFiles() { return totalFiles; }
         public void setTotalFiles(int totalFiles) { this.totalFiles = totalFiles; }
 
-        public int getSuccessCount() { return successCount; }
-        public void incrementSuccess() { this.successCount++; }
+        public synchronized int getSuccessCount() { return successCount; }
+        public synchronized void incrementSuccess() { this.successCount++; }
 
-        public int getFailedCount() { return failedCount; }
-        public void incrementFailed() { this.failedCount++; }
+        public synchronized int getFailedCount() { return failedCount; }
+        public synchronized void incrementFailed() { this.failedCount++; }
+
+        public int getAssociationCount() { return associationCount; }
+        public void setAssociationCount(int associationCount) { this.associationCount = associationCount; }
 
         public long getDurationMs() { return durationMs; }
         public void setDurationMs(long durationMs) { this.durationMs = durationMs; }
 
-        public boolean isSuccess() { return failedCount == 0 && successCount > 0; }
+        public synchronized List<InstanceStatus> getInstances() { return new ArrayList<>(instances); }
+
+        /**
+         * Record the outcome of one instance and update the counters.
+         *
+         * @param status DIMSE status, or -1 if the request never reached the destination
+         * @param association index of the association used, or -1 if none
+         */
+        public synchronized void recordInstance(String sopInstanceUid, String fileName, int status,
+                                                int association, String error) {
+            instances.add(new InstanceStatus(sopInstanceUid, fileName, status, association, error));
+            if (status == Status.Success) {
+                successCount++;
+            } else {
+                failedCount++;
+            }
+        }
+
+        public synchronized boolean isSuccess() { return failedCount == 0 && successCount > 0; }
+    }
+
+    /**
+     * Per-instance C-STORE outcome.
+     */
+    public static class InstanceStatus {
+        private final String sopInstanceUid;
+        private final String fileName;
+        private final int status;
+        private final int association;
+        private final String error;
+
+        public InstanceStatus(String sopInstanceUid, String fileName, int status, int association, String error) {
+            this.sopInstanceUid = sopInstanceUid;
+            this.fileName = fileName;
+            this.status = status;
+            this.association = association;
+            this.error = error;
+        }
+
+        public String getSopInstanceUid() { return sopInstanceUid; }
+        public String getFileName() { return fileName; }
+        public int getStatus() { return status; }
+        public int getAssociation() { return association; }
+        public String getError() { return error; }
+
+        public boolean isSuccess() { return status == Status.Success; }
     }
 
     /**
@@ -510,6 +1093,11 @@ public class DicomClient implements AutoCloseable {
         private int fileCount;
         private long totalBytes;
         private long durationMs;
+        private int status;
+        private int completed;
+        private int failed;
+        private int warnings;
+        private int remaining;
 
         public String getDestination() { return destination; }
         public void setDestination(String destination) { this.destination = destination; }
@@ -517,13 +1105,38 @@ public class DicomClient implements AutoCloseable {
         public String getOutputDirectory() { return outputDirectory; }
         public void setOutputDirectory(String outputDirectory) { this.outputDirectory = outputDirectory; }
 
-        public int getFileCount() { return fileCount; }
-        public void setFileCount(int fileCount) { this.fileCount = fileCount; }
+        public synchronized int getFileCount() { return fileCount; }
+        public synchronized void setFileCount(int fileCount) { this.fileCount = fileCount; }
+
+        public synchronized long getTotalBytes() { return totalBytes; }
+        public synchronized void setTotalBytes(long totalBytes) { this.totalBytes = totalBytes; }
 
-        public long getTotalBytes() { return totalBytes; }
-        public void setTotalBytes(long totalBytes) { this.totalBytes = totalBytes; }
+        /**
+         * Record one instance received through a storage sub-operation.
+         */
+        public synchronized void addFile(long bytes) {
+            fileCount++;
+            totalBytes += bytes;
+        }
 
         public long getDurationMs() { return durationMs; }
         public void setDurationMs(long durationMs) { this.durationMs = durationMs; }
+
+        public int getStatus() { return status; }
+        public void setStatus(int status) { this.status = status; }
+
+        public int getCompleted() { return completed; }
+        public void setCompleted(int completed) { this.completed = completed; }
+
+        public int getFailed() { return failed; }
+        public void setFailed(int failed) { this.failed = failed; }
+
+        public int getWarnings() { return warnings; }
+        public void setWarnings(int warnings) { this.warnings = warnings; }
+
+        public int getRemaining() { return remaining; }
+        public void setRemaining(int remaining) { this.remaining = remaining; }
+
+        public boolean isSuccess() { return status == Status.Success || status == Status.Pending; }
     }
 }
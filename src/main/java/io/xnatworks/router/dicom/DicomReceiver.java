@@ -12,8 +12,6 @@ import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.data.UID;
 import org.dcm4che3.data.VR;
-import org.dcm4che3.io.DicomInputStream;
-import org.dcm4che3.io.DicomOutputStream;
 import org.dcm4che3.net.*;
 import org.dcm4che3.net.pdu.PresentationContext;
 import org.dcm4che3.net.service.BasicCEchoSCP;
@@ -26,7 +24,6 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.security.GeneralSecurityException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -54,6 +51,7 @@ public class DicomReceiver implements AutoCloseable {
     private final Path logsDir;
     private final Consumer<ReceivedStudy> onStudyComplete;
     private final long studyTimeoutMs;
+    private final IncomingInstanceWriter incomingWriter;
 
     private Device device;
     private ApplicationEntity ae;
@@ -97,6 +95,7 @@ public class DicomReceiver implements AutoCloseable {
         this.completedDir = this.baseDir.resolve("completed");
         this.failedDir = this.baseDir.resolve("failed");
         this.logsDir = this.baseDir.resolve("logs");
+        this.incomingWriter = new IncomingInstanceWriter(aeTitle, incomingDir, logsDir);
         this.studyTimeoutMs = studyTimeoutSeconds * 1000L;
         this.onStudyComplete = onStudyComplete;
     }
@@ -261,111 +260,17 @@ public class DicomReceiver implements AutoCloseable {
                 // Create File Meta Information
                 Attributes fmi = as.createFileMetaInformation(sopInstanceUID, sopClassUID, transferSyntax);
 
-                // First, stream the data to a temp file to avoid memory issues with large files
-                Path tempDir = incomingDir.resolve(".temp");
-                Files.createDirectories(tempDir);
-                Path tempFile = tempDir.resolve(sopInstanceUID + ".dcm.tmp");
-
-                long fileSize;
-                try {
-                    // Stream data directly to temp file without loading into memory
-                    try (DicomOutputStream dos = new DicomOutputStream(
-                            new BufferedOutputStream(Files.newOutputStream(tempFile)), transferSyntax)) {
-                        dos.writeFileMetaInformation(fmi);
-                        // Copy the PDV data directly - this is the key for large files
-                        data.copyTo(dos);
-                    }
-                    fileSize = Files.size(tempFile);
-
-                    // Now read just the metadata we need for organization (first ~64KB is enough)
-                    String studyUid = null;
-                    String seriesUid = null;
-                    String modality = "OT";
-                    String patientId = "UNKNOWN";
-
-                    try (DicomInputStream dis = new DicomInputStream(
-                            new BufferedInputStream(Files.newInputStream(tempFile)))) {
-                        // Read only the metadata up to PixelData to get UIDs
-                        dis.setIncludeBulkData(DicomInputStream.IncludeBulkData.NO);
-                        Attributes metadata = dis.readDataset(-1, Tag.PixelData);
-                        studyUid = metadata.getString(Tag.StudyInstanceUID);
-                        seriesUid = metadata.getString(Tag.SeriesInstanceUID);
-                        modality = metadata.getString(Tag.Modality, "OT");
-                        patientId = metadata.getString(Tag.PatientID, "UNKNOWN");
-                    } catch (Exception e) {
-                        log.warn("[{}] Could not read metadata from temp file, using defaults: {}",
-                                aeTitle, e.getMessage());
-                    }
-
-                    if (studyUid == null || studyUid.isEmpty()) {
-                        studyUid = "UNKNOWN_STUDY";
-                    }
-                    if (seriesUid == null || seriesUid.isEmpty()) {
-                        seriesUid = "UNKNOWN_SERIES";
-                    }
-
-                    // Create study/series directories
-                    Path studyDir = incomingDir.resolve("study_" + studyUid);
-                    Path seriesDir = studyDir.resolve(seriesUid);
-                    Files.createDirectories(seriesDir);
-
-                    // Move temp file to final location
-                    String filename = sopInstanceUID + ".dcm";
-                    Path outputFile = seriesDir.resolve(filename);
-                    Files.move(tempFile, outputFile, StandardCopyOption.REPLACE_EXISTING);
-
-                    // Update statistics
-                    totalFilesReceived++;
-                    totalBytesReceived += fileSize;
-
-                    if (fileSize > 100 * 1024 * 1024) { // > 100MB
-                        log.info("[{}] Stored large file: {} ({}) from {}",
-                                aeTitle, outputFile.getFileName(), formatBytes(fileSize), callingAE);
-                    } else {
-                        log.debug("[{}] Stored: {} ({} bytes)", aeTitle, outputFile.getFileName(), fileSize);
-                    }
-
-                    // Log receive event
-                    logReceive(callingAE, studyUid, seriesUid, sopInstanceUID, modality, patientId, fileSize);
-
-                } finally {
-                    // Clean up temp file if it still exists (in case of error)
-                    try {
-                        Files.deleteIfExists(tempFile);
-                    } catch (IOException e) {
-                        // Ignore cleanup errors
-                    }
-                }
+                long fileSize = incomingWriter.write(callingAE, fmi, sopInstanceUID, transferSyntax, data);
+
+                // Update statistics
+                totalFilesReceived++;
+                totalBytesReceived += fileSize;
 
                 rsp.setInt(Tag.Status, VR.US, Status.Success);
             }
         };
     }
 
-    /**
-     * Log a receive event to the AE-specific log.
-     */
-    private void logReceive(String callingAE, String studyUid, String seriesUid,
-                            String sopInstanceUid, String modality, String patientId, long fileSize) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        String logLine = String.format("%s,RECEIVE,%s,%s,%s,%s,%s,%s,%d%n",
-                timestamp, callingAE, patientId, studyUid, seriesUid, sopInstanceUid, modality, fileSize);
-
-        try {
-            Path logFile = logsDir.resolve("receive_" + LocalDateTime.now().format(
-                    DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".csv");
-
-            // Write header if new file
-            if (!Files.exists(logFile)) {
-                Files.writeString(logFile, "timestamp,event,calling_ae,patient_id,study_uid,series_uid,sop_instance_uid,modality,file_size\n");
-            }
-
-            Files.writeString(logFile, logLine, java.nio.file.StandardOpenOption.APPEND);
-        } catch (IOException e) {
-            log.warn("[{}] Failed to write to receive log: {}", aeTitle, e.getMessage());
-        }
-    }
-
     /**
      * Log a general event to the AE-specific log.
      */
@@ -0,0 +1,174 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ *
+ * This software is distributed under the terms described in the LICENSE file.
+ */
+package io.xnatworks.router.dicom;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.io.DicomInputStream;
+import org.dcm4che3.io.DicomOutputStream;
+import org.dcm4che3.net.PDVInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes incoming DICOM instances into a route's incoming directory.
+ * <p>
+ * Shared by the C-STORE SCP ({@link DicomReceiver}) and C-GET sub-operations
+ * ({@link DicomClient#get}) so that every instance lands in the same layout
+ * and is picked up by the route's {@link FolderWatcher}:
+ * <pre>
+ * incoming/study_{StudyInstanceUID}/{SeriesInstanceUID}/{SOPInstanceUID}.dcm
+ * </pre>
+ * Data is streamed to a temp file, then only the header up to PixelData is
+ * read back to decide where the file goes.
+ */
+public class IncomingInstanceWriter {
+    private static final Logger log = LoggerFactory.getLogger(IncomingInstanceWriter.class);
+
+    private final String aeTitle;
+    private final Path incomingDir;
+    private final Path logsDir;
+
+    /**
+     * @param aeTitle     AE title used in log messages
+     * @param incomingDir route incoming directory
+     * @param logsDir     route logs directory for the receive CSV, or null to skip it
+     */
+    public IncomingInstanceWriter(String aeTitle, Path incomingDir, Path logsDir) {
+        this.aeTitle = aeTitle;
+        this.incomingDir = incomingDir;
+        this.logsDir = logsDir;
+    }
+
+    /**
+     * Stream one instance from the association into the incoming directory.
+     *
+     * @return the size of the stored file in bytes
+     */
+    public long write(String callingAE, Attributes fmi, String sopInstanceUID, String transferSyntax,
+                      PDVInputStream data) throws IOException {
+        // First, stream the data to a temp file to avoid memory issues with large files
+        Path tempDir = incomingDir.resolve(".temp");
+        Files.createDirectories(tempDir);
+        Path tempFile = tempDir.resolve(sopInstanceUID + ".dcm.tmp");
+
+        try {
+            // Stream data directly to temp file without loading into memory
+            try (DicomOutputStream dos = new DicomOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)), transferSyntax)) {
+                dos.writeFileMetaInformation(fmi);
+                // Copy the PDV data directly - this is the key for large files
+                data.copyTo(dos);
+            }
+            long fileSize = Files.size(tempFile);
+
+            // Now read just the metadata we need for organization (first ~64KB is enough)
+            String studyUid = null;
+            String seriesUid = null;
+            String modality = "OT";
+            String patientId = "UNKNOWN";
+
+            try (DicomInputStream dis = new DicomInputStream(
+                    new BufferedInputStream(Files.newInputStream(tempFile)))) {
+                // Read only the metadata up to PixelData to get UIDs
+                dis.setIncludeBulkData(DicomInputStream.IncludeBulkData.NO);
+                Attributes metadata = dis.readDataset(-1, Tag.PixelData);
+                studyUid = metadata.getString(Tag.StudyInstanceUID);
+                seriesUid = metadata.getString(Tag.SeriesInstanceUID);
+                modality = metadata.getString(Tag.Modality, "OT");
+                patientId = metadata.getString(Tag.PatientID, "UNKNOWN");
+            } catch (Exception e) {
+                log.warn("[{}] Could not read metadata from temp file, using defaults: {}",
+                        aeTitle, e.getMessage());
+            }
+
+            if (studyUid == null || studyUid.isEmpty()) {
+                studyUid = "UNKNOWN_STUDY";
+            }
+            if (seriesUid == null || seriesUid.isEmpty()) {
+                seriesUid = "UNKNOWN_SERIES";
+            }
+
+            // Create study/series directories
+            Path studyDir = incomingDir.resolve("study_" + studyUid);
+            Path seriesDir = studyDir.resolve(seriesUid);
+            Files.createDirectories(seriesDir);
+
+            // Move temp file to final location
+            String filename = sopInstanceUID + ".dcm";
+            Path outputFile = seriesDir.resolve(filename);
+            Files.move(tempFile, outputFile, StandardCopyOption.REPLACE_EXISTING);
+
+            if (fileSize > 100 * 1024 * 1024) { // > 100MB
+                log.info("[{}] Stored large file: {} ({}) from {}",
+                        aeTitle, outputFile.getFileName(), formatBytes(fileSize), callingAE);
+            } else {
+                log.debug("[{}] Stored: {} ({} bytes)", aeTitle, outputFile.getFileName(), fileSize);
+            }
+
+            // Log receive event
+            logReceive(callingAE, studyUid, seriesUid, sopInstanceUID, modality, patientId, fileSize);
+
+            return fileSize;
+
+        } finally {
+            // Clean up temp file if it still exists (in case of error)
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                // Ignore cleanup errors
+            }
+        }
+    }
+
+    /**
+     * Log a receive event to the AE-specific log.
+     */
+    private void logReceive(String callingAE, String studyUid, String seriesUid,
+                            String sopInstanceUid, String modality, String patientId, long fileSize) {
+        if (logsDir == null) return;
+
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        String logLine = String.format("%s,RECEIVE,%s,%s,%s,%s,%s,%s,%d%n",
+                timestamp, callingAE, patientId, studyUid, seriesUid, sopInstanceUid, modality, fileSize);
+
+        try {
+            Files.createDirectories(logsDir);
+            Path logFile = logsDir.resolve("receive_" + LocalDateTime.now().format(
+                    DateTimeFormatter.ofPattern("yyyy-MM-dd")) + ".csv");
+
+            // Write header if new file
+            if (!Files.exists(logFile)) {
+                Files.writeString(logFile, "timestamp,event,calling_ae,patient_id,study_uid,series_uid,sop_instance_uid,modality,file_size\n");
+            }
+
+            Files.writeString(logFile, logLine, java.nio.file.StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.warn("[{}] Failed to write to receive log: {}", aeTitle, e.getMessage());
+        }
+    }
+
+    private String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1048576) return String.format("%.1f KB", bytes / 1024.0);
+        if (bytes < 1073741824) return String.format("%.1f MB", bytes / 1048576.0);
+        return String.format("%.2f GB", bytes / 1073741824.0);
+    }
+
+    public String getAeTitle() { return aeTitle; }
+    public Path getIncomingDir() { return incomingDir; }
+}
@@ -0,0 +1,267 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ *
+ * This software is distributed under the terms described in the LICENSE file.
+ */
+package io.xnatworks.router.dicom;
+
+import org.apache.commons.compress.archivers.zip.DefaultBackingStoreSupplier;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.io.DicomInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Chooses how each DICOM file is packed into the ZIPs sent to destinations.
+ * <p>
+ * Pixel data in a compressed transfer syntax (JPEG, JPEG-LS, JPEG 2000, RLE,
+ * MPEG/HEVC, deflated) gains next to nothing from DEFLATE, so those entries
+ * are STORED. Uncompressed pixel data (typical CT/MR) is deflated at
+ * {@link #getDeflateLevel()}. Files that cannot be read as DICOM are deflated.
+ * <p>
+ * Entries added from files are truly STORED, with the CRC computed by a first
+ * read that also leaves the file in the page cache for the copy. Entries
+ * added from an encoded buffer, or of known size and CRC, are STORED the
+ * same way. Entries written from
+ * a stream, such as large-file anonymizer output, use DEFLATE level 0
+ * instead, as their size and CRC are not known up front.
+ */
+public class ZipPackagingPolicy {
+    private static final Logger log = LoggerFactory.getLogger(ZipPackagingPolicy.class);
+
+    /** For uncompressed pixel data, level 1 keeps most of level 6's ratio at several times the speed. */
+    public static final int DEFAULT_DEFLATE_LEVEL = Deflater.BEST_SPEED;
+
+    private static final ZipPackagingPolicy DEFAULT = new ZipPackagingPolicy(DEFAULT_DEFLATE_LEVEL,
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+    private static final int CRC_BUFFER_SIZE = 64 * 1024;
+
+    private final int deflateLevel;
+    private final int parallelThreads;
+
+    /**
+     * @param deflateLevel    DEFLATE level (1-9) for uncompressed pixel data
+     * @param parallelThreads threads used by {@link #createZip} to deflate entries; 1 for sequential
+     */
+    public ZipPackagingPolicy(int deflateLevel, int parallelThreads) {
+        this.deflateLevel = deflateLevel;
+        this.parallelThreads = Math.max(1, parallelThreads);
+    }
+
+    public static ZipPackagingPolicy getDefault() {
+        return DEFAULT;
+    }
+
+    public int getDeflateLevel() {
+        return deflateLevel;
+    }
+
+    public int getParallelThreads() {
+        return parallelThreads;
+    }
+
+    /**
+     * Whether a transfer syntax carries already-compressed pixel data.
+     */
+    public static boolean isCompressedTransferSyntax(String transferSyntaxUid) {
+        if (transferSyntaxUid == null) {
+            return false;
+        }
+        return transferSyntaxUid.startsWith("1.2.840.10008.1.2.4.")     // JPEG family, JPEG-LS, JPEG 2000, MPEG, HEVC
+                || transferSyntaxUid.equals("1.2.840.10008.1.2.5")     // RLE Lossless
+                || transferSyntaxUid.equals("1.2.840.10008.1.2.1.99"); // Deflated Explicit VR Little Endian
+    }
+
+    /**
+     * DEFLATE level for an entry written from a stream in the given transfer syntax.
+     */
+    public int levelFor(String transferSyntaxUid) {
+        return isCompressedTransferSyntax(transferSyntaxUid) ? Deflater.NO_COMPRESSION : deflateLevel;
+    }
+
+    /**
+     * Read a file's transfer syntax from its File Meta Information.
+     *
+     * @return the transfer syntax UID, or null if the file is not readable as DICOM
+     */
+    public static String readTransferSyntax(Path file) {
+        try (DicomInputStream dis = new DicomInputStream(file.toFile())) {
+            Attributes fmi = dis.readFileMetaInformation();
+            return fmi != null ? fmi.getString(Tag.TransferSyntaxUID) : dis.getTransferSyntax();
+        } catch (IOException | RuntimeException e) {
+            log.trace("Could not read transfer syntax of {}: {}", file.getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Start an entry for data the caller writes itself, e.g. an anonymized dataset.
+     */
+    public void putNextEntry(ZipOutputStream zos, String entryName, String transferSyntaxUid) throws IOException {
+        zos.setLevel(levelFor(transferSyntaxUid));
+        zos.putNextEntry(new ZipEntry(entryName));
+    }
+
+    /**
+     * Add a file as one entry, STORED or deflated according to its transfer syntax.
+     */
+    public void addFile(ZipOutputStream zos, Path file, String entryName) throws IOException {
+        ZipEntry entry = new ZipEntry(entryName);
+        if (isCompressedTransferSyntax(readTransferSyntax(file))) {
+            CRC32 crc = new CRC32();
+            long size = checksum(file, crc);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(size);
+            entry.setCompressedSize(size);
+            entry.setCrc(crc.getValue());
+        } else {
+            entry.setMethod(ZipEntry.DEFLATED);
+            zos.setLevel(deflateLevel);
+        }
+        zos.putNextEntry(entry);
+        Files.copy(file, zos);
+        zos.closeEntry();
+    }
+
+    /**
+     * Add an already-encoded dataset as one entry, STORED or deflated according
+     * to the given transfer syntax.
+     */
+    public void addEntry(ZipOutputStream zos, String entryName, byte[] data, String transferSyntaxUid)
+            throws IOException {
+        long crc = -1;
+        if (isCompressedTransferSyntax(transferSyntaxUid)) {
+            CRC32 crc32 = new CRC32();
+            crc32.update(data);
+            crc = crc32.getValue();
+        }
+        putNextEntry(zos, entryName, transferSyntaxUid, data.length, crc);
+        zos.write(data);
+        zos.closeEntry();
+    }
+
+    /**
+     * Start an entry whose size and CRC are known, STORED or deflated according
+     * to the given transfer syntax. The CRC is only needed for a STORED entry.
+     */
+    public void putNextEntry(ZipOutputStream zos, String entryName, String transferSyntaxUid,
+                             long size, long crc) throws IOException {
+        ZipEntry entry = new ZipEntry(entryName);
+        if (isCompressedTransferSyntax(transferSyntaxUid)) {
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(size);
+            entry.setCompressedSize(size);
+            entry.setCrc(crc);
+        } else {
+            entry.setMethod(ZipEntry.DEFLATED);
+            zos.setLevel(deflateLevel);
+        }
+        zos.putNextEntry(entry);
+    }
+
+    /**
+     * Write a ZIP of the given files, each entry named after its file.
+     * When most of the data is to be deflated and more than one thread is
+     * configured, entries are deflated in parallel and then gathered into
+     * the ZIP in order.
+     */
+    public void createZip(List<File> files, Path zipFile) throws IOException {
+        String[] transferSyntaxes = new String[files.size()];
+        long deflatedBytes = 0;
+        long totalBytes = 0;
+        int deflatedEntries = 0;
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+            transferSyntaxes[i] = readTransferSyntax(file.toPath());
+            totalBytes += file.length();
+            if (!isCompressedTransferSyntax(transferSyntaxes[i])) {
+                deflatedBytes += file.length();
+                deflatedEntries++;
+            }
+        }
+
+        if (parallelThreads > 1 && deflatedEntries > 1 && deflatedBytes * 2 >= totalBytes) {
+            createZipParallel(files, transferSyntaxes, zipFile);
+            return;
+        }
+
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+            for (File file : files) {
+                addFile(zos, file.toPath(), file.getName());
+            }
+        }
+    }
+
+    private void createZipParallel(List<File> files, String[] transferSyntaxes, Path zipFile) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelThreads, files.size()), r -> {
+            Thread t = new Thread(r, "zip-deflater");
+            t.setDaemon(true);
+            return t;
+        });
+        // Each entry is compressed into a temp file beside the ZIP, then copied in
+        ParallelScatterZipCreator creator = new ParallelScatterZipCreator(pool,
+                new DefaultBackingStoreSupplier(zipFile.toAbsolutePath().getParent()), deflateLevel);
+
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i).toPath();
+            ZipArchiveEntry entry = new ZipArchiveEntry(file.getFileName().toString());
+            entry.setMethod(isCompressedTransferSyntax(transferSyntaxes[i]) ? ZipEntry.STORED : ZipEntry.DEFLATED);
+            creator.addArchiveEntry(entry, () -> openEntry(file));
+        }
+
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(zipFile)) {
+            creator.writeTo(zos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("ZIP creation interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            throw new IOException("Failed to compress ZIP entry: " + cause.getMessage(), cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static InputStream openEntry(Path file) {
+        try {
+            return Files.newInputStream(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long checksum(Path file, CRC32 crc) throws IOException {
+        byte[] buffer = new byte[CRC_BUFFER_SIZE];
+        long size = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+                size += read;
+            }
+        }
+        return size;
+    }
+}
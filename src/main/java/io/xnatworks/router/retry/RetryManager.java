@@ -9,6 +9,7 @@ package io.xnatworks.router.retry;
 
 import io.xnatworks.router.archive.ArchiveManager;
 import io.xnatworks.router.config.AppConfig;
+import io.xnatworks.router.dicom.ZipPackagingPolicy;
 import io.xnatworks.router.routing.DestinationManager;
 import io.xnatworks.router.tracking.TransferTracker;
 import io.xnatworks.router.xnat.XnatClient;
@@ -403,14 +404,8 @@ public class RetryManager implements AutoCloseable {
      * Create a ZIP file from a list of paths.
      */
     private void createZipFromFiles(List<Path> files, Path zipPath) throws IOException {
-        try (java.util.zip.ZipOutputStream zos = new java.util.zip.ZipOutputStream(Files.newOutputStream(zipPath))) {
-            for (Path file : files) {
-                java.util.zip.ZipEntry entry = new java.util.zip.ZipEntry(file.getFileName().toString());
-                zos.putNextEntry(entry);
-                Files.copy(file, zos);
-                zos.closeEntry();
-            }
-        }
+        ZipPackagingPolicy.getDefault().createZip(
+                files.stream().map(Path::toFile).collect(Collectors.toList()), zipPath);
     }
 
     /**
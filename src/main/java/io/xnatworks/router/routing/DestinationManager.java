@@ -10,6 +10,7 @@ package io.xnatworks.router.routing;
 import io.xnatworks.router.config.AppConfig;
 import io.xnatworks.router.dicom.DicomClient;
 import io.xnatworks.router.xnat.XnatClient;
+import io.xnatworks.router.xnat.XnatClientManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,8 +32,8 @@ public class DestinationManager implements AutoCloseable {
 
     private final AppConfig config;
 
-    // Clients by destination name
-    private final Map<String, XnatClient> xnatClients = new ConcurrentHashMap<>();
+    // Clients by destination name; XNAT clients share HTTP connections per endpoint URL
+    private final XnatClientManager xnatClients = new XnatClientManager();
     private final Map<String, DicomClient> dicomClients = new ConcurrentHashMap<>();
 
     // Health status by destination name
@@ -73,8 +74,8 @@ public class DestinationManager implements AutoCloseable {
         }
 
         log.info("Initialized {} destinations ({} XNAT, {} DICOM, {} file)",
-                healthStatus.size(), xnatClients.size(), dicomClients.size(),
-                healthStatus.size() - xnatClients.size() - dicomClients.size());
+                healthStatus.size(), xnatClients.getEndpointCount(), dicomClients.size(),
+                healthStatus.size() - xnatClients.getEndpointCount() - dicomClients.size());
     }
 
     /**
@@ -91,14 +92,7 @@ public class DestinationManager implements AutoCloseable {
             health.setUrl(xnatDest.getUrl());
 
             // Create XNAT client
-            AppConfig.XnatEndpointLegacy endpoint = new AppConfig.XnatEndpointLegacy();
-            endpoint.setUrl(xnatDest.getUrl());
-            endpoint.setUsername(xnatDest.getUsername());
-            endpoint.setPassword(xnatDest.getPassword());
-
-            XnatClient client = new XnatClient(name,
-                    createXnatEndpoint(xnatDest.getUrl(), xnatDest.getUsername(), xnatDest.getPassword()));
-            xnatClients.put(name, client);
+            xnatClients.addClient(name, createXnatEndpoint(xnatDest));
 
             log.info("Initialized XNAT destination '{}': {}", name, xnatDest.getUrl());
 
@@ -130,11 +124,12 @@ public class DestinationManager implements AutoCloseable {
         healthStatus.put(name, health);
     }
 
-    private AppConfig.XnatEndpoint createXnatEndpoint(String url, String username, String password) {
+    private AppConfig.XnatEndpoint createXnatEndpoint(AppConfig.XnatDestination xnatDest) {
         AppConfig.XnatEndpoint endpoint = new AppConfig.XnatEndpoint();
-        endpoint.setUrl(url);
-        endpoint.setUsername(username);
-        endpoint.setPassword(password);
+        endpoint.setUrl(xnatDest.getUrl());
+        endpoint.setUsername(xnatDest.getUsername());
+        endpoint.setPassword(xnatDest.getPassword());
+        endpoint.setConnectionPoolSize(xnatDest.getConnectionPoolSize());
         return endpoint;
     }
 
@@ -191,7 +186,7 @@ public class DestinationManager implements AutoCloseable {
         AppConfig.Destination dest = config.getDestination(name);
 
         if (dest instanceof AppConfig.XnatDestination) {
-            XnatClient client = xnatClients.get(name);
+            XnatClient client = xnatClients.getClient(name);
             if (client != null) {
                 isAvailable = client.isAvailable();
             }
@@ -223,7 +218,14 @@ public class DestinationManager implements AutoCloseable {
      * Get XNAT client for a destination.
      */
     public XnatClient getXnatClient(String name) {
-        return xnatClients.get(name);
+        return xnatClients.getClient(name);
+    }
+
+    /**
+     * Get request, connection and session metrics for an XNAT destination's endpoint.
+     */
+    public XnatClientManager.EndpointMetrics getXnatMetrics(String name) {
+        return xnatClients.getMetrics(name);
     }
 
     /**
@@ -295,14 +297,7 @@ public class DestinationManager implements AutoCloseable {
      */
     public void removeDestination(String name) {
         // Close any existing clients
-        XnatClient xnatClient = xnatClients.remove(name);
-        if (xnatClient != null) {
-            try {
-                xnatClient.close();
-            } catch (Exception e) {
-                log.debug("Error closing XNAT client for '{}': {}", name, e.getMessage());
-            }
-        }
+        xnatClients.removeClient(name);
 
         DicomClient dicomClient = dicomClients.remove(name);
         if (dicomClient != null) {
@@ -398,14 +393,7 @@ public class DestinationManager implements AutoCloseable {
         stopHealthChecks();
 
         // Close XNAT clients
-        for (XnatClient client : xnatClients.values()) {
-            try {
-                client.close();
-            } catch (Exception e) {
-                log.debug("Error closing XNAT client: {}", e.getMessage());
-            }
-        }
-        xnatClients.clear();
+        xnatClients.close();
 
         // Close DICOM clients
         for (DicomClient client : dicomClients.values()) {
@@ -12,6 +12,7 @@ import io.xnatworks.router.anon.ScriptLibrary;
 import io.xnatworks.router.config.AppConfig;
 import io.xnatworks.router.dicom.DicomClient;
 import io.xnatworks.router.dicom.DicomReceiver;
+import io.xnatworks.router.dicom.ZipPackagingPolicy;
 import io.xnatworks.router.ocr.DicomOcrProcessor;
 import io.xnatworks.router.ocr.OcrService;
 import io.xnatworks.router.tracking.TransferTracker;
@@ -233,7 +234,7 @@ public class ForwardManager implements AutoCloseable {
             for (AppConfig.RouteDestination routeDest : destinations) {
                 try {
                     DestinationForwardResult destResult = forwardToDestination(
-                            processingDir, studyAttributes, routeDest, route);
+                            processingDir, studyAttributes, routeDest, route, transfer.getId());
 
                     transferTracker.updateDestinationResult(
                             transfer.getId(),
@@ -292,11 +293,14 @@ public class ForwardManager implements AutoCloseable {
 
     /**
      * Forward to a specific destination.
+     *
+     * @param transferId transfer to report upload progress on, or null
      */
     private DestinationForwardResult forwardToDestination(Path sourceDir,
                                                            Attributes studyAttributes,
                                                            AppConfig.RouteDestination routeDest,
-                                                           AppConfig.RouteConfig route) throws Exception {
+                                                           AppConfig.RouteConfig route,
+                                                           String transferId) throws Exception {
         String destName = routeDest.getDestination();
         AppConfig.Destination dest = config.getDestination(destName);
 
@@ -343,7 +347,7 @@ public class ForwardManager implements AutoCloseable {
         DestinationForwardResult result;
 
         if (dest instanceof AppConfig.XnatDestination) {
-            result = forwardToXnat(files, (AppConfig.XnatDestination) dest, destName, routeDest);
+            result = forwardToXnat(files, (AppConfig.XnatDestination) dest, destName, routeDest, transferId);
         } else if (dest instanceof AppConfig.DicomAeDestination) {
             result = forwardToDicom(files, (AppConfig.DicomAeDestination) dest, destName);
         } else if (dest instanceof AppConfig.FileDestination) {
@@ -370,7 +374,8 @@ public class ForwardManager implements AutoCloseable {
     private DestinationForwardResult forwardToXnat(List<File> files,
                                                     AppConfig.XnatDestination dest,
                                                     String destName,
-                                                    AppConfig.RouteDestination routeDest) {
+                                                    AppConfig.RouteDestination routeDest,
+                                                    String transferId) {
         XnatClient client = destinationManager.getXnatClient(destName);
         if (client == null) {
             return new DestinationForwardResult(false, "XNAT client not initialized");
@@ -388,7 +393,9 @@ public class ForwardManager implements AutoCloseable {
                     null,  // Session generated from DICOM
                     routeDest.isAutoArchive(),
                     routeDest.getRetryCount(),
-                    routeDest.getRetryDelaySeconds() * 1000L
+                    routeDest.getRetryDelaySeconds() * 1000L,
+                    transferId != null ?
+                            (sent, total) -> transferTracker.updateUploadProgress(transferId, sent, total) : null
             );
 
             // Cleanup ZIP
@@ -1126,16 +1133,7 @@ public class ForwardManager implements AutoCloseable {
 
     private Path createZip(List<File> files) throws IOException {
         Path zipFile = Files.createTempFile("dicom_", ".zip");
-
-        try (java.util.zip.ZipOutputStream zos =
-                     new java.util.zip.ZipOutputStream(Files.newOutputStream(zipFile))) {
-            for (File file : files) {
-                zos.putNextEntry(new java.util.zip.ZipEntry(file.getName()));
-                Files.copy(file.toPath(), zos);
-                zos.closeEntry();
-            }
-        }
-
+        ZipPackagingPolicy.getDefault().createZip(files, zipFile);
         return zipFile;
     }
 
@@ -1180,7 +1178,7 @@ public class ForwardManager implements AutoCloseable {
         retryScheduler.schedule(() -> {
             try {
                 DestinationForwardResult result = forwardToDestination(
-                        sourceDir, attrs, routeDest, route);
+                        sourceDir, attrs, routeDest, route, null);
                 if (!result.isSuccess()) {
                     scheduleDestinationRetry(sourceDir, attrs, routeDest, route, attempt + 1);
                 }
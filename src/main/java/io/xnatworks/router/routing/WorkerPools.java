@@ -0,0 +1,503 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ *
+ * This software is distributed under the terms described in the LICENSE file.
+ */
+package io.xnatworks.router.routing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Separate thread pools for CPU-bound and I/O-bound stages of forwarding.
+ * <p>
+ * Anonymization and packaging run on one CPU pool sized to the cores and
+ * shared by all routes. Each route has its own bounded queue, and workers
+ * pick the next task by stride scheduling, so a route with weight 2 gets
+ * twice the CPU share of a route with weight 1 while both have work, and an
+ * idle route's share goes to the others.
+ * <p>
+ * Sends run on a transfer pool per destination, sized by the destination.
+ * A slow upload then ties up its own destination's threads rather than the
+ * cores that anonymize the next study.
+ * <p>
+ * Both kinds of pool have bounded queues and submitting to a full queue
+ * blocks. A backlog of uploads therefore holds back packaging, and a backlog
+ * of packaging holds back the receiver, instead of piling up temp files.
+ */
+public class WorkerPools implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(WorkerPools.class);
+
+    /** Studies queued per route before submitting blocks. */
+    public static final int DEFAULT_CPU_QUEUE_CAPACITY = 16;
+
+    /** Sends queued per destination before submitting blocks. */
+    public static final int DEFAULT_TRANSFER_QUEUE_CAPACITY = 8;
+
+    private final CpuPool cpuPool;
+    private final int transferQueueCapacity;
+    private final Map<String, TransferPool> transferPools = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    public WorkerPools() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CPU_QUEUE_CAPACITY, DEFAULT_TRANSFER_QUEUE_CAPACITY);
+    }
+
+    public WorkerPools(int cpuThreads, int cpuQueueCapacity, int transferQueueCapacity) {
+        this.cpuPool = new CpuPool(Math.max(1, cpuThreads), Math.max(1, cpuQueueCapacity));
+        this.transferQueueCapacity = Math.max(1, transferQueueCapacity);
+        log.info("Initialized CPU pool with {} threads", cpuPool.threads.size());
+    }
+
+    /**
+     * Set a route's share of the CPU pool. Routes not registered get weight 1.
+     */
+    public void registerRoute(String aeTitle, int weight) {
+        cpuPool.queue(aeTitle).weight = Math.max(1, weight);
+    }
+
+    /**
+     * Run a CPU-bound task for a route, blocking while the route's queue is full.
+     */
+    public <T> CompletableFuture<T> submitCpu(String aeTitle, Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            cpuPool.submit(aeTitle, () -> complete(future, task));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Run a CPU-bound step of a send on the CPU pool and wait for its result.
+     * <p>
+     * The task goes to the front of the route's queue without waiting for space,
+     * so a send never waits behind the studies queued for packaging. If every CPU
+     * thread is itself waiting for room in a transfer queue, or the CPU pool has
+     * shut down, the task runs on the calling thread instead: the sends filling
+     * those queues may be the ones waiting for it.
+     */
+    public <T> T callCpu(String aeTitle, Callable<T> task) throws Exception {
+        AtomicBoolean claimed = new AtomicBoolean();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            cpuPool.submitFirst(aeTitle, () -> {
+                if (claimed.compareAndSet(false, true)) {
+                    complete(future, task);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return task.call();
+        }
+        while (true) {
+            try {
+                return future.get(1, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                if (cpuPool.allWaitingOnTransfers() && claimed.compareAndSet(false, true)) {
+                    return task.call();
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Run a send on a destination's transfer pool, blocking while its queue is full.
+     *
+     * @param threads pool size used when the destination's pool is first created
+     */
+    public <T> CompletableFuture<T> submitTransfer(String destination, int threads, Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new RejectedExecutionException("Worker pools are closed"));
+            return future;
+        }
+        TransferPool pool = transferPools.computeIfAbsent(destination,
+                name -> new TransferPool(name, Math.max(1, threads), transferQueueCapacity));
+        boolean fromCpu = cpuPool.threads.contains(Thread.currentThread());
+        if (fromCpu) {
+            cpuPool.waitingOnTransfers.incrementAndGet();
+        }
+        try {
+            pool.executor.execute(() -> complete(future, task));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        } finally {
+            if (fromCpu) {
+                cpuPool.waitingOnTransfers.decrementAndGet();
+            }
+        }
+        return future;
+    }
+
+    private static <T> void complete(CompletableFuture<T> future, Callable<T> task) {
+        try {
+            future.complete(task.call());
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+
+    /**
+     * Utilization and queue depth of every pool, CPU pool first.
+     */
+    public List<PoolStats> getStats() {
+        List<PoolStats> stats = new ArrayList<>();
+        stats.add(cpuPool.stats());
+        transferPools.values().stream()
+                .sorted(Comparator.comparing(pool -> pool.name))
+                .forEach(pool -> stats.add(pool.stats()));
+        return stats;
+    }
+
+    /**
+     * Drain the CPU pool, then the transfer pools. Studies still being packaged
+     * submit their sends, so the transfer pools only stop taking work once the
+     * CPU pool has finished.
+     */
+    @Override
+    public void close() {
+        cpuPool.shutdown();
+        try {
+            cpuPool.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closed = true;
+        for (TransferPool pool : transferPools.values()) {
+            pool.executor.shutdown();
+        }
+        try {
+            for (TransferPool pool : transferPools.values()) {
+                if (!pool.executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    pool.executor.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Busy time of a pool's threads, sampled into a utilization figure.
+     */
+    static class PoolMeter {
+        /** Shortest interval utilization is computed over. */
+        private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final Map<Thread, Long> running = new ConcurrentHashMap<>();
+        private long lastSampleAt = System.nanoTime();
+        private long lastBusyNanos;
+        private double utilization;
+
+        void run(Runnable task) {
+            long start = System.nanoTime();
+            running.put(Thread.currentThread(), start);
+            try {
+                task.run();
+            } finally {
+                running.remove(Thread.currentThread());
+                busyNanos.addAndGet(System.nanoTime() - start);
+                completed.incrementAndGet();
+            }
+        }
+
+        int active() {
+            return running.size();
+        }
+
+        long completed() {
+            return completed.get();
+        }
+
+        /**
+         * Fraction of thread time spent on tasks since the previous sample.
+         */
+        synchronized double utilization(int threads) {
+            long now = System.nanoTime();
+            long elapsed = now - lastSampleAt;
+            if (elapsed < SAMPLE_INTERVAL_NANOS) {
+                return utilization;
+            }
+            // Tasks still running count up to now, so long sends show as busy before they finish
+            long busy = busyNanos.get();
+            for (long start : running.values()) {
+                busy += now - start;
+            }
+            utilization = Math.max(0.0, Math.min(1.0, (busy - lastBusyNanos) / (double) (elapsed * threads)));
+            lastBusyNanos = busy;
+            lastSampleAt = now;
+            return utilization;
+        }
+    }
+
+    /**
+     * CPU pool with a bounded queue and stride-scheduled share per route.
+     */
+    private static class CpuPool {
+        private static final long STRIDE = 1 << 20;
+
+        private final int queueCapacity;
+        private final List<Thread> threads = new ArrayList<>();
+        private final Map<String, RouteQueue> queues = new ConcurrentHashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+        private final PoolMeter meter = new PoolMeter();
+        // Workers inside submitTransfer, which blocks while the transfer queue is full
+        private final AtomicInteger waitingOnTransfers = new AtomicInteger();
+        private long virtualTime;
+        private int queued;
+        private boolean shutdown;
+
+        CpuPool(int threadCount, int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            for (int i = 0; i < threadCount; i++) {
+                Thread t = new Thread(this::work, "cpu-worker-" + i);
+                t.setDaemon(true);
+                threads.add(t);
+                t.start();
+            }
+        }
+
+        RouteQueue queue(String aeTitle) {
+            return queues.computeIfAbsent(aeTitle, name -> new RouteQueue());
+        }
+
+        void submit(String aeTitle, Runnable task) throws InterruptedException {
+            RouteQueue queue = queue(aeTitle);
+            lock.lock();
+            try {
+                while (!shutdown && queue.tasks.size() >= queueCapacity) {
+                    notFull.await();
+                }
+                if (shutdown) {
+                    throw new RejectedExecutionException("CPU pool is shut down");
+                }
+                if (queue.tasks.isEmpty()) {
+                    // A route coming back from idle does not get credit for the time it was idle
+                    queue.pass = Math.max(queue.pass, virtualTime);
+                }
+                queue.tasks.add(task);
+                queued++;
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Queue a task ahead of the route's other tasks, ignoring the queue's capacity.
+         */
+        void submitFirst(String aeTitle, Runnable task) {
+            RouteQueue queue = queue(aeTitle);
+            lock.lock();
+            try {
+                if (shutdown) {
+                    throw new RejectedExecutionException("CPU pool is shut down");
+                }
+                if (queue.tasks.isEmpty()) {
+                    queue.pass = Math.max(queue.pass, virtualTime);
+                }
+                queue.tasks.addFirst(task);
+                queued++;
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean allWaitingOnTransfers() {
+            return waitingOnTransfers.get() >= threads.size();
+        }
+
+        private Runnable take() throws InterruptedException {
+            lock.lock();
+            try {
+                while (queued == 0) {
+                    if (shutdown) {
+                        return null;
+                    }
+                    notEmpty.await();
+                }
+                RouteQueue next = null;
+                for (RouteQueue queue : queues.values()) {
+                    if (!queue.tasks.isEmpty() && (next == null || queue.pass < next.pass)) {
+                        next = queue;
+                    }
+                }
+                virtualTime = next.pass;
+                next.pass += STRIDE / next.weight;
+                queued--;
+                notFull.signalAll();
+                return next.tasks.poll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void work() {
+            while (true) {
+                Runnable task;
+                try {
+                    task = take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (task == null) {
+                    return;
+                }
+                try {
+                    meter.run(task);
+                } catch (Throwable t) {
+                    log.error("CPU task failed: {}", t.getMessage(), t);
+                }
+            }
+        }
+
+        void shutdown() {
+            lock.lock();
+            try {
+                shutdown = true;
+                notEmpty.signalAll();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            for (Thread t : threads) {
+                t.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            }
+        }
+
+        PoolStats stats() {
+            lock.lock();
+            int depth;
+            try {
+                depth = queued;
+            } finally {
+                lock.unlock();
+            }
+            Map<String, Integer> weights = new TreeMap<>();
+            queues.forEach((route, queue) -> weights.put(route, queue.weight));
+            return new PoolStats("cpu", "cpu", threads.size(), meter.active(), depth,
+                    queueCapacity * Math.max(1, queues.size()), meter.completed(),
+                    meter.utilization(threads.size()), weights);
+        }
+    }
+
+    private static class RouteQueue {
+        final Deque<Runnable> tasks = new ArrayDeque<>();
+        volatile int weight = 1;
+        long pass;
+    }
+
+    /**
+     * Fixed-size pool for one destination whose full queue blocks the submitter.
+     */
+    private static class TransferPool {
+        final String name;
+        final int threads;
+        final int queueCapacity;
+        final PoolMeter meter = new PoolMeter();
+        final ThreadPoolExecutor executor;
+
+        TransferPool(String name, int threads, int queueCapacity) {
+            this.name = name;
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+            this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    r -> {
+                        Thread t = new Thread(r, "transfer-" + name);
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    (task, pool) -> {
+                        if (pool.isShutdown()) {
+                            throw new RejectedExecutionException("Transfer pool for " + name + " is shut down");
+                        }
+                        try {
+                            pool.getQueue().put(task);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException("Interrupted waiting for transfer queue", e);
+                        }
+                    }) {
+                @Override
+                public void execute(Runnable command) {
+                    super.execute(() -> meter.run(command));
+                }
+            };
+            this.executor.prestartAllCoreThreads();
+            log.info("Initialized {} transfer threads for destination '{}'", threads, name);
+        }
+
+        PoolStats stats() {
+            return new PoolStats("transfer", name, threads, meter.active(), executor.getQueue().size(),
+                    queueCapacity, meter.completed(), meter.utilization(threads), null);
+        }
+    }
+
+    /**
+     * Point-in-time figures for one pool.
+     */
+    public static class PoolStats {
+        private final String type;
+        private final String name;
+        private final int threads;
+        private final int active;
+        private final int queued;
+        private final int queueCapacity;
+        private final long completed;
+        private final double utilization;
+        private final Map<String, Integer> routeWeights;
+
+        PoolStats(String type, String name, int threads, int active, int queued, int queueCapacity,
+                  long completed, double utilization, Map<String, Integer> routeWeights) {
+            this.type = type;
+            this.name = name;
+            this.threads = threads;
+            this.active = active;
+            this.queued = queued;
+            this.queueCapacity = queueCapacity;
+            this.completed = completed;
+            this.utilization = utilization;
+            this.routeWeights = routeWeights;
+        }
+
+        public String getType() { return type; }
+        public String getName() { return name; }
+        public int getThreads() { return threads; }
+        public int getActive() { return active; }
+        public int getQueued() { return queued; }
+        public int getQueueCapacity() { return queueCapacity; }
+        public long getCompleted() { return completed; }
+        public double getUtilization() { return utilization; }
+        public Map<String, Integer> getRouteWeights() { return routeWeights; }
+    }
+}
@@ -239,6 +239,32 @@ public class RouterStore {
                 "    error_message TEXT," +
                 "    created_at TEXT NOT NULL" +
                 ")");
+
+            // Query/retrieve jobs, kept so unfinished jobs resume after a restart
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS retrieve_jobs (" +
+                "    job_id TEXT PRIMARY KEY," +
+                "    source_name TEXT NOT NULL," +
+                "    target_route TEXT NOT NULL," +
+                "    retrieve_mode TEXT NOT NULL," +
+                "    status TEXT NOT NULL," +  // PENDING, RUNNING, COMPLETED, COMPLETED_WITH_ERRORS, FAILED, CANCELLED
+                "    start_time INTEGER NOT NULL," +
+                "    end_time INTEGER DEFAULT 0" +
+                ")");
+
+            stmt.execute(
+                "CREATE TABLE IF NOT EXISTS retrieve_job_studies (" +
+                "    job_id TEXT NOT NULL," +
+                "    study_uid TEXT NOT NULL," +
+                "    position INTEGER NOT NULL," +
+                "    status TEXT NOT NULL DEFAULT 'PENDING'," +  // PENDING, RUNNING, COMPLETED, FAILED
+                "    completed INTEGER DEFAULT 0," +
+                "    failed INTEGER DEFAULT 0," +
+                "    warnings INTEGER DEFAULT 0," +
+                "    error TEXT," +
+                "    PRIMARY KEY (job_id, study_uid)," +
+                "    FOREIGN KEY (job_id) REFERENCES retrieve_jobs(job_id)" +
+                ")");
         }
     }
 
@@ -271,6 +297,9 @@ public class RouterStore {
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_custom_values_field ON dicom_custom_values(field_id)");
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_custom_values_entity ON dicom_custom_values(entity_uid)");
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_custom_values_value ON dicom_custom_values(value)");
+
+            // Retrieve job indexes
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_retrieve_jobs_status ON retrieve_jobs(status)");
         }
     }
 
@@ -1630,6 +1659,131 @@ public class RouterStore {
         return connection;
     }
 
+    // ========================================================================
+    // Retrieve Job Methods
+    // ========================================================================
+
+    /**
+     * Save a retrieve job and its study list.
+     */
+    public void saveRetrieveJob(RetrieveJobRecord job) {
+        String jobSql = "INSERT OR REPLACE INTO retrieve_jobs " +
+                        "(job_id, source_name, target_route, retrieve_mode, status, start_time, end_time) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        String studySql = "INSERT OR REPLACE INTO retrieve_job_studies " +
+                          "(job_id, study_uid, position, status, completed, failed, warnings, error) " +
+                          "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement jobStmt = connection.prepareStatement(jobSql);
+             PreparedStatement studyStmt = connection.prepareStatement(studySql)) {
+            jobStmt.setString(1, job.jobId);
+            jobStmt.setString(2, job.sourceName);
+            jobStmt.setString(3, job.targetRoute);
+            jobStmt.setString(4, job.retrieveMode);
+            jobStmt.setString(5, job.status);
+            jobStmt.setLong(6, job.startTime);
+            jobStmt.setLong(7, job.endTime);
+            jobStmt.executeUpdate();
+
+            for (RetrieveStudyRecord study : job.studies) {
+                studyStmt.setString(1, job.jobId);
+                studyStmt.setString(2, study.studyUid);
+                studyStmt.setInt(3, study.position);
+                studyStmt.setString(4, study.status);
+                studyStmt.setInt(5, study.completed);
+                studyStmt.setInt(6, study.failed);
+                studyStmt.setInt(7, study.warnings);
+                studyStmt.setString(8, study.error);
+                studyStmt.addBatch();
+            }
+            studyStmt.executeBatch();
+        } catch (SQLException e) {
+            log.error("Failed to save retrieve job {}: {}", job.jobId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Update the status of a retrieve job.
+     */
+    public void updateRetrieveJobStatus(String jobId, String status, long endTime) {
+        String sql = "UPDATE retrieve_jobs SET status = ?, end_time = ? WHERE job_id = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, status);
+            stmt.setLong(2, endTime);
+            stmt.setString(3, jobId);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            log.error("Failed to update retrieve job {}: {}", jobId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Update the outcome of one study within a retrieve job.
+     */
+    public void updateRetrieveStudy(String jobId, String studyUid, String status,
+                                    int completed, int failed, int warnings, String error) {
+        String sql = "UPDATE retrieve_job_studies SET status = ?, completed = ?, failed = ?, warnings = ?, error = ? " +
+                     "WHERE job_id = ? AND study_uid = ?";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, status);
+            stmt.setInt(2, completed);
+            stmt.setInt(3, failed);
+            stmt.setInt(4, warnings);
+            stmt.setString(5, error);
+            stmt.setString(6, jobId);
+            stmt.setString(7, studyUid);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            log.error("Failed to update study {} of retrieve job {}: {}", studyUid, jobId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get retrieve jobs that were pending or running, with their studies in order.
+     */
+    public List<RetrieveJobRecord> getUnfinishedRetrieveJobs() {
+        List<RetrieveJobRecord> jobs = new ArrayList<>();
+        String sql = "SELECT * FROM retrieve_jobs WHERE status IN ('PENDING', 'RUNNING') ORDER BY start_time";
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                RetrieveJobRecord job = new RetrieveJobRecord();
+                job.jobId = rs.getString("job_id");
+                job.sourceName = rs.getString("source_name");
+                job.targetRoute = rs.getString("target_route");
+                job.retrieveMode = rs.getString("retrieve_mode");
+                job.status = rs.getString("status");
+                job.startTime = rs.getLong("start_time");
+                job.endTime = rs.getLong("end_time");
+                jobs.add(job);
+            }
+        } catch (SQLException e) {
+            log.error("Failed to get unfinished retrieve jobs: {}", e.getMessage(), e);
+            return jobs;
+        }
+
+        String studySql = "SELECT * FROM retrieve_job_studies WHERE job_id = ? ORDER BY position";
+        try (PreparedStatement stmt = connection.prepareStatement(studySql)) {
+            for (RetrieveJobRecord job : jobs) {
+                stmt.setString(1, job.jobId);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    RetrieveStudyRecord study = new RetrieveStudyRecord();
+                    study.studyUid = rs.getString("study_uid");
+                    study.position = rs.getInt("position");
+                    study.status = rs.getString("status");
+                    study.completed = rs.getInt("completed");
+                    study.failed = rs.getInt("failed");
+                    study.warnings = rs.getInt("warnings");
+                    study.error = rs.getString("error");
+                    job.studies.add(study);
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Failed to get retrieve job studies: {}", e.getMessage(), e);
+        }
+        return jobs;
+    }
+
     // ========================================================================
     // Utility Methods
     // ========================================================================
@@ -1842,6 +1996,27 @@ public class RouterStore {
         public String updatedAt;
     }
 
+    public static class RetrieveJobRecord {
+        public String jobId;
+        public String sourceName;
+        public String targetRoute;
+        public String retrieveMode;  // C-MOVE, C-GET
+        public String status;
+        public long startTime;
+        public long endTime;
+        public List<RetrieveStudyRecord> studies = new ArrayList<>();
+    }
+
+    public static class RetrieveStudyRecord {
+        public String studyUid;
+        public int position;
+        public String status;  // PENDING, RUNNING, COMPLETED, FAILED
+        public int completed;
+        public int failed;
+        public int warnings;
+        public String error;
+    }
+
     public static class ReindexJob {
         public long id;
         public String status;  // pending, running, completed, failed
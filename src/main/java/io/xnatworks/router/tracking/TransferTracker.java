@@ -128,6 +128,20 @@ public class TransferTracker {
         record.setBytesProcessed(bytesProcessed);
     }
 
+    /**
+     * Update progress from an upload of the whole transfer as one archive.
+     * The fraction of the archive sent is applied to the transfer's file count and size.
+     */
+    public void updateUploadProgress(String transferId, long bytesSent, long uploadSize) {
+        TransferRecord record = activeTransfers.get(transferId);
+        if (record == null || uploadSize <= 0) {
+            return;
+        }
+        double fraction = Math.min(1.0, (double) bytesSent / uploadSize);
+        record.setFilesProcessed((long) (record.getFileCount() * fraction));
+        record.setBytesProcessed((long) (record.getTotalSize() * fraction));
+    }
+
     /**
      * Increment progress by one file.
      */
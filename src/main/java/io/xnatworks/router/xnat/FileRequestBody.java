@@ -0,0 +1,68 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ *
+ * This software is distributed under the terms described in the LICENSE file.
+ */
+package io.xnatworks.router.xnat;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Request body that streams a file from disk in fixed-size segments.
+ * <p>
+ * Only one segment is held in memory at a time, so heap use does not depend on
+ * the file size. The file is reopened on every write, which lets OkHttp and
+ * {@link XnatClient#uploadWithRetry} send the same body again after a failure.
+ */
+public class FileRequestBody extends RequestBody {
+    private static final long SEGMENT_SIZE = 64 * 1024;
+
+    private final File file;
+    private final MediaType contentType;
+    private final XnatClient.UploadProgressListener progressListener;
+
+    /**
+     * @param progressListener notified after each segment is written, or null
+     */
+    public FileRequestBody(File file, MediaType contentType, XnatClient.UploadProgressListener progressListener) {
+        this.file = file;
+        this.contentType = contentType;
+        this.progressListener = progressListener;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return file.length();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        long total = contentLength();
+        long sent = 0;
+
+        try (Source source = Okio.source(file)) {
+            long read;
+            while ((read = source.read(sink.getBuffer(), SEGMENT_SIZE)) != -1) {
+                sink.emitCompleteSegments();
+                sent += read;
+                if (progressListener != null) {
+                    progressListener.onProgress(sent, total);
+                }
+            }
+        }
+    }
+}
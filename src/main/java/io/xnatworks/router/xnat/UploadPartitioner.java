@@ -0,0 +1,89 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ *
+ * This software is distributed under the terms described in the LICENSE file.
+ */
+package io.xnatworks.router.xnat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits a study's files into ZIP parts for {@link XnatClient#uploadParts}.
+ * <p>
+ * Files are grouped by series, which is their parent directory in the
+ * incoming layout ({@code study_{uid}/{seriesUid}/{sopUid}.dcm}). A part
+ * never exceeds the size bound unless a single file does.
+ * <ul>
+ *   <li>{@code none} - one part with every file</li>
+ *   <li>{@code series} - one part per series, larger series split by size</li>
+ *   <li>{@code size} - series packed together into parts up to the size bound</li>
+ * </ul>
+ */
+public final class UploadPartitioner {
+    private static final Logger log = LoggerFactory.getLogger(UploadPartitioner.class);
+
+    public static final String NONE = "none";
+    public static final String SERIES = "series";
+    public static final String SIZE = "size";
+
+    private UploadPartitioner() {
+    }
+
+    /**
+     * @param files        study files in upload order
+     * @param mode         {@link #NONE}, {@link #SERIES} or {@link #SIZE}
+     * @param maxPartBytes largest part size, or 0 for no bound
+     * @return the parts, each non-empty; a single part if the study is not split
+     */
+    public static List<List<File>> partition(List<File> files, String mode, long maxPartBytes) {
+        if (files.isEmpty() || mode == null || NONE.equalsIgnoreCase(mode)) {
+            return List.of(files);
+        }
+        boolean bySeries = SERIES.equalsIgnoreCase(mode);
+        if (!bySeries && !SIZE.equalsIgnoreCase(mode)) {
+            log.warn("Unknown upload split mode '{}', uploading as a single ZIP", mode);
+            return List.of(files);
+        }
+
+        // Group by series, keeping the order series are first seen in
+        Map<String, List<File>> seriesFiles = new LinkedHashMap<>();
+        for (File file : files) {
+            File parent = file.getParentFile();
+            seriesFiles.computeIfAbsent(parent != null ? parent.getPath() : "", k -> new ArrayList<>()).add(file);
+        }
+
+        List<List<File>> parts = new ArrayList<>();
+        List<File> current = new ArrayList<>();
+        long currentBytes = 0;
+        for (List<File> series : seriesFiles.values()) {
+            if (bySeries && !current.isEmpty()) {
+                parts.add(current);
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+            for (File file : series) {
+                long length = file.length();
+                if (!current.isEmpty() && maxPartBytes > 0 && currentBytes + length > maxPartBytes) {
+                    parts.add(current);
+                    current = new ArrayList<>();
+                    currentBytes = 0;
+                }
+                current.add(file);
+                currentBytes += length;
+            }
+        }
+        if (!current.isEmpty()) {
+            parts.add(current);
+        }
+        return parts;
+    }
+}
@@ -8,43 +8,77 @@
 package io.xnatworks.router.xnat;
 
 import okhttp3.*;
+import okio.BufferedSink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import io.xnatworks.router.config.AppConfig;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * XNAT REST API client for authentication, fetching anon scripts, and uploading data.
  * Each instance connects to a single XNAT endpoint.
+ * <p>
+ * The JSESSION obtained on first use is kept and reused by later requests and
+ * uploads. It is renewed after {@link #SESSION_IDLE_TIMEOUT_MS} of inactivity,
+ * or when XNAT answers 401 to a request made with it.
  */
 public class XnatClient implements AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(XnatClient.class);
+    private static final MediaType ZIP = MediaType.parse("application/zip");
+
+    /** Renew the session before XNAT's default 15 minute inactivity timeout would expire it. */
+    static final long SESSION_IDLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
 
     private final String endpointName;
     private final String baseUrl;
     private final String username;
     private final String password;
     private final OkHttpClient httpClient;
-    private String jsessionId;
+    private final XnatClientManager.EndpointMetrics metrics;
+    private volatile String jsessionId;
+    private volatile long sessionLastUsed;
 
     /**
-     * Create client from named endpoint configuration.
+     * Create client from named endpoint configuration, with its own HTTP client.
      */
     public XnatClient(String endpointName, AppConfig.XnatEndpoint endpoint) {
+        this(endpointName, endpoint, new XnatClientManager.EndpointMetrics(endpoint.getUrl().replaceAll("/$", "")));
+    }
+
+    private XnatClient(String endpointName, AppConfig.XnatEndpoint endpoint,
+                       XnatClientManager.EndpointMetrics metrics) {
+        this(endpointName, endpoint, XnatClientManager.createHttpClient(endpoint.getConnectionPoolSize(), metrics),
+                metrics);
+    }
+
+    /**
+     * Create client over a shared HTTP client, recording into shared endpoint metrics.
+     * The HTTP client is owned by the caller and is not shut down by {@link #close()}.
+     */
+    public XnatClient(String endpointName, AppConfig.XnatEndpoint endpoint, OkHttpClient httpClient,
+                      XnatClientManager.EndpointMetrics metrics) {
         this.endpointName = endpointName;
         this.baseUrl = endpoint.getUrl().replaceAll("/$", "");
         this.username = endpoint.getUsername();
         this.password = endpoint.getPassword();
-
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(120, TimeUnit.SECONDS)
-                .writeTimeout(120, TimeUnit.SECONDS)
-                .build();
+        this.httpClient = httpClient;
+        this.metrics = metrics;
 
         log.debug("Created XnatClient for endpoint '{}': {}", endpointName, baseUrl);
     }
@@ -57,12 +91,8 @@ public class XnatClient implements AutoCloseable {
         this.baseUrl = config.getUrl().replaceAll("/$", "");
         this.username = config.getUsername();
         this.password = config.getPassword();
-
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(120, TimeUnit.SECONDS)
-                .writeTimeout(120, TimeUnit.SECONDS)
-                .build();
+        this.metrics = new XnatClientManager.EndpointMetrics(baseUrl);
+        this.httpClient = XnatClientManager.createHttpClient(5, metrics);
     }
 
     public String getEndpointName() {
@@ -73,6 +103,10 @@ public class XnatClient implements AutoCloseable {
         return baseUrl;
     }
 
+    public XnatClientManager.EndpointMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Check if XNAT is available.
      * Note: This method does NOT persist the session - it's only for health checking.
@@ -87,14 +121,17 @@ public class XnatClient implements AutoCloseable {
                     .header("Authorization", credential)
                     .build();
 
+            String testSession = null;
             try (Response response = httpClient.newCall(request).execute()) {
                 if (response.isSuccessful() && response.body() != null) {
-                    String testSession = response.body().string().trim();
-                    // Immediately invalidate the test session
-                    invalidateSession(testSession);
-                    return true;
+                    testSession = response.body().string().trim();
                 }
             }
+            // Immediately invalidate the test session, once its response has released its request slot
+            if (testSession != null) {
+                invalidateSession(testSession);
+                return true;
+            }
         } catch (Exception e) {
             log.debug("XNAT health check failed for '{}': {}", endpointName, e.getMessage());
         }
@@ -102,9 +139,9 @@ public class XnatClient implements AutoCloseable {
     }
 
     /**
-     * Authenticate and get JSESSION token.
+     * Authenticate and get JSESSION token, replacing any current session.
      */
-    public String authenticate() throws IOException {
+    public synchronized String authenticate() throws IOException {
         String credential = Credentials.basic(username, password);
 
         Request request = new Request.Builder()
@@ -113,9 +150,11 @@ public class XnatClient implements AutoCloseable {
                 .header("Authorization", credential)
                 .build();
 
-        try (Response response = httpClient.newCall(request).execute()) {
+        try (Response response = execute(request)) {
             if (response.isSuccessful() && response.body() != null) {
                 jsessionId = response.body().string().trim();
+                sessionLastUsed = System.currentTimeMillis();
+                metrics.recordSessionCreated();
                 log.debug("Authenticated with XNAT '{}', JSESSION: {}...",
                         endpointName, jsessionId.substring(0, Math.min(8, jsessionId.length())));
                 return jsessionId;
@@ -148,15 +187,11 @@ public class XnatClient implements AutoCloseable {
      * Fetch site-wide anonymization script.
      */
     public String fetchSiteAnonScript() throws IOException {
-        ensureAuthenticated();
-
-        Request request = new Request.Builder()
+        Request.Builder request = new Request.Builder()
                 .url(baseUrl + "/data/config/anon/script?format=json")
-                .get()
-                .header("Cookie", "JSESSIONID=" + jsessionId)
-                .build();
+                .get();
 
-        try (Response response = httpClient.newCall(request).execute()) {
+        try (Response response = executeWithSession(request)) {
             if (!response.isSuccessful()) {
                 throw new IOException("Failed to fetch anon script from '" + endpointName + "': HTTP " + response.code());
             }
@@ -170,15 +205,11 @@ public class XnatClient implements AutoCloseable {
      * Fetch project-level anonymization script.
      */
     public String fetchProjectAnonScript(String projectId) throws IOException {
-        ensureAuthenticated();
-
-        Request request = new Request.Builder()
+        Request.Builder request = new Request.Builder()
                 .url(baseUrl + "/data/projects/" + projectId + "/config/anon/script?format=json")
-                .get()
-                .header("Cookie", "JSESSIONID=" + jsessionId)
-                .build();
+                .get();
 
-        try (Response response = httpClient.newCall(request).execute()) {
+        try (Response response = executeWithSession(request)) {
             if (!response.isSuccessful()) {
                 if (response.code() == 404) {
                     return null; // No project-level script
@@ -212,8 +243,224 @@ public class XnatClient implements AutoCloseable {
      */
     public UploadResult uploadWithRetry(File zipFile, String projectId, String subjectId, String sessionLabel,
                                          boolean autoArchive, int maxRetries, long retryDelayMs) throws IOException {
-        byte[] zipBytes = Files.readAllBytes(zipFile.toPath());
+        return uploadWithRetry(zipFile, projectId, subjectId, sessionLabel, autoArchive, maxRetries, retryDelayMs, null);
+    }
+
+    /**
+     * Upload ZIP file to XNAT with configurable retry logic, reporting bytes sent.
+     * The ZIP is streamed from disk, never read into memory, and each retry
+     * streams it again from the start.
+     *
+     * @param progressListener notified as the ZIP is sent, or null
+     */
+    public UploadResult uploadWithRetry(File zipFile, String projectId, String subjectId, String sessionLabel,
+                                         boolean autoArchive, int maxRetries, long retryDelayMs,
+                                         UploadProgressListener progressListener) throws IOException {
+        RequestBody body = new FileRequestBody(zipFile, ZIP, progressListener);
+        return executeUpload(attempt -> body, projectId, subjectId, sessionLabel, autoArchive, false,
+                maxRetries, retryDelayMs);
+    }
+
+    /**
+     * Upload a ZIP to XNAT while it is being written.
+     * The first attempt runs the writer straight into the request body, with
+     * nothing written to disk. Only if that attempt fails is the writer run a
+     * second time into a temp file, which retries and the resend after a
+     * session renewal then send. A failure inside the writer itself is not
+     * retried.
+     *
+     * @param zipWriter writes the complete ZIP; must write the same bytes each time it is called
+     * @param estimatedSize approximate ZIP size used for progress reporting
+     * @param progressListener notified as the ZIP is sent, or null
+     */
+    public UploadResult uploadStreaming(ZipWriter zipWriter, long estimatedSize, String projectId, String subjectId,
+                                        String sessionLabel, boolean autoArchive, int maxRetries, long retryDelayMs,
+                                        UploadProgressListener progressListener) throws IOException {
+        return uploadStreaming(zipWriter, estimatedSize, projectId, subjectId, sessionLabel, autoArchive, false,
+                maxRetries, retryDelayMs, progressListener);
+    }
+
+    private UploadResult uploadStreaming(ZipWriter zipWriter, long estimatedSize, String projectId, String subjectId,
+                                         String sessionLabel, boolean autoArchive, boolean append, int maxRetries,
+                                         long retryDelayMs, UploadProgressListener progressListener) throws IOException {
+        ZipStreamRequestBody[] live = new ZipStreamRequestBody[1];
+        Path[] spoolFile = new Path[1];
+        try {
+            return executeUpload(attempt -> {
+                if (live[0] == null || !live[0].isStarted()) {
+                    // Nothing written yet, e.g. the connection failed before the body was sent
+                    live[0] = new ZipStreamRequestBody(zipWriter, estimatedSize, progressListener);
+                    return live[0];
+                }
+                if (spoolFile[0] == null) {
+                    spoolFile[0] = spoolZip(zipWriter);
+                }
+                return new FileRequestBody(spoolFile[0].toFile(), ZIP, progressListener);
+            }, projectId, subjectId, sessionLabel, autoArchive, append, maxRetries, retryDelayMs);
+        } finally {
+            if (spoolFile[0] != null) {
+                Files.deleteIfExists(spoolFile[0]);
+            }
+        }
+    }
+
+    /**
+     * Write the ZIP to a temp file so a failed streaming attempt can be resent.
+     */
+    private Path spoolZip(ZipWriter zipWriter) throws IOException {
+        log.info("Writing ZIP for '{}' to a temp file to resend it", endpointName);
+        Path spoolFile = Files.createTempFile("dicom_upload_", ".zip");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(spoolFile))) {
+            zipWriter.writeTo(out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spoolFile);
+            throw e;
+        }
+        return spoolFile;
+    }
+
+    /**
+     * Upload one session as several ZIP parts, so a network failure only
+     * resends the part it interrupted. Every part goes to the same project,
+     * subject and session label, and each is streamed and retried on its own
+     * like {@link #uploadStreaming}.
+     * <p>
+     * The first part is sent alone so that it creates the session; the others
+     * then upload concurrently with {@code overwrite=append} to merge into it.
+     * If the first part fails, the rest are not sent.
+     *
+     * @param maxConcurrent parts uploaded at the same time after the first
+     * @param progressListener notified with bytes sent across all parts, or null
+     * @return combined result, successful only if every part succeeded; per-part
+     *         results are in {@link UploadResult#getParts()}
+     */
+    public UploadResult uploadParts(List<UploadPart> parts, String projectId, String subjectId, String sessionLabel,
+                                    boolean autoArchive, int maxRetries, long retryDelayMs, int maxConcurrent,
+                                    UploadProgressListener progressListener) throws IOException {
+        if (parts.isEmpty()) {
+            throw new IllegalArgumentException("No parts to upload");
+        }
+
+        long startTime = System.currentTimeMillis();
+        long totalSize = parts.stream().mapToLong(UploadPart::getEstimatedSize).sum();
+        AtomicLongArray partBytesSent = new AtomicLongArray(parts.size());
+        UploadResult[] results = new UploadResult[parts.size()];
+
+        results[0] = uploadPart(parts, 0, false, projectId, subjectId, sessionLabel, autoArchive,
+                maxRetries, retryDelayMs, partBytesSent, totalSize, progressListener);
+
+        if (results[0].isSuccess() && parts.size() > 1) {
+            int workers = Math.min(Math.max(1, maxConcurrent), parts.size() - 1);
+            ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+                Thread t = new Thread(r, "xnat-upload-" + endpointName);
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                List<Future<UploadResult>> futures = new ArrayList<>();
+                for (int i = 1; i < parts.size(); i++) {
+                    int index = i;
+                    futures.add(pool.submit(() -> uploadPart(parts, index, true, projectId, subjectId, sessionLabel,
+                            autoArchive, maxRetries, retryDelayMs, partBytesSent, totalSize, progressListener)));
+                }
+                for (int i = 1; i < parts.size(); i++) {
+                    results[i] = futures.get(i - 1).get();
+                }
+            } catch (InterruptedException e) {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new IOException("Upload interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Part upload failed: " + e.getCause().getMessage(), e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        return combinePartResults(parts, results, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Upload a single part, turning any exception into a failed result so that
+     * the other parts carry on.
+     */
+    private UploadResult uploadPart(List<UploadPart> parts, int index, boolean append, String projectId,
+                                    String subjectId, String sessionLabel, boolean autoArchive, int maxRetries,
+                                    long retryDelayMs, AtomicLongArray partBytesSent, long totalSize,
+                                    UploadProgressListener progressListener) {
+        UploadPart part = parts.get(index);
+        UploadProgressListener partListener = progressListener == null ? null : (sent, total) -> {
+            partBytesSent.set(index, sent);
+            long allSent = 0;
+            for (int i = 0; i < partBytesSent.length(); i++) {
+                allSent += partBytesSent.get(i);
+            }
+            progressListener.onProgress(allSent, totalSize);
+        };
+
+        UploadResult result;
+        try {
+            result = uploadStreaming(part.getZipWriter(), part.getEstimatedSize(), projectId, subjectId,
+                    sessionLabel, autoArchive, append, maxRetries, retryDelayMs, partListener);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Upload of {} to '{}' failed: {}", part.getName(), endpointName, e.getMessage());
+            result = new UploadResult();
+            result.setEndpointName(endpointName);
+            result.setErrorMessage(e.getMessage());
+        }
+        result.setPartName(part.getName());
+        return result;
+    }
+
+    private UploadResult combinePartResults(List<UploadPart> parts, UploadResult[] results, long durationMs) {
+        UploadResult combined = new UploadResult();
+        combined.setEndpointName(endpointName);
+        combined.setDurationMs(durationMs);
+
+        List<UploadResult> partResults = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        UploadResult firstFailure = null;
+        long bytes = 0;
+        int maxAttempt = 1;
+        for (int i = 0; i < results.length; i++) {
+            UploadResult result = results[i];
+            if (result == null) {
+                // Not sent because the first part failed
+                result = new UploadResult();
+                result.setEndpointName(endpointName);
+                result.setPartName(parts.get(i).getName());
+                result.setAttempt(0);
+                result.setErrorMessage("Not sent: first part failed");
+            }
+            partResults.add(result);
+            bytes += result.getFileSizeBytes();
+            maxAttempt = Math.max(maxAttempt, result.getAttempt());
+            if (!result.isSuccess()) {
+                failed.add(result.getPartName());
+                if (firstFailure == null) {
+                    firstFailure = result;
+                }
+            }
+        }
+
+        combined.setParts(partResults);
+        combined.setFileSizeBytes(bytes);
+        combined.setAttempt(maxAttempt);
+        combined.setSuccess(failed.isEmpty());
+        if (firstFailure == null) {
+            combined.setHttpCode(partResults.get(partResults.size() - 1).getHttpCode());
+            log.info("Uploaded {} parts to '{}' ({} bytes, {}ms)", parts.size(), endpointName, bytes, durationMs);
+        } else {
+            combined.setHttpCode(firstFailure.getHttpCode());
+            combined.setErrorMessage(failed.size() + " of " + parts.size() + " parts failed (" +
+                    String.join(", ", failed) + "): " + firstFailure.getErrorMessage());
+        }
+        return combined;
+    }
 
+    private UploadResult executeUpload(UploadBodySource bodies, String projectId, String subjectId,
+                                       String sessionLabel, boolean autoArchive, boolean append, int maxRetries,
+                                       long retryDelayMs) throws IOException {
         // Use project-specific import endpoint with proper parameters
         // For auto-archive, use /archive destination directly; otherwise use /prearchive
         StringBuilder urlBuilder = new StringBuilder(baseUrl)
@@ -233,32 +480,39 @@ public class XnatClient implements AutoCloseable {
         if (sessionLabel != null && !sessionLabel.isEmpty()) {
             urlBuilder.append("&EXPT_LABEL=").append(sessionLabel);
         }
+        if (append) {
+            // Merge into the session created by an earlier part of the same upload
+            urlBuilder.append("&overwrite=append");
+        }
 
         String url = urlBuilder.toString();
         UploadResult lastResult = null;
+        boolean reauthenticated = false;
 
         for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            // Outside the try: failing to produce the body is not a network error
+            RequestBody body = bodies.forAttempt(attempt);
             try {
-                // Always authenticate fresh for each attempt
-                authenticate();
+                String sessionId = ensureSession();
 
                 Request request = new Request.Builder()
                         .url(url)
-                        .post(RequestBody.create(zipBytes, MediaType.parse("application/zip")))
-                        .header("Cookie", "JSESSIONID=" + jsessionId)
+                        .post(body)
+                        .header("Cookie", "JSESSIONID=" + sessionId)
                         .header("Content-Type", "application/zip")
                         .build();
 
                 long startTime = System.currentTimeMillis();
 
-                try (Response response = httpClient.newCall(request).execute()) {
+                try (Response response = execute(request)) {
                     long duration = System.currentTimeMillis() - startTime;
 
                     UploadResult result = new UploadResult();
                     result.setSuccess(response.isSuccessful());
                     result.setHttpCode(response.code());
                     result.setDurationMs(duration);
-                    result.setFileSizeBytes(zipBytes.length);
+                    result.setFileSizeBytes(body instanceof ZipStreamRequestBody ?
+                            ((ZipStreamRequestBody) body).getBytesWritten() : body.contentLength());
                     result.setEndpointName(endpointName);
                     result.setAttempt(attempt + 1);
 
@@ -273,6 +527,16 @@ public class XnatClient implements AutoCloseable {
                         return result;
                     }
 
+                    // The session has most likely expired on the XNAT side - log in again
+                    // and resend straight away rather than after the retry delay
+                    if (response.code() == 401 && !reauthenticated && attempt < maxRetries) {
+                        log.info("Session for '{}' was rejected, re-authenticating", endpointName);
+                        expireSession(sessionId);
+                        metrics.recordReauthentication();
+                        reauthenticated = true;
+                        continue;
+                    }
+
                     // Failed - check if retryable
                     result.setErrorMessage("HTTP " + response.code() + ": " + result.getResponseBody());
                     lastResult = result;
@@ -282,8 +546,10 @@ public class XnatClient implements AutoCloseable {
                         if (attempt < maxRetries) {
                             log.warn("Upload to '{}' failed with HTTP {} on attempt {}/{}, retrying in {}ms...",
                                     endpointName, response.code(), attempt + 1, maxRetries + 1, retryDelayMs);
-                            // Clear session so next attempt will re-authenticate
-                            jsessionId = null;
+                            if (response.code() == 401) {
+                                // Clear session so next attempt will re-authenticate
+                                expireSession(sessionId);
+                            }
                             Thread.sleep(retryDelayMs);
                         }
                     } else {
@@ -296,11 +562,14 @@ public class XnatClient implements AutoCloseable {
                 Thread.currentThread().interrupt();
                 throw new IOException("Upload interrupted", e);
             } catch (IOException e) {
+                // The ZIP writer failed, not the network - sending it again won't help
+                if (body instanceof ZipStreamRequestBody && ((ZipStreamRequestBody) body).isWriterFailed()) {
+                    throw e;
+                }
                 // Network error - retryable
                 if (attempt < maxRetries) {
                     log.warn("Upload to '{}' failed with network error on attempt {}/{}: {}, retrying in {}ms...",
                             endpointName, attempt + 1, maxRetries + 1, e.getMessage(), retryDelayMs);
-                    jsessionId = null;
                     try {
                         Thread.sleep(retryDelayMs);
                     } catch (InterruptedException ie) {
@@ -317,9 +586,60 @@ public class XnatClient implements AutoCloseable {
         return lastResult;
     }
 
-    private void ensureAuthenticated() throws IOException {
-        if (jsessionId == null) {
-            authenticate();
+    /**
+     * Get a session to use, logging in if there is none or it has been idle
+     * long enough that XNAT may have expired it.
+     */
+    private synchronized String ensureSession() throws IOException {
+        long now = System.currentTimeMillis();
+        if (jsessionId != null && now - sessionLastUsed < SESSION_IDLE_TIMEOUT_MS) {
+            sessionLastUsed = now;
+            metrics.recordSessionReused();
+            return jsessionId;
+        }
+        return authenticate();
+    }
+
+    /**
+     * Forget a rejected session so the next request logs in again, unless
+     * another request has already replaced it.
+     */
+    private synchronized void expireSession(String sessionId) {
+        if (sessionId.equals(jsessionId)) {
+            jsessionId = null;
+        }
+    }
+
+    /**
+     * Execute a request with the current session, logging in again and
+     * repeating it once if XNAT rejects the session with 401.
+     */
+    private Response executeWithSession(Request.Builder request) throws IOException {
+        String sessionId = ensureSession();
+        Response response = execute(request.header("Cookie", "JSESSIONID=" + sessionId).build());
+        if (response.code() != 401) {
+            return response;
+        }
+
+        response.close();
+        log.info("Session for '{}' was rejected, re-authenticating", endpointName);
+        expireSession(sessionId);
+        metrics.recordReauthentication();
+        return execute(request.header("Cookie", "JSESSIONID=" + ensureSession()).build());
+    }
+
+    /**
+     * Execute a request, recording its latency up to the response headers.
+     */
+    private Response execute(Request request) throws IOException {
+        long start = System.nanoTime();
+        try {
+            Response response = httpClient.newCall(request).execute();
+            metrics.recordRequest(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), response.isSuccessful());
+            return response;
+        } catch (IOException e) {
+            metrics.recordRequest(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), false);
+            throw e;
         }
     }
 
@@ -356,13 +676,162 @@ public class XnatClient implements AutoCloseable {
     }
 
     @Override
-    public void close() {
+    public synchronized void close() {
         if (jsessionId != null) {
             invalidateSession(jsessionId);
             jsessionId = null;
         }
     }
 
+    /**
+     * Writes a complete ZIP archive to a stream, without closing it.
+     */
+    @FunctionalInterface
+    public interface ZipWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * One ZIP part of a split upload.
+     */
+    public static class UploadPart {
+        private final String name;
+        private final long estimatedSize;
+        private final ZipWriter zipWriter;
+
+        /**
+         * @param name          label used in logs and results, e.g. "part 2/5"
+         * @param estimatedSize approximate ZIP size used for progress reporting
+         * @param zipWriter     writes this part's ZIP
+         */
+        public UploadPart(String name, long estimatedSize, ZipWriter zipWriter) {
+            this.name = name;
+            this.estimatedSize = estimatedSize;
+            this.zipWriter = zipWriter;
+        }
+
+        public String getName() { return name; }
+        public long getEstimatedSize() { return estimatedSize; }
+        public ZipWriter getZipWriter() { return zipWriter; }
+    }
+
+    /**
+     * Supplies the request body for each upload attempt.
+     */
+    @FunctionalInterface
+    private interface UploadBodySource {
+        RequestBody forAttempt(int attempt) throws IOException;
+    }
+
+    /**
+     * Request body that runs a {@link ZipWriter} straight into the HTTP request.
+     * The length is unknown up front, so it is sent with chunked transfer
+     * encoding. It can only be written once; a resend runs the writer again.
+     */
+    static class ZipStreamRequestBody extends RequestBody {
+        private final ZipWriter zipWriter;
+        private final long estimatedSize;
+        private final UploadProgressListener progressListener;
+        private volatile long bytesWritten;
+        private volatile boolean started;
+        private volatile boolean writerFailed;
+
+        ZipStreamRequestBody(ZipWriter zipWriter, long estimatedSize, UploadProgressListener progressListener) {
+            this.zipWriter = zipWriter;
+            this.estimatedSize = estimatedSize;
+            this.progressListener = progressListener;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return ZIP;
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public boolean isOneShot() {
+            return true;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            started = true;
+            CountingOutputStream out = new CountingOutputStream(sink.outputStream());
+            try {
+                zipWriter.writeTo(out);
+                out.flush();
+            } catch (IOException | RuntimeException e) {
+                // The connection never failed, so this came from the writer
+                if (out.sinkError == null) {
+                    writerFailed = true;
+                }
+                throw e;
+            }
+        }
+
+        long getBytesWritten() { return bytesWritten; }
+        boolean isStarted() { return started; }
+        boolean isWriterFailed() { return writerFailed; }
+
+        /**
+         * Counts bytes sent and remembers a failure of the request itself.
+         * Closing only flushes; OkHttp owns the sink.
+         */
+        private class CountingOutputStream extends FilterOutputStream {
+            private IOException sinkError;
+
+            CountingOutputStream(OutputStream out) {
+                super(out);
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                try {
+                    out.write(b, off, len);
+                } catch (IOException e) {
+                    sinkError = e;
+                    throw e;
+                }
+                bytesWritten += len;
+                if (progressListener != null) {
+                    progressListener.onProgress(bytesWritten, Math.max(estimatedSize, bytesWritten));
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                try {
+                    out.flush();
+                } catch (IOException e) {
+                    sinkError = e;
+                    throw e;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Receives upload progress as the request body is written.
+     */
+    @FunctionalInterface
+    public interface UploadProgressListener {
+        void onProgress(long bytesSent, long totalBytes);
+    }
+
     /**
      * Upload result details.
      */
@@ -375,6 +844,8 @@ public class XnatClient implements AutoCloseable {
         private String errorMessage;
         private String endpointName;
         private int attempt = 1;
+        private String partName;
+        private List<UploadResult> parts = Collections.emptyList();
 
         public boolean isSuccess() { return success; }
         public void setSuccess(boolean success) { this.success = success; }
@@ -400,6 +871,14 @@ public class XnatClient implements AutoCloseable {
         public int getAttempt() { return attempt; }
         public void setAttempt(int attempt) { this.attempt = attempt; }
 
+        /** Part label when this is the result of one part of a split upload. */
+        public String getPartName() { return partName; }
+        public void setPartName(String partName) { this.partName = partName; }
+
+        /** Per-part results of a split upload; empty for a single ZIP. */
+        public List<UploadResult> getParts() { return parts; }
+        public void setParts(List<UploadResult> parts) { this.parts = parts; }
+
         public double getSpeedMBps() {
             if (durationMs <= 0) return 0;
             return (fileSizeBytes / 1048576.0) / (durationMs / 1000.0);
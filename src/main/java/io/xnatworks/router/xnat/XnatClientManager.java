@@ -8,15 +8,31 @@
 package io.xnatworks.router.xnat;
 
 import io.xnatworks.router.config.AppConfig;
+import okhttp3.*;
+import okio.BufferedSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manages multiple XnatClient instances for different XNAT endpoints.
  * Provides thread-safe access to clients and handles lifecycle management.
+ * <p>
+ * Clients that point at the same XNAT URL with the same connection pool size
+ * share one HTTP client and its connection pool. All clients of a URL share
+ * the per-endpoint {@link EndpointMetrics}.
  */
 public class XnatClientManager implements AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(XnatClientManager.class);
@@ -25,11 +41,94 @@ public class XnatClientManager implements AutoCloseable {
     private final Map<String, XnatClient> clients = new ConcurrentHashMap<>();
     private final Map<String, EndpointStatus> endpointStatuses = new ConcurrentHashMap<>();
 
+    // Shared HTTP transport by endpoint URL and pool size, metrics by endpoint URL
+    private final Map<String, OkHttpClient> httpClients = new ConcurrentHashMap<>();
+    private final Map<String, EndpointMetrics> endpointMetrics = new ConcurrentHashMap<>();
+
     public XnatClientManager(AppConfig config) {
         this.config = config;
         initializeClients();
     }
 
+    /**
+     * Create an empty manager; clients are registered with {@link #addClient}.
+     */
+    public XnatClientManager() {
+        this.config = null;
+    }
+
+    /**
+     * Build an HTTP client for one XNAT endpoint.
+     * Idle connections are kept for reuse across uploads, and HTTP/2 is
+     * offered so that a TLS endpoint supporting it multiplexes requests
+     * over a single connection.
+     *
+     * <p>
+     * The dispatcher's per-host limit only applies to enqueued calls, and the
+     * XNAT client executes synchronously, so a {@link HostRequestLimiter} holds
+     * each request to a per-host slot until its response is closed.
+     *
+     * @param poolSize maximum idle connections kept, and concurrent requests per host
+     * @param metrics receives connection open/reuse events, or null
+     */
+    public static OkHttpClient createHttpClient(int poolSize, EndpointMetrics metrics) {
+        int size = Math.max(1, poolSize);
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(size);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .addInterceptor(new HostRequestLimiter(size))
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(120, TimeUnit.SECONDS)
+                .writeTimeout(120, TimeUnit.SECONDS)
+                .connectionPool(new ConnectionPool(size, 5, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1));
+        if (metrics != null) {
+            builder.eventListener(new MetricsEventListener(metrics));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Create and register a client for an endpoint, reusing the HTTP client
+     * of any other registered client with the same URL and pool size.
+     * Replaces (and closes) an existing client of the same name.
+     */
+    public XnatClient addClient(String name, AppConfig.XnatEndpoint endpoint) {
+        String url = endpoint.getUrl().replaceAll("/$", "");
+        int poolSize = Math.max(1, endpoint.getConnectionPoolSize());
+        EndpointMetrics metrics = endpointMetrics.computeIfAbsent(url, EndpointMetrics::new);
+        OkHttpClient httpClient = httpClients.computeIfAbsent(url + "#" + poolSize, key -> {
+            log.debug("Creating HTTP client for XNAT endpoint {} (pool size {})", url, poolSize);
+            return createHttpClient(poolSize, metrics);
+        });
+
+        XnatClient client = new XnatClient(name, endpoint, httpClient, metrics);
+        XnatClient previous = clients.put(name, client);
+        if (previous != null) {
+            previous.close();
+        }
+        endpointStatuses.put(name, new EndpointStatus(name, endpoint.getUrl()));
+        return client;
+    }
+
+    /**
+     * Unregister and close a client. The shared HTTP client stays open for
+     * other clients of the same endpoint.
+     */
+    public void removeClient(String name) {
+        XnatClient client = clients.remove(name);
+        endpointStatuses.remove(name);
+        if (client != null) {
+            try {
+                client.close();
+            } catch (Exception e) {
+                log.debug("Error closing XNAT client for '{}': {}", name, e.getMessage());
+            }
+        }
+    }
+
     /**
      * Initialize clients for all configured endpoints.
      */
@@ -52,9 +151,7 @@ public class XnatClientManager implements AutoCloseable {
                 endpoint.setDescription(legacy.getDescription());
                 endpoint.setEnabled(legacy.isEnabled());
 
-                XnatClient client = new XnatClient(name, endpoint);
-                clients.put(name, client);
-                endpointStatuses.put(name, new EndpointStatus(name, endpoint.getUrl()));
+                addClient(name, endpoint);
                 log.info("Initialized XNAT client for endpoint '{}': {}", name, endpoint.getUrl());
             } catch (Exception e) {
                 log.error("Failed to initialize client for endpoint '{}': {}", name, e.getMessage(), e);
@@ -78,10 +175,9 @@ public class XnatClientManager implements AutoCloseable {
                 endpoint.setPassword(xnatDest.getPassword());
                 endpoint.setDescription(xnatDest.getDescription());
                 endpoint.setEnabled(xnatDest.isEnabled());
+                endpoint.setConnectionPoolSize(xnatDest.getConnectionPoolSize());
 
-                XnatClient client = new XnatClient(name, endpoint);
-                clients.put(name, client);
-                endpointStatuses.put(name, new EndpointStatus(name, endpoint.getUrl()));
+                addClient(name, endpoint);
                 log.info("Initialized XNAT client for destination '{}': {}", name, endpoint.getUrl());
             } catch (Exception e) {
                 log.error("Failed to initialize client for destination '{}': {}", name, e.getMessage(), e);
@@ -106,6 +202,10 @@ public class XnatClientManager implements AutoCloseable {
      * Get client for a specific project (looks up project's endpoint).
      */
     public XnatClient getClientForProject(String projectId) {
+        if (config == null) {
+            return getDefaultClient();
+        }
+
         // Look up project mapping
         for (AppConfig.ProjectMapping project : config.getProjects()) {
             if (project.getProjectId() != null && project.getProjectId().equals(projectId)) {
@@ -175,6 +275,21 @@ public class XnatClientManager implements AutoCloseable {
         return endpointStatuses;
     }
 
+    /**
+     * Get request, connection and session metrics by endpoint URL.
+     */
+    public Map<String, EndpointMetrics> getEndpointMetrics() {
+        return endpointMetrics;
+    }
+
+    /**
+     * Get metrics for the endpoint a named client talks to.
+     */
+    public EndpointMetrics getMetrics(String name) {
+        XnatClient client = clients.get(name);
+        return client != null ? endpointMetrics.get(client.getBaseUrl()) : null;
+    }
+
     /**
      * Get all client names.
      */
@@ -200,6 +315,194 @@ public class XnatClientManager implements AutoCloseable {
             }
         }
         clients.clear();
+        endpointStatuses.clear();
+
+        for (OkHttpClient httpClient : httpClients.values()) {
+            httpClient.dispatcher().executorService().shutdown();
+            httpClient.connectionPool().evictAll();
+        }
+        httpClients.clear();
+    }
+
+    /**
+     * Limits the requests in flight to each host, synchronous ones included.
+     * A request takes a slot before it is sent and gives it back when its
+     * response body is closed, or when the call fails.
+     */
+    static class HostRequestLimiter implements Interceptor {
+        private final int maxRequestsPerHost;
+        private final Map<String, Semaphore> hosts = new ConcurrentHashMap<>();
+
+        HostRequestLimiter(int maxRequestsPerHost) {
+            this.maxRequestsPerHost = maxRequestsPerHost;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            HttpUrl url = chain.request().url();
+            Semaphore slots = hosts.computeIfAbsent(url.host() + ":" + url.port(),
+                    host -> new Semaphore(maxRequestsPerHost, true));
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for a request slot for " + url.host());
+            }
+
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    slots.release();
+                }
+            };
+            try {
+                Response response = chain.proceed(chain.request());
+                return response.newBuilder().body(new SlotResponseBody(response.body(), release)).build();
+            } catch (IOException | RuntimeException e) {
+                release.run();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Response body that gives back its request slot when it is closed.
+     */
+    private static class SlotResponseBody extends ResponseBody {
+        private final ResponseBody delegate;
+        private final Runnable release;
+
+        SlotResponseBody(ResponseBody delegate, Runnable release) {
+            this.delegate = delegate;
+            this.release = release;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return delegate.source();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                release.run();
+            }
+        }
+    }
+
+    /**
+     * Counts OkHttp connection events into an endpoint's metrics.
+     */
+    private static class MetricsEventListener extends EventListener {
+        private final EndpointMetrics metrics;
+
+        MetricsEventListener(EndpointMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            metrics.connectionsOpened.incrementAndGet();
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            metrics.connectionsAcquired.incrementAndGet();
+        }
+    }
+
+    /**
+     * Request latency, connection reuse and session reuse for one XNAT endpoint.
+     */
+    public static class EndpointMetrics {
+        private final String url;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failedRequests = new AtomicLong();
+        private final AtomicLong totalLatencyMs = new AtomicLong();
+        private final AtomicLong maxLatencyMs = new AtomicLong();
+        private final AtomicLong connectionsOpened = new AtomicLong();
+        private final AtomicLong connectionsAcquired = new AtomicLong();
+        private final AtomicLong sessionsCreated = new AtomicLong();
+        private final AtomicLong sessionsReused = new AtomicLong();
+        private final AtomicLong reauthentications = new AtomicLong();
+
+        public EndpointMetrics(String url) {
+            this.url = url;
+        }
+
+        public void recordRequest(long latencyMs, boolean success) {
+            requests.incrementAndGet();
+            if (!success) {
+                failedRequests.incrementAndGet();
+            }
+            totalLatencyMs.addAndGet(latencyMs);
+            maxLatencyMs.accumulateAndGet(latencyMs, Math::max);
+        }
+
+        public void recordSessionCreated() { sessionsCreated.incrementAndGet(); }
+        public void recordSessionReused() { sessionsReused.incrementAndGet(); }
+        public void recordReauthentication() { reauthentications.incrementAndGet(); }
+
+        public String getUrl() { return url; }
+        public long getRequests() { return requests.get(); }
+        public long getFailedRequests() { return failedRequests.get(); }
+        public long getMaxLatencyMs() { return maxLatencyMs.get(); }
+        public long getConnectionsOpened() { return connectionsOpened.get(); }
+        public long getConnectionsAcquired() { return connectionsAcquired.get(); }
+        public long getSessionsCreated() { return sessionsCreated.get(); }
+        public long getSessionsReused() { return sessionsReused.get(); }
+        public long getReauthentications() { return reauthentications.get(); }
+
+        public double getAverageLatencyMs() {
+            long count = requests.get();
+            return count == 0 ? 0 : (double) totalLatencyMs.get() / count;
+        }
+
+        /**
+         * Fraction of requests that ran on an already-open connection.
+         */
+        public double getConnectionReuseRate() {
+            long acquired = connectionsAcquired.get();
+            if (acquired == 0) return 0;
+            return Math.max(0, acquired - connectionsOpened.get()) / (double) acquired;
+        }
+
+        /**
+         * Fraction of session lookups served by an existing JSESSION.
+         */
+        public double getSessionReuseRate() {
+            long reused = sessionsReused.get();
+            long total = reused + sessionsCreated.get();
+            return total == 0 ? 0 : reused / (double) total;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("url", url);
+            map.put("requests", getRequests());
+            map.put("failedRequests", getFailedRequests());
+            map.put("avgLatencyMs", Math.round(getAverageLatencyMs() * 10) / 10.0);
+            map.put("maxLatencyMs", getMaxLatencyMs());
+            map.put("connectionsOpened", getConnectionsOpened());
+            map.put("connectionReuseRate", Math.round(getConnectionReuseRate() * 1000) / 1000.0);
+            map.put("sessionsCreated", getSessionsCreated());
+            map.put("sessionsReused", getSessionsReused());
+            map.put("sessionReuseRate", Math.round(getSessionReuseRate() * 1000) / 1000.0);
+            map.put("reauthentications", getReauthentications());
+            return map;
+        }
     }
 
     /**
@@ -0,0 +1,182 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.anon;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.io.DicomOutputStream;
+import org.dcm4che2.util.TagUtils;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AnonymizationAuditService.
+ */
+@DisplayName("AnonymizationAuditService Tests")
+class AnonymizationAuditServiceTest {
+
+    private static final String SCRIPT = """
+            (0010,0010) := "ANON"
+            (0020,000D) := "1.2.3.999"
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private AnonymizationAuditService auditService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ScriptLibrary library = new ScriptLibrary(tempDir.resolve("scripts"));
+        library.addCustomScript("audit-test", "test", SCRIPT);
+        auditService = new AnonymizationAuditService(library);
+    }
+
+    @Nested
+    @DisplayName("Inline Audit Tests")
+    class InlineAuditTests {
+
+        @Test
+        @DisplayName("Should build the report while anonymizing")
+        void shouldCollectWhileAnonymizing() throws Exception {
+            List<File> files = createInstances(tempDir.resolve("original"), 6);
+            Path archiveDir = tempDir.resolve("anonymized");
+            AnonymizationAuditService.AuditCollector audit =
+                    auditService.startReport(tempDir.resolve("original"), archiveDir, "audit-test");
+
+            StreamingAnonymizer.StreamingResult result = new StreamingAnonymizer(3, Long.MAX_VALUE)
+                    .anonymizeToZip(files, tempDir.resolve("out.zip"), SCRIPT, null, null, archiveDir, audit);
+            AnonymizationAuditService.AuditReport report =
+                    audit.finish(result.getTotalFiles(), result.getSuccessFiles());
+
+            assertEquals(6, report.getMatchedFiles());
+            assertEquals("audit-test", report.getScriptName());
+            assertEquals(SCRIPT, report.getScriptContent());
+            assertEquals(6, report.getTagSummary().get(TagUtils.toString(Tag.PatientName)).getChangeCount());
+            assertEquals(6, report.getTagSummary().get(TagUtils.toString(Tag.StudyInstanceUID)).getChangeCount());
+            assertEquals(12, report.getPhiFieldsModified());
+            assertNull(report.getTagSummary().get(TagUtils.toString(Tag.PixelData)));
+
+            List<String> names = new ArrayList<>();
+            report.getFileComparisons().forEach(comparison -> names.add(comparison.getOriginalFile()));
+            List<String> expected = new ArrayList<>();
+            files.forEach(file -> expected.add(file.getName()));
+            assertEquals(expected, names);
+        }
+
+        @Test
+        @DisplayName("Should record failed instances as errors")
+        void shouldRecordErrors() throws Exception {
+            List<File> files = createInstances(tempDir.resolve("original"), 2);
+            File broken = tempDir.resolve("original").resolve("broken.dcm").toFile();
+            Files.writeString(broken.toPath(), "not DICOM");
+            files.add(broken);
+            AnonymizationAuditService.AuditCollector audit = auditService.startReport(null, null, "audit-test");
+
+            new StreamingAnonymizer(2, Long.MAX_VALUE).anonymizeToZip(files, tempDir.resolve("out.zip"),
+                    SCRIPT, null, null, null, audit);
+            AnonymizationAuditService.AuditReport report = audit.finish(3, 2);
+
+            assertEquals(2, report.getMatchedFiles());
+            assertEquals(1, report.getErrors().size());
+            assertTrue(report.getErrors().get(0).contains("broken.dcm"));
+            assertFalse(report.isFullyConformant());
+        }
+    }
+
+    @Nested
+    @DisplayName("Archived Comparison Tests")
+    class ArchivedComparisonTests {
+
+        @Test
+        @DisplayName("Should compare archived pairs in parallel and keep file order")
+        void shouldCompareInParallel() throws Exception {
+            Path originalDir = tempDir.resolve("original");
+            Path anonymizedDir = tempDir.resolve("anonymized");
+            List<File> files = createInstances(originalDir, 10);
+            new StreamingAnonymizer(2, Long.MAX_VALUE).anonymizeToZip(files, tempDir.resolve("out.zip"),
+                    SCRIPT, null, null, anonymizedDir);
+
+            AnonymizationAuditService.AuditReport report =
+                    auditService.generateReport(originalDir, anonymizedDir, "audit-test", 4);
+
+            assertEquals(10, report.getTotalFilesOriginal());
+            assertEquals(10, report.getTotalFilesAnonymized());
+            assertEquals(10, report.getMatchedFiles());
+            assertEquals(10, report.getTagSummary().get(TagUtils.toString(Tag.PatientName)).getChangeCount());
+            assertTrue(report.getErrors().isEmpty());
+            assertEquals(20, report.getPhiFieldsModified());
+        }
+
+        @Test
+        @DisplayName("Should match the report collected while anonymizing")
+        void shouldMatchInlineReport() throws Exception {
+            Path originalDir = tempDir.resolve("original");
+            Path anonymizedDir = tempDir.resolve("anonymized");
+            List<File> files = createInstances(originalDir, 4);
+            AnonymizationAuditService.AuditCollector audit =
+                    auditService.startReport(originalDir, anonymizedDir, "audit-test");
+            new StreamingAnonymizer(2, Long.MAX_VALUE).anonymizeToZip(files, tempDir.resolve("out.zip"),
+                    SCRIPT, null, null, anonymizedDir, audit);
+            AnonymizationAuditService.AuditReport inline = audit.finish(4, 4);
+
+            AnonymizationAuditService.AuditReport archived =
+                    auditService.generateReport(originalDir, anonymizedDir, "audit-test");
+
+            assertEquals(inline.getTotalChanges(), archived.getTotalChanges());
+            assertEquals(inline.getPhiFieldsModified(), archived.getPhiFieldsModified());
+            assertEquals(inline.getNonConformantFiles(), archived.getNonConformantFiles());
+        }
+
+        @Test
+        @DisplayName("Should handle empty directories")
+        void shouldHandleEmptyDirectories() throws Exception {
+            Path originalDir = Files.createDirectories(tempDir.resolve("original"));
+            Path anonymizedDir = Files.createDirectories(tempDir.resolve("anonymized"));
+
+            AnonymizationAuditService.AuditReport report =
+                    auditService.generateReport(originalDir, anonymizedDir, "audit-test");
+
+            assertEquals(0, report.getMatchedFiles());
+            assertTrue(report.getFileComparisons().isEmpty());
+        }
+    }
+
+    private List<File> createInstances(Path dir, int count) throws IOException {
+        Files.createDirectories(dir);
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BasicDicomObject dcm = new BasicDicomObject();
+            dcm.putString(Tag.MediaStorageSOPClassUID, VR.UI, "1.2.840.10008.5.1.4.1.1.2");
+            dcm.putString(Tag.MediaStorageSOPInstanceUID, VR.UI, "1.2.3.4.1." + i);
+            dcm.putString(Tag.TransferSyntaxUID, VR.UI, "1.2.840.10008.1.2");
+            dcm.putString(Tag.PatientName, VR.PN, "Test^Patient" + i);
+            dcm.putString(Tag.PatientID, VR.LO, "TEST" + i);
+            dcm.putString(Tag.StudyInstanceUID, VR.UI, "1.2.3.4");
+            dcm.putString(Tag.SeriesInstanceUID, VR.UI, "1.2.3.4.1");
+            dcm.putString(Tag.SOPClassUID, VR.UI, "1.2.840.10008.5.1.4.1.1.2");
+            dcm.putString(Tag.SOPInstanceUID, VR.UI, "1.2.3.4.1." + i);
+            dcm.putBytes(Tag.PixelData, VR.OW, new byte[64]);
+
+            File file = dir.resolve(String.format("instance_%03d.dcm", i)).toFile();
+            try (DicomOutputStream dos = new DicomOutputStream(Files.newOutputStream(file.toPath()))) {
+                dos.writeDicomFile(dcm);
+            }
+            files.add(file);
+        }
+        return files;
+    }
+}
@@ -11,6 +11,8 @@ import org.dcm4che2.data.Tag;
 import org.dcm4che2.data.VR;
 import org.junit.jupiter.api.*;
 
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -241,6 +243,59 @@ class AnonymizationVerifierTest {
     /**
      * Helper to create a DICOM object with specified values.
      */
+    @Nested
+    @DisplayName("Snapshot Verification")
+    class SnapshotTests {
+
+        @Test
+        @DisplayName("Should give the same result from a snapshot as from the original object")
+        void shouldMatchObjectVerification() {
+            DicomObject original = createDicom(
+                    "John^Doe", "12345",
+                    "1.2.3.4.5.6.7.8.9", "1.2.3.4.5.6.7.8.10", "1.2.3.4.5.6.7.8.11",
+                    "20240115", "20240115", "19800101");
+
+            DicomObject anonymized = createDicom(
+                    "Anonymous", "12345",  // Patient ID NOT changed!
+                    "2.16.124.1.2.3", "2.16.124.1.2.4", "2.16.124.1.2.5",
+                    "20240125", "20240125", "19800111");
+
+            AnonymizationVerifier.VerificationConfig config = new AnonymizationVerifier.VerificationConfig();
+            config.setExpectedDateShiftDays(10);
+
+            AnonymizationVerifier.VerificationResult fromObject = verifier.verify(original, anonymized, config);
+            AnonymizationVerifier.VerificationResult fromSnapshot =
+                    verifier.verify(AnonymizationVerifier.snapshot(original), anonymized, config);
+
+            assertEquals(fromObject.getChecks().size(), fromSnapshot.getChecks().size());
+            assertEquals(fromObject.getPassedCount(), fromSnapshot.getPassedCount());
+            assertEquals(1, fromSnapshot.getFailedCount());
+            assertEquals("PatientID", fromSnapshot.getFailedChecks().get(0).getFieldName());
+        }
+
+        @Test
+        @DisplayName("Should keep original values after the object is modified in place")
+        void shouldSurviveInPlaceModification() {
+            DicomObject dcm = createDicom(
+                    "John^Doe", "12345",
+                    "1.2.3.4.5.6.7.8.9", "1.2.3.4.5.6.7.8.10", "1.2.3.4.5.6.7.8.11",
+                    "20240115", "20240115", "19800101");
+
+            Map<Integer, String> snapshot = AnonymizationVerifier.snapshot(dcm);
+            dcm.putString(Tag.PatientName, VR.PN, "Anonymous");
+            dcm.putString(Tag.PatientID, VR.LO, "ANON001");
+            dcm.putString(Tag.StudyInstanceUID, VR.UI, "2.16.124.1.2.3");
+            dcm.putString(Tag.SeriesInstanceUID, VR.UI, "2.16.124.1.2.4");
+            dcm.putString(Tag.SOPInstanceUID, VR.UI, "2.16.124.1.2.5");
+
+            AnonymizationVerifier.VerificationConfig config = new AnonymizationVerifier.VerificationConfig();
+            config.setVerifyDatesShifted(false);
+
+            assertEquals("John^Doe", snapshot.get(Tag.PatientName));
+            assertTrue(verifier.verify(snapshot, dcm, config).isAllPassed());
+        }
+    }
+
     private DicomObject createDicom(String patientName, String patientId,
                                      String studyUid, String seriesUid, String sopUid,
                                      String studyDate, String seriesDate, String birthDate) {
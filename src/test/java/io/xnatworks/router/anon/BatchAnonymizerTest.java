@@ -0,0 +1,207 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.anon;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.io.DicomInputStream;
+import org.dcm4che2.io.DicomOutputStream;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BatchAnonymizer.
+ */
+@DisplayName("BatchAnonymizer Tests")
+class BatchAnonymizerTest {
+
+    private static final String SCRIPT = """
+            (0010,0010) := "ANON"
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private Path inputDir;
+    private Path outputDir;
+
+    @BeforeEach
+    void setUp() {
+        inputDir = tempDir.resolve("input");
+        outputDir = tempDir.resolve("output");
+    }
+
+    @Nested
+    @DisplayName("Batch Run Tests")
+    class RunTests {
+
+        @Test
+        @DisplayName("Should anonymize each study into its own directory")
+        void shouldAnonymizeStudies() throws Exception {
+            createStudy("1.2.3.1", "scanner-a", 5);
+            createStudy("1.2.3.2", "scanner-b/nested", 3);
+            List<BatchAnonymizer.BatchProgress> progress = Collections.synchronizedList(new ArrayList<>());
+
+            BatchAnonymizer.BatchResult result = new BatchAnonymizer(4)
+                    .run(inputDir, outputDir, SCRIPT, null, null, null, progress::add);
+
+            assertTrue(result.isSuccess());
+            assertEquals(2, result.getStudiesCompleted());
+            assertEquals(8, result.getFilesProcessed());
+            assertEquals(2, progress.size());
+            assertEquals(8, progress.stream().mapToInt(BatchAnonymizer.BatchProgress::getFilesDone).max().orElse(0));
+
+            Path studyDir = outputDir.resolve(BatchAnonymizer.studyKey("1.2.3.1"));
+            List<Path> outputs = list(studyDir);
+            assertEquals(5, outputs.size());
+            for (Path output : outputs) {
+                DicomObject anonymized = read(output.toFile());
+                assertEquals("ANON", anonymized.getString(Tag.PatientName));
+                assertEquals("1.2.3.1", anonymized.getString(Tag.StudyInstanceUID));
+            }
+        }
+
+        @Test
+        @DisplayName("Should skip studies completed by an earlier run")
+        void shouldResumeFromCheckpoint() throws Exception {
+            createStudy("1.2.3.1", "a", 2);
+            new BatchAnonymizer(2).run(inputDir, outputDir, SCRIPT, null, null, null, null);
+            createStudy("1.2.3.2", "b", 2);
+
+            BatchAnonymizer.BatchResult result = new BatchAnonymizer(2)
+                    .run(inputDir, outputDir, SCRIPT, null, null, null, null);
+
+            assertEquals(2, result.getStudiesTotal());
+            assertEquals(1, result.getStudiesSkipped());
+            assertEquals(1, result.getStudiesCompleted());
+            assertEquals(2, result.getFilesProcessed());
+        }
+
+        @Test
+        @DisplayName("Should report failed studies and retry them on the next run")
+        void shouldRetryFailedStudies() throws Exception {
+            createStudy("1.2.3.1", "a", 3);
+            // A directory where an output file belongs makes that instance fail
+            Path blocked = Files.createDirectories(
+                    outputDir.resolve(BatchAnonymizer.studyKey("1.2.3.1")).resolve("000002.dcm"));
+
+            BatchAnonymizer.BatchResult first = new BatchAnonymizer(2)
+                    .run(inputDir, outputDir, SCRIPT, null, null, null, null);
+            assertFalse(first.isSuccess());
+            assertEquals(1, first.getFailures().size());
+            assertEquals(1, first.getFailures().get(0).getErrors());
+            assertEquals("1.2.3.1", first.getFailures().get(0).getStudyUid());
+
+            Files.delete(blocked);
+            BatchAnonymizer.BatchResult second = new BatchAnonymizer(2)
+                    .run(inputDir, outputDir, SCRIPT, null, null, null, null);
+            assertEquals(0, second.getStudiesSkipped());
+            assertEquals(1, second.getStudiesCompleted());
+        }
+
+        @Test
+        @DisplayName("Should report each changed UID once per study")
+        void shouldReportUidMappings() throws Exception {
+            createStudy("1.2.3.1", "a", 4);
+            List<String> mappings = Collections.synchronizedList(new ArrayList<>());
+
+            new BatchAnonymizer(4).run(inputDir, outputDir, SCRIPT + "(0020,000D) := \"9.9.9\"\n", null,
+                    (originalUid, newUid, uidType) -> mappings.add(uidType + ":" + originalUid + "->" + newUid),
+                    null, null);
+
+            assertEquals(List.of("study_uid:1.2.3.1->9.9.9"), mappings);
+        }
+
+        @Test
+        @DisplayName("Should fail a study whose UID mappings could not be stored")
+        void shouldFailStudyWhenUidFlushFails() throws Exception {
+            createStudy("1.2.3.1", "a", 2);
+            AtomicInteger flushes = new AtomicInteger();
+
+            BatchAnonymizer.BatchResult result = new BatchAnonymizer(2).run(inputDir, outputDir,
+                    SCRIPT + "(0020,000D) := \"9.9.9\"\n", null, (originalUid, newUid, uidType) -> { },
+                    () -> flushes.incrementAndGet() > 1, null);
+
+            assertFalse(result.isSuccess());
+            assertEquals(1, flushes.get());
+            assertEquals("Failed to store UID mappings in crosswalk", result.getFailures().get(0).getMessage());
+            assertFalse(BatchAnonymizer.Checkpoint.load(outputDir.resolve(BatchAnonymizer.CHECKPOINT_FILE))
+                    .isCompleted(BatchAnonymizer.studyKey("1.2.3.1")));
+        }
+
+        @Test
+        @DisplayName("Should fail only the study whose variables could not be found")
+        void shouldFailStudyWithoutVariables() throws Exception {
+            createStudy("1.2.3.1", "a", 2);
+            createStudy("1.2.3.2", "b", 2);
+
+            BatchAnonymizer.BatchResult result = new BatchAnonymizer(2).run(inputDir, outputDir, SCRIPT, study -> {
+                if (study.getStudyUid().equals("1.2.3.2")) {
+                    throw new IllegalStateException("No PatientID, cannot look up the date shift");
+                }
+                return null;
+            }, null, null, null);
+
+            assertEquals(1, result.getStudiesCompleted());
+            assertEquals(1, result.getFailures().size());
+            assertEquals("1.2.3.2", result.getFailures().get(0).getStudyUid());
+            assertFalse(Files.exists(outputDir.resolve(BatchAnonymizer.studyKey("1.2.3.2"))));
+        }
+    }
+
+    private List<File> createStudy(String studyUid, String dir, int count) throws IOException {
+        Path studyDir = Files.createDirectories(inputDir.resolve(dir));
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BasicDicomObject dcm = new BasicDicomObject();
+            dcm.putString(Tag.MediaStorageSOPClassUID, VR.UI, "1.2.840.10008.5.1.4.1.1.2");
+            dcm.putString(Tag.MediaStorageSOPInstanceUID, VR.UI, studyUid + ".1." + i);
+            dcm.putString(Tag.TransferSyntaxUID, VR.UI, "1.2.840.10008.1.2.1");
+            dcm.putString(Tag.PatientName, VR.PN, "Test^Patient");
+            dcm.putString(Tag.PatientID, VR.LO, "TEST");
+            dcm.putString(Tag.StudyInstanceUID, VR.UI, studyUid);
+            dcm.putString(Tag.SeriesInstanceUID, VR.UI, studyUid + ".1");
+            dcm.putString(Tag.SOPClassUID, VR.UI, "1.2.840.10008.5.1.4.1.1.2");
+            dcm.putString(Tag.SOPInstanceUID, VR.UI, studyUid + ".1." + i);
+            dcm.putInt(Tag.Rows, VR.US, 4);
+            dcm.putInt(Tag.Columns, VR.US, 4);
+            dcm.putBytes(Tag.PixelData, VR.OW, new byte[32]);
+
+            File file = studyDir.resolve(String.format("instance_%03d.dcm", i)).toFile();
+            try (DicomOutputStream dos = new DicomOutputStream(Files.newOutputStream(file.toPath()))) {
+                dos.writeDicomFile(dcm);
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    private List<Path> list(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.list(dir)) {
+            return paths.sorted().toList();
+        }
+    }
+
+    private DicomObject read(File file) throws IOException {
+        try (DicomInputStream dis = new DicomInputStream(file)) {
+            return dis.readDicomObject();
+        }
+    }
+}
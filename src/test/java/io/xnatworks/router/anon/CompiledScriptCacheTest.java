@@ -0,0 +1,147 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.anon;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CompiledScriptCache.
+ */
+@DisplayName("CompiledScriptCache Tests")
+class CompiledScriptCacheTest {
+
+    private static final String SCRIPT = "(0010,0010) := \"ANON\"\n";
+    private static final String OTHER_SCRIPT = "(0010,0020) := \"ANON\"\n";
+
+    private CompiledScriptCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new CompiledScriptCache(2, 2);
+    }
+
+    @Nested
+    @DisplayName("Lease Tests")
+    class LeaseTests {
+
+        @Test
+        @DisplayName("Should reuse an applicator once its lease is closed")
+        void shouldReuseReleasedApplicator() throws Exception {
+            CompiledScriptCache.Lease first = cache.acquire(SCRIPT, Map.of("project", "P1"));
+            first.close();
+            CompiledScriptCache.Lease second = cache.acquire(SCRIPT, Map.of("project", "P1"));
+
+            assertSame(first.getApplicator(), second.getApplicator());
+            assertEquals(1, cache.getMisses());
+            assertEquals(1, cache.getHits());
+        }
+
+        @Test
+        @DisplayName("Should never hand the same applicator to two open leases")
+        void shouldNotShareOpenApplicators() throws Exception {
+            try (CompiledScriptCache.Lease first = cache.acquire(SCRIPT, null);
+                 CompiledScriptCache.Lease second = cache.acquire(SCRIPT, null)) {
+                assertNotSame(first.getApplicator(), second.getApplicator());
+            }
+        }
+
+        @Test
+        @DisplayName("Should key applicators by variable names as well as script")
+        void shouldKeyByVariableNames() throws Exception {
+            CompiledScriptCache.Lease first = cache.acquire(SCRIPT, Map.of("project", "P1"));
+            first.close();
+            try (CompiledScriptCache.Lease other = cache.acquire(SCRIPT, Map.of("subject", "P1"))) {
+                assertNotSame(first.getApplicator(), other.getApplicator());
+            }
+            assertEquals(2, cache.getMisses());
+        }
+
+        @Test
+        @DisplayName("Should reuse an applicator when only variable values change")
+        void shouldReuseAcrossVariableValues() throws Exception {
+            CompiledScriptCache.Lease first = cache.acquire(SCRIPT, Map.of("project", "P1"));
+            first.close();
+            try (CompiledScriptCache.Lease other = cache.acquire(SCRIPT, Map.of("project", "P2"))) {
+                assertSame(first.getApplicator(), other.getApplicator());
+            }
+            assertEquals(1, cache.getMisses());
+            assertEquals(1, cache.getHits());
+        }
+    }
+
+    @Nested
+    @DisplayName("Eviction Tests")
+    class EvictionTests {
+
+        @Test
+        @DisplayName("Should drop the least recently used script when full")
+        void shouldEvictLeastRecentlyUsed() throws Exception {
+            cache.acquire(SCRIPT, null).close();
+            cache.acquire(OTHER_SCRIPT, null).close();
+            cache.acquire(SCRIPT, Map.of("project", "P1")).close();
+
+            assertEquals(2, cache.size());
+            cache.acquire(SCRIPT, Map.of("project", "P1")).close();
+            cache.acquire(SCRIPT, null).close();
+            assertEquals(1, cache.getHits());
+        }
+
+        @Test
+        @DisplayName("Should not pool applicators leased before invalidation")
+        void shouldDiscardAfterInvalidation() throws Exception {
+            CompiledScriptCache.Lease lease = cache.acquire(SCRIPT, null);
+            cache.invalidateAll();
+            lease.close();
+
+            assertEquals(0, cache.size());
+            try (CompiledScriptCache.Lease next = cache.acquire(SCRIPT, null)) {
+                assertNotSame(lease.getApplicator(), next.getApplicator());
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Script Library Tests")
+    class ScriptLibraryTests {
+
+        @TempDir
+        Path tempDir;
+
+        @Test
+        @DisplayName("Should return updated content after a script changes")
+        void shouldReturnUpdatedContent() throws Exception {
+            ScriptLibrary library = new ScriptLibrary(tempDir);
+            library.addCustomScript("custom", "test", SCRIPT);
+            assertEquals(SCRIPT, library.getScriptContent("custom"));
+
+            library.updateScript("custom", "test", OTHER_SCRIPT);
+            assertEquals(OTHER_SCRIPT, library.getScriptContent("custom"));
+        }
+
+        @Test
+        @DisplayName("Should pick up edits made to the script file directly")
+        void shouldPickUpExternalEdits() throws Exception {
+            ScriptLibrary library = new ScriptLibrary(tempDir);
+            library.addCustomScript("custom", "test", SCRIPT);
+            assertEquals(SCRIPT, library.getScriptContent("custom"));
+
+            Path scriptFile = Paths.get(library.getScript("custom").getFilePath());
+            Files.writeString(scriptFile, OTHER_SCRIPT);
+            Files.setLastModifiedTime(scriptFile,
+                    java.nio.file.attribute.FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+            assertEquals(OTHER_SCRIPT, library.getScriptContent("custom"));
+        }
+    }
+}
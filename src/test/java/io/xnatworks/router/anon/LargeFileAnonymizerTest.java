@@ -0,0 +1,221 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.anon;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomElement;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.io.DicomInputStream;
+import org.dcm4che2.io.DicomOutputStream;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LargeFileAnonymizer. The engine does not depend on the file
+ * size, so small instances stand in for multi-GB ones.
+ */
+@DisplayName("LargeFileAnonymizer Tests")
+class LargeFileAnonymizerTest {
+
+    private static final String SCRIPT = """
+            (0010,0010) := "ANON"
+            """;
+
+    private static final String JPEG_BASELINE = "1.2.840.10008.1.2.4.50";
+
+    @TempDir
+    Path tempDir;
+
+    @Nested
+    @DisplayName("Native Pixel Data Tests")
+    class NativeTests {
+
+        @Test
+        @DisplayName("Should anonymize the header and copy the pixel data to a file")
+        void shouldCopyPixelDataToFile() throws Exception {
+            byte[] pixels = pattern(16 * 16 * 2);
+            BasicDicomObject dcm = instance("1.2.840.10008.1.2.1");
+            dcm.putBytes(Tag.PixelData, VR.OW, pixels);
+            File input = write(dcm, "native.dcm");
+            Path output = tempDir.resolve("out").resolve("native.dcm");
+
+            new LargeFileAnonymizer().anonymizeLargeFile(input.toPath(), output,
+                    ParallelAnonymizer.createApplicator(SCRIPT, null));
+
+            DicomObject anonymized = readFile(output.toFile());
+            assertEquals("ANON", anonymized.getString(Tag.PatientName));
+            assertEquals("1.2.3.4", anonymized.getString(Tag.StudyInstanceUID));
+            assertArrayEquals(pixels, anonymized.getBytes(Tag.PixelData));
+        }
+
+        @Test
+        @DisplayName("Should reject pixel data cut short")
+        void shouldRejectTruncatedPixelData() throws Exception {
+            BasicDicomObject dcm = instance("1.2.840.10008.1.2.1");
+            dcm.putBytes(Tag.PixelData, VR.OW, pattern(512));
+            File input = write(dcm, "truncated.dcm");
+            truncate(input, 100);
+
+            assertThrows(IOException.class, () -> LargeFileAnonymizer.read(input));
+        }
+
+        @Test
+        @DisplayName("Should reject elements after the pixel data, saying so")
+        void shouldRejectTrailingElements() throws Exception {
+            BasicDicomObject dcm = instance("1.2.840.10008.1.2.1");
+            dcm.putBytes(Tag.PixelData, VR.OW, pattern(512));
+            dcm.putBytes(Tag.DataSetTrailingPadding, VR.OB, new byte[16]);
+            File input = write(dcm, "trailing.dcm");
+
+            IOException e = assertThrows(IOException.class, () -> LargeFileAnonymizer.read(input));
+            assertTrue(e.getMessage().contains("elements after PixelData"), e.getMessage());
+        }
+
+        @Test
+        @DisplayName("Should reject a deflated transfer syntax, saying so")
+        void shouldRejectDeflated() throws Exception {
+            BasicDicomObject dcm = instance("1.2.840.10008.1.2.1.99");
+            dcm.putBytes(Tag.PixelData, VR.OW, pattern(512));
+            File input = write(dcm, "deflated.dcm");
+
+            IOException e = assertThrows(IOException.class, () -> LargeFileAnonymizer.read(input));
+            assertTrue(e.getMessage().contains("deflated"), e.getMessage());
+        }
+    }
+
+    @Nested
+    @DisplayName("Encapsulated Pixel Data Tests")
+    class EncapsulatedTests {
+
+        @Test
+        @DisplayName("Should pass every fragment through to a ZIP entry")
+        void shouldPassFragmentsToZip() throws Exception {
+            File input = write(encapsulated(3), "frames.dcm");
+            LargeFileAnonymizer.LargeInstance instance = LargeFileAnonymizer.read(input);
+            assertEquals(3, instance.getFragments());
+
+            ParallelAnonymizer.createApplicator(SCRIPT, null).apply(input, instance.getHeader());
+            Path zip = tempDir.resolve("frames.zip");
+            try (OutputStream out = Files.newOutputStream(zip);
+                 ZipOutputStream zos = new ZipOutputStream(out)) {
+                instance.writeEntry(zos, input.getName());
+            }
+
+            DicomObject anonymized;
+            try (ZipFile zipFile = new ZipFile(zip.toFile());
+                 DicomInputStream dis = new DicomInputStream(zipFile.getInputStream(zipFile.getEntry(input.getName())))) {
+                anonymized = dis.readDicomObject();
+            }
+            assertEquals("ANON", anonymized.getString(Tag.PatientName));
+            DicomElement pixelData = anonymized.get(Tag.PixelData);
+            assertEquals(4, pixelData.countItems());
+            for (int i = 1; i < 4; i++) {
+                assertArrayEquals(fragment(i), pixelData.getFragment(i));
+            }
+        }
+
+        @Test
+        @DisplayName("Should write the same bytes to a file as to a stream")
+        void shouldMatchFileAndStream() throws Exception {
+            File input = write(encapsulated(2), "match.dcm");
+            LargeFileAnonymizer.LargeInstance instance = LargeFileAnonymizer.read(input);
+            ParallelAnonymizer.createApplicator(SCRIPT, null).apply(input, instance.getHeader());
+
+            Path file = tempDir.resolve("match-file.dcm");
+            Path stream = tempDir.resolve("match-stream.dcm");
+            instance.writeTo(file);
+            try (OutputStream out = Files.newOutputStream(stream)) {
+                instance.writeTo(out);
+            }
+
+            assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(stream));
+        }
+
+        @Test
+        @DisplayName("Should reject fragments cut short")
+        void shouldRejectMissingFragments() throws Exception {
+            File input = write(encapsulated(3), "missing.dcm");
+            truncate(input, 150);
+
+            assertThrows(IOException.class, () -> LargeFileAnonymizer.read(input));
+        }
+    }
+
+    private BasicDicomObject instance(String transferSyntaxUid) {
+        BasicDicomObject dcm = new BasicDicomObject();
+        dcm.putString(Tag.MediaStorageSOPClassUID, VR.UI, "1.2.840.10008.5.1.4.1.1.77.1.6");
+        dcm.putString(Tag.MediaStorageSOPInstanceUID, VR.UI, "1.2.3.4.1.1");
+        dcm.putString(Tag.TransferSyntaxUID, VR.UI, transferSyntaxUid);
+        dcm.putString(Tag.PatientName, VR.PN, "Test^Patient");
+        dcm.putString(Tag.PatientID, VR.LO, "TEST");
+        dcm.putString(Tag.StudyInstanceUID, VR.UI, "1.2.3.4");
+        dcm.putString(Tag.SeriesInstanceUID, VR.UI, "1.2.3.4.1");
+        dcm.putString(Tag.SOPClassUID, VR.UI, "1.2.840.10008.5.1.4.1.1.77.1.6");
+        dcm.putString(Tag.SOPInstanceUID, VR.UI, "1.2.3.4.1.1");
+        dcm.putInt(Tag.Rows, VR.US, 16);
+        dcm.putInt(Tag.Columns, VR.US, 16);
+        return dcm;
+    }
+
+    private BasicDicomObject encapsulated(int frames) {
+        BasicDicomObject dcm = instance(JPEG_BASELINE);
+        dcm.putInt(Tag.NumberOfFrames, VR.IS, frames);
+        DicomElement pixelData = dcm.putFragments(Tag.PixelData, VR.OB, false);
+        pixelData.addFragment(new byte[0]);
+        for (int i = 1; i <= frames; i++) {
+            pixelData.addFragment(fragment(i));
+        }
+        return dcm;
+    }
+
+    private byte[] fragment(int frame) {
+        byte[] data = pattern(100);
+        data[0] = (byte) frame;
+        return data;
+    }
+
+    private byte[] pattern(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    private File write(DicomObject dcm, String name) throws IOException {
+        File file = tempDir.resolve(name).toFile();
+        try (DicomOutputStream dos = new DicomOutputStream(Files.newOutputStream(file.toPath()))) {
+            dos.writeDicomFile(dcm);
+        }
+        return file;
+    }
+
+    private DicomObject readFile(File file) throws IOException {
+        try (DicomInputStream dis = new DicomInputStream(file)) {
+            return dis.readDicomObject();
+        }
+    }
+
+    private void truncate(File file, long bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - bytes);
+        }
+    }
+}
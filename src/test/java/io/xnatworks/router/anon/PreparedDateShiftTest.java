@@ -0,0 +1,170 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.anon;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.io.DicomInputStream;
+import org.dcm4che2.io.DicomOutputStream;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.nrg.dicom.dicomedit.ScriptApplicatorI;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs scripts prepared with a date shift variable through DicomEdit and checks
+ * they shift dates exactly as the literal {@link ScriptEnhancer#enhance} scripts do.
+ */
+@DisplayName("Prepared Date Shift Tests")
+class PreparedDateShiftTest {
+
+    private static final String BASE_SCRIPT = """
+            version "6.6"
+            (0010,0010) := "ANONYMOUS"
+            """;
+
+    private static final String SCRIPT_WITH_DATE_CLEARED = """
+            version "6.6"
+            (0010,0010) := "ANONYMOUS"
+            (0008,0021) := ""
+            """;
+
+    private static final int[] DATE_TAGS = {
+            Tag.StudyDate, Tag.SeriesDate, Tag.AcquisitionDate, Tag.ContentDate, Tag.PatientBirthDate
+    };
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should shift dates like the literal script by +365 and -365 days")
+    void shouldMatchLiteralByAYear() throws Exception {
+        assertSameAsLiteral(BASE_SCRIPT, 365);
+        assertSameAsLiteral(BASE_SCRIPT, -365);
+    }
+
+    @Test
+    @DisplayName("Should shift dates like the literal script by odd day counts")
+    void shouldMatchLiteralForOddDays() throws Exception {
+        for (int days : new int[] {1, -1, 7, -7, 31, -183}) {
+            assertSameAsLiteral(BASE_SCRIPT, days);
+        }
+    }
+
+    @Test
+    @DisplayName("Should leave cleared date tags cleared like the literal script")
+    void shouldMatchLiteralWithClearedDate() throws Exception {
+        DicomObject prepared = assertSameAsLiteral(SCRIPT_WITH_DATE_CLEARED, 365);
+
+        assertTrue(prepared.getString(Tag.SeriesDate, "").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should move dates when the shift is a year")
+    void shouldMoveDatesByAYear() throws Exception {
+        DicomObject prepared = applyPrepared(BASE_SCRIPT, 365);
+
+        assertNotEquals("20240229", prepared.getString(Tag.StudyDate));
+        assertTrue(prepared.getString(Tag.StudyDate).compareTo("20240229") > 0);
+        assertTrue(applyPrepared(BASE_SCRIPT, -365).getString(Tag.StudyDate).compareTo("20240229") < 0);
+    }
+
+    @Test
+    @DisplayName("Should apply each patient's shift when cached applicators are reused")
+    void shouldMatchLiteralThroughCache() throws Exception {
+        ScriptEnhancer.PreparedScript prepared = ScriptEnhancer.prepare(BASE_SCRIPT, true, false);
+        for (int days : new int[] {365, -365, 365, 9}) {
+            DicomObject dcm = readInstance(days);
+            try (CompiledScriptCache.Lease lease =
+                         CompiledScriptCache.getDefault().acquire(prepared.getScript(), prepared.variables(days))) {
+                lease.getApplicator().apply(instanceFile(days).toFile(), dcm);
+            }
+            assertDatesEqual(applyLiteral(BASE_SCRIPT, days), dcm, days);
+        }
+    }
+
+    /**
+     * Apply the prepared and the literal script to the same instance and compare every date.
+     *
+     * @return the instance anonymized by the prepared script
+     */
+    private DicomObject assertSameAsLiteral(String script, int days) throws Exception {
+        DicomObject prepared = applyPrepared(script, days);
+        assertDatesEqual(applyLiteral(script, days), prepared, days);
+        return prepared;
+    }
+
+    private DicomObject applyPrepared(String script, int days) throws Exception {
+        ScriptEnhancer.PreparedScript prepared = ScriptEnhancer.prepare(script, true, false);
+        return apply(prepared.getScript(), prepared.variables(days), days);
+    }
+
+    private DicomObject applyLiteral(String script, int days) throws Exception {
+        return apply(ScriptEnhancer.enhance(script, days, false), null, days);
+    }
+
+    private DicomObject apply(String script, Map<String, String> variables, int days) throws Exception {
+        ScriptApplicatorI applicator = ParallelAnonymizer.createApplicator(script, variables);
+        DicomObject dcm = readInstance(days);
+        applicator.apply(instanceFile(days).toFile(), dcm);
+        return dcm;
+    }
+
+    private void assertDatesEqual(DicomObject literal, DicomObject prepared, int days) {
+        for (int tag : DATE_TAGS) {
+            assertEquals(literal.getString(tag), prepared.getString(tag),
+                    String.format("(%04X,%04X) shifted by %d days", tag >>> 16, tag & 0xFFFF, days));
+        }
+    }
+
+    private Path instanceFile(int days) {
+        return tempDir.resolve("shift_" + days + ".dcm");
+    }
+
+    /**
+     * Read a fresh copy of the test instance, writing it first if needed.
+     */
+    private DicomObject readInstance(int days) throws Exception {
+        Path file = instanceFile(days);
+        if (!Files.exists(file)) {
+            try (DicomOutputStream dos = new DicomOutputStream(Files.newOutputStream(file))) {
+                dos.writeDicomFile(createDicom());
+            }
+        }
+        try (DicomInputStream dis = new DicomInputStream(file.toFile())) {
+            return dis.readDicomObject();
+        }
+    }
+
+    private static DicomObject createDicom() {
+        BasicDicomObject dcm = new BasicDicomObject();
+        dcm.putString(Tag.MediaStorageSOPClassUID, VR.UI, "1.2.840.10008.5.1.4.1.1.2");
+        dcm.putString(Tag.MediaStorageSOPInstanceUID, VR.UI, "1.2.3.4.5.6.7.8.9");
+        dcm.putString(Tag.TransferSyntaxUID, VR.UI, "1.2.840.10008.1.2");
+        dcm.putString(Tag.PatientName, VR.PN, "Test^Patient");
+        dcm.putString(Tag.PatientID, VR.LO, "TEST001");
+        dcm.putString(Tag.PatientBirthDate, VR.DA, "19700101");
+        // A leap day, so a shift of a year lands differently depending on direction
+        dcm.putString(Tag.StudyDate, VR.DA, "20240229");
+        dcm.putString(Tag.SeriesDate, VR.DA, "20240229");
+        dcm.putString(Tag.AcquisitionDate, VR.DA, "20231231");
+        dcm.putString(Tag.ContentDate, VR.DA, "20240301");
+        dcm.putString(Tag.StudyTime, VR.TM, "120000");
+        dcm.putString(Tag.StudyInstanceUID, VR.UI, "1.2.3.4.5.6.7.8.10");
+        dcm.putString(Tag.SeriesInstanceUID, VR.UI, "1.2.3.4.5.6.7.8.11");
+        dcm.putString(Tag.Modality, VR.CS, "CT");
+        dcm.putString(Tag.SOPClassUID, VR.UI, "1.2.840.10008.5.1.4.1.1.2");
+        dcm.putString(Tag.SOPInstanceUID, VR.UI, "1.2.3.4.5.6.7.8.9");
+        return dcm;
+    }
+}
@@ -217,6 +217,52 @@ class ScriptEnhancerTest {
         }
     }
 
+    @Nested
+    @DisplayName("Prepared Script Tests")
+    class PreparedScriptTests {
+
+        @Test
+        @DisplayName("Should shift dates by a script variable instead of a literal")
+        void shouldShiftByVariable() {
+            ScriptEnhancer.PreparedScript prepared = ScriptEnhancer.prepare(SAMPLE_SCRIPT, true, false);
+
+            assertTrue(prepared.getScript().contains(
+                    "(0008,0020) := shiftDateTimeByIncrement[(0008,0020), "
+                            + ScriptEnhancer.DATE_SHIFT_VARIABLE + ", \"days\"]"));
+            assertEquals("-182", prepared.variables(-365).get(ScriptEnhancer.DATE_SHIFT_VARIABLE));
+            assertEquals("15", prepared.variables(30).get(ScriptEnhancer.DATE_SHIFT_VARIABLE));
+        }
+
+        @Test
+        @DisplayName("Should build the script once for every patient")
+        void shouldReusePreparedScript() {
+            ScriptEnhancer.PreparedScript first = ScriptEnhancer.prepare(SAMPLE_SCRIPT, true, true);
+            ScriptEnhancer.PreparedScript second = ScriptEnhancer.prepare(SAMPLE_SCRIPT, true, true);
+
+            assertSame(first, second);
+            assertNotSame(first, ScriptEnhancer.prepare(SAMPLE_SCRIPT, true, false));
+            assertTrue(first.getScript().contains("hashUID["));
+        }
+
+        @Test
+        @DisplayName("Should not need variables without date shifting")
+        void shouldHaveNoVariablesWithoutDateShift() {
+            ScriptEnhancer.PreparedScript prepared = ScriptEnhancer.prepare(SAMPLE_SCRIPT, false, false);
+
+            assertEquals(SAMPLE_SCRIPT, prepared.getScript());
+            assertTrue(prepared.variables(30).isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should skip cleared date tags like literal shifting")
+        void shouldSkipClearedTags() {
+            String prepared = ScriptEnhancer.prepare(SCRIPT_WITH_DATE_CLEARED, true, false).getScript();
+
+            assertFalse(prepared.contains("(0008,0020) := shiftDateTimeByIncrement"));
+            assertTrue(prepared.contains("(0008,0021) := shiftDateTimeByIncrement"));
+        }
+    }
+
     @Nested
     @DisplayName("Tag Listing Tests")
     class TagListingTests {
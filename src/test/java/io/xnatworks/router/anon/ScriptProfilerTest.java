@@ -0,0 +1,124 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.anon;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.io.DicomOutputStream;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ScriptProfiler.
+ */
+@DisplayName("ScriptProfiler Tests")
+class ScriptProfilerTest {
+
+    private static final String SCRIPT = """
+            // Replace identifiers
+            (0010,0010) := "ANON"
+
+            (0010,0020) := "ID"
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    @Nested
+    @DisplayName("Profile Tests")
+    class ProfileTests {
+
+        @Test
+        @DisplayName("Should time every instance without modifying it")
+        void shouldProfileWithoutWriting() throws Exception {
+            List<Path> files = createInstances(5);
+            byte[] before = Files.readAllBytes(files.get(0));
+
+            ScriptProfiler.ScriptProfile profile = new ScriptProfiler(4).profile("test", SCRIPT, null, files);
+
+            assertEquals(5, profile.getInstances().size());
+            assertTrue(profile.getErrors().isEmpty());
+            assertTrue(profile.isHeaderOnly());
+            assertTrue(profile.getMeanInstanceMs() > 0);
+            assertTrue(profile.getP95InstanceMs() >= profile.getMeanInstanceMs() / 5);
+            assertEquals(profile.getFilesPerSecond() * 4, profile.getExpectedFilesPerSecond(), 0.001);
+            assertArrayEquals(before, Files.readAllBytes(files.get(0)));
+            try (var paths = Files.list(tempDir)) {
+                assertEquals(5, paths.count());
+            }
+        }
+
+        @Test
+        @DisplayName("Should cost each statement and skip comments")
+        void shouldProfileStatements() throws Exception {
+            ScriptProfiler.ScriptProfile profile = new ScriptProfiler(1).profile("test", SCRIPT, null, createInstances(2));
+
+            List<ScriptProfiler.StatementCost> statements = profile.getStatements();
+            assertEquals(2, statements.size());
+            assertEquals(2, statements.get(0).getLine());
+            assertEquals(4, statements.get(1).getLine());
+            assertTrue(statements.stream().allMatch(ScriptProfiler.StatementCost::isMeasured));
+            assertEquals(1.0, statements.stream().mapToDouble(ScriptProfiler.StatementCost::getShare).sum(), 0.001);
+        }
+
+        @Test
+        @DisplayName("Should record unreadable files as errors")
+        void shouldRecordErrors() throws Exception {
+            List<Path> files = createInstances(2);
+            files.add(tempDir.resolve("missing.dcm"));
+
+            ScriptProfiler.ScriptProfile profile = new ScriptProfiler(1).profile("test", SCRIPT, null, files);
+
+            assertEquals(2, profile.getInstances().size());
+            assertEquals(1, profile.getErrors().size());
+        }
+
+        @Test
+        @DisplayName("Should summarize for the script library")
+        void shouldSummarize() throws Exception {
+            ScriptProfiler.ScriptProfile profile = new ScriptProfiler(2).profile("test", SCRIPT, null, createInstances(3));
+
+            ScriptLibrary.ProfileSummary summary = profile.toSummary();
+
+            assertEquals(3, summary.getInstances());
+            assertEquals(profile.getMeanInstanceMs(), summary.getMeanInstanceMs());
+            assertEquals(profile.isSlow(), summary.isSlow());
+            assertNotNull(summary.getSlowestStatement());
+        }
+    }
+
+    private List<Path> createInstances(int count) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BasicDicomObject dcm = new BasicDicomObject();
+            dcm.putString(Tag.MediaStorageSOPClassUID, VR.UI, "1.2.840.10008.5.1.4.1.1.2");
+            dcm.putString(Tag.MediaStorageSOPInstanceUID, VR.UI, "1.2.3.4.1." + i);
+            dcm.putString(Tag.TransferSyntaxUID, VR.UI, "1.2.840.10008.1.2.1");
+            dcm.putString(Tag.PatientName, VR.PN, "Test^Patient");
+            dcm.putString(Tag.PatientID, VR.LO, "TEST");
+            dcm.putString(Tag.StudyInstanceUID, VR.UI, "1.2.3.4");
+            dcm.putString(Tag.SOPClassUID, VR.UI, "1.2.840.10008.5.1.4.1.1.2");
+            dcm.putString(Tag.SOPInstanceUID, VR.UI, "1.2.3.4.1." + i);
+            dcm.putBytes(Tag.PixelData, VR.OW, new byte[32]);
+
+            Path file = tempDir.resolve(String.format("instance_%03d.dcm", i));
+            try (DicomOutputStream dos = new DicomOutputStream(Files.newOutputStream(file))) {
+                dos.writeDicomFile(dcm);
+            }
+            files.add(file);
+        }
+        return files;
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.anon;
+
+import org.dcm4che2.data.BasicDicomObject;
+import org.dcm4che2.data.DicomObject;
+import org.dcm4che2.data.Tag;
+import org.dcm4che2.data.VR;
+import org.dcm4che2.io.DicomInputStream;
+import org.dcm4che2.io.DicomOutputStream;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StreamingAnonymizer.
+ */
+@DisplayName("StreamingAnonymizer Tests")
+class StreamingAnonymizerTest {
+
+    private static final String SCRIPT = """
+            (0010,0010) := "ANON"
+            (0020,000D) := "1.2.3.999"
+            """;
+
+    private static final byte[] PIXELS = new byte[16 * 16 * 2];
+
+    static {
+        for (int i = 0; i < PIXELS.length; i++) {
+            PIXELS[i] = (byte) i;
+        }
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Nested
+    @DisplayName("Parallel Anonymization Tests")
+    class ParallelTests {
+
+        @Test
+        @DisplayName("Should write entries in input order when anonymizing in parallel")
+        void shouldPreserveInputOrder() throws Exception {
+            List<File> files = createInstances(20);
+            Path zip = tempDir.resolve("parallel.zip");
+
+            StreamingAnonymizer.StreamingResult result =
+                    new StreamingAnonymizer(4, Long.MAX_VALUE).anonymizeToZip(files, zip, SCRIPT, null);
+
+            assertEquals(20, result.getSuccessFiles());
+            assertEquals(0, result.getErrorFiles());
+            assertEquals(names(files), entryNames(zip));
+        }
+
+        @Test
+        @DisplayName("Should still complete when the memory budget allows one instance at a time")
+        void shouldRespectMemoryBudget() throws Exception {
+            List<File> files = createInstances(5);
+            Path zip = tempDir.resolve("budget.zip");
+
+            StreamingAnonymizer.StreamingResult result =
+                    new StreamingAnonymizer(4, 1).anonymizeToZip(files, zip, SCRIPT, null);
+
+            assertEquals(5, result.getSuccessFiles());
+            assertEquals(names(files), entryNames(zip));
+        }
+
+        @Test
+        @DisplayName("Should anonymize every entry and report each UID mapping once")
+        void shouldAnonymizeAndReportMappings() throws Exception {
+            List<File> files = createInstances(8);
+            Path zip = tempDir.resolve("mappings.zip");
+            Path archiveDir = tempDir.resolve("archive");
+            List<String> mappings = new ArrayList<>();
+
+            new StreamingAnonymizer(4, Long.MAX_VALUE).anonymizeToZip(files, zip, SCRIPT, null,
+                    (originalUid, newUid, uidType) -> mappings.add(uidType + ":" + originalUid + "->" + newUid),
+                    archiveDir);
+
+            assertEquals(List.of("study_uid:1.2.3.4->1.2.3.999"), mappings);
+            try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+                for (File file : files) {
+                    ZipEntry entry = zipFile.getEntry(file.getName());
+                    DicomObject anonymized;
+                    try (DicomInputStream dis = new DicomInputStream(zipFile.getInputStream(entry))) {
+                        anonymized = dis.readDicomObject();
+                    }
+                    assertEquals("ANON", anonymized.getString(Tag.PatientName));
+                    assertArrayEquals(zipFile.getInputStream(entry).readAllBytes(),
+                            Files.readAllBytes(archiveDir.resolve(file.getName())));
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Should count a failed file and keep going")
+        void shouldCountErrors() throws Exception {
+            List<File> files = createInstances(4);
+            File broken = tempDir.resolve("broken.dcm").toFile();
+            Files.writeString(broken.toPath(), "not DICOM");
+            files.add(2, broken);
+            Path zip = tempDir.resolve("errors.zip");
+
+            StreamingAnonymizer.StreamingResult result =
+                    new StreamingAnonymizer(4, Long.MAX_VALUE).anonymizeToZip(files, zip, SCRIPT, null);
+
+            assertEquals(4, result.getSuccessFiles());
+            assertEquals(1, result.getErrorFiles());
+            files.remove(broken);
+            assertEquals(names(files), entryNames(zip));
+        }
+
+        @Test
+        @DisplayName("Should anonymize on the calling thread when single-threaded")
+        void shouldRunSingleThreaded() throws Exception {
+            List<File> files = createInstances(4);
+            File broken = tempDir.resolve("broken.dcm").toFile();
+            Files.writeString(broken.toPath(), "not DICOM");
+            files.add(1, broken);
+            Path zip = tempDir.resolve("single.zip");
+
+            StreamingAnonymizer.StreamingResult result =
+                    StreamingAnonymizer.singleThreaded().anonymizeToZip(files, zip, SCRIPT, null);
+
+            assertEquals(4, result.getSuccessFiles());
+            assertEquals(1, result.getErrorFiles());
+            files.remove(broken);
+            assertEquals(names(files), entryNames(zip));
+        }
+
+        @Test
+        @DisplayName("Should stop at the first failure when streaming")
+        void shouldFailFastWhenStreaming() throws Exception {
+            List<File> files = createInstances(3);
+            File broken = tempDir.resolve("broken.dcm").toFile();
+            Files.writeString(broken.toPath(), "not DICOM");
+            files.add(1, broken);
+
+            IOException e = assertThrows(IOException.class, () -> new StreamingAnonymizer(4, Long.MAX_VALUE)
+                    .anonymizeToStream(files, java.io.OutputStream.nullOutputStream(), SCRIPT, null, null, null));
+            assertTrue(e.getMessage().contains("broken.dcm"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Header-Only Tests")
+    class HeaderOnlyTests {
+
+        @Test
+        @DisplayName("Should split the header from the pixel data")
+        void shouldSplitAtPixelData() throws Exception {
+            File file = createInstances(1).get(0);
+
+            HeaderOnlyAnonymizer.SplitInstance split = HeaderOnlyAnonymizer.read(file);
+
+            assertNotNull(split);
+            assertNull(split.header.get(Tag.PixelData));
+            assertEquals("Test^Patient0", split.header.getString(Tag.PatientName));
+            assertEquals(file.length(), split.tailOffset + split.tailLength);
+            assertTrue(split.tailLength > PIXELS.length);
+        }
+
+        @Test
+        @DisplayName("Should pass pixel data through unchanged")
+        void shouldPassPixelDataThrough() throws Exception {
+            List<File> files = createInstances(3);
+            Path zip = tempDir.resolve("header-only.zip");
+            Path archiveDir = tempDir.resolve("archive");
+
+            new StreamingAnonymizer(2, Long.MAX_VALUE).anonymizeToZip(files, zip, SCRIPT, null, null, archiveDir);
+
+            try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+                for (File file : files) {
+                    DicomObject anonymized;
+                    try (DicomInputStream dis = new DicomInputStream(
+                            zipFile.getInputStream(zipFile.getEntry(file.getName())))) {
+                        anonymized = dis.readDicomObject();
+                    }
+                    assertEquals("ANON", anonymized.getString(Tag.PatientName));
+                    assertArrayEquals(PIXELS, anonymized.getBytes(Tag.PixelData));
+
+                    DicomObject archived;
+                    try (DicomInputStream dis = new DicomInputStream(archiveDir.resolve(file.getName()).toFile())) {
+                        archived = dis.readDicomObject();
+                    }
+                    assertArrayEquals(PIXELS, archived.getBytes(Tag.PixelData));
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Should only apply header-only processing to scripts that leave pixels alone")
+        void shouldDetectPixelScripts() {
+            assertTrue(HeaderOnlyAnonymizer.supports(SCRIPT));
+            assertFalse(HeaderOnlyAnonymizer.supports("alterPixels[\"rectangle\", \"l=0, t=0, r=10, b=10\", \"solid\", \"v=0\"]"));
+        }
+
+        @Test
+        @DisplayName("Should only apply header-only processing to scripts that leave elements from PixelData on alone")
+        void shouldDetectTrailingTagScripts() {
+            assertTrue(HeaderOnlyAnonymizer.supports("-(7FE0,0008)\n-(0019,{SIEMENS}10)"));
+            assertTrue(HeaderOnlyAnonymizer.supports("-(50XX,XXXX)"));
+            assertFalse(HeaderOnlyAnonymizer.supports("(7FE0,0010) := \"\""));
+            assertFalse(HeaderOnlyAnonymizer.supports("-(FFFA,FFFA)"));
+            assertFalse(HeaderOnlyAnonymizer.supports("-(7FE1,{ACME}01)"));
+            assertFalse(HeaderOnlyAnonymizer.supports("-(XXXX,XXX0)"));
+        }
+
+        @Test
+        @DisplayName("Should not split a file with elements after the pixel data")
+        void shouldNotSplitTrailingElements() throws Exception {
+            File file = createInstances(1).get(0);
+            addSignature(file);
+
+            assertNull(HeaderOnlyAnonymizer.read(file));
+        }
+
+        @Test
+        @DisplayName("Should anonymize a file with elements after the pixel data as a whole object")
+        void shouldAnonymizeTrailingElements() throws Exception {
+            List<File> files = createInstances(2);
+            addSignature(files.get(0));
+            Path zip = tempDir.resolve("trailing.zip");
+
+            StreamingAnonymizer.StreamingResult result = new StreamingAnonymizer(2, Long.MAX_VALUE)
+                    .anonymizeToZip(files, zip, SCRIPT + "-(FFFA,FFFA)\n", null, null, null);
+
+            assertTrue(result.isSuccess());
+            try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+                for (File file : files) {
+                    DicomObject anonymized;
+                    try (DicomInputStream dis = new DicomInputStream(
+                            zipFile.getInputStream(zipFile.getEntry(file.getName())))) {
+                        anonymized = dis.readDicomObject();
+                    }
+                    assertEquals("ANON", anonymized.getString(Tag.PatientName));
+                    assertNull(anonymized.get(Tag.DigitalSignaturesSequence));
+                    assertArrayEquals(PIXELS, anonymized.getBytes(Tag.PixelData));
+                }
+            }
+        }
+    }
+
+    private List<File> createInstances(int count) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BasicDicomObject dcm = new BasicDicomObject();
+            dcm.putString(Tag.MediaStorageSOPClassUID, VR.UI, "1.2.840.10008.5.1.4.1.1.2");
+            dcm.putString(Tag.MediaStorageSOPInstanceUID, VR.UI, "1.2.3.4.1." + i);
+            dcm.putString(Tag.TransferSyntaxUID, VR.UI, "1.2.840.10008.1.2");
+            dcm.putString(Tag.PatientName, VR.PN, "Test^Patient" + i);
+            dcm.putString(Tag.PatientID, VR.LO, "TEST" + i);
+            dcm.putString(Tag.StudyInstanceUID, VR.UI, "1.2.3.4");
+            dcm.putString(Tag.SeriesInstanceUID, VR.UI, "1.2.3.4.1");
+            dcm.putString(Tag.SOPClassUID, VR.UI, "1.2.840.10008.5.1.4.1.1.2");
+            dcm.putString(Tag.SOPInstanceUID, VR.UI, "1.2.3.4.1." + i);
+            dcm.putInt(Tag.InstanceNumber, VR.IS, i + 1);
+            dcm.putInt(Tag.Rows, VR.US, 16);
+            dcm.putInt(Tag.Columns, VR.US, 16);
+            dcm.putInt(Tag.BitsAllocated, VR.US, 16);
+            dcm.putBytes(Tag.PixelData, VR.OW, PIXELS);
+
+            File file = tempDir.resolve(String.format("instance_%03d.dcm", i)).toFile();
+            try (DicomOutputStream dos = new DicomOutputStream(Files.newOutputStream(file.toPath()))) {
+                dos.writeDicomFile(dcm);
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * Add a digital signature after the pixel data, carrying a copy of the patient name.
+     */
+    private void addSignature(File file) throws IOException {
+        DicomObject dcm;
+        try (DicomInputStream dis = new DicomInputStream(file)) {
+            dcm = dis.readDicomObject();
+        }
+        DicomObject signature = new BasicDicomObject();
+        signature.putString(Tag.PatientName, VR.PN, dcm.getString(Tag.PatientName));
+        dcm.putNestedDicomObject(Tag.DigitalSignaturesSequence, signature);
+        try (DicomOutputStream dos = new DicomOutputStream(Files.newOutputStream(file.toPath()))) {
+            dos.writeDicomFile(dcm);
+        }
+    }
+
+    private List<String> names(List<File> files) {
+        List<String> names = new ArrayList<>();
+        files.forEach(file -> names.add(file.getName()));
+        return names;
+    }
+
+    private List<String> entryNames(Path zip) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            zipFile.stream().forEach(entry -> names.add(entry.getName()));
+        }
+        return names;
+    }
+}
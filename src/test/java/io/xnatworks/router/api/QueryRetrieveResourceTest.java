@@ -7,6 +7,7 @@ package io.xnatworks.router.api;
 
 import io.xnatworks.router.config.AppConfig;
 import io.xnatworks.router.routing.DestinationManager;
+import io.xnatworks.router.store.RouterStore;
 import io.xnatworks.router.tracking.TransferTracker;
 import jakarta.ws.rs.core.Response;
 import org.junit.jupiter.api.*;
@@ -261,6 +262,23 @@ class QueryRetrieveResourceTest {
 
             assertEquals(404, response.getStatus());
         }
+
+        @Test
+        @DisplayName("Should validate streaming bulk query like bulk query")
+        void shouldValidateStreamingBulkQuery() {
+            Map<String, Object> queryParams = new HashMap<>();
+            queryParams.put("source", "test-pacs");
+            queryParams.put("identifiers", Collections.emptyList());
+
+            Response response = queryRetrieveResource.bulkQueryStream(queryParams);
+
+            assertEquals(400, response.getStatus());
+
+            queryParams.put("source", "unknown-pacs");
+            queryParams.put("identifiers", Arrays.asList("1.2.3"));
+
+            assertEquals(404, queryRetrieveResource.bulkQueryStream(queryParams).getStatus());
+        }
     }
 
     @Nested
@@ -333,6 +351,39 @@ class QueryRetrieveResourceTest {
             assertTrue(error.get("error").toString().contains("Source not found"));
         }
 
+        @Test
+        @DisplayName("Should return 400 for unknown retrieve mode")
+        void shouldReturn400ForUnknownRetrieveMode() {
+            Map<String, Object> retrieveParams = new HashMap<>();
+            retrieveParams.put("source", "test-pacs");
+            retrieveParams.put("targetRoute", "TEST_ROUTE");
+            retrieveParams.put("studyUIDs", Arrays.asList("1.2.3"));
+            retrieveParams.put("retrieveMode", "C-TELEPORT");
+
+            Response response = queryRetrieveResource.retrieveStudies(retrieveParams);
+
+            assertEquals(400, response.getStatus());
+
+            @SuppressWarnings("unchecked")
+            Map<String, Object> error = (Map<String, Object>) response.getEntity();
+            assertTrue(error.get("error").toString().contains("Invalid retrieve mode"));
+        }
+
+        @Test
+        @DisplayName("Should default to C-MOVE when retrieve mode is null")
+        void shouldDefaultNullRetrieveMode() {
+            Map<String, Object> retrieveParams = new HashMap<>();
+            retrieveParams.put("source", "test-pacs");
+            retrieveParams.put("targetRoute", "UNKNOWN_ROUTE");
+            retrieveParams.put("studyUIDs", Arrays.asList("1.2.3"));
+            retrieveParams.put("retrieveMode", null);
+
+            Response response = queryRetrieveResource.retrieveStudies(retrieveParams);
+
+            // Gets past mode validation to the route check
+            assertEquals(404, response.getStatus());
+        }
+
         @Test
         @DisplayName("Should return 404 for unknown target route")
         void shouldReturn404ForUnknownTargetRoute() {
@@ -425,6 +476,18 @@ class QueryRetrieveResourceTest {
             assertFalse(job.isCancelled());
             assertEquals(0, job.getCompletedCount());
             assertEquals(0, job.getFailedCount());
+            assertEquals("C-MOVE", job.getRetrieveMode());
+            assertFalse(job.isCGet());
+        }
+
+        @Test
+        @DisplayName("Should report C-GET retrieve mode")
+        void shouldReportCGetRetrieveMode() {
+            QueryRetrieveResource.RetrieveJob job = new QueryRetrieveResource.RetrieveJob(
+                    "JOB-002", "test-pacs", "TEST_ROUTE", Arrays.asList("1.2.3"), "C-GET");
+
+            assertTrue(job.isCGet());
+            assertEquals("C-GET", job.toMap().get("retrieveMode"));
         }
 
         @Test
@@ -481,5 +544,48 @@ class QueryRetrieveResourceTest {
             assertTrue(messages.get(0).contains("retrieved successfully"));
             assertTrue(errors.get(0).contains("Failed to retrieve"));
         }
+
+        @Test
+        @DisplayName("Should report per-study sub-operation progress")
+        void shouldReportPerStudyProgress() {
+            QueryRetrieveResource.RetrieveJob job = new QueryRetrieveResource.RetrieveJob(
+                    "JOB-003", "test-pacs", "TEST_ROUTE", Arrays.asList("1.2.3", "4.5.6"));
+
+            QueryRetrieveResource.RetrieveJob.StudyProgress study = job.getStudy("1.2.3");
+            study.setStatus(QueryRetrieveResource.RetrieveJob.StudyProgress.RUNNING);
+            study.update(40, 1, 0, 59);
+
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> studies = (List<Map<String, Object>>) job.toMap().get("studies");
+            assertEquals(2, studies.size());
+            assertEquals("1.2.3", studies.get(0).get("studyUID"));
+            assertEquals("RUNNING", studies.get(0).get("status"));
+            assertEquals(40, studies.get(0).get("completed"));
+            assertEquals(59, studies.get(0).get("remaining"));
+            assertEquals("PENDING", studies.get(1).get("status"));
+            assertEquals(2, job.getUnfinishedStudies().size());
+        }
+
+        @Test
+        @DisplayName("Should resume only unfinished studies from a saved job")
+        void shouldResumeUnfinishedStudiesFromRecord() {
+            QueryRetrieveResource.RetrieveJob job = new QueryRetrieveResource.RetrieveJob(
+                    "JOB-004", "test-pacs", "TEST_ROUTE", Arrays.asList("1.2.3", "4.5.6", "7.8.9"));
+            job.setStatus("RUNNING");
+            job.getStudy("1.2.3").setStatus(QueryRetrieveResource.RetrieveJob.StudyProgress.COMPLETED);
+            job.getStudy("4.5.6").fail("failed with status 0xa701");
+            job.getStudy("7.8.9").setStatus(QueryRetrieveResource.RetrieveJob.StudyProgress.RUNNING);
+
+            RouterStore.RetrieveJobRecord record = job.toRecord();
+            QueryRetrieveResource.RetrieveJob resumed = QueryRetrieveResource.RetrieveJob.fromRecord(record);
+
+            assertEquals("JOB-004", resumed.getJobId());
+            assertEquals(job.getStartTime(), resumed.getStartTime());
+            assertEquals(Arrays.asList("1.2.3", "4.5.6", "7.8.9"), resumed.getStudyUIDs());
+            assertEquals(1, resumed.getCompletedCount());
+            assertEquals(1, resumed.getFailedCount());
+            assertEquals(1, resumed.getUnfinishedStudies().size());
+            assertEquals("7.8.9", resumed.getUnfinishedStudies().get(0).getStudyUID());
+        }
     }
 }
@@ -0,0 +1,175 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.broker;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CrosswalkConnectionPool and its use by CrosswalkStore.
+ */
+@DisplayName("CrosswalkConnectionPool Tests")
+class CrosswalkConnectionPoolTest {
+
+    private static final String BROKER = "test-broker";
+
+    @TempDir
+    Path tempDir;
+
+    private CrosswalkStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new CrosswalkStore(tempDir.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Nested
+    @DisplayName("Pool Tests")
+    class PoolTests {
+
+        @Test
+        @DisplayName("Should open the database in WAL mode with relaxed syncing")
+        void shouldApplyPragmas() throws Exception {
+            try (CrosswalkConnectionPool pool = new CrosswalkConnectionPool(tempDir.resolve("pool.db").toString(), 2)) {
+                pool.open();
+
+                assertEquals("wal", pool.write(conn -> queryString(conn, "PRAGMA journal_mode")));
+                assertEquals("1", pool.write(conn -> queryString(conn, "PRAGMA synchronous")));
+                assertEquals(String.valueOf(CrosswalkConnectionPool.BUSY_TIMEOUT_MS),
+                        pool.read(conn -> queryString(conn, "PRAGMA busy_timeout")));
+            }
+        }
+
+        @Test
+        @DisplayName("Should reuse prepared statements per connection")
+        void shouldCacheStatements() throws Exception {
+            try (CrosswalkConnectionPool pool = new CrosswalkConnectionPool(tempDir.resolve("pool.db").toString(), 1)) {
+                pool.open();
+
+                PreparedStatement first = pool.read(conn -> conn.prepare("SELECT 1"));
+                PreparedStatement second = pool.read(conn -> conn.prepare("SELECT 1"));
+
+                assertSame(first, second);
+                assertEquals(1, pool.read(CrosswalkConnectionPool.PooledConnection::getCachedStatementCount));
+            }
+        }
+
+        @Test
+        @DisplayName("Should reject readers from writing")
+        void shouldKeepReadersReadOnly() throws Exception {
+            try (CrosswalkConnectionPool pool = new CrosswalkConnectionPool(tempDir.resolve("pool.db").toString(), 1)) {
+                pool.open();
+
+                assertThrows(SQLException.class, () -> pool.read(conn -> {
+                    try (Statement stmt = conn.getConnection().createStatement()) {
+                        return stmt.execute("CREATE TABLE t (x INTEGER)");
+                    }
+                }));
+            }
+        }
+
+        @Test
+        @DisplayName("Should fail fast once closed")
+        void shouldFailWhenClosed() throws Exception {
+            CrosswalkConnectionPool pool = new CrosswalkConnectionPool(tempDir.resolve("pool.db").toString(), 1);
+            pool.open();
+            pool.close();
+
+            assertThrows(SQLException.class, () -> pool.read(conn -> true));
+            assertThrows(SQLException.class, () -> pool.write(conn -> true));
+        }
+    }
+
+    @Nested
+    @DisplayName("Store Concurrency Tests")
+    class StoreConcurrencyTests {
+
+        @Test
+        @DisplayName("Should serve lookups while a write transaction is open")
+        void shouldNotBlockLookupsBehindWrites() throws Exception {
+            store.store(BROKER, "P1", "SUBJ-1", CrosswalkStore.ID_TYPE_PATIENT_ID);
+
+            try (Connection other = DriverManager.getConnection("jdbc:sqlite:" + store.getDbPath());
+                 Statement stmt = other.createStatement()) {
+                stmt.execute("BEGIN IMMEDIATE");
+                stmt.executeUpdate("UPDATE crosswalk SET id_out = 'SUBJ-2' WHERE id_in = 'P1'");
+
+                long start = System.nanoTime();
+                String idOut = store.lookup(BROKER, "P1", CrosswalkStore.ID_TYPE_PATIENT_ID);
+                long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+                assertEquals("SUBJ-1", idOut);
+                assertTrue(elapsedMs < 1000, "lookup waited " + elapsedMs + " ms");
+
+                stmt.execute("COMMIT");
+            }
+            assertEquals("SUBJ-2", store.lookup(BROKER, "P1", CrosswalkStore.ID_TYPE_PATIENT_ID));
+        }
+
+        @Test
+        @DisplayName("Should keep every mapping written from many threads")
+        void shouldStoreConcurrently() throws Exception {
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                CompletableFuture<?>[] futures = new CompletableFuture[400];
+                for (int i = 0; i < futures.length; i++) {
+                    int n = i;
+                    futures[i] = CompletableFuture.runAsync(() -> {
+                        store.store(BROKER, "P" + n, "SUBJ-" + n, CrosswalkStore.ID_TYPE_PATIENT_ID);
+                        assertEquals("SUBJ-" + n, store.lookup(BROKER, "P" + n, CrosswalkStore.ID_TYPE_PATIENT_ID));
+                    }, executor);
+                }
+                CompletableFuture.allOf(futures).get(30, TimeUnit.SECONDS);
+
+                assertEquals(400, store.getMappingCount(BROKER));
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        @DisplayName("Should reconnect after restoring a backup")
+        void shouldRestoreBackup() throws Exception {
+            store.store(BROKER, "P1", "SUBJ-1", CrosswalkStore.ID_TYPE_PATIENT_ID);
+            CrosswalkStore.BackupInfo backup = store.createBackup("test");
+            assertNotNull(backup);
+            assertTrue(Files.exists(Path.of(backup.getPath())));
+            store.store(BROKER, "P2", "SUBJ-2", CrosswalkStore.ID_TYPE_PATIENT_ID);
+            // Backup names have one-second resolution; keep the pre-restore backup from replacing ours
+            Thread.sleep(1100);
+
+            assertTrue(store.restoreFromBackup(backup.getFilename()));
+
+            assertEquals("SUBJ-1", store.lookup(BROKER, "P1", CrosswalkStore.ID_TYPE_PATIENT_ID));
+            assertNull(store.lookup(BROKER, "P2", CrosswalkStore.ID_TYPE_PATIENT_ID));
+            assertTrue(store.store(BROKER, "P3", "SUBJ-3", CrosswalkStore.ID_TYPE_PATIENT_ID));
+        }
+    }
+
+    private static String queryString(CrosswalkConnectionPool.PooledConnection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.broker;
+
+import io.xnatworks.router.config.AppConfig;
+import io.xnatworks.router.config.AppConfig.HonestBrokerConfig;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LookupCache and its use by HonestBrokerService.
+ */
+@DisplayName("LookupCache Tests")
+class LookupCacheTest {
+
+    private static final long HOUR_MS = 3_600_000L;
+
+    @TempDir
+    Path tempDir;
+
+    @Nested
+    @DisplayName("Eviction Tests")
+    class EvictionTests {
+
+        @Test
+        @DisplayName("Should never hold more than the maximum size")
+        void shouldStayBounded() {
+            LookupCache cache = new LookupCache(100, HOUR_MS, HOUR_MS);
+
+            for (int i = 0; i < 1000; i++) {
+                cache.put("P" + i, "SUBJ-" + i);
+            }
+
+            assertEquals(100, cache.size());
+            assertEquals(900, cache.getStats().getEvictions());
+        }
+
+        @Test
+        @DisplayName("Should keep repeatedly used entries through a scan of one-off keys")
+        void shouldResistScans() {
+            LookupCache cache = new LookupCache(50, HOUR_MS, HOUR_MS);
+            for (int i = 0; i < 10; i++) {
+                cache.put("HOT" + i, "SUBJ-HOT" + i);
+                cache.get("HOT" + i);
+            }
+
+            for (int i = 0; i < 500; i++) {
+                cache.put("COLD" + i, "SUBJ-COLD" + i);
+            }
+
+            for (int i = 0; i < 10; i++) {
+                LookupCache.Entry entry = cache.get("HOT" + i);
+                assertNotNull(entry, "HOT" + i + " was evicted");
+                assertEquals("SUBJ-HOT" + i, entry.getValue());
+            }
+        }
+
+        @Test
+        @DisplayName("Should expire entries after their TTL")
+        void shouldExpire() throws Exception {
+            LookupCache cache = new LookupCache(10, 20, 20);
+            cache.put("P1", "SUBJ-1");
+
+            Thread.sleep(50);
+
+            assertNull(cache.get("P1"));
+            assertEquals(1, cache.getStats().getExpirations());
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Nested
+    @DisplayName("Negative Caching Tests")
+    class NegativeCachingTests {
+
+        @Test
+        @DisplayName("Should cache not-found results with their own TTL")
+        void shouldCacheNotFound() throws Exception {
+            LookupCache cache = new LookupCache(10, HOUR_MS, 20);
+            cache.putNotFound("MISSING");
+
+            LookupCache.Entry entry = cache.get("MISSING");
+            assertNotNull(entry);
+            assertTrue(entry.isNegative());
+            assertNull(entry.getValue());
+
+            Thread.sleep(50);
+            assertNull(cache.get("MISSING"));
+        }
+
+        @Test
+        @DisplayName("Should skip not-found results when negative caching is off")
+        void shouldSkipWhenDisabled() {
+            LookupCache cache = new LookupCache(10, HOUR_MS, 0);
+
+            cache.putNotFound("MISSING");
+
+            assertNull(cache.get("MISSING"));
+        }
+
+        @Test
+        @DisplayName("Should count hits, not-found hits and misses")
+        void shouldCountRequests() {
+            LookupCache cache = new LookupCache(10, HOUR_MS, HOUR_MS);
+            cache.put("P1", "SUBJ-1");
+            cache.putNotFound("P2");
+
+            cache.get("P1");
+            cache.get("P1");
+            cache.get("P2");
+            cache.get("P3");
+
+            LookupCache.Stats stats = cache.getStats();
+            assertEquals(2, stats.getHits());
+            assertEquals(1, stats.getNegativeHits());
+            assertEquals(1, stats.getMisses());
+            assertEquals(0.75, stats.getHitRate(), 0.0001);
+        }
+    }
+
+    @Nested
+    @DisplayName("Service Tests")
+    class ServiceTests {
+
+        @Test
+        @DisplayName("Should report per-broker counters and warm up from the crosswalk")
+        void shouldWarmUpAndReportStats() {
+            AppConfig config = new AppConfig();
+            config.setDataDirectory(tempDir.toString());
+            HonestBrokerConfig brokerConfig = new HonestBrokerConfig();
+            brokerConfig.setBrokerType("local");
+            brokerConfig.setCacheWarmUp(true);
+            config.getHonestBrokers().put("local", brokerConfig);
+
+            HonestBrokerService first = new HonestBrokerService(config);
+            String idOut = first.lookup("local", "PATIENT-1");
+            first.close();
+            first.getCrosswalkStore().close();
+
+            HonestBrokerService service = new HonestBrokerService(config);
+            try {
+                assertEquals(1, service.warmUpCaches());
+                assertEquals(idOut, service.lookup("local", "PATIENT-1"));
+
+                LookupCache.Stats stats = service.getCacheStats("local");
+                assertEquals(1, stats.getHits());
+                assertEquals(0, stats.getMisses());
+                assertTrue(service.getCacheStats().containsKey("local"));
+
+                service.clearCache("local");
+                assertNull(service.getCacheStats("local"));
+            } finally {
+                service.close();
+                service.getCrosswalkStore().close();
+            }
+        }
+    }
+}
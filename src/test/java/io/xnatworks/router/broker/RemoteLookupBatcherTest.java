@@ -0,0 +1,224 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.broker;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RemoteLookupBatcher.
+ */
+@DisplayName("RemoteLookupBatcher Tests")
+class RemoteLookupBatcherTest {
+
+    private RemoteLookupBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    @Nested
+    @DisplayName("Batching Tests")
+    class BatchingTests {
+
+        @Test
+        @DisplayName("Should send lookups made within the window as one batch")
+        void shouldCoalesceIntoOneBatch() throws Exception {
+            List<List<String>> batches = new CopyOnWriteArrayList<>();
+            batcher = new RemoteLookupBatcher("test", 200, 100, 4, idIn -> fail("single lookup used"), idsIn -> {
+                batches.add(List.copyOf(idsIn));
+                return mapAll(idsIn);
+            });
+
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(batcher.lookup("P" + i));
+            }
+
+            for (int i = 0; i < 10; i++) {
+                assertEquals("SUBJ-P" + i, futures.get(i).get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, batches.size());
+            assertEquals(10, batches.get(0).size());
+            assertEquals(1, batcher.getRequestsSent());
+        }
+
+        @Test
+        @DisplayName("Should send a full batch without waiting for the window")
+        void shouldSplitAtMaxBatchSize() throws Exception {
+            List<List<String>> batches = new CopyOnWriteArrayList<>();
+            batcher = new RemoteLookupBatcher("test", 60_000, 3, 4, idIn -> null, idsIn -> {
+                batches.add(List.copyOf(idsIn));
+                return mapAll(idsIn);
+            });
+
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                futures.add(batcher.lookup("P" + i));
+            }
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+            assertEquals(2, batches.size());
+            assertTrue(batches.stream().allMatch(batch -> batch.size() == 3));
+        }
+
+        @Test
+        @DisplayName("Should complete IDs missing from the batch response with null")
+        void shouldReturnNullForUnmapped() throws Exception {
+            batcher = new RemoteLookupBatcher("test", 10, 100, 4, idIn -> null,
+                    idsIn -> Map.of("P1", "SUBJ-P1"));
+
+            Map<String, String> results = batcher.lookupAll(List.of("P1", "P2"));
+
+            assertEquals(Map.of("P1", "SUBJ-P1"), results);
+        }
+
+        @Test
+        @DisplayName("Should complete with null when the batch response maps none of the IDs")
+        void shouldMissOnEmptyBatchResponse() throws Exception {
+            batcher = new RemoteLookupBatcher("test", 10, 100, 4, idIn -> null, idsIn -> Map.of());
+
+            CompletableFuture<String> first = batcher.lookup("P1");
+            CompletableFuture<String> second = batcher.lookup("P2");
+
+            assertNull(first.get(5, TimeUnit.SECONDS));
+            assertNull(second.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Nested
+    @DisplayName("Deduplication Tests")
+    class DeduplicationTests {
+
+        @Test
+        @DisplayName("Should share one request between lookups for the same ID")
+        void shouldDeduplicateInFlight() throws Exception {
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicInteger calls = new AtomicInteger();
+            batcher = new RemoteLookupBatcher("test", 0, 100, 4, idIn -> {
+                calls.incrementAndGet();
+                await(release);
+                return "SUBJ-" + idIn;
+            }, null);
+
+            CompletableFuture<String> first = batcher.lookup("P1");
+            CompletableFuture<String> second = batcher.lookup("P1");
+            release.countDown();
+
+            assertEquals("SUBJ-P1", first.get(5, TimeUnit.SECONDS));
+            assertEquals("SUBJ-P1", second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+            assertEquals(1, batcher.getDeduplicated());
+        }
+
+        @Test
+        @DisplayName("Should send a new request once the previous one has completed")
+        void shouldNotReuseCompletedLookups() throws Exception {
+            AtomicInteger calls = new AtomicInteger();
+            batcher = new RemoteLookupBatcher("test", 0, 100, 4, idIn -> {
+                calls.incrementAndGet();
+                return "SUBJ-" + idIn;
+            }, null);
+
+            batcher.lookup("P1").get(5, TimeUnit.SECONDS);
+            batcher.lookup("P1").get(5, TimeUnit.SECONDS);
+
+            assertEquals(2, calls.get());
+        }
+    }
+
+    @Nested
+    @DisplayName("Fan-out Tests")
+    class FanOutTests {
+
+        @Test
+        @DisplayName("Should look up IDs in parallel up to the concurrency limit")
+        void shouldBoundConcurrency() throws Exception {
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            batcher = new RemoteLookupBatcher("test", 10, 100, 3, idIn -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                return "SUBJ-" + idIn;
+            }, null);
+
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                ids.add("P" + i);
+            }
+            Map<String, String> results = batcher.lookupAll(ids);
+
+            assertEquals(12, results.size());
+            assertEquals(3, maxRunning.get());
+            assertEquals(12, batcher.getRequestsSent());
+        }
+
+        @Test
+        @DisplayName("Should fail only the lookups whose request failed")
+        void shouldCompleteExceptionally() throws Exception {
+            batcher = new RemoteLookupBatcher("test", 10, 100, 2, idIn -> {
+                if (idIn.equals("BAD")) {
+                    throw new IOException("HTTP 500");
+                }
+                return "SUBJ-" + idIn;
+            }, null);
+
+            CompletableFuture<String> bad = batcher.lookup("BAD");
+            CompletableFuture<String> good = batcher.lookup("P1");
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, e.getCause());
+            assertEquals("SUBJ-P1", good.get(5, TimeUnit.SECONDS));
+        }
+
+        @Test
+        @DisplayName("Should fail every lookup in a batch whose request failed")
+        void shouldFailWholeBatch() {
+            batcher = new RemoteLookupBatcher("test", 10, 100, 2, idIn -> null, idsIn -> {
+                throw new IOException("HTTP 503");
+            });
+
+            CompletableFuture<String> first = batcher.lookup("P1");
+            CompletableFuture<String> second = batcher.lookup("P2");
+
+            assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+            assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private static Map<String, String> mapAll(List<String> idsIn) {
+        Map<String, String> results = new HashMap<>();
+        for (String idIn : idsIn) {
+            results.put(idIn, "SUBJ-" + idIn);
+        }
+        return results;
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IOException("Timed out");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
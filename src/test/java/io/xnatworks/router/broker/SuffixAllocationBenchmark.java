@@ -0,0 +1,99 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.broker;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collision suffix allocation cost against a crosswalk of one million mappings.
+ * <p>
+ * Compares the previous allocation (load every mapping for the broker and scan
+ * for the highest suffix) with {@link CrosswalkStore#allocateSuffix}, both for
+ * the first allocation of a base ID, which seeds from the crosswalk, and for
+ * later ones, which only touch the allocator row.
+ * Opt-in: {@code ./gradlew test --tests '*SuffixAllocationBenchmark' -Dbenchmark=true}
+ */
+@DisplayName("Suffix Allocation Benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SuffixAllocationBenchmark {
+
+    private static final String BROKER = "benchmark";
+    private static final int MAPPINGS = 1_000_000;
+    private static final int SUFFIXES_PER_BASE = 100;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Allocation latency at one million mappings")
+    void allocationLatency() {
+        CrosswalkStore store = new CrosswalkStore(tempDir.toString());
+        try {
+            List<CrosswalkStore.UidMapping> batch = new ArrayList<>();
+            for (int i = 0; i < MAPPINGS; i++) {
+                int base = i / SUFFIXES_PER_BASE;
+                int suffix = i % SUFFIXES_PER_BASE;
+                String idOut = suffix == 0 ? baseId(base) : baseId(base) + "-" + suffix;
+                batch.add(new CrosswalkStore.UidMapping("PATIENT-" + i, idOut, CrosswalkStore.ID_TYPE_PATIENT_ID));
+                if (batch.size() == 10_000) {
+                    store.storeUidMappings(BROKER, batch);
+                    batch.clear();
+                }
+            }
+            int bases = MAPPINGS / SUFFIXES_PER_BASE;
+
+            System.out.printf("%n%-26s %12s%n", "allocation", "ms/op");
+            int runs = 5;
+            long start = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                previousAllocation(store, baseId(i * 997 % bases));
+            }
+            System.out.printf("%-26s %12.3f%n", "full scan (previous)", (System.nanoTime() - start) / 1e6 / runs);
+
+            runs = 1000;
+            start = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                store.allocateSuffix(BROKER, baseId(i));
+            }
+            System.out.printf("%-26s %12.3f%n", "indexed, first (seeding)", (System.nanoTime() - start) / 1e6 / runs);
+
+            start = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                store.allocateSuffix(BROKER, baseId(i));
+            }
+            System.out.printf("%-26s %12.3f%n", "indexed, allocator row", (System.nanoTime() - start) / 1e6 / runs);
+        } finally {
+            store.close();
+        }
+    }
+
+    private static String baseId(int base) {
+        return String.format("SUBJ-%06X", base);
+    }
+
+    private static int previousAllocation(CrosswalkStore store, String baseId) {
+        int maxSuffix = -1;
+        for (CrosswalkStore.CrosswalkEntry entry : store.getMappings(BROKER)) {
+            String existingOut = entry.getIdOut();
+            if (existingOut.equalsIgnoreCase(baseId)) {
+                maxSuffix = Math.max(maxSuffix, 0);
+            } else if (existingOut.toUpperCase().startsWith(baseId.toUpperCase() + "-")) {
+                try {
+                    maxSuffix = Math.max(maxSuffix, Integer.parseInt(existingOut.substring(baseId.length() + 1)));
+                } catch (NumberFormatException ignored) {
+                    // Not a numeric suffix, ignore
+                }
+            }
+        }
+        return maxSuffix + 1;
+    }
+}
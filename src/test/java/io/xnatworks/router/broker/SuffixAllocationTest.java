@@ -0,0 +1,122 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.broker;
+
+import io.xnatworks.router.config.AppConfig.HonestBrokerConfig;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for collision suffix allocation in CrosswalkStore.
+ */
+@DisplayName("Suffix Allocation Tests")
+class SuffixAllocationTest {
+
+    private static final String BROKER = "test-broker";
+
+    @TempDir
+    Path tempDir;
+
+    private CrosswalkStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new CrosswalkStore(tempDir.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Nested
+    @DisplayName("Allocation Tests")
+    class AllocationTests {
+
+        @Test
+        @DisplayName("Should start at zero and count up")
+        void shouldCountUp() {
+            assertEquals(0, store.allocateSuffix(BROKER, "SUBJ-ALPHA-BRAVO"));
+            assertEquals(1, store.allocateSuffix(BROKER, "SUBJ-ALPHA-BRAVO"));
+            assertEquals(2, store.allocateSuffix(BROKER, "SUBJ-ALPHA-BRAVO"));
+            assertEquals(0, store.allocateSuffix(BROKER, "SUBJ-ALPHA-CHARLIE"));
+            assertEquals(0, store.allocateSuffix("other-broker", "SUBJ-ALPHA-BRAVO"));
+        }
+
+        @Test
+        @DisplayName("Should continue after IDs already in the crosswalk")
+        void shouldSeedFromCrosswalk() {
+            store.store(BROKER, "P1", "SUBJ-BLUE-FALCON", CrosswalkStore.ID_TYPE_PATIENT_ID);
+            store.store(BROKER, "P2", "SUBJ-BLUE-FALCON-3", CrosswalkStore.ID_TYPE_PATIENT_ID);
+            store.store(BROKER, "P3", "SUBJ-BLUE-FALCON-X", CrosswalkStore.ID_TYPE_PATIENT_ID);
+            store.store(BROKER, "P4", "SUBJ-BLUE-FALCONS-9", CrosswalkStore.ID_TYPE_PATIENT_ID);
+
+            assertEquals(4, store.allocateSuffix(BROKER, "subj-blue-falcon"));
+            assertEquals(5, store.allocateSuffix(BROKER, "SUBJ-BLUE-FALCON"));
+        }
+
+        @Test
+        @DisplayName("Should continue after IDs issued in any mix of case")
+        void shouldSeedFromMixedCase() {
+            store.store(BROKER, "P1", "Subj-Blue-Falcon", CrosswalkStore.ID_TYPE_PATIENT_ID);
+            store.store(BROKER, "P2", "subj-blue-falcon-7", CrosswalkStore.ID_TYPE_PATIENT_ID);
+            store.store(BROKER, "P3", "SUBJ-BLUE-FALCON-2", CrosswalkStore.ID_TYPE_PATIENT_ID);
+            store.store(BROKER, "P4", "Subj-Blue-Falconer-9", CrosswalkStore.ID_TYPE_PATIENT_ID);
+
+            assertEquals(8, store.allocateSuffix(BROKER, "Subj-Blue-Falcon"));
+        }
+
+        @Test
+        @DisplayName("Should never hand out the same suffix twice under concurrency")
+        void shouldBeUniqueUnderConcurrency() throws Exception {
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<Integer>> futures = new ArrayList<>();
+                for (int i = 0; i < 200; i++) {
+                    futures.add(executor.submit(() -> store.allocateSuffix(BROKER, "SUBJ-0A1B")));
+                }
+                Set<Integer> suffixes = ConcurrentHashMap.newKeySet();
+                for (Future<Integer> future : futures) {
+                    suffixes.add(future.get(10, TimeUnit.SECONDS));
+                }
+
+                assertEquals(200, suffixes.size());
+                assertEquals(199, suffixes.stream().mapToInt(Integer::intValue).max().orElse(-1));
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Broker Tests")
+    class BrokerTests {
+
+        @Test
+        @DisplayName("Should give distinct IDs to different inputs with the NATO format")
+        void shouldGenerateDistinctIds() {
+            HonestBrokerConfig config = new HonestBrokerConfig();
+            config.setNamingScheme("nato_phonetic");
+            LocalHonestBroker broker = new LocalHonestBroker(store, BROKER, config);
+
+            Set<String> ids = ConcurrentHashMap.newKeySet();
+            for (int i = 0; i < 50; i++) {
+                ids.add(broker.lookup("PATIENT-" + i, CrosswalkStore.ID_TYPE_PATIENT_ID));
+            }
+
+            assertEquals(50, ids.size());
+            assertTrue(ids.contains(broker.lookup("PATIENT-7", CrosswalkStore.ID_TYPE_PATIENT_ID)));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.broker;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for UidMappingWriter and batched crosswalk UID storage.
+ */
+@DisplayName("UidMappingWriter Tests")
+class UidMappingWriterTest {
+
+    private static final String BROKER = "test-broker";
+
+    @TempDir
+    Path tempDir;
+
+    private CrosswalkStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new CrosswalkStore(tempDir.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Nested
+    @DisplayName("Batch Storage Tests")
+    class BatchStorageTests {
+
+        @Test
+        @DisplayName("Should store a batch larger than one multi-row insert")
+        void shouldStoreLargeBatch() {
+            List<CrosswalkStore.UidMapping> mappings = new ArrayList<>();
+            for (int i = 0; i < 250; i++) {
+                mappings.add(new CrosswalkStore.UidMapping("1.2.3." + i, "2.25." + i, CrosswalkStore.ID_TYPE_SOP_UID));
+            }
+
+            assertTrue(store.storeUidMappings(BROKER, mappings));
+
+            assertEquals(250, store.getMappingCount(BROKER));
+            assertEquals("2.25.0", store.lookupHashedUid(BROKER, "1.2.3.0", CrosswalkStore.ID_TYPE_SOP_UID));
+            assertEquals("1.2.3.249", store.lookupOriginalUid(BROKER, "2.25.249", CrosswalkStore.ID_TYPE_SOP_UID));
+            assertEquals(250, store.getRecentLogs(1000).size());
+        }
+
+        @Test
+        @DisplayName("Should keep the last mapping for a repeated UID")
+        void shouldUpsertRepeatedUid() {
+            assertTrue(store.storeUidMappings(BROKER, List.of(
+                    new CrosswalkStore.UidMapping("1.2.3", "2.25.1", CrosswalkStore.ID_TYPE_STUDY_UID),
+                    new CrosswalkStore.UidMapping("1.2.3", "2.25.2", CrosswalkStore.ID_TYPE_STUDY_UID))));
+
+            assertEquals(1, store.getMappingCount(BROKER));
+            assertEquals("2.25.2", store.lookupHashedUid(BROKER, "1.2.3", CrosswalkStore.ID_TYPE_STUDY_UID));
+        }
+    }
+
+    @Nested
+    @DisplayName("Writer Tests")
+    class WriterTests {
+
+        @Test
+        @DisplayName("Should write everything queued on flush")
+        void shouldWriteOnFlush() {
+            UidMappingWriter writer = new UidMappingWriter(store, 10_000, 60_000);
+            for (int i = 0; i < 100; i++) {
+                writer.enqueue(BROKER, "1.2.3." + i, "2.25." + i, CrosswalkStore.ID_TYPE_SOP_UID);
+            }
+            assertEquals(100, writer.getPendingCount());
+
+            assertTrue(writer.flush());
+
+            assertEquals(0, writer.getPendingCount());
+            assertEquals(100, store.getMappingCount(BROKER));
+            writer.close();
+        }
+
+        @Test
+        @DisplayName("Should write in the background once a batch is full")
+        void shouldWriteFullBatch() throws Exception {
+            UidMappingWriter writer = new UidMappingWriter(store, 20, 60_000);
+            for (int i = 0; i < 20; i++) {
+                writer.enqueue(BROKER, "1.2.3." + i, "2.25." + i, CrosswalkStore.ID_TYPE_SOP_UID);
+            }
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (store.getMappingCount(BROKER) < 20 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(20, store.getMappingCount(BROKER));
+            writer.close();
+        }
+
+        @Test
+        @DisplayName("Should write what is left when closed")
+        void shouldWriteOnClose() {
+            UidMappingWriter writer = new UidMappingWriter(store, 10_000, 60_000);
+            writer.enqueue(BROKER, "1.2.3", "2.25.1", CrosswalkStore.ID_TYPE_STUDY_UID);
+            writer.enqueue("other-broker", "1.2.3", "2.25.9", CrosswalkStore.ID_TYPE_STUDY_UID);
+
+            writer.close();
+
+            assertEquals("2.25.1", store.lookupHashedUid(BROKER, "1.2.3", CrosswalkStore.ID_TYPE_STUDY_UID));
+            assertEquals("2.25.9", store.lookupHashedUid("other-broker", "1.2.3", CrosswalkStore.ID_TYPE_STUDY_UID));
+        }
+
+        @Test
+        @DisplayName("Should keep a batch that failed to write and store it on the next flush")
+        void shouldRequeueFailedBatch() {
+            FailingStore failingStore = new FailingStore(tempDir.resolve("failing").toString());
+            UidMappingWriter writer = new UidMappingWriter(failingStore, 10_000, 60_000);
+            try {
+                for (int i = 0; i < 10; i++) {
+                    writer.enqueue(BROKER, "1.2.3." + i, "2.25." + i, CrosswalkStore.ID_TYPE_SOP_UID);
+                }
+
+                assertFalse(writer.flush());
+                assertEquals(10, writer.getPendingCount());
+                assertEquals(0, failingStore.getMappingCount(BROKER));
+
+                writer.enqueue(BROKER, "1.2.3.10", "2.25.10", CrosswalkStore.ID_TYPE_SOP_UID);
+                failingStore.failing = false;
+
+                assertTrue(writer.flush());
+                assertEquals(0, writer.getPendingCount());
+                assertEquals(11, failingStore.getMappingCount(BROKER));
+                assertEquals("2.25.0", failingStore.lookupHashedUid(BROKER, "1.2.3.0", CrosswalkStore.ID_TYPE_SOP_UID));
+            } finally {
+                writer.close();
+                failingStore.close();
+            }
+        }
+
+        @Test
+        @DisplayName("Should flush one broker without writing or failing on another's mappings")
+        void shouldFlushOneBroker() {
+            FailingStore failingStore = new FailingStore(tempDir.resolve("failing").toString());
+            UidMappingWriter writer = new UidMappingWriter(failingStore, 10_000, 60_000);
+            try {
+                writer.enqueue(BROKER, "1.2.3.1", "2.25.1", CrosswalkStore.ID_TYPE_SOP_UID);
+                writer.enqueue("other-broker", "1.2.3.2", "2.25.2", CrosswalkStore.ID_TYPE_SOP_UID);
+                writer.enqueue("other-broker", "1.2.3.3", "2.25.3", CrosswalkStore.ID_TYPE_SOP_UID);
+
+                assertTrue(writer.flush("other-broker"));
+                assertEquals(2, failingStore.getMappingCount("other-broker"));
+                assertEquals(1, writer.getPendingCount());
+
+                assertFalse(writer.flush(BROKER));
+                assertFalse(writer.flush());
+                writer.enqueue("other-broker", "1.2.3.4", "2.25.4", CrosswalkStore.ID_TYPE_SOP_UID);
+                assertTrue(writer.flush("other-broker"));
+                assertEquals(3, failingStore.getMappingCount("other-broker"));
+                assertEquals(1, writer.getPendingCount());
+
+                failingStore.failing = false;
+                assertTrue(writer.flush(BROKER));
+                assertEquals("2.25.1", failingStore.lookupHashedUid(BROKER, "1.2.3.1", CrosswalkStore.ID_TYPE_SOP_UID));
+                assertEquals(0, writer.getPendingCount());
+            } finally {
+                writer.close();
+                failingStore.close();
+            }
+        }
+    }
+
+    /**
+     * Crosswalk store whose batch writes for {@link #BROKER} fail until told otherwise.
+     */
+    private static class FailingStore extends CrosswalkStore {
+        volatile boolean failing = true;
+
+        FailingStore(String dataDirectory) {
+            super(dataDirectory);
+        }
+
+        @Override
+        public boolean storeUidMappings(String brokerName, List<UidMapping> mappings) {
+            return !(failing && BROKER.equals(brokerName)) && super.storeUidMappings(brokerName, mappings);
+        }
+    }
+}
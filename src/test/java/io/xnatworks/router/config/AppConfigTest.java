@@ -142,6 +142,8 @@ class AppConfigTest {
                     use_tls: true
                     timeout: 30
                     max_retries: 2
+                    max_associations: 4
+                    adaptive_associations: true
                     description: PACS Server
                     enabled: true
                 """;
@@ -164,6 +166,17 @@ class AppConfigTest {
             assertTrue(dicomDest.isUseTls());
             assertEquals(30, dicomDest.getTimeout());
             assertEquals(2, dicomDest.getMaxRetries());
+            assertEquals(4, dicomDest.getMaxAssociations());
+            assertTrue(dicomDest.isAdaptiveAssociations());
+        }
+
+        @Test
+        @DisplayName("Should default DICOM AE destination to a single association")
+        void shouldDefaultToSingleAssociation() {
+            AppConfig.DicomAeDestination dicomDest = new AppConfig.DicomAeDestination();
+
+            assertEquals(1, dicomDest.getMaxAssociations());
+            assertFalse(dicomDest.isAdaptiveAssociations());
         }
 
         @Test
@@ -0,0 +1,181 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.dicom;
+
+import io.xnatworks.router.config.AppConfig;
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.io.DicomOutputStream;
+import org.dcm4che3.net.*;
+import org.dcm4che3.net.pdu.PresentationContext;
+import org.dcm4che3.net.service.BasicCStoreSCP;
+import org.dcm4che3.net.service.DicomServiceRegistry;
+import org.dcm4che3.util.UIDUtils;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * C-STORE throughput versus asynchronous operations window.
+ * <p>
+ * Runs against an in-process storescp stand-in that discards data and answers
+ * each request after a fixed delay, to model round-trip latency to a PACS.
+ * Opt-in: {@code ./gradlew test --tests '*DicomClientBenchmark' -Dbenchmark=true}
+ */
+@DisplayName("DicomClient C-STORE Benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class DicomClientBenchmark {
+
+    private static final String SCP_AE = "BENCH_SCP";
+    private static final int INSTANCES = 200;
+    private static final int ROWS = 512;
+    private static final int COLUMNS = 512;
+    private static final long RESPONSE_DELAY_MS = 5;
+    private static final int[] WINDOWS = {1, 2, 4, 8, 16, 32};
+
+    @TempDir
+    Path tempDir;
+
+    private Device scpDevice;
+    private ExecutorService scpExecutor;
+    private ScheduledExecutorService scpScheduler;
+    private int scpPort;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        scpExecutor = Executors.newCachedThreadPool();
+        scpScheduler = Executors.newSingleThreadScheduledExecutor();
+
+        scpDevice = new Device("bench-storescp");
+        scpDevice.setExecutor(scpExecutor);
+        scpDevice.setScheduledExecutor(scpScheduler);
+
+        Connection conn = new Connection();
+        conn.setPort(0);
+        conn.setMaxOpsPerformed(0); // accept any async window the SCU asks for
+        scpDevice.addConnection(conn);
+
+        ApplicationEntity ae = new ApplicationEntity(SCP_AE);
+        ae.setAssociationAcceptor(true);
+        ae.addConnection(conn);
+        ae.addTransferCapability(new TransferCapability(null, "*", TransferCapability.Role.SCP, "*"));
+        scpDevice.addApplicationEntity(ae);
+
+        DicomServiceRegistry registry = new DicomServiceRegistry();
+        registry.addDicomService(new DelayedStoreSCP());
+        ae.setDimseRQHandler(registry);
+
+        scpDevice.bindConnections();
+        scpPort = conn.getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (scpDevice != null) {
+            scpDevice.unbindConnections();
+        }
+        scpExecutor.shutdownNow();
+        scpScheduler.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Throughput by async operations window")
+    void throughputByWindow() throws Exception {
+        List<File> files = createInstances(INSTANCES);
+        long totalBytes = files.stream().mapToLong(File::length).sum();
+
+        List<double[]> rows = new ArrayList<>();
+        for (int window : WINDOWS) {
+            AppConfig.DicomAeDestination dest = new AppConfig.DicomAeDestination();
+            dest.setAeTitle(SCP_AE);
+            dest.setHost("localhost");
+            dest.setPort(scpPort);
+            dest.setMaxOpsInvoked(window);
+
+            try (DicomClient client = new DicomClient("bench", dest)) {
+                DicomClient.StoreResult result = client.store(files);
+                assertEquals(INSTANCES, result.getSuccessCount());
+
+                double seconds = Math.max(1, result.getDurationMs()) / 1000.0;
+                rows.add(new double[]{window, INSTANCES / seconds, totalBytes / seconds / 1_048_576});
+            }
+        }
+
+        double best = rows.stream().mapToDouble(r -> r[2]).max().orElse(1);
+        System.out.printf("%nC-STORE %d x %d KB instances, %d ms response delay%n",
+                INSTANCES, totalBytes / INSTANCES / 1024, RESPONSE_DELAY_MS);
+        System.out.printf("%-8s %10s %10s  %s%n", "window", "files/s", "MB/s", "");
+        for (double[] r : rows) {
+            System.out.printf("%-8d %10.1f %10.1f  %s%n", (int) r[0], r[1], r[2],
+                    "#".repeat((int) Math.round(40 * r[2] / best)));
+        }
+    }
+
+    private List<File> createInstances(int count) throws IOException {
+        String studyUid = UIDUtils.createUID();
+        String seriesUid = UIDUtils.createUID();
+        byte[] pixels = new byte[ROWS * COLUMNS * 2];
+
+        List<File> files = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String sopInstanceUid = UIDUtils.createUID();
+            Attributes attrs = new Attributes();
+            attrs.setString(Tag.SOPClassUID, VR.UI, UID.CTImageStorage);
+            attrs.setString(Tag.SOPInstanceUID, VR.UI, sopInstanceUid);
+            attrs.setString(Tag.StudyInstanceUID, VR.UI, studyUid);
+            attrs.setString(Tag.SeriesInstanceUID, VR.UI, seriesUid);
+            attrs.setString(Tag.Modality, VR.CS, "CT");
+            attrs.setInt(Tag.InstanceNumber, VR.IS, i + 1);
+            attrs.setInt(Tag.Rows, VR.US, ROWS);
+            attrs.setInt(Tag.Columns, VR.US, COLUMNS);
+            attrs.setInt(Tag.BitsAllocated, VR.US, 16);
+            attrs.setInt(Tag.BitsStored, VR.US, 12);
+            attrs.setInt(Tag.HighBit, VR.US, 11);
+            attrs.setInt(Tag.SamplesPerPixel, VR.US, 1);
+            attrs.setString(Tag.PhotometricInterpretation, VR.CS, "MONOCHROME2");
+            attrs.setBytes(Tag.PixelData, VR.OW, pixels);
+
+            File file = tempDir.resolve(sopInstanceUid + ".dcm").toFile();
+            try (DicomOutputStream dos = new DicomOutputStream(file)) {
+                dos.writeDataset(attrs.createFileMetaInformation(UID.ExplicitVRLittleEndian), attrs);
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * Discards the dataset and answers after {@link #RESPONSE_DELAY_MS} without
+     * blocking the association, so several requests can be outstanding at once.
+     */
+    private class DelayedStoreSCP extends BasicCStoreSCP {
+        DelayedStoreSCP() {
+            super("*");
+        }
+
+        @Override
+        public void onDimseRQ(Association as, PresentationContext pc, Dimse dimse, Attributes rq,
+                              PDVInputStream data) throws IOException {
+            data.skipAll();
+            Attributes rsp = Commands.mkCStoreRSP(rq, Status.Success);
+            scpScheduler.schedule(() -> as.tryWriteDimseRSP(pc, rsp), RESPONSE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+}
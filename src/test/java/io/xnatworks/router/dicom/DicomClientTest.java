@@ -0,0 +1,380 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.dicom;
+
+import io.xnatworks.router.config.AppConfig;
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.io.DicomInputStream;
+import org.dcm4che3.io.DicomOutputStream;
+import org.dcm4che3.net.*;
+import org.dcm4che3.net.pdu.PresentationContext;
+import org.dcm4che3.net.service.AbstractDicomService;
+import org.dcm4che3.net.service.BasicCStoreSCP;
+import org.dcm4che3.net.service.DicomServiceException;
+import org.dcm4che3.net.service.DicomServiceRegistry;
+import org.dcm4che3.util.UIDUtils;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DicomClient against an in-process SCP.
+ */
+@DisplayName("DicomClient Tests")
+class DicomClientTest {
+
+    private static final String SCP_AE = "TEST_SCP";
+
+    @TempDir
+    Path tempDir;
+
+    private Device scpDevice;
+    private ExecutorService scpExecutor;
+    private ScheduledExecutorService scpScheduler;
+    private int scpPort;
+
+    // SOP Instance UID -> number of times the SCP received it
+    private final Map<String, AtomicInteger> received = new ConcurrentHashMap<>();
+    // Association -> number of instances it carried
+    private final Map<Association, AtomicInteger> receivedByAssociation = new ConcurrentHashMap<>();
+    // The first association to store is held back by this much per instance
+    private final AtomicReference<Association> slowAssociation = new AtomicReference<>();
+    private volatile long slowDelayMs;
+    // Instances the SCP sends back for any C-GET
+    private final List<File> getSource = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        scpExecutor = Executors.newCachedThreadPool();
+        scpScheduler = Executors.newSingleThreadScheduledExecutor();
+
+        scpDevice = new Device("test-scp");
+        scpDevice.setExecutor(scpExecutor);
+        scpDevice.setScheduledExecutor(scpScheduler);
+
+        Connection conn = new Connection();
+        conn.setPort(0);
+        conn.setMaxOpsPerformed(0);
+        scpDevice.addConnection(conn);
+
+        ApplicationEntity ae = new ApplicationEntity(SCP_AE);
+        ae.setAssociationAcceptor(true);
+        ae.addConnection(conn);
+        ae.addTransferCapability(new TransferCapability(null, "*", TransferCapability.Role.SCP, "*"));
+        // C-GET storage sub-operations go back to the requester, which takes the SCP role
+        ae.addTransferCapability(new TransferCapability(null, "*", TransferCapability.Role.SCU, "*"));
+        scpDevice.addApplicationEntity(ae);
+
+        DicomServiceRegistry registry = new DicomServiceRegistry();
+        registry.addDicomService(new RecordingStoreSCP());
+        registry.addDicomService(new GetSCP());
+        ae.setDimseRQHandler(registry);
+
+        scpDevice.bindConnections();
+        scpPort = conn.getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (scpDevice != null) {
+            scpDevice.unbindConnections();
+        }
+        scpExecutor.shutdownNow();
+        scpScheduler.shutdownNow();
+    }
+
+    @Nested
+    @DisplayName("Parallel C-STORE Tests")
+    class ParallelStoreTests {
+
+        @Test
+        @DisplayName("Should split a large study across associations and deliver every instance once")
+        void shouldSplitAcrossAssociations() throws Exception {
+            List<File> files = createInstances(40);
+
+            try (DicomClient client = new DicomClient("test", destination(4, false))) {
+                DicomClient.StoreResult result = client.store(files);
+
+                assertEquals(4, result.getAssociationCount());
+                assertEquals(40, result.getSuccessCount());
+                assertEquals(0, result.getFailedCount());
+            }
+
+            assertReceivedOnce(files);
+            // An association that connects late may find its queue already stolen
+            assertTrue(receivedByAssociation.size() > 1, "instances arrived on " + receivedByAssociation.size() + " association(s)");
+        }
+
+        @Test
+        @DisplayName("Should keep a small study on one association")
+        void shouldUseOneAssociationForSmallStudy() throws Exception {
+            List<File> files = createInstances(5);
+
+            try (DicomClient client = new DicomClient("test", destination(4, false))) {
+                DicomClient.StoreResult result = client.store(files);
+
+                assertEquals(1, result.getAssociationCount());
+                assertEquals(5, result.getSuccessCount());
+            }
+
+            assertReceivedOnce(files);
+            assertEquals(1, receivedByAssociation.size());
+        }
+
+        @Test
+        @DisplayName("Should let idle associations steal from a slow one")
+        void shouldStealFromSlowAssociation() throws Exception {
+            slowDelayMs = 200;
+            List<File> files = createInstances(40);
+
+            try (DicomClient client = new DicomClient("test", destination(4, false))) {
+                DicomClient.StoreResult result = client.store(files);
+
+                assertEquals(40, result.getSuccessCount());
+            }
+
+            assertReceivedOnce(files);
+            int slowCount = receivedByAssociation.get(slowAssociation.get()).get();
+            // Each association starts with 10; the others took most of the slow one's share
+            assertTrue(slowCount < 10, "slow association stored " + slowCount + " instances");
+        }
+
+        @Test
+        @DisplayName("Should tune the association count between stores")
+        void shouldAdaptAssociationCount() throws Exception {
+            List<File> files = createInstances(40);
+
+            try (DicomClient client = new DicomClient("test", destination(4, true))) {
+                DicomClient.StoreResult first = client.store(files);
+                assertEquals(1, first.getAssociationCount());
+                assertEquals(40, first.getSuccessCount());
+                assertReceivedOnce(files);
+
+                // The first measurement always probes one step up
+                assertEquals(2, client.getCurrentAssociations());
+
+                received.clear();
+                DicomClient.StoreResult second = client.store(files);
+                assertEquals(2, second.getAssociationCount());
+                assertEquals(40, second.getSuccessCount());
+                assertReceivedOnce(files);
+
+                int current = client.getCurrentAssociations();
+                assertTrue(current >= 1 && current <= 4, "association count " + current);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("C-GET Tests")
+    class CGetTests {
+
+        @Test
+        @DisplayName("Should receive every instance on the C-GET association into the incoming layout")
+        void shouldRetrieveWithCGet() throws Exception {
+            List<File> files = createInstances(6);
+            getSource.addAll(files);
+            Path incomingDir = tempDir.resolve("incoming");
+
+            DicomClient.GetResult result;
+            try (DicomClient client = new DicomClient("test", destination(1, false))) {
+                result = client.get(UID.StudyRootQueryRetrieveInformationModelGet, studyKeys(files.get(0)), incomingDir);
+            }
+
+            assertEquals(Status.Success, result.getStatus());
+            assertEquals(6, result.getCompleted());
+            assertEquals(0, result.getFailed());
+            assertEquals(6, result.getFileCount());
+            assertTrue(result.getTotalBytes() > 0);
+
+            Attributes header = readHeader(files.get(0));
+            Path seriesDir = incomingDir.resolve("study_" + header.getString(Tag.StudyInstanceUID))
+                    .resolve(header.getString(Tag.SeriesInstanceUID));
+            for (File file : files) {
+                assertTrue(Files.exists(seriesDir.resolve(file.getName())), "missing " + file.getName());
+            }
+        }
+
+        @Test
+        @DisplayName("Should report a C-GET with no matches as empty")
+        void shouldHandleNoMatches() throws Exception {
+            Path incomingDir = tempDir.resolve("incoming");
+
+            DicomClient.GetResult result;
+            try (DicomClient client = new DicomClient("test", destination(1, false))) {
+                Attributes keys = new Attributes();
+                keys.setString(Tag.QueryRetrieveLevel, VR.CS, "STUDY");
+                keys.setString(Tag.StudyInstanceUID, VR.UI, UIDUtils.createUID());
+                result = client.get(UID.StudyRootQueryRetrieveInformationModelGet, keys, incomingDir);
+            }
+
+            assertEquals(Status.Success, result.getStatus());
+            assertEquals(0, result.getCompleted());
+            assertEquals(0, result.getFileCount());
+        }
+
+        private Attributes studyKeys(File file) throws IOException {
+            Attributes keys = new Attributes();
+            keys.setString(Tag.QueryRetrieveLevel, VR.CS, "STUDY");
+            keys.setString(Tag.StudyInstanceUID, VR.UI, readHeader(file).getString(Tag.StudyInstanceUID));
+            return keys;
+        }
+    }
+
+    private static Attributes readHeader(File file) throws IOException {
+        try (DicomInputStream dis = new DicomInputStream(file)) {
+            return dis.readDataset(-1, Tag.PixelData);
+        }
+    }
+
+    private AppConfig.DicomAeDestination destination(int maxAssociations, boolean adaptive) {
+        AppConfig.DicomAeDestination dest = new AppConfig.DicomAeDestination();
+        dest.setAeTitle(SCP_AE);
+        dest.setHost("localhost");
+        dest.setPort(scpPort);
+        dest.setMaxAssociations(maxAssociations);
+        dest.setAdaptiveAssociations(adaptive);
+        // One instance in flight per association, so a slow association really is slow
+        dest.setMaxOpsInvoked(1);
+        return dest;
+    }
+
+    private void assertReceivedOnce(List<File> files) {
+        assertEquals(files.size(), received.size());
+        for (File file : files) {
+            String sopInstanceUid = file.getName().replace(".dcm", "");
+            AtomicInteger count = received.get(sopInstanceUid);
+            assertNotNull(count, "never received " + sopInstanceUid);
+            assertEquals(1, count.get(), "received " + sopInstanceUid + " " + count.get() + " times");
+        }
+    }
+
+    private List<File> createInstances(int count) throws IOException {
+        String studyUid = UIDUtils.createUID();
+        String seriesUid = UIDUtils.createUID();
+        byte[] pixels = new byte[16 * 16 * 2];
+
+        List<File> files = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String sopInstanceUid = UIDUtils.createUID();
+            Attributes attrs = new Attributes();
+            attrs.setString(Tag.SOPClassUID, VR.UI, UID.CTImageStorage);
+            attrs.setString(Tag.SOPInstanceUID, VR.UI, sopInstanceUid);
+            attrs.setString(Tag.StudyInstanceUID, VR.UI, studyUid);
+            attrs.setString(Tag.SeriesInstanceUID, VR.UI, seriesUid);
+            attrs.setString(Tag.PatientID, VR.LO, "PAT001");
+            attrs.setString(Tag.Modality, VR.CS, "CT");
+            attrs.setInt(Tag.InstanceNumber, VR.IS, i + 1);
+            attrs.setInt(Tag.Rows, VR.US, 16);
+            attrs.setInt(Tag.Columns, VR.US, 16);
+            attrs.setInt(Tag.BitsAllocated, VR.US, 16);
+            attrs.setInt(Tag.BitsStored, VR.US, 12);
+            attrs.setInt(Tag.HighBit, VR.US, 11);
+            attrs.setInt(Tag.SamplesPerPixel, VR.US, 1);
+            attrs.setString(Tag.PhotometricInterpretation, VR.CS, "MONOCHROME2");
+            attrs.setBytes(Tag.PixelData, VR.OW, pixels);
+
+            File file = tempDir.resolve(sopInstanceUid + ".dcm").toFile();
+            try (DicomOutputStream dos = new DicomOutputStream(file)) {
+                dos.writeDataset(attrs.createFileMetaInformation(UID.ExplicitVRLittleEndian), attrs);
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * C-GET SCP that sends back every instance in {@link #getSource} as storage
+     * sub-operations on the requesting association.
+     */
+    private class GetSCP extends AbstractDicomService {
+        GetSCP() {
+            super(UID.StudyRootQueryRetrieveInformationModelGet);
+        }
+
+        @Override
+        protected void onDimseRQ(Association as, PresentationContext pc, Dimse dimse, Attributes rq,
+                                 Attributes keys) throws IOException {
+            if (dimse != Dimse.C_GET_RQ) {
+                throw new DicomServiceException(Status.UnrecognizedOperation);
+            }
+            // Sub-operation responses arrive on this association's reader thread, so send from another
+            scpExecutor.execute(() -> sendInstances(as, pc, rq, keys.getString(Tag.StudyInstanceUID)));
+        }
+
+        private void sendInstances(Association as, PresentationContext pc, Attributes rq, String studyUid) {
+            int completed = 0;
+            int failed = 0;
+            for (File file : getSource) {
+                try (DicomInputStream dis = new DicomInputStream(file)) {
+                    Attributes fmi = dis.readFileMetaInformation();
+                    Attributes dataset = dis.readDataset();
+                    if (!dataset.getString(Tag.StudyInstanceUID).equals(studyUid)) {
+                        continue;
+                    }
+                    DimseRSP rsp = as.cstore(fmi.getString(Tag.MediaStorageSOPClassUID),
+                            fmi.getString(Tag.MediaStorageSOPInstanceUID), Priority.NORMAL,
+                            new DataWriterAdapter(dataset), UID.ImplicitVRLittleEndian);
+                    rsp.next();
+                    if (rsp.getCommand().getInt(Tag.Status, -1) == Status.Success) {
+                        completed++;
+                    } else {
+                        failed++;
+                    }
+                } catch (Exception e) {
+                    failed++;
+                }
+            }
+
+            Attributes rsp = Commands.mkCGetRSP(rq, failed == 0 ? Status.Success : Status.OneOrMoreFailures);
+            rsp.setInt(Tag.NumberOfCompletedSuboperations, VR.US, completed);
+            rsp.setInt(Tag.NumberOfFailedSuboperations, VR.US, failed);
+            rsp.setInt(Tag.NumberOfWarningSuboperations, VR.US, 0);
+            as.tryWriteDimseRSP(pc, rsp);
+        }
+    }
+
+    /**
+     * Counts every instance per SOP Instance UID and per association, holding
+     * back the first association to store by {@link #slowDelayMs}.
+     */
+    private class RecordingStoreSCP extends BasicCStoreSCP {
+        RecordingStoreSCP() {
+            super("*");
+        }
+
+        @Override
+        protected void store(Association as, PresentationContext pc, Attributes rq,
+                             PDVInputStream data, Attributes rsp) throws IOException {
+            data.skipAll();
+            received.computeIfAbsent(rq.getString(Tag.AffectedSOPInstanceUID), k -> new AtomicInteger())
+                    .incrementAndGet();
+            receivedByAssociation.computeIfAbsent(as, k -> new AtomicInteger()).incrementAndGet();
+
+            slowAssociation.compareAndSet(null, as);
+            if (slowDelayMs > 0 && slowAssociation.get() == as) {
+                try {
+                    Thread.sleep(slowDelayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
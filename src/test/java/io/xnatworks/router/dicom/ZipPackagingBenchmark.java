@@ -0,0 +1,178 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.dicom;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Fragments;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.io.DicomOutputStream;
+import org.dcm4che3.util.UIDUtils;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ZIP packaging throughput and compression ratio per modality.
+ * <p>
+ * Compares the previous packaging (DEFLATE level 6 for every entry) with
+ * {@link ZipPackagingPolicy} at level 1 and 6, sequential and parallel.
+ * Pixel data is synthetic: a smooth phantom with noise in the low bits for
+ * uncompressed modalities, random bytes for JPEG-encapsulated ones.
+ * Opt-in: {@code ./gradlew test --tests '*ZipPackagingBenchmark' -Dbenchmark=true}
+ */
+@DisplayName("ZIP Packaging Benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ZipPackagingBenchmark {
+
+    private static final String JPEG_BASELINE = "1.2.840.10008.1.2.4.50";
+    private static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Throughput and ratio by modality")
+    void throughputByModality() throws Exception {
+        List<Modality> modalities = List.of(
+                new Modality("CT", 200, 512, 512, UID.ExplicitVRLittleEndian),
+                new Modality("MR", 300, 256, 256, UID.ExplicitVRLittleEndian),
+                new Modality("DX", 8, 2048, 2048, UID.ExplicitVRLittleEndian),
+                new Modality("CT-JPEG", 200, 512, 512, JPEG_BASELINE));
+
+        System.out.printf("%n%-8s %-22s %10s %8s%n", "modality", "packaging", "MB/s", "ratio");
+        for (Modality modality : modalities) {
+            List<File> files = createInstances(modality);
+            long totalBytes = files.stream().mapToLong(File::length).sum();
+
+            report(modality, "deflate-6 (previous)", totalBytes, () -> legacyZip(files));
+            report(modality, "policy level 6", totalBytes, () -> policyZip(new ZipPackagingPolicy(6, 1), files));
+            report(modality, "policy level 1", totalBytes, () -> policyZip(new ZipPackagingPolicy(1, 1), files));
+            report(modality, "policy level 1 x" + THREADS, totalBytes,
+                    () -> policyZip(new ZipPackagingPolicy(1, THREADS), files));
+        }
+    }
+
+    private void report(Modality modality, String label, long totalBytes, ZipTask task) throws Exception {
+        task.run(); // warm up
+        long start = System.nanoTime();
+        Path zip = task.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double ratio = (double) Files.size(zip) / totalBytes;
+        System.out.printf("%-8s %-22s %10.1f %8.3f%n", modality.name, label, totalBytes / seconds / 1_048_576, ratio);
+        Files.delete(zip);
+    }
+
+    private Path legacyZip(List<File> files) throws IOException {
+        Path zip = Files.createTempFile(tempDir, "legacy_", ".zip");
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zip))) {
+            for (File file : files) {
+                zos.putNextEntry(new ZipEntry(file.getName()));
+                Files.copy(file.toPath(), zos);
+                zos.closeEntry();
+            }
+        }
+        return zip;
+    }
+
+    private Path policyZip(ZipPackagingPolicy policy, List<File> files) throws IOException {
+        Path zip = Files.createTempFile(tempDir, "policy_", ".zip");
+        policy.createZip(files, zip);
+        return zip;
+    }
+
+    private List<File> createInstances(Modality modality) throws IOException {
+        Path dir = Files.createDirectories(tempDir.resolve(modality.name));
+        Random random = new Random(42);
+        List<File> files = new ArrayList<>(modality.count);
+        for (int i = 0; i < modality.count; i++) {
+            Attributes attrs = new Attributes();
+            attrs.setString(Tag.SOPClassUID, VR.UI, UID.SecondaryCaptureImageStorage);
+            attrs.setString(Tag.SOPInstanceUID, VR.UI, UIDUtils.createUID());
+            attrs.setString(Tag.Modality, VR.CS, modality.name);
+            attrs.setInt(Tag.InstanceNumber, VR.IS, i + 1);
+            attrs.setInt(Tag.Rows, VR.US, modality.rows);
+            attrs.setInt(Tag.Columns, VR.US, modality.columns);
+            attrs.setInt(Tag.BitsAllocated, VR.US, 16);
+            attrs.setInt(Tag.BitsStored, VR.US, 12);
+            attrs.setInt(Tag.HighBit, VR.US, 11);
+            attrs.setInt(Tag.SamplesPerPixel, VR.US, 1);
+            attrs.setString(Tag.PhotometricInterpretation, VR.CS, "MONOCHROME2");
+
+            if (ZipPackagingPolicy.isCompressedTransferSyntax(modality.transferSyntax)) {
+                byte[] frame = new byte[modality.rows * modality.columns / 4];
+                random.nextBytes(frame);
+                Fragments fragments = attrs.newFragments(Tag.PixelData, VR.OB, 2);
+                fragments.add(new byte[0]);
+                fragments.add(frame);
+            } else {
+                attrs.setBytes(Tag.PixelData, VR.OW, phantom(modality.rows, modality.columns, i, random));
+            }
+
+            File file = dir.resolve(String.format("%s_%04d.dcm", modality.name, i)).toFile();
+            try (DicomOutputStream dos = new DicomOutputStream(file)) {
+                dos.writeDataset(attrs.createFileMetaInformation(modality.transferSyntax), attrs);
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * Disc of tissue on a zero background, with a slice-dependent gradient and
+     * a few bits of noise, stored little-endian.
+     */
+    private byte[] phantom(int rows, int columns, int slice, Random random) {
+        byte[] pixels = new byte[rows * columns * 2];
+        double radius = Math.min(rows, columns) * 0.45;
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                double dx = x - columns / 2.0;
+                double dy = y - rows / 2.0;
+                int value = 0;
+                if (dx * dx + dy * dy < radius * radius) {
+                    value = 1000 + (int) (200 * Math.sin((x + slice) / 40.0)) + random.nextInt(32);
+                }
+                int offset = (y * columns + x) * 2;
+                pixels[offset] = (byte) value;
+                pixels[offset + 1] = (byte) (value >> 8);
+            }
+        }
+        return pixels;
+    }
+
+    @FunctionalInterface
+    private interface ZipTask {
+        Path run() throws Exception;
+    }
+
+    private static class Modality {
+        final String name;
+        final int count;
+        final int rows;
+        final int columns;
+        final String transferSyntax;
+
+        Modality(String name, int count, int rows, int columns, String transferSyntax) {
+            this.name = name;
+            this.count = count;
+            this.rows = rows;
+            this.columns = columns;
+            this.transferSyntax = transferSyntax;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.dicom;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Fragments;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.io.DicomOutputStream;
+import org.dcm4che3.util.UIDUtils;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ZipPackagingPolicy.
+ */
+@DisplayName("ZipPackagingPolicy Tests")
+class ZipPackagingPolicyTest {
+
+    private static final String JPEG_BASELINE = "1.2.840.10008.1.2.4.50";
+
+    @TempDir
+    Path tempDir;
+
+    @Nested
+    @DisplayName("Transfer Syntax Tests")
+    class TransferSyntaxTests {
+
+        @Test
+        @DisplayName("Should treat encapsulated transfer syntaxes as compressed")
+        void shouldTreatEncapsulatedAsCompressed() {
+            assertTrue(ZipPackagingPolicy.isCompressedTransferSyntax(JPEG_BASELINE));
+            assertTrue(ZipPackagingPolicy.isCompressedTransferSyntax("1.2.840.10008.1.2.4.90")); // JPEG 2000
+            assertTrue(ZipPackagingPolicy.isCompressedTransferSyntax("1.2.840.10008.1.2.4.80")); // JPEG-LS
+            assertTrue(ZipPackagingPolicy.isCompressedTransferSyntax("1.2.840.10008.1.2.5"));    // RLE
+            assertTrue(ZipPackagingPolicy.isCompressedTransferSyntax("1.2.840.10008.1.2.1.99")); // Deflated
+        }
+
+        @Test
+        @DisplayName("Should treat native transfer syntaxes as uncompressed")
+        void shouldTreatNativeAsUncompressed() {
+            assertFalse(ZipPackagingPolicy.isCompressedTransferSyntax("1.2.840.10008.1.2"));
+            assertFalse(ZipPackagingPolicy.isCompressedTransferSyntax("1.2.840.10008.1.2.1"));
+            assertFalse(ZipPackagingPolicy.isCompressedTransferSyntax("1.2.840.10008.1.2.2"));
+            assertFalse(ZipPackagingPolicy.isCompressedTransferSyntax(null));
+        }
+
+        @Test
+        @DisplayName("Should pick no compression for compressed data only")
+        void shouldPickLevelByTransferSyntax() {
+            ZipPackagingPolicy policy = new ZipPackagingPolicy(6, 1);
+            assertEquals(0, policy.levelFor(JPEG_BASELINE));
+            assertEquals(6, policy.levelFor("1.2.840.10008.1.2.1"));
+        }
+
+        @Test
+        @DisplayName("Should read the transfer syntax from file meta information")
+        void shouldReadTransferSyntax() throws IOException {
+            File jpeg = writeInstance(JPEG_BASELINE, 1);
+            File plain = tempDir.resolve("notes.txt").toFile();
+            Files.writeString(plain.toPath(), "not DICOM");
+
+            assertEquals(JPEG_BASELINE, ZipPackagingPolicy.readTransferSyntax(jpeg.toPath()));
+            assertNull(ZipPackagingPolicy.readTransferSyntax(plain.toPath()));
+        }
+    }
+
+    @Nested
+    @DisplayName("Packaging Tests")
+    class PackagingTests {
+
+        @Test
+        @DisplayName("Should store compressed and deflate uncompressed entries")
+        void shouldChooseMethodPerEntry() throws IOException {
+            List<File> files = List.of(
+                    writeInstance(JPEG_BASELINE, 1),
+                    writeInstance(UID.ExplicitVRLittleEndian, 2));
+            Path zip = tempDir.resolve("sequential.zip");
+
+            new ZipPackagingPolicy(1, 1).createZip(files, zip);
+
+            Map<String, ZipEntry> entries = readEntries(zip);
+            assertEquals(ZipEntry.STORED, entries.get(files.get(0).getName()).getMethod());
+            assertEquals(ZipEntry.DEFLATED, entries.get(files.get(1).getName()).getMethod());
+            assertContentsMatch(files, zip);
+        }
+
+        @Test
+        @DisplayName("Should produce the same entries when deflating in parallel")
+        void shouldDeflateInParallel() throws IOException {
+            List<File> files = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                files.add(writeInstance(UID.ExplicitVRLittleEndian, i));
+            }
+            files.add(writeInstance(JPEG_BASELINE, 99));
+            Path zip = tempDir.resolve("parallel.zip");
+
+            new ZipPackagingPolicy(1, 4).createZip(files, zip);
+
+            Map<String, ZipEntry> entries = readEntries(zip);
+            assertEquals(files.size(), entries.size());
+            assertEquals(ZipEntry.STORED, entries.get(files.get(6).getName()).getMethod());
+            assertEquals(ZipEntry.DEFLATED, entries.get(files.get(0).getName()).getMethod());
+            assertContentsMatch(files, zip);
+        }
+    }
+
+    private File writeInstance(String transferSyntax, int number) throws IOException {
+        Attributes attrs = new Attributes();
+        attrs.setString(Tag.SOPClassUID, VR.UI, UID.CTImageStorage);
+        attrs.setString(Tag.SOPInstanceUID, VR.UI, UIDUtils.createUID());
+        attrs.setString(Tag.Modality, VR.CS, "CT");
+        attrs.setInt(Tag.InstanceNumber, VR.IS, number);
+        attrs.setInt(Tag.Rows, VR.US, 64);
+        attrs.setInt(Tag.Columns, VR.US, 64);
+        attrs.setInt(Tag.BitsAllocated, VR.US, 16);
+
+        if (ZipPackagingPolicy.isCompressedTransferSyntax(transferSyntax)) {
+            byte[] frame = new byte[4096];
+            new Random(number).nextBytes(frame);
+            Fragments fragments = attrs.newFragments(Tag.PixelData, VR.OB, 2);
+            fragments.add(new byte[0]);
+            fragments.add(frame);
+        } else {
+            byte[] pixels = new byte[64 * 64 * 2];
+            for (int i = 0; i < pixels.length; i += 2) {
+                pixels[i] = (byte) (i / 128);
+            }
+            attrs.setBytes(Tag.PixelData, VR.OW, pixels);
+        }
+
+        File file = tempDir.resolve("instance_" + number + ".dcm").toFile();
+        try (DicomOutputStream dos = new DicomOutputStream(file)) {
+            dos.writeDataset(attrs.createFileMetaInformation(transferSyntax), attrs);
+        }
+        return file;
+    }
+
+    private Map<String, ZipEntry> readEntries(Path zip) throws IOException {
+        Map<String, ZipEntry> entries = new HashMap<>();
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            zipFile.stream().forEach(entry -> entries.put(entry.getName(), entry));
+        }
+        return entries;
+    }
+
+    private void assertContentsMatch(List<File> files, Path zip) throws IOException {
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            for (File file : files) {
+                byte[] zipped = zipFile.getInputStream(zipFile.getEntry(file.getName())).readAllBytes();
+                assertTrue(Arrays.equals(Files.readAllBytes(file.toPath()), zipped), file.getName());
+            }
+        }
+    }
+}
@@ -542,6 +542,28 @@ class DestinationManagerTest {
                 assertNull(manager.getDicomClient("unknown"));
             }
         }
+
+        @Test
+        @DisplayName("Should share endpoint metrics between XNAT destinations with the same URL")
+        void shouldShareXnatEndpointMetrics() {
+            AppConfig config = new AppConfig();
+            config.getResilience().setHealthCheckInterval(60);
+
+            for (String name : List.of("xnat-a", "xnat-b")) {
+                AppConfig.XnatDestination xnatDest = new AppConfig.XnatDestination();
+                xnatDest.setUrl("http://xnat.example.org/");
+                xnatDest.setEnabled(true);
+                config.getDestinations().put(name, xnatDest);
+            }
+
+            try (DestinationManager manager = new DestinationManager(config)) {
+                assertNotNull(manager.getXnatClient("xnat-a"));
+                assertNotNull(manager.getXnatMetrics("xnat-a"));
+                assertSame(manager.getXnatMetrics("xnat-a"), manager.getXnatMetrics("xnat-b"));
+                assertEquals("http://xnat.example.org", manager.getXnatMetrics("xnat-a").getUrl());
+                assertNull(manager.getXnatMetrics("unknown"));
+            }
+        }
     }
 
     @Nested
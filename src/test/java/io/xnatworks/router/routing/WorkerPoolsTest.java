@@ -0,0 +1,241 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.routing;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for WorkerPools.
+ */
+@DisplayName("WorkerPools Tests")
+class WorkerPoolsTest {
+
+    private WorkerPools pools;
+
+    @AfterEach
+    void tearDown() {
+        if (pools != null) {
+            pools.close();
+        }
+    }
+
+    @Nested
+    @DisplayName("CPU Pool Tests")
+    class CpuPoolTests {
+
+        @Test
+        @DisplayName("Should share the CPU pool by route weight")
+        void shouldShareByWeight() throws Exception {
+            pools = new WorkerPools(1, 16, 4);
+            pools.registerRoute("HEAVY", 2);
+            pools.registerRoute("LIGHT", 1);
+            CountDownLatch release = new CountDownLatch(1);
+            pools.submitCpu("OTHER", () -> release.await(5, TimeUnit.SECONDS));
+
+            List<String> order = Collections.synchronizedList(new ArrayList<>());
+            List<CompletableFuture<Object>> tasks = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                tasks.add(pools.submitCpu("HEAVY", () -> order.add("HEAVY")));
+                tasks.add(pools.submitCpu("LIGHT", () -> order.add("LIGHT")));
+            }
+            release.countDown();
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+            assertEquals(4, order.subList(0, 6).stream().filter("HEAVY"::equals).count());
+        }
+
+        @Test
+        @DisplayName("Should block the submitter while a route's queue is full")
+        void shouldBlockWhenFull() throws Exception {
+            pools = new WorkerPools(1, 1, 4);
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch started = new CountDownLatch(1);
+            pools.submitCpu("ROUTE", () -> {
+                started.countDown();
+                return release.await(5, TimeUnit.SECONDS);
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            pools.submitCpu("ROUTE", () -> true);
+
+            CompletableFuture<CompletableFuture<Boolean>> blocked =
+                    CompletableFuture.supplyAsync(() -> pools.submitCpu("ROUTE", () -> true));
+            Thread.sleep(200);
+            assertFalse(blocked.isDone());
+
+            release.countDown();
+            assertTrue(blocked.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS));
+        }
+
+        @Test
+        @DisplayName("Should complete the future exceptionally when a task fails")
+        void shouldPropagateFailure() {
+            pools = new WorkerPools(1, 4, 4);
+
+            CompletableFuture<Object> future = pools.submitCpu("ROUTE", () -> {
+                throw new IllegalStateException("boom");
+            });
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+    }
+
+    @Nested
+    @DisplayName("Send Step Tests")
+    class CallCpuTests {
+
+        @Test
+        @DisplayName("Should run a send's step on the CPU pool ahead of queued studies")
+        void shouldRunAheadOfQueuedStudies() throws Exception {
+            pools = new WorkerPools(1, 4, 4);
+            CountDownLatch release = new CountDownLatch(1);
+            pools.submitCpu("ROUTE", () -> release.await(5, TimeUnit.SECONDS));
+            List<String> order = Collections.synchronizedList(new ArrayList<>());
+            CompletableFuture<Object> study = pools.submitCpu("ROUTE", () -> order.add("study"));
+
+            CompletableFuture<String> step = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return pools.callCpu("ROUTE", () -> {
+                        order.add("send");
+                        return Thread.currentThread().getName();
+                    });
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            });
+            Thread.sleep(200);
+            release.countDown();
+
+            assertEquals("cpu-worker-0", step.get(5, TimeUnit.SECONDS));
+            study.get(5, TimeUnit.SECONDS);
+            assertEquals(List.of("send", "study"), order);
+        }
+
+        @Test
+        @DisplayName("Should rethrow the step's own exception")
+        void shouldRethrowFailure() {
+            pools = new WorkerPools(1, 4, 4);
+
+            IllegalStateException e = assertThrows(IllegalStateException.class,
+                    () -> pools.callCpu("ROUTE", () -> {
+                        throw new IllegalStateException("boom");
+                    }));
+            assertEquals("boom", e.getMessage());
+        }
+
+        @Test
+        @DisplayName("Should run the step on the caller while every CPU thread waits on a full transfer queue")
+        void shouldRunOnCallerWhenCpuWaitsOnTransfers() throws Exception {
+            pools = new WorkerPools(1, 4, 1);
+            CountDownLatch sending = new CountDownLatch(1);
+            CountDownLatch go = new CountDownLatch(1);
+            // The send holds the destination's only thread until its CPU step is done
+            CompletableFuture<String> send = pools.submitTransfer("xnat", 1, () -> {
+                sending.countDown();
+                go.await(5, TimeUnit.SECONDS);
+                return pools.callCpu("ROUTE", () -> Thread.currentThread().getName());
+            });
+            assertTrue(sending.await(5, TimeUnit.SECONDS));
+            pools.submitTransfer("xnat", 1, () -> true);
+            // Packaging the next study blocks handing its send to the full queue
+            pools.submitCpu("ROUTE", () -> pools.submitTransfer("xnat", 1, () -> true));
+            Thread.sleep(200);
+            go.countDown();
+
+            assertEquals("transfer-xnat", send.get(10, TimeUnit.SECONDS));
+        }
+
+        @Test
+        @DisplayName("Should run the step on the caller once the CPU pool is closed")
+        void shouldRunOnCallerAfterClose() throws Exception {
+            pools = new WorkerPools(1, 4, 4);
+            pools.close();
+
+            assertEquals(Thread.currentThread().getName(),
+                    pools.callCpu("ROUTE", () -> Thread.currentThread().getName()));
+        }
+    }
+
+    @Nested
+    @DisplayName("Transfer Pool Tests")
+    class TransferPoolTests {
+
+        @Test
+        @DisplayName("Should run sends on the destination's own threads")
+        void shouldRunOnDestinationThreads() throws Exception {
+            pools = new WorkerPools(1, 4, 4);
+
+            String thread = pools.submitTransfer("pacs", 2, () -> Thread.currentThread().getName())
+                    .get(5, TimeUnit.SECONDS);
+
+            assertEquals("transfer-pacs", thread);
+        }
+
+        @Test
+        @DisplayName("Should report every pool with the CPU pool first")
+        void shouldReportStats() throws Exception {
+            pools = new WorkerPools(2, 4, 4);
+            pools.registerRoute("ROUTE", 3);
+            pools.submitCpu("ROUTE", () -> true).get(5, TimeUnit.SECONDS);
+            pools.submitTransfer("xnat", 3, () -> true).get(5, TimeUnit.SECONDS);
+
+            // The send's future completes just before the pool counts the task
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pools.getStats().get(1).getCompleted() < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            List<WorkerPools.PoolStats> stats = pools.getStats();
+
+            assertEquals(2, stats.size());
+            assertEquals("cpu", stats.get(0).getType());
+            assertEquals(2, stats.get(0).getThreads());
+            assertEquals(3, stats.get(0).getRouteWeights().get("ROUTE"));
+            assertEquals("xnat", stats.get(1).getName());
+            assertEquals(3, stats.get(1).getThreads());
+            assertEquals(4, stats.get(1).getQueueCapacity());
+            assertEquals(1, stats.get(1).getCompleted());
+            assertTrue(stats.get(1).getUtilization() >= 0 && stats.get(1).getUtilization() <= 1);
+        }
+
+        @Test
+        @DisplayName("Should accept sends from CPU tasks still running at close")
+        void shouldDrainCpuPoolBeforeTransferPools() throws Exception {
+            pools = new WorkerPools(1, 4, 4);
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Boolean> packaging = pools.submitCpu("ROUTE", () -> {
+                release.await(5, TimeUnit.SECONDS);
+                return pools.submitTransfer("pacs", 1, () -> true).get(5, TimeUnit.SECONDS);
+            });
+
+            Thread closer = new Thread(pools::close);
+            closer.start();
+            Thread.sleep(100);
+            release.countDown();
+
+            assertTrue(packaging.get(5, TimeUnit.SECONDS));
+            closer.join(5000);
+            assertTrue(pools.submitTransfer("pacs", 1, () -> true).isCompletedExceptionally());
+        }
+
+        @Test
+        @DisplayName("Should reject sends after close")
+        void shouldRejectAfterClose() {
+            pools = new WorkerPools(1, 4, 4);
+            pools.close();
+
+            CompletableFuture<Boolean> future = pools.submitTransfer("pacs", 1, () -> true);
+
+            assertTrue(future.isCompletedExceptionally());
+        }
+    }
+}
@@ -148,6 +148,16 @@ class TransferTrackerTest {
             assertEquals(30000, updated.getBytesProcessed());
         }
 
+        @Test
+        @DisplayName("Should scale upload progress to files and bytes")
+        void updateUploadProgress_ShouldScaleToTransfer() {
+            tracker.updateUploadProgress(record.getId(), 250, 1000);
+
+            TransferTracker.TransferRecord updated = tracker.getTransfer(record.getId());
+            assertEquals(25, updated.getFilesProcessed());
+            assertEquals(256000, updated.getBytesProcessed());
+        }
+
         @Test
         @DisplayName("Should calculate progress percentage correctly")
         void getProgressPercent_ShouldCalculateCorrectly() {
@@ -0,0 +1,99 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.xnat;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for UploadPartitioner.
+ */
+@DisplayName("UploadPartitioner Tests")
+class UploadPartitionerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private List<File> createSeries(String seriesUid, int count, int size) throws IOException {
+        Path seriesDir = Files.createDirectories(tempDir.resolve("study_1.2.3").resolve(seriesUid));
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Path file = seriesDir.resolve(seriesUid + "." + i + ".dcm");
+            Files.write(file, new byte[size]);
+            files.add(file.toFile());
+        }
+        return files;
+    }
+
+    @Test
+    @DisplayName("Should keep a single part when not splitting")
+    void shouldKeepSinglePartWhenNotSplitting() throws IOException {
+        List<File> files = createSeries("1.1", 3, 100);
+
+        assertEquals(List.of(files), UploadPartitioner.partition(files, "none", 0));
+        assertEquals(List.of(files), UploadPartitioner.partition(files, null, 0));
+        assertEquals(List.of(files), UploadPartitioner.partition(files, "bogus", 0));
+    }
+
+    @Test
+    @DisplayName("Should create one part per series")
+    void shouldCreateOnePartPerSeries() throws IOException {
+        List<File> first = createSeries("1.1", 3, 100);
+        List<File> second = createSeries("1.2", 2, 100);
+        List<File> files = new ArrayList<>(first);
+        files.addAll(second);
+
+        List<List<File>> parts = UploadPartitioner.partition(files, "series", 0);
+
+        assertEquals(List.of(first, second), parts);
+    }
+
+    @Test
+    @DisplayName("Should split a series larger than the part size")
+    void shouldSplitLargeSeries() throws IOException {
+        List<File> files = createSeries("1.1", 5, 100);
+
+        List<List<File>> parts = UploadPartitioner.partition(files, "series", 250);
+
+        assertEquals(3, parts.size());
+        assertEquals(List.of(files.get(0), files.get(1)), parts.get(0));
+        assertEquals(List.of(files.get(4)), parts.get(2));
+    }
+
+    @Test
+    @DisplayName("Should pack series together by size")
+    void shouldPackSeriesBySize() throws IOException {
+        List<File> files = new ArrayList<>(createSeries("1.1", 2, 100));
+        files.addAll(createSeries("1.2", 2, 100));
+        files.addAll(createSeries("1.3", 1, 100));
+
+        List<List<File>> parts = UploadPartitioner.partition(files, "size", 300);
+
+        assertEquals(2, parts.size());
+        assertEquals(3, parts.get(0).size());
+        assertEquals(2, parts.get(1).size());
+    }
+
+    @Test
+    @DisplayName("Should give an oversized file a part of its own")
+    void shouldAllowOversizedFile() throws IOException {
+        List<File> files = createSeries("1.1", 2, 500);
+
+        List<List<File>> parts = UploadPartitioner.partition(files, "size", 100);
+
+        assertEquals(2, parts.size());
+        parts.forEach(part -> assertEquals(1, part.size()));
+    }
+}
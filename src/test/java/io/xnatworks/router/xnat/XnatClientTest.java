@@ -0,0 +1,334 @@
+/*
+ * XNAT DICOM Router
+ * Copyright (c) 2025 XNATWorks.
+ * All rights reserved.
+ */
+package io.xnatworks.router.xnat;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.xnatworks.router.config.AppConfig;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Sink;
+import okio.Timeout;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for XnatClient streaming uploads and its HTTP client.
+ */
+@DisplayName("XnatClient Tests")
+class XnatClientTest {
+
+    private static final byte[] ZIP_BYTES = zipBytes(200_000);
+
+    @Nested
+    @DisplayName("ZipStreamRequestBody Tests")
+    class ZipStreamRequestBodyTests {
+
+        @Test
+        @DisplayName("Should send the ZIP and report progress")
+        void shouldStreamZip() throws IOException {
+            List<Long> progress = new CopyOnWriteArrayList<>();
+            XnatClient.ZipStreamRequestBody body = new XnatClient.ZipStreamRequestBody(
+                    out -> out.write(ZIP_BYTES), ZIP_BYTES.length, (sent, total) -> progress.add(sent));
+
+            Buffer sink = new Buffer();
+            body.writeTo(sink);
+
+            assertArrayEquals(ZIP_BYTES, sink.readByteArray());
+            assertTrue(body.isStarted());
+            assertFalse(body.isWriterFailed());
+            assertEquals(ZIP_BYTES.length, body.getBytesWritten());
+            assertEquals(ZIP_BYTES.length, progress.get(progress.size() - 1));
+        }
+
+        @Test
+        @DisplayName("Should report a dropped connection as retryable")
+        void shouldNotFlagSinkFailure() {
+            XnatClient.ZipStreamRequestBody body = new XnatClient.ZipStreamRequestBody(
+                    XnatClientTest::writeInChunks, ZIP_BYTES.length, null);
+
+            BufferedSink sink = Okio.buffer(new FailingSink(50_000));
+            assertThrows(IOException.class, () -> body.writeTo(sink));
+
+            assertFalse(body.isWriterFailed());
+            assertTrue(body.getBytesWritten() < ZIP_BYTES.length);
+        }
+
+        @Test
+        @DisplayName("Should mark a failure inside the writer as not retryable")
+        void shouldFlagWriterFailure() {
+            XnatClient.ZipStreamRequestBody body = new XnatClient.ZipStreamRequestBody(out -> {
+                out.write(ZIP_BYTES, 0, 1000);
+                throw new IOException("anonymization failed");
+            }, ZIP_BYTES.length, null);
+
+            assertThrows(IOException.class, () -> body.writeTo(new Buffer()));
+
+            assertTrue(body.isWriterFailed());
+        }
+    }
+
+    @Nested
+    @DisplayName("Streaming Upload Retry Tests")
+    class RetryTests {
+
+        private HttpServer server;
+        private OkHttpClient httpClient;
+        private final Queue<Integer> importCodes = new ConcurrentLinkedQueue<>();
+        private final List<byte[]> importBodies = new CopyOnWriteArrayList<>();
+        private final AtomicInteger logins = new AtomicInteger();
+
+        @BeforeEach
+        void startServer() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/data/JSESSION", exchange -> {
+                String session = "SESSION" + logins.incrementAndGet();
+                respond(exchange, 200, session);
+            });
+            server.createContext("/data/services/import", exchange -> {
+                importBodies.add(exchange.getRequestBody().readAllBytes());
+                Integer code = importCodes.poll();
+                respond(exchange, code != null ? code : 200, "/data/prearchive/projects/TEST/1/SESSION");
+            });
+            server.start();
+            httpClient = XnatClientManager.createHttpClient(2, new XnatClientManager.EndpointMetrics("test"));
+        }
+
+        @AfterEach
+        void stopServer() {
+            server.stop(0);
+            httpClient.dispatcher().executorService().shutdown();
+            httpClient.connectionPool().evictAll();
+        }
+
+        private XnatClient client() {
+            AppConfig.XnatEndpoint endpoint = new AppConfig.XnatEndpoint();
+            endpoint.setUrl("http://127.0.0.1:" + server.getAddress().getPort());
+            endpoint.setUsername("user");
+            endpoint.setPassword("pass");
+            return new XnatClient("test", endpoint, httpClient, new XnatClientManager.EndpointMetrics("test"));
+        }
+
+        @Test
+        @DisplayName("Should run the writer once when the first attempt succeeds")
+        void shouldNotSpoolOnSuccess() throws IOException {
+            AtomicInteger writes = new AtomicInteger();
+
+            XnatClient.UploadResult result = client().uploadStreaming(out -> {
+                writes.incrementAndGet();
+                out.write(ZIP_BYTES);
+            }, ZIP_BYTES.length, "TEST", "SUBJ", "SESSION", false, 2, 10, null);
+
+            assertTrue(result.isSuccess());
+            assertEquals(1, writes.get());
+            assertArrayEquals(ZIP_BYTES, importBodies.get(0));
+        }
+
+        @Test
+        @DisplayName("Should spool the ZIP once after a failed attempt and resend the spool file")
+        void shouldRetryFromSpool() throws IOException {
+            importCodes.add(500);
+            importCodes.add(503);
+            AtomicInteger writes = new AtomicInteger();
+
+            XnatClient.UploadResult result = client().uploadStreaming(out -> {
+                writes.incrementAndGet();
+                out.write(ZIP_BYTES);
+            }, ZIP_BYTES.length, "TEST", "SUBJ", "SESSION", false, 2, 10, null);
+
+            assertTrue(result.isSuccess());
+            assertEquals(3, result.getAttempt());
+            assertEquals(2, writes.get());
+            assertEquals(3, importBodies.size());
+            for (byte[] importBody : importBodies) {
+                assertArrayEquals(ZIP_BYTES, importBody);
+            }
+        }
+
+        @Test
+        @DisplayName("Should resend the spooled ZIP after re-authenticating")
+        void shouldResendSpoolAfterReauthentication() throws IOException {
+            importCodes.add(401);
+            AtomicInteger writes = new AtomicInteger();
+
+            XnatClient.UploadResult result = client().uploadStreaming(out -> {
+                writes.incrementAndGet();
+                out.write(ZIP_BYTES);
+            }, ZIP_BYTES.length, "TEST", "SUBJ", "SESSION", false, 1, 10, null);
+
+            assertTrue(result.isSuccess());
+            assertEquals(2, writes.get());
+            assertEquals(2, logins.get());
+            assertArrayEquals(ZIP_BYTES, importBodies.get(1));
+        }
+
+        @Test
+        @DisplayName("Should count the resend after a 401 against the retries")
+        void shouldNotResendBeyondRetryCap() throws IOException {
+            importCodes.add(401);
+            importCodes.add(401);
+
+            XnatClient.UploadResult result = client().uploadStreaming(out -> out.write(ZIP_BYTES),
+                    ZIP_BYTES.length, "TEST", "SUBJ", "SESSION", false, 0, 10, null);
+
+            assertFalse(result.isSuccess());
+            assertEquals(401, result.getHttpCode());
+            assertEquals(1, importBodies.size());
+        }
+
+        @Test
+        @DisplayName("Should not retry when the ZIP writer fails")
+        void shouldNotRetryWriterFailure() {
+            AtomicInteger writes = new AtomicInteger();
+
+            assertThrows(IOException.class, () -> client().uploadStreaming(out -> {
+                writes.incrementAndGet();
+                out.write(ZIP_BYTES, 0, 1000);
+                throw new IOException("anonymization failed");
+            }, ZIP_BYTES.length, "TEST", "SUBJ", "SESSION", false, 2, 10, null));
+
+            assertEquals(1, writes.get());
+        }
+    }
+
+    @Nested
+    @DisplayName("Request Limit Tests")
+    class RequestLimitTests {
+
+        private HttpServer server;
+        private OkHttpClient httpClient;
+        private final AtomicInteger requests = new AtomicInteger();
+
+        @BeforeEach
+        void startServer() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/data/JSESSION", exchange -> {
+                requests.incrementAndGet();
+                respond(exchange, 200, "SESSION");
+            });
+            server.start();
+            httpClient = XnatClientManager.createHttpClient(1, null);
+        }
+
+        @AfterEach
+        void stopServer() {
+            server.stop(0);
+            httpClient.dispatcher().executorService().shutdown();
+            httpClient.connectionPool().evictAll();
+        }
+
+        @Test
+        @DisplayName("Should hold a synchronous request until the host's open response is closed")
+        void shouldLimitSynchronousRequestsPerHost() throws Exception {
+            Request request = new Request.Builder()
+                    .url("http://127.0.0.1:" + server.getAddress().getPort() + "/data/JSESSION")
+                    .build();
+            Response first = httpClient.newCall(request).execute();
+
+            CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() -> {
+                try (Response response = httpClient.newCall(request).execute()) {
+                    return response.code();
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            });
+            Thread.sleep(200);
+            assertFalse(second.isDone());
+            assertEquals(1, requests.get());
+
+            first.close();
+            assertEquals(200, second.get(5, TimeUnit.SECONDS));
+            assertEquals(2, requests.get());
+        }
+
+        @Test
+        @DisplayName("Should give the slot back when the request fails")
+        void shouldReleaseSlotOnFailure() throws Exception {
+            server.stop(0);
+            Request request = new Request.Builder()
+                    .url("http://127.0.0.1:" + server.getAddress().getPort() + "/data/JSESSION")
+                    .build();
+
+            assertThrows(IOException.class, () -> httpClient.newCall(request).execute());
+            assertThrows(IOException.class, () -> httpClient.newCall(request).execute());
+        }
+    }
+
+    private static void writeInChunks(OutputStream out) throws IOException {
+        for (int offset = 0; offset < ZIP_BYTES.length; offset += 8192) {
+            out.write(ZIP_BYTES, offset, Math.min(8192, ZIP_BYTES.length - offset));
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] zipBytes(int size) {
+        byte[] bytes = new byte[size];
+        Arrays.fill(bytes, (byte) 'Z');
+        for (int i = 0; i < size; i += 97) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+
+    /**
+     * Sink that accepts a number of bytes and then fails like a dropped connection.
+     */
+    private static class FailingSink implements Sink {
+        private long remaining;
+
+        FailingSink(long limit) {
+            this.remaining = limit;
+        }
+
+        @Override
+        public void write(Buffer source, long byteCount) throws IOException {
+            if (byteCount > remaining) {
+                throw new IOException("Connection reset");
+            }
+            remaining -= byteCount;
+            source.skip(byteCount);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
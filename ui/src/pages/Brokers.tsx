@@ -12,6 +12,17 @@ interface Broker {
   }
 }
 
+interface CacheStats {
+  size: number
+  maxSize: number
+  hits: number
+  negativeHits: number
+  misses: number
+  evictions: number
+  expirations: number
+  hitRate: number
+}
+
 interface BrokerDetail {
   name: string
   description: string
@@ -21,6 +32,8 @@ interface BrokerDetail {
     stsHost: string
     apiHost: string
     timeout: number
+    batchLookupEnabled: boolean
+    lookupConcurrency: number
   }
   auth: {
     appName: string
@@ -32,6 +45,8 @@ interface BrokerDetail {
     cacheEnabled: boolean
     cacheTtlSeconds: number
     cacheMaxSize: number
+    cacheNegativeTtlSeconds: number
+    cacheWarmUp: boolean
     replacePatientId: boolean
     replacePatientName: boolean
     patientIdPrefix: string
@@ -45,6 +60,9 @@ interface BrokerDetail {
     maxDays: number
   }
   hashUidsEnabled?: boolean
+  cache?: {
+    stats: CacheStats
+  }
   crosswalk?: {
     totalMappings: number
   }
@@ -77,6 +95,8 @@ interface BrokerFormData {
   cache_enabled: boolean
   cache_ttl_seconds: number
   cache_max_size: number
+  cache_negative_ttl_seconds: number
+  cache_warm_up: boolean
   replace_patient_id: boolean
   replace_patient_name: boolean
   lookup_script: string
@@ -88,6 +108,8 @@ interface BrokerFormData {
   username: string
   password: string
   timeout: number
+  batch_lookup_enabled: boolean
+  lookup_concurrency: number
   // Date shift fields
   date_shift_enabled: boolean
   date_shift_min_days: number
@@ -107,6 +129,8 @@ const defaultBrokerForm: BrokerFormData = {
   cache_enabled: true,
   cache_ttl_seconds: 3600,
   cache_max_size: 10000,
+  cache_negative_ttl_seconds: 30,
+  cache_warm_up: false,
   replace_patient_id: true,
   replace_patient_name: true,
   lookup_script: '',
@@ -118,6 +142,8 @@ const defaultBrokerForm: BrokerFormData = {
   username: '',
   password: '',
   timeout: 30,
+  batch_lookup_enabled: false,
+  lookup_concurrency: 8,
   // Date shift defaults
   date_shift_enabled: false,
   date_shift_min_days: -365,
@@ -197,6 +223,8 @@ export default function Brokers() {
       cache_enabled: broker.behavior?.cacheEnabled ?? true,
       cache_ttl_seconds: broker.behavior?.cacheTtlSeconds || 3600,
       cache_max_size: broker.behavior?.cacheMaxSize || 10000,
+      cache_negative_ttl_seconds: broker.behavior?.cacheNegativeTtlSeconds ?? 30,
+      cache_warm_up: broker.behavior?.cacheWarmUp ?? false,
       replace_patient_id: broker.behavior?.replacePatientId ?? true,
       replace_patient_name: broker.behavior?.replacePatientName ?? true,
       lookup_script: broker.behavior?.lookupScript || '',
@@ -208,6 +236,8 @@ export default function Brokers() {
       username: broker.auth?.username || '',
       password: '', // Don't pre-fill password fields
       timeout: broker.connection?.timeout || 30,
+      batch_lookup_enabled: broker.connection?.batchLookupEnabled ?? false,
+      lookup_concurrency: broker.connection?.lookupConcurrency || 8,
       // Date shift fields
       date_shift_enabled: broker.dateShift?.enabled ?? false,
       date_shift_min_days: broker.dateShift?.minDays ?? -365,
@@ -455,6 +485,28 @@ export default function Brokers() {
                         max={300}
                       />
                     </div>
+
+                    <div className="form-group">
+                      <label>Max Concurrent Lookups</label>
+                      <input
+                        type="number"
+                        value={brokerForm.lookup_concurrency}
+                        onChange={e => setBrokerForm({ ...brokerForm, lookup_concurrency: parseInt(e.target.value) || 8 })}
+                        min={1}
+                        max={64}
+                      />
+                    </div>
+
+                    <div className="form-group checkbox-group">
+                      <label>
+                        <input
+                          type="checkbox"
+                          checked={brokerForm.batch_lookup_enabled}
+                          onChange={e => setBrokerForm({ ...brokerForm, batch_lookup_enabled: e.target.checked })}
+                        />
+                        API Supports Batch Lookup
+                      </label>
+                    </div>
                   </>
                 )}
 
@@ -566,6 +618,19 @@ export default function Brokers() {
                   </label>
                 </div>
 
+                {brokerForm.cache_enabled && brokerForm.broker_type === 'local' && (
+                  <div className="form-group checkbox-group">
+                    <label>
+                      <input
+                        type="checkbox"
+                        checked={brokerForm.cache_warm_up}
+                        onChange={e => setBrokerForm({ ...brokerForm, cache_warm_up: e.target.checked })}
+                      />
+                      Warm Up Cache from Crosswalk at Startup
+                    </label>
+                  </div>
+                )}
+
                 {brokerForm.broker_type === 'local' && (
                   <>
                     <h4 style={{ marginTop: '20px', marginBottom: '10px', borderBottom: '1px solid #ddd', paddingBottom: '5px' }}>
@@ -757,6 +822,12 @@ export default function Brokers() {
             <div><strong>Patient ID Prefix:</strong> {brokerDetail.behavior.patientIdPrefix || '-'}</div>
             <div><strong>Total Mappings:</strong> {brokerDetail.crosswalk?.totalMappings || 0}</div>
             <div><strong>Cache:</strong> {brokerDetail.behavior.cacheEnabled ? 'Enabled' : 'Disabled'}</div>
+            {brokerDetail.behavior.cacheEnabled && brokerDetail.cache?.stats && (
+              <div title={`${brokerDetail.cache.stats.hits} hits, ${brokerDetail.cache.stats.negativeHits} not-found hits, ${brokerDetail.cache.stats.misses} misses, ${brokerDetail.cache.stats.evictions} evictions`}>
+                <strong>Cache Hit Rate:</strong> {(brokerDetail.cache.stats.hitRate * 100).toFixed(1)}%
+                {' '}({brokerDetail.cache.stats.size.toLocaleString()} / {brokerDetail.cache.stats.maxSize.toLocaleString()})
+              </div>
+            )}
           </div>
 
           {/* Test Lookup */}
@@ -8,6 +8,19 @@ interface Script {
   source: string
   createdAt: string | null
   modifiedAt: string | null
+  profile?: ScriptProfile
+  slow: boolean
+}
+
+interface ScriptProfile {
+  profiledAt: string | null
+  instances: number
+  meanInstanceMs: number
+  p95InstanceMs: number
+  meanApplyMs: number
+  expectedFilesPerSecond: number
+  allocatedBytesPerInstance: number
+  slowestStatement: string | null
 }
 
 interface ScriptWithContent extends Script {
@@ -122,7 +135,12 @@ export default function Scripts() {
             <tbody>
               {builtInScripts.map(script => (
                 <tr key={script.name}>
-                  <td><strong>{script.name}</strong></td>
+                  <td><strong>{script.name}</strong>{script.slow && (
+                    <span className="status-badge status-degraded" style={{ marginLeft: '0.5rem' }}
+                      title={`${script.profile?.meanInstanceMs.toFixed(1)} ms per instance`}>
+                      Slow
+                    </span>
+                  )}</td>
                   <td>{script.description}</td>
                   <td>
                     <button
@@ -153,7 +171,12 @@ export default function Scripts() {
             <tbody>
               {customScripts.map(script => (
                 <tr key={script.name}>
-                  <td><strong>{script.name}</strong></td>
+                  <td><strong>{script.name}</strong>{script.slow && (
+                    <span className="status-badge status-degraded" style={{ marginLeft: '0.5rem' }}
+                      title={`${script.profile?.meanInstanceMs.toFixed(1)} ms per instance`}>
+                      Slow
+                    </span>
+                  )}</td>
                   <td>{script.description || '-'}</td>
                   <td>{script.source}</td>
                   <td>{script.modifiedAt ? new Date(script.modifiedAt).toLocaleDateString() : '-'}</td>
@@ -262,6 +285,20 @@ export default function Scripts() {
             {scriptDetail.modifiedAt && (
               <p><strong>Modified:</strong> {new Date(scriptDetail.modifiedAt).toLocaleString()}</p>
             )}
+            {scriptDetail.profile && (
+              <p>
+                <strong>Profile:</strong>{' '}
+                {scriptDetail.profile.meanInstanceMs.toFixed(1)} ms/instance
+                (p95 {scriptDetail.profile.p95InstanceMs.toFixed(1)} ms),{' '}
+                ~{Math.round(scriptDetail.profile.expectedFilesPerSecond)} files/s
+                over {scriptDetail.profile.instances} instances
+                {scriptDetail.profile.profiledAt && ` on ${new Date(scriptDetail.profile.profiledAt).toLocaleString()}`}
+                {scriptDetail.slow && <span className="status-badge status-degraded" style={{ marginLeft: '0.5rem' }}>Slow</span>}
+                {scriptDetail.profile.slowestStatement && (
+                  <><br /><strong>Slowest statement:</strong> <code>{scriptDetail.profile.slowestStatement}</code></>
+                )}
+              </p>
+            )}
           </div>
 
           {isEditing ? (